@@ -4,7 +4,7 @@ JAPAGOGE_HOME="$(dirname ${BASH_SOURCE[0]})"
 LOG_FILE=$JAPAGOGE_HOME/console.log
 JAVA_HOME=$JAPAGOGE_HOME/jre
 
-JAVA_FLAGS="-server -Xverify:none -Xms512m -Xmx1024m --add-opens=java.base/java.util=ALL-UNNAMED"
+JAVA_FLAGS="-server -Xverify:none -Xms512m -Xmx1024m --add-opens=java.base/java.util=ALL-UNNAMED --add-modules=jdk.incubator.vector"
 
 JAVA_RUN=$JAVA_HOME/bin/java
 
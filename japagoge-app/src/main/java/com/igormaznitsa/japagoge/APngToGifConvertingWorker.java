@@ -3,34 +3,45 @@ package com.igormaznitsa.japagoge;
 import com.igormaznitsa.japagoge.filters.ColorFilter;
 import com.igormaznitsa.japagoge.filters.NoneFilter;
 import com.igormaznitsa.japagoge.gif.AGifWriter;
+import com.igormaznitsa.japagoge.gif.GifLzwEncoder;
+import com.igormaznitsa.japagoge.utils.CompactRgbIndexTable;
+import com.igormaznitsa.japagoge.utils.OrderedDitherMatrix;
 import com.igormaznitsa.japagoge.utils.Pair;
+import com.igormaznitsa.japagoge.utils.PaletteKdTree;
 import com.igormaznitsa.japagoge.utils.PaletteUtils;
+import com.igormaznitsa.japagoge.utils.PixelKernels;
 import com.igormaznitsa.japagoge.utils.PngMode;
+import com.igormaznitsa.japagoge.utils.RgbIndexTable;
+import com.igormaznitsa.japagoge.utils.RgbIndexTableCache;
 import java.awt.BorderLayout;
 import java.awt.Dimension;
+import java.awt.Rectangle;
 import java.awt.Window;
-import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ForkJoinPool;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.IntStream;
 import java.util.zip.DataFormatException;
 import java.util.zip.Inflater;
 import javax.swing.JOptionPane;
@@ -44,49 +55,38 @@ public class APngToGifConvertingWorker extends SwingWorker<File, Integer> {
 
   private static final Logger LOGGER = Logger.getLogger("APNGtoGIF");
 
+  private static final long MAX_FRAMES_IN_WORK_MEMORY = 256L * 1024L * 1024L;
+  private static final int MIN_FRAMES_IN_WORK = 2;
+
   private final File source;
   private final File target;
   private final boolean accurateRgb;
-  private final long sourceLength;
-  private final AtomicLong readCounter = new AtomicLong();
   private final List<ProgressListener> listeners = new CopyOnWriteArrayList<>();
   private final ForkJoinPool forkJoinPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
-  private final boolean dithering;
+  private final DitheringMode ditheringMode;
   private final int[] globalRgb256Palette;
   private final ColorFilter colorFilter;
+  private final RgbIndexTableCache rgbIndexTableCache;
+  private final boolean compactRgbIndexTable;
+  private final boolean checkChunkCrc;
+  private volatile int forcedMaxFramesInWork;
 
   public APngToGifConvertingWorker(final File source, final File target, final boolean accurateRgb, final boolean dithering, final int[] globalRgbPalette, final ColorFilter forceColorFilter) {
+    this(source, target, accurateRgb, dithering ? DitheringMode.FLOYD_STEINBERG : DitheringMode.NONE, globalRgbPalette, forceColorFilter, null, false, false);
+  }
+
+  public APngToGifConvertingWorker(final File source, final File target, final boolean accurateRgb, final DitheringMode ditheringMode, final int[] globalRgbPalette, final ColorFilter forceColorFilter, final RgbIndexTableCache rgbIndexTableCache, final boolean compactRgbIndexTable, final boolean checkChunkCrc) {
     super();
 
     this.globalRgb256Palette = forceColorFilter == null ? Objects.requireNonNull(globalRgbPalette) : forceColorFilter.getPalette().orElse(globalRgbPalette);
     this.colorFilter = forceColorFilter == null ? new NoneFilter() : forceColorFilter;
-    this.dithering = dithering;
+    this.ditheringMode = Objects.requireNonNull(ditheringMode);
     this.accurateRgb = accurateRgb;
     this.source = Objects.requireNonNull(source);
     this.target = Objects.requireNonNull(target);
-    this.sourceLength = source.length();
-  }
-
-  private static void assertNext(final DataInputStream in, final AtomicLong counter, final int... values) throws IOException {
-    for (final int i : values) {
-      if (in.readUnsignedByte() != i) {
-        throw new IllegalArgumentException("Can't find " + i + " at position " + counter.incrementAndGet());
-      } else {
-        counter.incrementAndGet();
-      }
-    }
-  }
-
-  private static int readInt(final DataInputStream in, final AtomicLong counter) throws IOException {
-    final int result = in.readInt();
-    counter.addAndGet(4);
-    return result;
-  }
-
-  private static int readByte(final DataInputStream in, final AtomicLong counter) throws IOException {
-    final int result = in.readUnsignedByte();
-    counter.incrementAndGet();
-    return result;
+    this.rgbIndexTableCache = rgbIndexTableCache;
+    this.compactRgbIndexTable = compactRgbIndexTable;
+    this.checkChunkCrc = checkChunkCrc;
   }
 
   public static JPanel makePanelFor(final APngToGifConvertingWorker converter) {
@@ -120,114 +120,118 @@ public class APngToGifConvertingWorker extends SwingWorker<File, Integer> {
     return panel;
   }
 
-  private static Pair<Integer, byte[]> ensureRgb(final ColorFilter colorFilter, final PngMode pngMode, final int width, final int height, final byte[] rgbPalette, final byte[] unpackedNormalizedRaster) {
-    byte[] result = unpackedNormalizedRaster;
-    int foundTransparentPaletteColor = -1;
-    int lastAlpha = Integer.MAX_VALUE;
-    final byte[] rgbArray = new byte[width * height * 3];
-    final int bitsPerLine = pngMode.calcBitsPerLine(width) - 8;
-    final int bytesPerLine = pngMode.calcBytesPerScanline(width) - 1;
+  /**
+   * Check that RGB can be written over unfiltered raster. Pixel takes at least three bytes in raster so that RGB of
+   * row never overwrites not decoded rows.
+   */
+  private static boolean isRgbInPlace(final PngMode pngMode) {
+    return pngMode.getBitsPerSample() * pngMode.getSamples() >= 24;
+  }
 
-    int rgbOffset = 0;
-    final int bitsItemLength = pngMode.getBitsPerSample() * pngMode.getSamples();
+  /**
+   * Calculate number of frames which can be in work together, every frame keeps its buffers so that the number is
+   * limited by memory budget and by number of threads.
+   */
+  private static int calcMaxFramesInWork(final IhdrChunk ihdrChunk, final ColorFilter colorFilter, final int parallelism) {
+    final long frameBytes = Math.max(1L, FrameBuffers.estimateBytes(ihdrChunk, colorFilter.getPasses()));
+    final int maxFrames = Math.max(MIN_FRAMES_IN_WORK, parallelism * 2);
+    return (int) Math.max(MIN_FRAMES_IN_WORK, Math.min(maxFrames, MAX_FRAMES_IN_WORK_MEMORY / frameBytes));
+  }
 
-    colorFilter.reset();
+  private static Pair<Integer, byte[]> ensureRgb(final ColorFilter colorFilter, final PngMode pngMode, final int width, final int height, final byte[] rgbPalette, final byte[] unpackedNormalizedRaster, final FrameBuffers buffers) {
+    final byte[] rgbArray = isRgbInPlace(pngMode) ? unpackedNormalizedRaster : buffers.getRgb();
+    final int bytesPerLine = pngMode.calcBytesPerScanline(width) - 1;
+    final int passes = colorFilter.getPasses();
+
+    // raster is decoded once, rows are decoded just before filtering if there is single pass,
+    // whole frame is decoded for several passes
+    final boolean decodeRows = passes == 1;
+    final int[] pixels = decodeRows ? buffers.rowRgb : buffers.getPixels();
 
-    for (int pass = 0; pass < colorFilter.getPasses(); pass++) {
+    int transparentPixel = -1;
+    int lastAlpha = 0xFF;
+    if (!decodeRows) {
       for (int y = 0; y < height; y++) {
-        int srcOffset = y * bytesPerLine;
+        final long rowAlpha = pngMode.decodeRow(unpackedNormalizedRaster, y * bytesPerLine, width, rgbPalette, pixels, y * width);
+        if (rowAlpha >= 0 && (int) (rowAlpha >>> 32) < lastAlpha) {
+          lastAlpha = (int) (rowAlpha >>> 32);
+          transparentPixel = y * width + (int) rowAlpha;
+        }
+      }
+    }
 
-        long samplesAccumulator = 0L;
-        int restBitsNumber = bitsItemLength;
+    int foundTransparentPaletteColor = -1;
+    colorFilter.reset();
 
-        int bufferedBitsNumber = 0;
-        int bufferedByte = 0;
-        for (int x = 0; x < width; ) {
-          if (bufferedBitsNumber == 0) {
-            bufferedByte = unpackedNormalizedRaster[srcOffset++];
-            bufferedBitsNumber = 8;
-          }
-          int bitsToRead = Math.min(bufferedBitsNumber, restBitsNumber);
-
-          while (bitsToRead > 0) {
-            samplesAccumulator = (samplesAccumulator << 1) | ((bufferedByte & 0x80) == 0 ? 0 : 1);
-            bufferedByte <<= 1;
-            restBitsNumber--;
-            bitsToRead--;
-            bufferedBitsNumber--;
+    for (int pass = 0; pass < passes; pass++) {
+      final boolean passImageUpdate = colorFilter.isPassImageUpdate(pass);
+      for (int y = 0; y < height; y++) {
+        final int pixelsOffset;
+        if (decodeRows) {
+          pixelsOffset = 0;
+          final long rowAlpha = pngMode.decodeRow(unpackedNormalizedRaster, y * bytesPerLine, width, rgbPalette, pixels, 0);
+          if (rowAlpha >= 0 && (int) (rowAlpha >>> 32) < lastAlpha) {
+            lastAlpha = (int) (rowAlpha >>> 32);
+            transparentPixel = y * width + (int) rowAlpha;
           }
+        } else {
+          pixelsOffset = y * width;
+        }
+        final int rowOffset = y * width * 3;
 
-          if (restBitsNumber == 0) {
-            final int alpha = pngMode.applySamplesAndGetAlpha(samplesAccumulator, rgbArray, rgbPalette, rgbOffset);
-
-            int r = rgbArray[rgbOffset] & 0xFF;
-            int g = rgbArray[rgbOffset + 1] & 0xFF;
-            int b = rgbArray[rgbOffset + 2] & 0xFF;
-
-            final int filteredRgb = colorFilter.filterRgb((r << 16) | (g << 8) | b, pass);
-
-            if (colorFilter.isPassImageUpdate(pass)) {
-              r = (filteredRgb >> 16) & 0xFF;
-              g = (filteredRgb >> 8) & 0xFF;
-              b = filteredRgb & 0xFF;
-
-              rgbArray[rgbOffset] = (byte) r;
-              rgbArray[rgbOffset + 1] = (byte) g;
-              rgbArray[rgbOffset + 2] = (byte) b;
-            }
-
-            if (alpha >= 0 && alpha < 255 && alpha < lastAlpha) {
-              lastAlpha = alpha;
-              foundTransparentPaletteColor = PaletteUtils.findClosestIndex(r, g, b, rgbPalette);
-            }
+        colorFilter.filterRowRgb(pixels, pixelsOffset, width, rgbArray, rowOffset, pass);
+        if (!passImageUpdate && pass == passes - 1) {
+          writeRgb(pixels, pixelsOffset, width, rgbArray, rowOffset);
+        }
 
-            restBitsNumber = bitsItemLength;
-            rgbOffset += 3;
-            samplesAccumulator = 0L;
-            x++;
+        final int transparentX = transparentPixel - y * width;
+        if (pass == 0 && transparentX >= 0 && transparentX < width) {
+          final int rgb;
+          if (passImageUpdate) {
+            final int offset = transparentPixel * 3;
+            rgb = ((rgbArray[offset] & 0xFF) << 16) | ((rgbArray[offset + 1] & 0xFF) << 8) | (rgbArray[offset + 2] & 0xFF);
+          } else {
+            rgb = pixels[pixelsOffset + transparentX];
           }
+          foundTransparentPaletteColor = PaletteUtils.findClosestIndex((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF, rgbPalette);
         }
-        result = rgbArray;
       }
     }
-    return Pair.of(foundTransparentPaletteColor, result);
+    return Pair.of(foundTransparentPaletteColor, rgbArray);
   }
 
-  private static Inflater extractData(final Inflater inflater, final PngChunk dataChunk, final ByteArrayOutputStream outputStream) throws IOException {
-    final byte[] workData;
-    if (dataChunk.name.equals("IDAT")) {
-      workData = dataChunk.data;
-    } else if (dataChunk.name.equals("fdAT")) {
-      workData = new byte[dataChunk.data.length - 4];
-      System.arraycopy(dataChunk.data, 4, workData, 0, workData.length);
-    } else throw new IllegalArgumentException("Unsupported data chunk: " + dataChunk.name);
-
-    try {
-      final Inflater workInflater = inflater == null ? new Inflater() : inflater;
-      workInflater.setInput(workData);
-      final byte[] unpackBuffer = new byte[16384];
-      while (!workInflater.finished()) {
-        final int unpackedLength = workInflater.inflate(unpackBuffer, 0, unpackBuffer.length);
-        if (unpackedLength == 0)
-          break;
-        outputStream.write(unpackBuffer, 0, unpackedLength);
-      }
-      return workInflater.finished() ? null : workInflater;
-    } catch (DataFormatException ex) {
-      throw new IOException("Compressed data format error", ex);
+  private static void writeRgb(final int[] pixels, final int pixelsOffset, final int length, final byte[] rgbArray, final int rgbOffset) {
+    int offset = rgbOffset;
+    for (int i = pixelsOffset; i < pixelsOffset + length; i++) {
+      final int rgb = pixels[i];
+      rgbArray[offset++] = (byte) (rgb >> 16);
+      rgbArray[offset++] = (byte) (rgb >> 8);
+      rgbArray[offset++] = (byte) rgb;
     }
   }
 
-  private static byte[] removeFiltration(final PngMode pngMode, final int width, final int height, final byte[] filteredPngRaster) {
+  /**
+   * Remove filtration of scanlines in place, restored lines are placed one by one from start of raster without
+   * filter bytes. Restored line is never longer than filtered one so that not processed data is not overwritten.
+   *
+   * @param pngMode           PNG mode of raster
+   * @param width             width of raster
+   * @param height            height of raster
+   * @param filteredPngRaster raster with filtered scanlines, it gets restored raster
+   * @return the same array with restored raster
+   */
+  static byte[] removeFiltration(final PngMode pngMode, final int width, final int height, final byte[] filteredPngRaster) {
     final int scanLineWidth = pngMode.calcBytesPerScanline(width);
     final int bpp = pngMode.getBytesPerPixel();
 
     final int bytesPerRasterLine = scanLineWidth - 1;
 
-    final byte[] restoredRaster = new byte[bytesPerRasterLine * height];
+    final PixelKernels kernels = PixelKernels.getInstance();
+    final byte[] restoredRaster = filteredPngRaster;
     for (int y = 0; y < height; y++) {
       final int filteredLineOffset = y * scanLineWidth;
       final int restoredLineOffset = y * bytesPerRasterLine;
+      final int priorLineOffset = y == 0 ? -1 : restoredLineOffset - bytesPerRasterLine;
       final int scanLineFilter = filteredPngRaster[filteredLineOffset] & 0xFF;
 
       switch (scanLineFilter) {
@@ -238,12 +242,7 @@ public class APngToGifConvertingWorker extends SwingWorker<File, Integer> {
         break;
         case 1: {
           // SUB
-          System.arraycopy(filteredPngRaster, filteredLineOffset + 1, restoredRaster, restoredLineOffset, bytesPerRasterLine);
-          for (int x = 0; x < bytesPerRasterLine; x++) {
-            final int reconPos = restoredLineOffset + x;
-            final int a = x < bpp ? 0 : restoredRaster[reconPos - bpp] & 0xFF;
-            restoredRaster[reconPos] = (byte) (restoredRaster[reconPos] + a);
-          }
+          kernels.unfilterSub(restoredRaster, filteredLineOffset + 1, restoredLineOffset, bytesPerRasterLine, bpp);
         }
         break;
         case 2: {
@@ -251,33 +250,18 @@ public class APngToGifConvertingWorker extends SwingWorker<File, Integer> {
           if (y == 0) {
             System.arraycopy(filteredPngRaster, filteredLineOffset + 1, restoredRaster, restoredLineOffset, bytesPerRasterLine);
           } else {
-            for (int x = 0; x < bytesPerRasterLine; x++) {
-              final int reconPos = restoredLineOffset + x;
-              final int b = restoredRaster[reconPos - bytesPerRasterLine] & 0xFF;
-              restoredRaster[reconPos] = (byte) (filteredPngRaster[filteredLineOffset + x + 1] + b);
-            }
+            kernels.unfilterUp(restoredRaster, filteredLineOffset + 1, restoredLineOffset, priorLineOffset, bytesPerRasterLine);
           }
         }
         break;
         case 3: {
           // AVERAGE
-          for (int x = 0; x < bytesPerRasterLine; x++) {
-            final int reconOffset = restoredLineOffset + x;
-            final int a = x < bpp ? 0 : restoredRaster[reconOffset - bpp] & 0xFF;
-            final int b = y == 0 ? 0 : restoredRaster[reconOffset - bytesPerRasterLine] & 0xFF;
-            restoredRaster[reconOffset] = (byte) ((filteredPngRaster[filteredLineOffset + 1 + x] & 0xFF) + ((a + b) >> 1));
-          }
+          kernels.unfilterAverage(restoredRaster, filteredLineOffset + 1, restoredLineOffset, priorLineOffset, bytesPerRasterLine, bpp);
         }
         break;
         case 4: {
           // PAETH
-          for (int x = 0; x < bytesPerRasterLine; x++) {
-            final int reconPos = restoredLineOffset + x;
-            final int a = x < bpp ? 0 : restoredRaster[reconPos - bpp] & 0xFF;
-            final int b = y == 0 ? 0 : restoredRaster[reconPos - bytesPerRasterLine] & 0xFF;
-            final int c = x < bpp || y == 0 ? 0 : restoredRaster[reconPos - bytesPerRasterLine - bpp] & 0xFF;
-            restoredRaster[reconPos] = (byte) ((filteredPngRaster[filteredLineOffset + 1 + x] & 0xFF) + paethPredictor(a, b, c));
-          }
+          kernels.unfilterPaeth(restoredRaster, filteredLineOffset + 1, restoredLineOffset, priorLineOffset, bytesPerRasterLine, bpp);
         }
         break;
         default:
@@ -287,17 +271,42 @@ public class APngToGifConvertingWorker extends SwingWorker<File, Integer> {
     return restoredRaster;
   }
 
-  private static int paethPredictor(int a, int b, int c) {
-    final int p = a + b - c;
-    final int pa = Math.abs(p - a);
-    final int pb = Math.abs(p - b);
-    final int pc = Math.abs(a + b - c - c);
+  /**
+   * Restore raster of palette indexes or gray levels with one byte per pixel, samples less than byte are unpacked
+   * and gray levels are scaled to byte range.
+   *
+   * @param pngMode          PNG mode of raster, must have single sample per pixel with bit depth up to 8
+   * @param width            width of raster
+   * @param height           height of raster
+   * @param filteredPngRaster raster with filtered scanlines, it is restored in place
+   * @param buffers           buffers of frame
+   * @return one byte per pixel raster
+   */
+  private static byte[] extractIndexes(final PngMode pngMode, final int width, final int height, final byte[] filteredPngRaster, final FrameBuffers buffers) {
+    final byte[] raster = removeFiltration(pngMode, width, height, filteredPngRaster);
+    final int bitDepth = pngMode.getBitsPerSample();
+    if (bitDepth == 8) {
+      return raster;
+    }
+
+    final boolean grayscale = pngMode == PngMode.MODE_GRAYSCALE_1
+        || pngMode == PngMode.MODE_GRAYSCALE_2
+        || pngMode == PngMode.MODE_GRAYSCALE_4;
+    final int mask = (1 << bitDepth) - 1;
+    final int levelScale = 0xFF / mask;
+    final int bytesPerLine = pngMode.calcBytesPerScanline(width) - 1;
 
-    if (pa <= pb && pa <= pc) {
-      return a;
-    } else if (pb <= pc) {
-      return b;
-    } else return c;
+    final byte[] result = buffers.getIndexes();
+    int outPosition = 0;
+    for (int y = 0; y < height; y++) {
+      final int lineOffset = y * bytesPerLine;
+      for (int x = 0; x < width; x++) {
+        final int bitPosition = x * bitDepth;
+        final int sample = (raster[lineOffset + (bitPosition >> 3)] >> (8 - bitDepth - (bitPosition & 7))) & mask;
+        result[outPosition++] = (byte) (grayscale ? sample * levelScale : sample);
+      }
+    }
+    return result;
   }
 
   private static void addArrayCell(final byte[] array, final int index, final int value) {
@@ -313,93 +322,83 @@ public class APngToGifConvertingWorker extends SwingWorker<File, Integer> {
     this.listeners.remove(listener);
   }
 
-  private byte[] generateIndexTable(final byte[] rgb256Palette, final boolean accurateRgb) {
+  /**
+   * Force max number of frames in work instead of number calculated by frame size and number of threads.
+   *
+   * @param maxFramesInWork max number of frames in work, zero or negative to calculate it
+   */
+  void setMaxFramesInWork(final int maxFramesInWork) {
+    this.forcedMaxFramesInWork = maxFramesInWork;
+  }
 
-    final int[] intRgbPalette = new int[rgb256Palette.length];
-    for (int i = 0; i < rgb256Palette.length; i++) {
-      intRgbPalette[i] = rgb256Palette[i] & 0xFF;
+  private RgbIndexTable findIndexTable(final byte[] rgb256Palette, final boolean accurateRgb) {
+    if (this.compactRgbIndexTable) {
+      return this.calculateIndexTable(() -> CompactRgbIndexTable.make(rgb256Palette, accurateRgb, this::isCancelled));
+    }
+    final byte[] table;
+    if (this.rgbIndexTableCache == null) {
+      table = this.generateIndexTable(rgb256Palette, accurateRgb);
+    } else {
+      table = this.rgbIndexTableCache.findOrMake(rgb256Palette, accurateRgb, () -> this.generateIndexTable(rgb256Palette, accurateRgb));
     }
-    final byte[] result = new byte[256 * 256 * 256];
+    return table == null ? null : RgbIndexTable.of(table);
+  }
 
-    final int paletteItems = rgb256Palette.length / 3;
-    try {
-      this.forkJoinPool.submit(() -> IntStream.range(0, 256 * 256 * 256)
-              .parallel()
-              .mapToLong(rgb -> {
-                final int r = (rgb >> 16) & 0xFF;
-                final int g = (rgb >> 8) & 0xFF;
-                final int b = rgb & 0xFF;
-
-                final int y;
-                final float h;
-                if (accurateRgb) {
-                  y = PaletteUtils.toY(r, g, b);
-                  h = PaletteUtils.toHue(r, g, b);
-                } else {
-                  y = 0;
-                  h = 0;
-                }
-                float distance = Float.MAX_VALUE;
-
-                int foundPaletteIndex = 0;
-                for (int i = 0; i < paletteItems; i++) {
-                  int offset = i * 3;
-
-                  final int tr = intRgbPalette[offset++];
-                  final int tg = intRgbPalette[offset++];
-                  final int tb = intRgbPalette[offset];
-
-                  final float distanceRgb;
-                  if (accurateRgb) {
-                    distanceRgb = PaletteUtils.calcAccurateRgbDistance(r, g, b, y, h, tr, tg, tb);
-                  } else {
-                    final int dr = r - tr;
-                    final int dg = g - tg;
-                    final int db = b - tb;
-                    distanceRgb = dr * dr + dg * dg + db * db;
-                  }
+  private byte[] generateIndexTable(final byte[] rgb256Palette, final boolean accurateRgb) {
+    return this.calculateIndexTable(() -> PaletteUtils.makeRgbIndexTable(rgb256Palette, accurateRgb, this::isCancelled));
+  }
 
-                  if (distanceRgb < distance) {
-                    foundPaletteIndex = i;
-                    distance = distanceRgb;
-                  }
-                }
-                return ((long) rgb << 32) | foundPaletteIndex;
-              })
-              .peek(value -> {
-                if (this.isCancelled()) {
-                  forkJoinPool.shutdownNow();
-                }
-              })
-              .forEach(rgbIndex -> {
-                synchronized (result) {
-                  result[(int) (rgbIndex >> 32)] = (byte) rgbIndex;
-                }
-              })).get();
+  private <T> T calculateIndexTable(final Callable<T> calculation) {
+    try {
+      return this.forkJoinPool.submit(calculation).get();
     } catch (InterruptedException | CancellationException ex) {
       LOGGER.severe(" RGB index table stream has been interrupted");
       return null;
-    } catch (Exception ex) {
+    } catch (ExecutionException ex) {
+      if (ex.getCause() instanceof CancellationException) {
+        LOGGER.severe(" RGB index table stream has been interrupted");
+        return null;
+      }
       LOGGER.log(Level.SEVERE, "Exception during RGB table calculation", ex);
       throw new RuntimeException("Interrupted by exception", ex);
     }
-    return result;
   }
 
-  private byte[] replaceRgbByIndexes(final byte[] pngRaster, final byte[] rgb2IndexTable) {
-    final byte[] result = new byte[pngRaster.length / 3];
-    for (int i = 0; i < pngRaster.length; ) {
-      final int outIndex = i / 3;
-      final int r = pngRaster[i++] & 0xFF;
-      final int g = pngRaster[i++] & 0xFF;
-      final int b = pngRaster[i++] & 0xFF;
-      result[outIndex] = rgb2IndexTable[(r << 16) | (g << 8) | b];
+  private static byte[] replaceRgbByIndexes(final byte[] pngRaster, final int pixels, final RgbIndexTable rgb2IndexTable, final byte[] result) {
+    int rgbOffset = 0;
+    for (int i = 0; i < pixels; i++) {
+      final int r = pngRaster[rgbOffset++] & 0xFF;
+      final int g = pngRaster[rgbOffset++] & 0xFF;
+      final int b = pngRaster[rgbOffset++] & 0xFF;
+      result[i] = (byte) rgb2IndexTable.findIndex((r << 16) | (g << 8) | b);
     }
     return result;
   }
 
-  private byte[] convertRgbToIndexesDithering(final int width, final int height, final byte[] rgbPalette, final boolean accurateRgb, final byte[] rgbRaster) {
-    final byte[] resultIndex = new byte[width * height];
+  /**
+   * Replace RGB by indexes with ordered dithering, rows are processed by bands in parallel. Threshold is selected by
+   * pixel position on canvas so that not changed pixels get the same indexes in all frames.
+   */
+  private static byte[] replaceRgbByIndexesOrdered(final byte[] pngRaster, final int frameX, final int frameY, final int width, final int height, final RgbIndexTable rgb2IndexTable, final OrderedDitherMatrix matrix, final byte[] result) throws IOException {
+    final int[] bands = ParallelWork.splitRows(0, height, width, 1);
+    ParallelWork.forEachBand(bands.length - 1, band -> {
+      for (int y = bands[band]; y < bands[band + 1]; y++) {
+        int rgbOffset = y * width * 3;
+        int outIndex = y * width;
+        for (int x = 0; x < width; x++) {
+          final int rgb = ((pngRaster[rgbOffset++] & 0xFF) << 16) | ((pngRaster[rgbOffset++] & 0xFF) << 8) | (pngRaster[rgbOffset++] & 0xFF);
+          result[outIndex++] = (byte) rgb2IndexTable.findIndex(matrix.dither(rgb, frameX + x, frameY + y));
+        }
+      }
+    });
+    return result;
+  }
+
+  private static byte[] toIndexes(final byte[] pngRaster, final int frameX, final int frameY, final int width, final int height, final RgbIndexTable rgb2IndexTable, final OrderedDitherMatrix matrix, final byte[] result) throws IOException {
+    return matrix == null ? replaceRgbByIndexes(pngRaster, width * height, rgb2IndexTable, result) : replaceRgbByIndexesOrdered(pngRaster, frameX, frameY, width, height, rgb2IndexTable, matrix, result);
+  }
+
+  private static byte[] convertRgbToIndexesDithering(final int width, final int height, final byte[] rgbPalette, final PaletteKdTree paletteTree, final byte[] rgbRaster, final byte[] resultIndex) {
 
     final int rgbLineLength = width * 3;
 
@@ -413,12 +412,7 @@ public class APngToGifConvertingWorker extends SwingWorker<File, Integer> {
         final int rasterG = rgbRaster[pixelOffset++] & 0xFF;
         final int rasterB = rgbRaster[pixelOffset] & 0xFF;
 
-        final int paletteIndex;
-        if (accurateRgb) {
-          paletteIndex = PaletteUtils.findClosestIndex(rasterR, rasterG, rasterB, PaletteUtils.toY(rasterR, rasterG, rasterB), PaletteUtils.toHue(rasterR, rasterG, rasterB), rgbPalette);
-        } else {
-          paletteIndex = PaletteUtils.findClosestIndex(rasterR, rasterG, rasterB, rgbPalette);
-        }
+        final int paletteIndex = paletteTree.findClosestCached((rasterR << 16) | (rasterG << 8) | rasterB);
 
         resultIndex[indexLineStart + x] = (byte) paletteIndex;
 
@@ -463,49 +457,90 @@ public class APngToGifConvertingWorker extends SwingWorker<File, Integer> {
     return resultIndex;
   }
 
-  private void notifyUpdateForSizeChange() {
-    final long read = this.readCounter.get();
-    this.publish((int) Math.round(((double) read / (double) this.sourceLength) * 100));
-  }
-
-  private int writeRgbFrameIDAT(final AGifWriter writer, final AGifWriter.DisposalMode disposalMode, final IhdrChunk ihdrChunk, final byte[] rgb2indexTable, final byte[] rgbPalette, final byte[] unpackedData, final FctlChunk fctl) throws IOException {
-    final Pair<Integer, byte[]> indexRgbArrayPair = ensureRgb(this.colorFilter, ihdrChunk.mode, ihdrChunk.width, ihdrChunk.height, rgbPalette, removeFiltration(ihdrChunk.mode, ihdrChunk.width, ihdrChunk.height, unpackedData));
-    writer.addFrame(disposalMode, 0, 0, ihdrChunk.width, ihdrChunk.height, fctl.getDuration(), indexRgbArrayPair.getLeft(), replaceRgbByIndexes(indexRgbArrayPair.getRight(), rgb2indexTable));
-    return indexRgbArrayPair.getLeft();
+  private void notifyUpdateForSizeChange(final PngChunkReader reader) {
+    this.publish((int) Math.round(((double) reader.getPosition() / (double) Math.max(1L, reader.getSize())) * 100));
   }
 
-  private int writeRgbFrameFDAT(final AGifWriter writer, final AGifWriter.DisposalMode disposalMode, final IhdrChunk ihdrChunk, final byte[] rgb2indexTable, final byte[] rgbPalette, final byte[] unpackedData, final FctlChunk fctl) throws IOException {
-    final Pair<Integer, byte[]> indexRgbArrayPair = ensureRgb(this.colorFilter, ihdrChunk.mode, fctl.width, fctl.height, rgbPalette, removeFiltration(ihdrChunk.mode, fctl.width, fctl.height, unpackedData));
-    writer.addFrame(disposalMode, fctl.x, fctl.y, fctl.width, fctl.height, fctl.getDuration(), indexRgbArrayPair.getLeft(), replaceRgbByIndexes(indexRgbArrayPair.getRight(), rgb2indexTable));
-    return indexRgbArrayPair.getLeft();
+  /**
+   * Convert frame into palette indexes and encode it, called by pool threads in parallel for several frames.
+   */
+  private ConvertedFrame convertFrame(final FrameContext context, final FctlChunk fctl, final Rectangle area, final FrameBuffers buffers) throws IOException {
+    final PngMode pngMode = context.ihdrChunk.mode;
+    final boolean indexedSource;
+    final int foundTransparentIndex;
+    final byte[] pixelIndexes;
+    switch (pngMode) {
+      case MODE_GRAYSCALE_1:
+      case MODE_GRAYSCALE_2:
+      case MODE_GRAYSCALE_4:
+      case MODE_GRAYSCALE_8:
+      case MODE_INDEX_1:
+      case MODE_INDEX_2:
+      case MODE_INDEX_4:
+      case MODE_INDEX_8: {
+        // palette or grayscale, transparent index is defined by tRNS
+        indexedSource = true;
+        foundTransparentIndex = -1;
+        pixelIndexes = extractIndexes(pngMode, area.width, area.height, buffers.raster, buffers);
+      }
+      break;
+      default: {
+        // rgb, every frame gets own shard of filter because filter can keep state
+        indexedSource = false;
+        final Pair<Integer, byte[]> indexRgbArrayPair = ensureRgb(this.colorFilter.makeShard(), pngMode, area.width, area.height, context.rgbPalette, removeFiltration(pngMode, area.width, area.height, buffers.raster), buffers);
+        foundTransparentIndex = indexRgbArrayPair.getLeft();
+        if (this.ditheringMode == DitheringMode.FLOYD_STEINBERG) {
+          pixelIndexes = convertRgbToIndexesDithering(area.width, area.height, context.rgbPalette, context.ditheringPaletteTree.get(), indexRgbArrayPair.getRight(), buffers.getIndexes());
+        } else {
+          pixelIndexes = toIndexes(indexRgbArrayPair.getRight(), area.x, area.y, area.width, area.height, context.rgb2indexTable, context.ditherMatrix, buffers.getIndexes());
+        }
+      }
+      break;
+    }
+    // zero delay frames are composed with the next frame so that they are not encoded
+    final GifLzwEncoder encodedImage;
+    if (fctl.getDuration().isZero()) {
+      encodedImage = null;
+    } else {
+      encodedImage = buffers.encoder;
+      encodedImage.encode(area.width, area.height, pixelIndexes);
+    }
+    return new ConvertedFrame(fctl, area, indexedSource, foundTransparentIndex, pixelIndexes, encodedImage, buffers);
   }
 
-  private int writeRgbFrameDitheringIDAT(final AGifWriter writer, final AGifWriter.DisposalMode disposalMode,
-                                         final IhdrChunk ihdrChunk, final byte[] rgbPalette, final boolean preciseRgb, final byte[] unpackedData,
-                                         final FctlChunk fctl) throws IOException {
-    final Pair<Integer, byte[]> indexRgbArrayPair = ensureRgb(this.colorFilter, ihdrChunk.mode, ihdrChunk.width, ihdrChunk.height, rgbPalette, removeFiltration(ihdrChunk.mode, ihdrChunk.width, ihdrChunk.height, unpackedData));
-    writer.addFrame(disposalMode, 0, 0, ihdrChunk.width, ihdrChunk.height, fctl.getDuration(), indexRgbArrayPair.getLeft(), convertRgbToIndexesDithering(ihdrChunk.width, ihdrChunk.height, rgbPalette, preciseRgb, indexRgbArrayPair.getRight()));
-    return indexRgbArrayPair.getLeft();
-  }
+  /**
+   * Write converted frame, frames must be written in order of source because disposal mode and transparent index
+   * depend on previous frames.
+   *
+   * @return transparent palette index for the next frames
+   */
+  private static int writeFrame(final SubFrameComposer writer, final IhdrChunk ihdrChunk, final ConvertedFrame frame, final int transparentPaletteIndex) throws IOException {
+    final AGifWriter.DisposalMode disposalMode;
+    if (frame.fctl.width < ihdrChunk.width || frame.fctl.height < ihdrChunk.height) {
+      if (transparentPaletteIndex < 0) {
+        disposalMode = AGifWriter.DisposalMode.NOT_SPECIFIED;
+      } else {
+        disposalMode = AGifWriter.DisposalMode.OVERWRITE_BY_BACKGROUND_COLOR;
+      }
+    } else {
+      disposalMode = AGifWriter.DisposalMode.NOT_SPECIFIED;
+    }
 
-  private int writeRgbFrameDitheringFDAT(final AGifWriter writer, final AGifWriter.DisposalMode disposalMode, final IhdrChunk ihdrChunk, final byte[] rgbPalette, final boolean preciseRgb, final byte[] unpackedData,
-                                         final FctlChunk fctl) throws IOException {
-    final Pair<Integer, byte[]> indexRgbArrayPair = ensureRgb(this.colorFilter, ihdrChunk.mode, fctl.width, fctl.height, rgbPalette, removeFiltration(ihdrChunk.mode, fctl.width, fctl.height, unpackedData));
-    writer.addFrame(disposalMode, fctl.x, fctl.y, fctl.width, fctl.height, fctl.getDuration(), indexRgbArrayPair.getLeft(), convertRgbToIndexesDithering(fctl.width, fctl.height, rgbPalette, preciseRgb, indexRgbArrayPair.getRight()));
-    return indexRgbArrayPair.getLeft();
-  }
+    final int frameTransparentIndex = frame.indexedSource ? transparentPaletteIndex : frame.foundTransparentIndex;
+    writer.addFrame(disposalMode, frame.area.x, frame.area.y, frame.area.width, frame.area.height, frame.fctl.getDuration(), frameTransparentIndex, frame.pixelIndexes, frame.encodedImage);
 
-  private int writeIndexedFrameIDAT(final AGifWriter writer, final AGifWriter.DisposalMode disposalMode, final IhdrChunk ihdrChunk, final byte[] unpackedData, final FctlChunk fctl, final int transparentIndex) throws IOException {
-    writer.addFrame(disposalMode, 0, 0, ihdrChunk.width, ihdrChunk.height, fctl.getDuration(), transparentIndex, removeFiltration(ihdrChunk.mode, ihdrChunk.width, ihdrChunk.height, unpackedData));
-    return transparentIndex;
+    return transparentPaletteIndex < 0 && frameTransparentIndex >= 0 ? frameTransparentIndex : transparentPaletteIndex;
   }
 
-  private int writeIndexedFrameFDAT(final AGifWriter writer, final AGifWriter.DisposalMode disposalMode, final IhdrChunk ihdrChunk, final byte[] unpackedData, final FctlChunk fctl, final int transparentIndex) throws IOException {
-    writer.addFrame(disposalMode, fctl.x, fctl.y, fctl.width, fctl.height, fctl.getDuration(), transparentIndex, removeFiltration(ihdrChunk.mode, fctl.width, fctl.height, unpackedData));
-    return transparentIndex;
+  private static ConvertedFrame waitFrame(final Future<ConvertedFrame> frame) throws IOException, InterruptedException {
+    try {
+      return frame.get();
+    } catch (ExecutionException ex) {
+      throw new IOException("Error during frame conversion", ex.getCause());
+    }
   }
 
-  private int calcExpectedRasterDataSize(final IhdrChunk ihdrChunk, final FctlChunk fctlChunk, final PngChunk dataChunk) {
+  private int calcExpectedRasterDataSize(final IhdrChunk ihdrChunk, final FctlChunk fctlChunk, final PngChunkReader.PngChunk dataChunk) {
     final int width;
     final int height;
     if (dataChunk.name.equals("IDAT")) {
@@ -515,13 +550,16 @@ public class APngToGifConvertingWorker extends SwingWorker<File, Integer> {
       width = fctlChunk.width;
       height = fctlChunk.height;
     }
+    if (width > ihdrChunk.width || height > ihdrChunk.height) {
+      throw new IllegalArgumentException("Frame is bigger than image: " + width + 'x' + height);
+    }
     return ihdrChunk.mode.calcRasterDataSize(width, height);
   }
 
   @Override
   protected File doInBackground() {
-    try (final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(this.source)))) {
-      assertNext(in, this.readCounter, 0x89, 0x50, 0x4E, 0x47, 0x0D, 0x0A, 0x1A, 0x0A);
+    try (final PngChunkReader reader = new PngChunkReader(this.source, this.checkChunkCrc, PngChunkReader.DEFAULT_WINDOW_SIZE)) {
+      reader.readSignature();
 
       byte[] workRgbPalette = null;
 
@@ -530,11 +568,18 @@ public class APngToGifConvertingWorker extends SwingWorker<File, Integer> {
       ActlChunk actlChunk = null;
 
       AGifWriter gifWriter = null;
+      SubFrameComposer frameComposer = null;
 
-      byte[] rgb2indexTable = null;
+      RgbIndexTable rgb2indexTable = null;
+      ThreadLocal<PaletteKdTree> ditheringPaletteTree = null;
+      OrderedDitherMatrix ditherMatrix = null;
+      FrameContext frameContext = null;
+      final Deque<Future<ConvertedFrame>> framesInWork = new ArrayDeque<>();
+      int maxFramesInWork = MIN_FRAMES_IN_WORK;
 
-      ByteArrayOutputStream frameDataBuffer = new ByteArrayOutputStream(16384);
-      Inflater currentDataInflater = null;
+      final Deque<FrameBuffers> freeFrameBuffers = new ArrayDeque<>();
+      final FrameInflater frameInflater = new FrameInflater();
+      FrameBuffers frameBuffers = null;
 
       int transparentPaletteIndex = -1;
 
@@ -543,13 +588,13 @@ public class APngToGifConvertingWorker extends SwingWorker<File, Integer> {
       try (final OutputStream output = new BufferedOutputStream(new FileOutputStream(this.target))) {
         mainLoop:
         do {
-          final PngChunk nextChunk = new PngChunk(in, this.readCounter);
+          final PngChunkReader.PngChunk nextChunk = reader.next();
           switch (nextChunk.name) {
             case "tRNS": {
               int foundIndex = -1;
               int minAlpha = Integer.MAX_VALUE;
-              for (int i = 0; i < nextChunk.data.length; i++) {
-                final int curAlpha = nextChunk.data[i] & 0xFF;
+              for (int i = 0; i < nextChunk.getLength(); i++) {
+                final int curAlpha = nextChunk.data.get(i) & 0xFF;
                 if (curAlpha < minAlpha) {
                   foundIndex = i;
                   minAlpha = curAlpha;
@@ -562,7 +607,7 @@ public class APngToGifConvertingWorker extends SwingWorker<File, Integer> {
             }
             break;
             case "tEXt": {
-              final String text = new String(nextChunk.data, StandardCharsets.US_ASCII).toLowerCase(Locale.ENGLISH);
+              final String text = StandardCharsets.US_ASCII.decode(nextChunk.data).toString().toLowerCase(Locale.ENGLISH);
               if (text.startsWith("software") && text.endsWith("japagoge")) {
                 LOGGER.info("Detected JAPAGOGE producer record in PNG");
               }
@@ -607,17 +652,21 @@ public class APngToGifConvertingWorker extends SwingWorker<File, Integer> {
                   case MODE_RGB_ALPHA_8:
                   case MODE_RGB_ALPHA_16: {
                     generatedPalette = PaletteUtils.splitRgb(this.globalRgb256Palette);
-                    if (this.dithering) {
+                    if (this.ditheringMode == DitheringMode.FLOYD_STEINBERG) {
                       LOGGER.info("Don't build RGB index table because dithering mode");
+                      // search in accurate mode selects the first index on tie, simple one selects the last index
+                      // tree has cache of found colors so that every thread uses own tree
+                      ditheringPaletteTree = ThreadLocal.withInitial(() -> new PaletteKdTree(generatedPalette, this.accurateRgb, !this.accurateRgb));
                     } else {
-                      LOGGER.info("Starting calculate RGB to index table, accurate RGB is " + this.accurateRgb);
+                      LOGGER.info("Starting calculate RGB to index table, accurate RGB is " + this.accurateRgb + ", compact table is " + this.compactRgbIndexTable);
                       final long startTime = System.currentTimeMillis();
-                      rgb2indexTable = this.generateIndexTable(generatedPalette, this.accurateRgb);
+                      rgb2indexTable = this.findIndexTable(generatedPalette, this.accurateRgb);
                       if (rgb2indexTable == null) {
                         LOGGER.severe("Calculation of RGB index table has been interrupted so that interrupting conversion");
                         break mainLoop;
                       }
                       LOGGER.info("Calculate RGB to index table completed, took " + (System.currentTimeMillis() - startTime) + "ms");
+                      ditherMatrix = this.ditheringMode.makeMatrix();
                     }
                   }
                   break;
@@ -634,70 +683,44 @@ public class APngToGifConvertingWorker extends SwingWorker<File, Integer> {
                 this.publish(0);
                 workRgbPalette = generatedPalette;
                 gifWriter = new AGifWriter(output, ihdrChunk.width, ihdrChunk.height, 0, workRgbPalette, actlChunk == null ? 0 : actlChunk.numPlays);
+                frameComposer = new SubFrameComposer(gifWriter, ihdrChunk.width, ihdrChunk.height);
+                frameContext = new FrameContext(ihdrChunk, workRgbPalette, rgb2indexTable, ditheringPaletteTree, ditherMatrix);
               }
 
-              final int expectedRasterDataSize = calcExpectedRasterDataSize(ihdrChunk, fctlChunk, nextChunk);
-
-              currentDataInflater = extractData(currentDataInflater, nextChunk, frameDataBuffer);
+              if (!frameInflater.isStarted()) {
+                // number of buffers is limited by number of frames in work
+                frameBuffers = freeFrameBuffers.isEmpty() ? new FrameBuffers(ihdrChunk) : freeFrameBuffers.pop();
+                frameInflater.start(frameBuffers.raster, calcExpectedRasterDataSize(ihdrChunk, fctlChunk, nextChunk));
+              }
 
-              if (currentDataInflater == null) {
-                final byte[] raster = frameDataBuffer.toByteArray();
-                frameDataBuffer.reset();
+              if (!nextChunk.name.equals("IDAT")) {
+                // skip sequence number of fdAT
+                nextChunk.data.position(Math.min(4, nextChunk.getLength()));
+              }
 
-                final AGifWriter.DisposalMode disposalMode;
-                if (fctlChunk.width < ihdrChunk.width || fctlChunk.height < ihdrChunk.height) {
-                  if (transparentPaletteIndex < 0) {
-                    disposalMode = AGifWriter.DisposalMode.NOT_SPECIFIED;
-                  } else {
-                    disposalMode = AGifWriter.DisposalMode.OVERWRITE_BY_BACKGROUND_COLOR;
-                  }
-                } else {
-                  disposalMode = AGifWriter.DisposalMode.NOT_SPECIFIED;
-                }
+              if (frameInflater.inflate(nextChunk.data)) {
+                final FrameBuffers buffers = frameBuffers;
+                frameBuffers = null;
 
-                final int foundTransparentPaletteIndex;
+                final Rectangle frameArea = nextChunk.name.equals("IDAT") ? new Rectangle(0, 0, ihdrChunk.width, ihdrChunk.height) : new Rectangle(fctlChunk.x, fctlChunk.y, fctlChunk.width, fctlChunk.height);
+                final FrameContext context = frameContext;
+                final FctlChunk frameFctl = fctlChunk;
+                framesInWork.add(this.forkJoinPool.submit(() -> this.convertFrame(context, frameFctl, frameArea, buffers)));
 
-                switch (ihdrChunk.mode) {
-                  case MODE_GRAYSCALE_8:
-                  case MODE_INDEX_8: {
-                    // palette or grayscale
-                    if (nextChunk.name.equals("IDAT")) {
-                      foundTransparentPaletteIndex = this.writeIndexedFrameIDAT(gifWriter, disposalMode, ihdrChunk, raster, fctlChunk, transparentPaletteIndex);
-                    } else {
-                      foundTransparentPaletteIndex = this.writeIndexedFrameFDAT(gifWriter, disposalMode, ihdrChunk, raster, fctlChunk, transparentPaletteIndex);
-                    }
-                  }
-                  break;
-                  default: {
-                    // rgb
-                    if (nextChunk.name.equals("IDAT")) {
-                      if (this.dithering) {
-                        foundTransparentPaletteIndex = this.writeRgbFrameDitheringIDAT(gifWriter, disposalMode, ihdrChunk, workRgbPalette, this.accurateRgb, raster, fctlChunk);
-                      } else {
-                        foundTransparentPaletteIndex = this.writeRgbFrameIDAT(gifWriter, disposalMode, ihdrChunk, rgb2indexTable, workRgbPalette, raster, fctlChunk);
-                      }
-                    } else {
-                      if (this.dithering) {
-                        foundTransparentPaletteIndex = this.writeRgbFrameDitheringFDAT(gifWriter, disposalMode, ihdrChunk, workRgbPalette, this.accurateRgb, raster, fctlChunk);
-                      } else {
-                        foundTransparentPaletteIndex = this.writeRgbFrameFDAT(gifWriter, disposalMode, ihdrChunk, rgb2indexTable, workRgbPalette, raster, fctlChunk);
-                      }
-                    }
-                  }
-                  break;
-                }
-                if (transparentPaletteIndex < 0 && foundTransparentPaletteIndex >= 0) {
-                  transparentPaletteIndex = foundTransparentPaletteIndex;
+                // bounded number of frames in work, it limits memory if writing is slower than conversion
+                while (framesInWork.size() >= maxFramesInWork) {
+                  final ConvertedFrame convertedFrame = waitFrame(framesInWork.poll());
+                  transparentPaletteIndex = writeFrame(frameComposer, ihdrChunk, convertedFrame, transparentPaletteIndex);
+                  freeFrameBuffers.push(convertedFrame.buffers);
                 }
-
               }
 
-              notifyUpdateForSizeChange();
+              notifyUpdateForSizeChange(reader);
             }
             break;
             case "PLTE": {
-              workRgbPalette = new byte[nextChunk.data.length];
-              System.arraycopy(nextChunk.data, 0, workRgbPalette, 0, workRgbPalette.length);
+              workRgbPalette = new byte[nextChunk.getLength()];
+              nextChunk.data.get(workRgbPalette);
               workRgbPalette = this.colorFilter.filterRgbPalette(workRgbPalette);
             }
             break;
@@ -715,17 +738,33 @@ public class APngToGifConvertingWorker extends SwingWorker<File, Integer> {
             case "IHDR": {
               ihdrChunk = new IhdrChunk(nextChunk);
               fctlChunk = new FctlChunk(ihdrChunk.width, ihdrChunk.height);
-              LOGGER.info("Detected IHDR: " + ihdrChunk);
+              maxFramesInWork = this.forcedMaxFramesInWork > 0 ? this.forcedMaxFramesInWork : calcMaxFramesInWork(ihdrChunk, this.colorFilter, this.forkJoinPool.getParallelism());
+              LOGGER.info("Detected IHDR: " + ihdrChunk + ", max frames in work: " + maxFramesInWork);
             }
             break;
           }
         } while (!Thread.currentThread().isInterrupted());
+        if (!Thread.currentThread().isInterrupted()) {
+          while (!framesInWork.isEmpty()) {
+            final ConvertedFrame convertedFrame = waitFrame(framesInWork.poll());
+            transparentPaletteIndex = writeFrame(frameComposer, ihdrChunk, convertedFrame, transparentPaletteIndex);
+            freeFrameBuffers.push(convertedFrame.buffers);
+          }
+        }
         if (gifWriter != null) {
+          frameComposer.flush();
           gifWriter.end();
         }
         output.flush();
+      } finally {
+        framesInWork.forEach(x -> x.cancel(true));
+        frameInflater.end();
       }
       this.publish(Integer.MAX_VALUE);
+    } catch (InterruptedException ex) {
+      LOGGER.info("GIF conversion has been interrupted");
+      Thread.currentThread().interrupt();
+      this.publish(Integer.MAX_VALUE);
     } catch (Exception ex) {
       LOGGER.log(Level.SEVERE, "Error during GIF conversion", ex);
       this.publish(Integer.MIN_VALUE);
@@ -743,20 +782,350 @@ public class APngToGifConvertingWorker extends SwingWorker<File, Integer> {
     this.forkJoinPool.shutdownNow();
   }
 
+  public enum DitheringMode {
+    NONE,
+    FLOYD_STEINBERG,
+    BAYER_4X4,
+    BAYER_8X8,
+    BLUE_NOISE;
+
+    /**
+     * Make threshold matrix for ordered dithering.
+     *
+     * @return matrix or null if dithering is not ordered one
+     */
+    public OrderedDitherMatrix makeMatrix() {
+      switch (this) {
+        case BAYER_4X4:
+          return OrderedDitherMatrix.bayer(4);
+        case BAYER_8X8:
+          return OrderedDitherMatrix.bayer(8);
+        case BLUE_NOISE:
+          return OrderedDitherMatrix.blueNoise(32);
+        default:
+          return null;
+      }
+    }
+
+    @Override
+    public String toString() {
+      return this.name().replace('_', ' ');
+    }
+  }
+
   @FunctionalInterface
   public interface ProgressListener {
     void onProgress(APngToGifConvertingWorker converter, int progress);
   }
 
+  /**
+   * GIF viewers show zero delay frames with some default delay, so that zero delay APNG sub-frames are
+   * collected on canvas and written as single GIF frame together with the next frame.
+   */
+  private static final class SubFrameComposer {
+    private final AGifWriter writer;
+    private final int width;
+    private final byte[] canvas;
+    private byte[] areaPixels = new byte[0];
+    private Rectangle pendingArea;
+    private AGifWriter.DisposalMode pendingDisposalMode;
+    private int pendingTransparentIndex;
+
+    SubFrameComposer(final AGifWriter writer, final int width, final int height) {
+      this.writer = writer;
+      this.width = width;
+      this.canvas = new byte[width * height];
+    }
+
+    void addFrame(
+        final AGifWriter.DisposalMode disposalMode,
+        final int x,
+        final int y,
+        final int width,
+        final int height,
+        final Duration delay,
+        final int transparentColorIndex,
+        final byte[] pixelIndexes,
+        final GifLzwEncoder encodedImage
+    ) throws IOException {
+      for (int row = 0; row < height; row++) {
+        final int srcOffset = row * width;
+        final int dstOffset = (y + row) * this.width + x;
+        if (transparentColorIndex < 0) {
+          System.arraycopy(pixelIndexes, srcOffset, this.canvas, dstOffset, width);
+        } else {
+          for (int i = 0; i < width; i++) {
+            final byte index = pixelIndexes[srcOffset + i];
+            if ((index & 0xFF) != transparentColorIndex) {
+              this.canvas[dstOffset + i] = index;
+            }
+          }
+        }
+      }
+
+      final Rectangle frameArea = new Rectangle(x, y, width, height);
+      if (delay.isZero()) {
+        this.pendingArea = this.pendingArea == null ? frameArea : this.pendingArea.union(frameArea);
+        this.pendingDisposalMode = disposalMode;
+        this.pendingTransparentIndex = transparentColorIndex;
+      } else if (this.pendingArea == null) {
+        if (encodedImage == null) {
+          this.writer.addFrame(disposalMode, x, y, width, height, delay, transparentColorIndex, pixelIndexes);
+        } else {
+          this.writer.addEncodedFrame(disposalMode, x, y, width, height, delay, transparentColorIndex, encodedImage);
+        }
+      } else {
+        final Rectangle area = this.pendingArea.union(frameArea);
+        this.pendingArea = null;
+        this.writer.addFrame(disposalMode, area.x, area.y, area.width, area.height, delay, transparentColorIndex, this.extract(area));
+      }
+    }
+
+    /**
+     * Copy area of canvas into buffer of composer, the buffer is grown only for bigger area and reused because GIF
+     * writer encodes frame before return.
+     */
+    private byte[] extract(final Rectangle area) {
+      final int length = area.width * area.height;
+      if (this.areaPixels.length < length) {
+        this.areaPixels = new byte[length];
+      }
+      final byte[] result = this.areaPixels;
+      for (int row = 0; row < area.height; row++) {
+        System.arraycopy(this.canvas, (area.y + row) * this.width + area.x, result, row * area.width, area.width);
+      }
+      return result;
+    }
+
+    void flush() throws IOException {
+      if (this.pendingArea != null) {
+        final Rectangle area = this.pendingArea;
+        this.pendingArea = null;
+        this.writer.addFrame(this.pendingDisposalMode, area.x, area.y, area.width, area.height, Duration.ZERO, this.pendingTransparentIndex, this.extract(area));
+      }
+    }
+  }
+
+  /**
+   * Parameters of frame conversion, they are defined by the first image data chunk and shared by all frames.
+   */
+  private static final class FrameContext {
+    final IhdrChunk ihdrChunk;
+    final byte[] rgbPalette;
+    final RgbIndexTable rgb2indexTable;
+    final ThreadLocal<PaletteKdTree> ditheringPaletteTree;
+    final OrderedDitherMatrix ditherMatrix;
+
+    FrameContext(final IhdrChunk ihdrChunk, final byte[] rgbPalette, final RgbIndexTable rgb2indexTable, final ThreadLocal<PaletteKdTree> ditheringPaletteTree, final OrderedDitherMatrix ditherMatrix) {
+      this.ihdrChunk = ihdrChunk;
+      this.rgbPalette = rgbPalette;
+      this.rgb2indexTable = rgb2indexTable;
+      this.ditheringPaletteTree = ditheringPaletteTree;
+      this.ditherMatrix = ditherMatrix;
+    }
+  }
+
+  private static final class ConvertedFrame {
+    final FctlChunk fctl;
+    final Rectangle area;
+    final boolean indexedSource;
+    final int foundTransparentIndex;
+    final byte[] pixelIndexes;
+    final GifLzwEncoder encodedImage;
+    final FrameBuffers buffers;
+
+    ConvertedFrame(final FctlChunk fctl, final Rectangle area, final boolean indexedSource, final int foundTransparentIndex, final byte[] pixelIndexes, final GifLzwEncoder encodedImage, final FrameBuffers buffers) {
+      this.fctl = fctl;
+      this.area = area;
+      this.indexedSource = indexedSource;
+      this.foundTransparentIndex = foundTransparentIndex;
+      this.pixelIndexes = pixelIndexes;
+      this.encodedImage = encodedImage;
+      this.buffers = buffers;
+    }
+  }
+
+  /**
+   * Buffers of frame conversion, they are sized from IHDR so that any frame fits them and reused for next frames
+   * after the frame has been written. Buffers are used by single thread at a time.
+   */
+  private static final class FrameBuffers {
+    /**
+     * Inflated filtered raster, it is unfiltered in place and can get RGB of frame.
+     */
+    final byte[] raster;
+    final int[] rowRgb;
+    /**
+     * Encoder keeps its dictionary and encoded data buffer between frames.
+     */
+    final GifLzwEncoder encoder;
+    private final int pixels;
+    private byte[] rgb;
+    private int[] decodedPixels;
+    private byte[] indexes;
+
+    FrameBuffers(final IhdrChunk ihdrChunk) {
+      this.pixels = ihdrChunk.width * ihdrChunk.height;
+      this.raster = new byte[ihdrChunk.mode.calcRasterDataSize(ihdrChunk.width, ihdrChunk.height)];
+      this.rowRgb = new int[ihdrChunk.width];
+      this.encoder = new GifLzwEncoder(calcEncoderCapacity(this.pixels));
+    }
+
+    private static int calcEncoderCapacity(final int pixels) {
+      return Math.max(1024, pixels / 4);
+    }
+
+    /**
+     * Estimate memory of buffers for whole frame of image, RGB buffer is needed only if RGB can't be written over
+     * raster and decoded pixels are needed only for several passes of color filter.
+     */
+    static long estimateBytes(final IhdrChunk ihdrChunk, final int colorFilterPasses) {
+      final long pixels = (long) ihdrChunk.width * ihdrChunk.height;
+      long result = ihdrChunk.mode.calcRasterDataSize(ihdrChunk.width, ihdrChunk.height)
+          + ihdrChunk.width * 4L
+          + calcEncoderCapacity((int) Math.min(Integer.MAX_VALUE, pixels))
+          + pixels;
+      if (!isRgbInPlace(ihdrChunk.mode)) {
+        result += pixels * 3L;
+      }
+      if (colorFilterPasses > 1) {
+        result += pixels * 4L;
+      }
+      return result;
+    }
+
+    byte[] getRgb() {
+      if (this.rgb == null) {
+        this.rgb = new byte[this.pixels * 3];
+      }
+      return this.rgb;
+    }
+
+    int[] getPixels() {
+      if (this.decodedPixels == null) {
+        this.decodedPixels = new int[this.pixels];
+      }
+      return this.decodedPixels;
+    }
+
+    byte[] getIndexes() {
+      if (this.indexes == null) {
+        this.indexes = new byte[this.pixels];
+      }
+      return this.indexes;
+    }
+  }
+
+  /**
+   * Inflater of frame data chunks, data is inflated directly into raster buffer.
+   */
+  private static final class FrameInflater {
+    /**
+     * Inflater#setInput(ByteBuffer) is provided since Java 11, it reads mapped chunk data without copying.
+     */
+    private static final MethodHandle SET_INPUT_BUFFER = findSetInputBuffer();
+
+    private final Inflater inflater = new Inflater();
+    private final byte[] overflowBuffer = new byte[256];
+    private byte[] inputBuffer;
+    private byte[] target;
+    private int position;
+    private int expectedLength;
+
+    boolean isStarted() {
+      return this.target != null;
+    }
+
+    private static MethodHandle findSetInputBuffer() {
+      try {
+        return MethodHandles.publicLookup().findVirtual(Inflater.class, "setInput", MethodType.methodType(void.class, ByteBuffer.class));
+      } catch (NoSuchMethodException | IllegalAccessException ex) {
+        LOGGER.fine("Inflater doesn't support ByteBuffer input, chunk data is copied");
+        return null;
+      }
+    }
+
+    void start(final byte[] target, final int expectedLength) {
+      this.inflater.reset();
+      this.target = target;
+      this.position = 0;
+      this.expectedLength = expectedLength;
+    }
+
+    /**
+     * Inflate data chunk.
+     *
+     * @param data chunk data from position to limit, the buffer must not be changed until the next call
+     * @return true if frame data is completed, false if more data chunks are needed
+     * @throws IOException if data format error or data is too short
+     */
+    boolean inflate(final ByteBuffer data) throws IOException {
+      try {
+        this.setInput(data);
+        while (!this.inflater.finished()) {
+          final int unpackedLength;
+          if (this.position < this.expectedLength) {
+            unpackedLength = this.inflater.inflate(this.target, this.position, this.expectedLength - this.position);
+            this.position += unpackedLength;
+          } else {
+            // data after expected raster is ignored
+            unpackedLength = this.inflater.inflate(this.overflowBuffer);
+          }
+          if (unpackedLength == 0) {
+            break;
+          }
+        }
+      } catch (DataFormatException ex) {
+        throw new IOException("Compressed data format error", ex);
+      }
+      if (!this.inflater.finished()) {
+        return false;
+      }
+      this.target = null;
+      if (this.position < this.expectedLength) {
+        throw new IOException("Too short frame data: " + this.position + " < " + this.expectedLength);
+      }
+      return true;
+    }
+
+    private void setInput(final ByteBuffer data) {
+      if (SET_INPUT_BUFFER == null) {
+        final int length = data.remaining();
+        if (this.inputBuffer == null || this.inputBuffer.length < length) {
+          this.inputBuffer = new byte[length];
+        }
+        data.get(this.inputBuffer, 0, length);
+        this.inflater.setInput(this.inputBuffer, 0, length);
+      } else {
+        try {
+          SET_INPUT_BUFFER.invokeExact(this.inflater, data);
+        } catch (RuntimeException | Error ex) {
+          throw ex;
+        } catch (Throwable ex) {
+          throw new IllegalStateException("Unexpected error", ex);
+        }
+      }
+    }
+
+    void end() {
+      this.inflater.end();
+    }
+  }
+
+  private static void assertLength(final PngChunkReader.PngChunk chunk, final int minLength) throws EOFException {
+    if (chunk.getLength() < minLength) {
+      throw new EOFException("Too short chunk " + chunk.name + ": " + chunk.getLength() + " < " + minLength);
+    }
+  }
+
   private static class ActlChunk {
     final int numFrames;
     final int numPlays;
 
-    ActlChunk(final PngChunk chunk) throws IOException {
-      try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(chunk.data))) {
-        this.numFrames = in.readInt();
-        this.numPlays = in.readInt();
-      }
+    ActlChunk(final PngChunkReader.PngChunk chunk) throws IOException {
+      assertLength(chunk, 8);
+      this.numFrames = chunk.data.getInt(0);
+      this.numPlays = chunk.data.getInt(4);
     }
 
   }
@@ -771,21 +1140,20 @@ public class APngToGifConvertingWorker extends SwingWorker<File, Integer> {
     final int interlace;
     final PngMode mode;
 
-    IhdrChunk(final PngChunk chunk) throws IOException {
-      try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(chunk.data))) {
-        this.width = in.readInt();
-        this.height = in.readInt();
-        this.bitDepth = in.readUnsignedByte();
-        this.colorType = in.readUnsignedByte();
-        this.compression = in.readUnsignedByte();
-        this.filter = in.readUnsignedByte();
-        this.interlace = in.readUnsignedByte();
-
-        try {
-          this.mode = PngMode.find(this.colorType, this.bitDepth);
-        } catch (IllegalArgumentException ex) {
-          throw new IOException("Unknown type of PNG file");
-        }
+    IhdrChunk(final PngChunkReader.PngChunk chunk) throws IOException {
+      assertLength(chunk, 13);
+      this.width = chunk.data.getInt(0);
+      this.height = chunk.data.getInt(4);
+      this.bitDepth = chunk.data.get(8) & 0xFF;
+      this.colorType = chunk.data.get(9) & 0xFF;
+      this.compression = chunk.data.get(10) & 0xFF;
+      this.filter = chunk.data.get(11) & 0xFF;
+      this.interlace = chunk.data.get(12) & 0xFF;
+
+      try {
+        this.mode = PngMode.find(this.colorType, this.bitDepth);
+      } catch (IllegalArgumentException ex) {
+        throw new IOException("Unknown type of PNG file");
       }
     }
 
@@ -819,46 +1187,21 @@ public class APngToGifConvertingWorker extends SwingWorker<File, Integer> {
       this.blendOp = 0;
     }
 
-    FctlChunk(final PngChunk chunk) throws IOException {
-      try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(chunk.data))) {
-        this.sequence = in.readInt();
-        this.width = in.readInt();
-        this.height = in.readInt();
-        this.x = in.readInt();
-        this.y = in.readInt();
-        this.delayNum = in.readUnsignedShort();
-        this.delayDen = in.readUnsignedShort();
-        this.disposeOp = in.readUnsignedByte();
-        this.blendOp = in.readUnsignedByte();
-      }
+    FctlChunk(final PngChunkReader.PngChunk chunk) throws IOException {
+      assertLength(chunk, 26);
+      this.sequence = chunk.data.getInt(0);
+      this.width = chunk.data.getInt(4);
+      this.height = chunk.data.getInt(8);
+      this.x = chunk.data.getInt(12);
+      this.y = chunk.data.getInt(16);
+      this.delayNum = chunk.data.getShort(20) & 0xFFFF;
+      this.delayDen = chunk.data.getShort(22) & 0xFFFF;
+      this.disposeOp = chunk.data.get(24) & 0xFF;
+      this.blendOp = chunk.data.get(25) & 0xFF;
     }
 
     public Duration getDuration() {
       return Duration.ofMillis(Math.round(1000.0d * ((double) this.delayNum / (double) (this.delayDen == 0 ? 100 : this.delayDen))));
     }
   }
-
-  private static class PngChunk {
-    private final String name;
-    private final byte[] data;
-
-    @SuppressWarnings("unused")
-    public PngChunk(final DataInputStream in, final AtomicLong counter) throws IOException {
-      final int dataLength = in.readInt();
-      final StringBuilder nameBuffer = new StringBuilder(4);
-      for (int i = 0; i < 4; i++) {
-        nameBuffer.append((char) readByte(in, counter));
-      }
-      this.name = nameBuffer.toString();
-      this.data = new byte[dataLength];
-      in.readFully(this.data);
-      counter.addAndGet(dataLength);
-      int crc = readInt(in, counter);
-    }
-
-    @Override
-    public String toString() {
-      return "PngChunk(name=" + this.name + ",data=" + this.data.length + ')';
-    }
-  }
 }
@@ -2,29 +2,41 @@ package com.igormaznitsa.japagoge;
 
 import com.igormaznitsa.japagoge.filters.ColorFilter;
 import com.igormaznitsa.japagoge.filters.RgbPixelFilter;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
 import java.awt.image.DataBufferInt;
-import java.io.ByteArrayOutputStream;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.IntStream;
 import java.util.zip.CRC32;
 import java.util.zip.Deflater;
-import java.util.zip.DeflaterOutputStream;
 
 public final class APngWriter {
 
   private static final int OFFSET_ACTL_NO_PALETTE = 8 + 25;
+  private static final int MAX_SUB_FRAMES = 8;
+  /**
+   * Compression level which means Huffman only coding of frame data.
+   */
+  public static final int HUFFMAN_ONLY_LEVEL = 0;
   private final FileChannel fileChannel;
   private final ColorFilter filter;
   private final ColorComponentStatistics colorStatistics;
+  private final int bitDepth;
+  private final int bytesPerPixel;
+  private int rowBytes;
+  private int[] pngPalette;
   private byte[] chunkBuffer;
   private int nextChunkBufferPosition = 0;
   private int frameCounter = 0;
@@ -33,58 +45,207 @@ public final class APngWriter {
   private int height = -1;
   private byte[] imageDataBufferLast;
   private byte[] imageDataBufferTemp;
-  private Duration accumulatedFrameDuration = null;
+  // duration of the last frame in nanoseconds, negative if there is no frame yet
+  private long accumulatedFrameNanos = -1L;
   private volatile State state = State.CREATED;
-  private ImagePortion lastFoundDifference;
+  private List<ImagePortion> lastFoundDifference = new ArrayList<>(MAX_SUB_FRAMES);
+  private List<ImagePortion> foundDifference = new ArrayList<>(MAX_SUB_FRAMES);
+  private final List<byte[]> freePortionBuffers = new ArrayList<>();
+  private final List<ImagePortion> freePortions = new ArrayList<>();
+  private FrameDiff frameDiff;
+  private Rectangle wholeArea;
+  private final Rectangle processArea = new Rectangle();
+  private final Rectangle diffArea = new Rectangle();
+  private final Rectangle changedBounds = new Rectangle();
+  private final List<Rectangle> changedBoundsList = Collections.singletonList(this.changedBounds);
+  private final CRC32 crc = new CRC32();
+  private ByteBuffer chunkByteBuffer;
+  private int[] bands;
+  private byte[][] packRowBuffers;
+  private int[] rgbFallbackBuffer;
+  private ColorFilter[] filterShards;
+  private ColorComponentStatistics[] colorStatisticsShards;
+  private final boolean splitChangedAreas;
+  private final FilterStrategy filterStrategy;
+  private final CompressionProfile compressionProfile;
+  private volatile int compressionLevel;
+  private byte[] filteredDataBuffer;
+  private byte[] compressedDataBuffer;
+  private byte[] compressedData;
+  private Deflater deflater;
+  private ParallelDeflater parallelDeflater;
 
   public APngWriter(final FileChannel file, final RgbPixelFilter filter) {
-    this.colorStatistics = filter.get().getPalette().isPresent() ? null : new ColorComponentStatistics();
-    this.fileChannel = file;
-    this.filter = filter.get();
+    this(file, filter, false);
   }
 
-  private static byte[] toRgb(final BufferedImage image, final byte[] buffer, final ColorComponentStatistics colorStatistics, final ColorFilter filter) {
-    final int imageWidth = image.getWidth();
-    final int imageHeight = image.getHeight();
+  public APngWriter(final FileChannel file, final RgbPixelFilter filter, final boolean splitChangedAreas) {
+    this(file, filter, splitChangedAreas, FilterStrategy.NONE);
+  }
 
-    final int requiredBufferSize = (imageWidth + 3) * imageHeight + imageHeight;
-    final int[] data = ((DataBufferInt) image.getData().getDataBuffer()).getData();
+  public APngWriter(final FileChannel file, final RgbPixelFilter filter, final boolean splitChangedAreas, final FilterStrategy filterStrategy) {
+    this(file, filter, splitChangedAreas, filterStrategy, CompressionProfile.ARCHIVAL);
+  }
 
-    final byte[] resultBuffer;
-    if (buffer == null || buffer.length < requiredBufferSize) {
-      resultBuffer = new byte[requiredBufferSize];
-    } else {
-      resultBuffer = buffer;
+  /**
+   * Create writer.
+   *
+   * @param file               target file channel
+   * @param filter             color filter for frames
+   * @param splitChangedAreas  if true then separated changed areas are saved as zero-delay sub-frames
+   * @param filterStrategy     strategy to select PNG filter for scanlines
+   * @param compressionProfile profile of frame data compression
+   */
+  public APngWriter(final FileChannel file, final RgbPixelFilter filter, final boolean splitChangedAreas, final FilterStrategy filterStrategy, final CompressionProfile compressionProfile) {
+    this(file, filter.makeInstance(), splitChangedAreas, filterStrategy, compressionProfile);
+  }
+
+  /**
+   * Create writer with prepared color filter instance, the instance must not be shared with other writers.
+   *
+   * @param file               target file channel
+   * @param filter             color filter instance for frames
+   * @param splitChangedAreas  if true then separated changed areas are saved as zero-delay sub-frames
+   * @param filterStrategy     strategy to select PNG filter for scanlines
+   * @param compressionProfile profile of frame data compression
+   */
+  public APngWriter(final FileChannel file, final ColorFilter filter, final boolean splitChangedAreas, final FilterStrategy filterStrategy, final CompressionProfile compressionProfile) {
+    this.filter = filter;
+    this.colorStatistics = this.filter.getPalette().isPresent() ? null : new ColorComponentStatistics();
+    this.bitDepth = this.filter.isMonochrome() ? this.filter.getBitDepth() : 8;
+    if (this.bitDepth != 1 && this.bitDepth != 2 && this.bitDepth != 4 && this.bitDepth != 8) {
+      throw new IllegalArgumentException("Unsupported bit depth: " + this.bitDepth);
     }
+    // packed pixels are processed by bytes
+    this.bytesPerPixel = this.filter.isMonochrome() ? 1 : 3;
+    this.fileChannel = file;
+    this.splitChangedAreas = splitChangedAreas;
+    this.filterStrategy = filterStrategy;
+    this.compressionProfile = compressionProfile;
+    this.compressionLevel = compressionProfile.getMaxLevel();
+  }
+
+  private static void toRgb(final int[] data, final int dataOffset, final int dataStride, final int imageWidth, final Rectangle area, final int fromY, final int toY, final byte[] resultBuffer, final ColorComponentStatistics colorStatistics, final ColorFilter filter, final int pass) {
     final int scanLineBytes = (imageWidth * 3) + 1;
+    final boolean imageUpdate = filter.isPassImageUpdate(pass);
+    for (int y = fromY; y < toY; y++) {
+      int imgPos = y * scanLineBytes;
+      resultBuffer[imgPos++] = 0;
+      imgPos += area.x * 3;
+      final int dataPos = dataOffset + y * dataStride + area.x;
+      filter.filterRowRgb(data, dataPos, area.width, resultBuffer, imgPos, pass);
+      if (imageUpdate && colorStatistics != null) {
+        final int rowEnd = imgPos + area.width * 3;
+        while (imgPos < rowEnd) {
+          colorStatistics.update(resultBuffer[imgPos++] & 0xFF, resultBuffer[imgPos++] & 0xFF, resultBuffer[imgPos++] & 0xFF);
+        }
+      }
+    }
+  }
+
+  private static void toMonochrome(final int[] data, final int dataOffset, final int dataStride, final int imageWidth, final Rectangle area, final int fromY, final int toY, final byte[] resultBuffer, final ColorFilter filter, final int pass) {
+    final int scanLineBytes = imageWidth + 1;
+    for (int y = fromY; y < toY; y++) {
+      int imgPos = y * scanLineBytes;
+      resultBuffer[imgPos++] = 0;
+      imgPos += area.x;
+      final int dataPos = dataOffset + y * dataStride + area.x;
+      filter.filterRowMonochrome(data, dataPos, area.width, resultBuffer, imgPos, pass);
+    }
+  }
 
-    for (int pass = 0; pass < filter.getPasses(); pass++) {
-      int imgPos = 0;
-      for (int argb : data) {
-        if (imgPos % scanLineBytes == 0) {
-          resultBuffer[imgPos++] = 0;
+  private static void toPacked(final int[] data, final int dataOffset, final int dataStride, final int rowBytes, final int bitDepth, final Rectangle area, final int fromY, final int toY, final byte[] resultBuffer, final byte[] rowBuffer, final ColorFilter filter, final int pass) {
+    final int scanLineBytes = rowBytes + 1;
+    final boolean imageUpdate = filter.isPassImageUpdate(pass);
+    final int levelShift = 8 - bitDepth;
+    for (int y = fromY; y < toY; y++) {
+      int imgPos = y * scanLineBytes;
+      resultBuffer[imgPos++] = 0;
+      imgPos += area.x * bitDepth / 8;
+      final int dataPos = dataOffset + y * dataStride + area.x;
+      filter.filterRowMonochrome(data, dataPos, area.width, rowBuffer, 0, pass);
+      if (imageUpdate) {
+        int accumulator = 0;
+        int bits = 0;
+        for (int x = 0; x < area.width; x++) {
+          accumulator = (accumulator << bitDepth) | ((rowBuffer[x] & 0xFF) >> levelShift);
+          bits += bitDepth;
+          if (bits == 8) {
+            resultBuffer[imgPos++] = (byte) accumulator;
+            accumulator = 0;
+            bits = 0;
+          }
         }
+        if (bits > 0) {
+          resultBuffer[imgPos] = (byte) (accumulator << (8 - bits));
+        }
+      }
+    }
+  }
 
-        argb = filter.filterRgb(argb, pass);
+  private void convertFrame(final int[] data, final int dataOffset, final int dataStride, final Rectangle area, final byte[] resultBuffer) throws IOException {
+    final boolean monochrome = this.filter.isMonochrome();
+    final int[] bands = ParallelWork.splitRows(area.y, area.y + area.height, area.width, FrameDiff.TILE_SIZE, this.bands);
+    this.bands = bands;
+    final int bandCount = bands.length - 1;
 
-        if (filter.isPassImageUpdate(pass)) {
-          final int r = (argb >> 16) & 0xFF;
-          final int g = (argb >> 8) & 0xFF;
-          final int b = argb & 0xFF;
+    if (this.bitDepth < 8 && (this.packRowBuffers == null || this.packRowBuffers.length < bandCount)) {
+      this.packRowBuffers = new byte[bandCount][this.width];
+    }
 
-          if (colorStatistics != null) {
-            colorStatistics.update(r, g, b);
+    for (int pass = 0; pass < this.filter.getPasses(); pass++) {
+      if (bandCount == 1) {
+        if (this.bitDepth < 8) {
+          toPacked(data, dataOffset, dataStride, this.rowBytes, this.bitDepth, area, area.y, area.y + area.height, resultBuffer, this.packRowBuffers[0], this.filter, pass);
+        } else if (monochrome) {
+          toMonochrome(data, dataOffset, dataStride, this.width, area, area.y, area.y + area.height, resultBuffer, this.filter, pass);
+        } else {
+          toRgb(data, dataOffset, dataStride, this.width, area, area.y, area.y + area.height, resultBuffer, this.colorStatistics, this.filter, pass);
+        }
+      } else {
+        // every band works with own filter and statistics shards, they are merged after pass and reused by next passes
+        if (this.filterShards == null || this.filterShards.length < bandCount) {
+          this.filterShards = new ColorFilter[bandCount];
+          for (int i = 0; i < bandCount; i++) {
+            this.filterShards[i] = this.filter.makeShard();
           }
-
-          resultBuffer[imgPos++] = (byte) r;
-          resultBuffer[imgPos++] = (byte) g;
-          resultBuffer[imgPos++] = (byte) b;
         } else {
-          imgPos += 3;
+          for (int i = 0; i < bandCount; i++) {
+            this.filterShards[i] = this.filter.updateShard(this.filterShards[i]);
+          }
+        }
+        final ColorFilter[] filterShards = this.filterShards;
+        if (this.colorStatistics != null && (this.colorStatisticsShards == null || this.colorStatisticsShards.length < bandCount)) {
+          this.colorStatisticsShards = new ColorComponentStatistics[bandCount];
+          for (int i = 0; i < bandCount; i++) {
+            this.colorStatisticsShards[i] = new ColorComponentStatistics();
+          }
+        }
+        final ColorComponentStatistics[] statisticsShards = this.colorStatistics == null ? null : this.colorStatisticsShards;
+
+        final int currentPass = pass;
+        ParallelWork.forEachBand(bandCount, band -> {
+          if (this.bitDepth < 8) {
+            toPacked(data, dataOffset, dataStride, this.rowBytes, this.bitDepth, area, bands[band], bands[band + 1], resultBuffer, this.packRowBuffers[band], filterShards[band], currentPass);
+          } else if (monochrome) {
+            toMonochrome(data, dataOffset, dataStride, this.width, area, bands[band], bands[band + 1], resultBuffer, filterShards[band], currentPass);
+          } else {
+            toRgb(data, dataOffset, dataStride, this.width, area, bands[band], bands[band + 1], resultBuffer,
+                statisticsShards == null ? null : statisticsShards[band], filterShards[band], currentPass);
+          }
+        });
+
+        for (int i = 0; i < bandCount; i++) {
+          if (filterShards[i] != this.filter) {
+            this.filter.mergeShard(filterShards[i]);
+          }
+          if (statisticsShards != null) {
+            this.colorStatistics.merge(statisticsShards[i]);
+            statisticsShards[i].clear();
+          }
         }
       }
     }
-    return resultBuffer;
   }
 
   public synchronized Statistics close(final int loopCount) throws IOException {
@@ -97,270 +258,302 @@ public final class APngWriter {
       return null;
     }
 
-    if (this.lastFoundDifference != null) {
-      this.saveSingleFrame(this.lastFoundDifference, this.accumulatedFrameDuration);
+    if (!this.lastFoundDifference.isEmpty()) {
+      this.saveFrame(this.lastFoundDifference, this.accumulatedFrameNanos);
     }
 
     try {
       this.writeIEND();
 
       int actlStartOffset = OFFSET_ACTL_NO_PALETTE;
-
-      final Optional<int[]> palette = this.filter.getPalette();
-      if (palette.isPresent()) {
-        actlStartOffset += palette.orElseThrow(
-            () -> new IllegalStateException("Palette must be provided")).length * 3 + 12;
+      if (this.pngPalette != null) {
+        actlStartOffset += this.pngPalette.length * 3 + 12;
       }
 
       this.fileChannel.position(actlStartOffset);
       this.writeAcTLChunk(this.frameCounter, loopCount);
       return new Statistics(this.colorStatistics, this.chunkBuffer.length, this.frameCounter,
-          this.width, this.height, this.fileChannel.size());
+          this.width, this.height, this.fileChannel.size(), this.compressionProfile, this.compressionLevel);
     } finally {
       try {
         this.fileChannel.close();
       } finally {
+        if (this.deflater != null) {
+          this.deflater.end();
+          this.deflater = null;
+        }
+        this.compressedDataBuffer = null;
+        this.compressedData = null;
+        this.parallelDeflater = null;
+        this.freePortionBuffers.clear();
+        this.freePortions.clear();
+        this.rgbFallbackBuffer = null;
+        this.packRowBuffers = null;
+        this.filterShards = null;
+        this.colorStatisticsShards = null;
         this.imageDataBufferLast = null;
         this.imageDataBufferTemp = null;
+        this.frameDiff = null;
+        this.filteredDataBuffer = null;
         this.chunkBuffer = null;
+        this.chunkByteBuffer = null;
       }
     }
   }
 
-  private static short[] getTimeFraction(final Duration delay) {
-    final long milliseconds = delay.toMillis();
-    if (milliseconds == 0L) {
-      return new short[] {0, 0};
-    } else {
-      return new short[] {(short) milliseconds, (short) 1000};
-    }
-  }
-
-  private static byte[] toMonochrome(final BufferedImage image, final byte[] buffer, final ColorFilter filter) {
-    final int imageWidth = image.getWidth();
-    final int imageHeight = image.getHeight();
-
-    final int requiredBufferSize = (imageWidth + 1) * imageHeight + imageHeight;
-    final int[] data = ((DataBufferInt) image.getData().getDataBuffer()).getData();
-
-    final byte[] resultBuffer;
-    if (buffer == null || buffer.length < requiredBufferSize) {
-      resultBuffer = new byte[requiredBufferSize];
-    } else {
-      resultBuffer = buffer;
+  private ImagePortion extractImagePortion(final byte[] pngData, final int scanLineWidth, final int bytesPerPixel, final Rectangle area) {
+    final int portionLineWidth = area.width * bytesPerPixel + 1;
+    final byte[] portionArray = this.takePortionBuffer(portionLineWidth * area.height);
+
+    int srcOffset = area.y * scanLineWidth + area.x * bytesPerPixel + 1;
+    int dstOffset = 1;
+    final int copyLineLength = portionLineWidth - 1;
+    for (int i = 0; i < area.height; i++) {
+      portionArray[dstOffset - 1] = 0;
+      System.arraycopy(pngData, srcOffset, portionArray, dstOffset, copyLineLength);
+      srcOffset += scanLineWidth;
+      dstOffset += portionLineWidth;
     }
-    final int scanLineBytes = imageWidth + 1;
-
-    for (int pass = 0; pass < filter.getPasses(); pass++) {
-      int imgPos = 0;
-      for (final int argb : data) {
-        if (imgPos % scanLineBytes == 0) {
-          resultBuffer[imgPos++] = 0;
-        }
-
-        final byte filteredData = (byte) filter.filterRgb(argb, pass);
-        if (filter.isPassImageUpdate(pass)) {
-          resultBuffer[imgPos++] = filteredData;
-        } else {
-          imgPos++;
-        }
-      }
+    if (this.bitDepth < 8) {
+      // area of packed frame is in bytes
+      final int pixelsPerByte = 8 / this.bitDepth;
+      final int x = area.x * pixelsPerByte;
+      return this.takePortion(x, area.y, Math.min(this.width - x, area.width * pixelsPerByte), area.height, portionArray, copyLineLength);
     }
-    return resultBuffer;
+    return this.takePortion(area.x, area.y, area.width, area.height, portionArray, copyLineLength);
   }
 
-  private static ImagePortion extractChangedImagePortionRgb(final byte[] oldPngData, final byte[] newPngData, final ImagePortion imageRect) {
-    int startByteX = Integer.MAX_VALUE;
-    int startByteY = Integer.MAX_VALUE;
-    int endByteX = Integer.MIN_VALUE;
-    int endByteY = Integer.MIN_VALUE;
-
-    final int scanLineWidth = imageRect.width * 3 + 1;
-
-    final int dataLength = oldPngData.length;
+  private ImagePortion takePortion(final int x, final int y, final int width, final int height, final byte[] data, final int lineBytes) {
+    final ImagePortion portion = this.freePortions.isEmpty() ? new ImagePortion() : this.freePortions.remove(this.freePortions.size() - 1);
+    return portion.set(x, y, width, height, data, lineBytes);
+  }
 
-    for (int i = 0; i < dataLength; i++) {
-      if (oldPngData[i] != newPngData[i]) {
-        final int px = i % scanLineWidth;
-        final int py = i / scanLineWidth;
-        startByteX = Math.min(startByteX, px);
-        startByteY = Math.min(startByteY, py);
-        endByteX = Math.max(endByteX, px);
-        endByteY = Math.max(endByteY, py);
+  private byte[] takePortionBuffer(final int size) {
+    int bestIndex = -1;
+    for (int i = 0; i < this.freePortionBuffers.size(); i++) {
+      final int length = this.freePortionBuffers.get(i).length;
+      if (length >= size && (bestIndex < 0 || length < this.freePortionBuffers.get(bestIndex).length)) {
+        bestIndex = i;
       }
     }
+    return bestIndex < 0 ? new byte[size] : this.freePortionBuffers.remove(bestIndex);
+  }
 
-    if (startByteX == Integer.MAX_VALUE) return null;
-
-    if (startByteX == 0 && startByteY == 0 && endByteX == scanLineWidth - 1 && endByteY == imageRect.height - 1) {
-      imageRect.data = newPngData;
-    } else {
-      final int pixelX = (startByteX - 1) / 3;
-      final int pixelWidth = ((endByteX - 1) - (startByteX - 1)) / 3 + 1;
-      final int pixelHeight = (endByteY - startByteY) + 1;
-
-      final int portionLineWidth = pixelWidth * 3 + 1;
-      final int fragmentDataLength = portionLineWidth * pixelHeight;
-
-      if (fragmentDataLength > (newPngData.length * 3) / 4) {
-        imageRect.data = newPngData;
-      } else {
-        final byte[] portionArray = new byte[fragmentDataLength];
-
-        if (startByteX == 0) {
-          int srcOffset = startByteY * scanLineWidth;
-          int dstOffset = 0;
-          for (int i = 0; i < pixelHeight; i++) {
-            System.arraycopy(newPngData, srcOffset, portionArray, dstOffset, portionLineWidth);
-            srcOffset += scanLineWidth;
-            dstOffset += portionLineWidth;
-          }
-        } else {
-          int srcOffset = startByteY * scanLineWidth + (pixelX * 3) + 1;
-          int dstOffset = 1;
-          final int copyLineLength = pixelWidth * 3;
-          for (int i = 0; i < pixelHeight; i++) {
-            System.arraycopy(newPngData, srcOffset, portionArray, dstOffset, copyLineLength);
-            srcOffset += scanLineWidth;
-            dstOffset += portionLineWidth;
-          }
-        }
-
-        imageRect.x = pixelX;
-        imageRect.y = startByteY;
-        imageRect.width = pixelWidth;
-        imageRect.height = pixelHeight;
-        imageRect.data = portionArray;
+  private void releasePortionBuffers(final List<ImagePortion> portions) {
+    for (int i = 0; i < portions.size(); i++) {
+      final ImagePortion portion = portions.get(i);
+      if (portion.data != this.imageDataBufferLast && portion.data != this.imageDataBufferTemp) {
+        this.freePortionBuffers.add(portion.data);
       }
+      portion.data = null;
+      this.freePortions.add(portion);
     }
+    portions.clear();
+  }
 
-    return imageRect;
+  private ImagePortion makeWholeFramePortion(final byte[] data) {
+    return this.takePortion(0, 0, this.width, this.height, data, this.rowBytes);
   }
 
-  private static ImagePortion extractChangedImagePortionMonochrome(final byte[] oldPngData, final byte[] newPngData, final ImagePortion imageRect) {
-    int startByteX = Integer.MAX_VALUE;
-    int startByteY = Integer.MAX_VALUE;
-    int endByteX = Integer.MIN_VALUE;
-    int endByteY = Integer.MIN_VALUE;
+  private boolean extractChangedImagePortions(final byte[] oldPngData, final byte[] newPngData, final List<ImagePortion> result) {
+    if (this.frameDiff.getBounds(this.changedBounds) == null) {
+      return false;
+    }
 
-    final int scanLineWidth = imageRect.width + 1;
+    final List<Rectangle> areas = this.splitChangedAreas
+        ? this.frameDiff.findChangedAreas(oldPngData, newPngData, MAX_SUB_FRAMES)
+        : this.changedBoundsList;
 
-    final int dataLength = oldPngData.length;
+    final int bytesPerPixel = this.frameDiff.getBytesPerPixel();
+    final int scanLineWidth = this.rowBytes + 1;
 
-    for (int i = 0; i < dataLength; i++) {
-      if (oldPngData[i] != newPngData[i]) {
-        final int px = i % scanLineWidth;
-        final int py = i / scanLineWidth;
-        startByteX = Math.min(startByteX, px);
-        startByteY = Math.min(startByteY, py);
-        endByteX = Math.max(endByteX, px);
-        endByteY = Math.max(endByteY, py);
-      }
+    long fragmentDataLength = 0L;
+    for (int i = 0; i < areas.size(); i++) {
+      final Rectangle area = areas.get(i);
+      fragmentDataLength += (long) (area.width * bytesPerPixel + 1) * area.height;
     }
 
-    if (startByteX == Integer.MAX_VALUE) return null;
-
-    if (startByteX == 0 && startByteY == 0 && endByteX == scanLineWidth - 1 && endByteY == imageRect.height - 1) {
-      imageRect.data = newPngData;
+    if (fragmentDataLength > ((long) scanLineWidth * this.height * 3L) / 4L) {
+      result.add(this.makeWholeFramePortion(newPngData));
     } else {
-      final int pixelX = (startByteX - 1);
-      final int pixelWidth = ((endByteX - 1) - (startByteX - 1)) + 1;
-      final int pixelHeight = (endByteY - startByteY) + 1;
-
-      final int portionLineWidth = pixelWidth + 1;
-      final int fragmentDataLength = portionLineWidth * pixelHeight;
-
-      if (fragmentDataLength > (newPngData.length * 3) / 4) {
-        imageRect.data = newPngData;
-      } else {
-        final byte[] portionArray = new byte[fragmentDataLength];
-
-        if (startByteX == 0) {
-          int srcOffset = startByteY * scanLineWidth;
-          int dstOffset = 0;
-          for (int i = 0; i < pixelHeight; i++) {
-            System.arraycopy(newPngData, srcOffset, portionArray, dstOffset, portionLineWidth);
-            srcOffset += scanLineWidth;
-            dstOffset += portionLineWidth;
-          }
-        } else {
-          int srcOffset = startByteY * scanLineWidth + pixelX + 1;
-          int dstOffset = 1;
-          for (int i = 0; i < pixelHeight; i++) {
-            System.arraycopy(newPngData, srcOffset, portionArray, dstOffset, pixelWidth);
-            srcOffset += scanLineWidth;
-            dstOffset += portionLineWidth;
-          }
-        }
-
-        imageRect.x = pixelX;
-        imageRect.y = startByteY;
-        imageRect.width = pixelWidth;
-        imageRect.height = pixelHeight;
-        imageRect.data = portionArray;
+      for (int i = 0; i < areas.size(); i++) {
+        result.add(this.extractImagePortion(newPngData, scanLineWidth, bytesPerPixel, areas.get(i)));
       }
     }
-
-    return imageRect;
+    return true;
   }
 
   public Optional<ColorComponentStatistics> getColorStatistics() {
     return Optional.ofNullable(this.colorStatistics);
   }
 
-  public synchronized void addFrame(final BufferedImage image, final boolean forceWholeFrame, final Duration delay) throws IOException {
+  public void addFrame(final BufferedImage image, final boolean forceWholeFrame, final Duration delay) throws IOException {
+    this.addFrame(image, null, forceWholeFrame, delay);
+  }
+
+  /**
+   * Add frame into animation.
+   *
+   * @param image           frame image
+   * @param changedArea     area which contains all changes since previous added frame, null if unknown
+   * @param forceWholeFrame save whole frame instead of changed portion
+   * @param delay           duration of the frame
+   * @throws IOException if any transport error
+   */
+  public synchronized void addFrame(final BufferedImage image, final Rectangle changedArea, final boolean forceWholeFrame, final Duration delay) throws IOException {
     if (this.state == State.STARTED) {
       if (image.getWidth() != this.width || image.getHeight() != this.height) {
         throw new IllegalArgumentException("Unexpected image size");
       }
 
+      // multi-pass filters can change whole frame for local changes
+      final Rectangle processArea;
+      if (changedArea == null || this.accumulatedFrameNanos < 0L || this.filter.getPasses() != 1) {
+        processArea = this.wholeArea;
+      } else {
+        final int x1 = Math.max(0, changedArea.x);
+        final int y1 = Math.max(0, changedArea.y);
+        final int x2 = Math.min(this.width, changedArea.x + changedArea.width);
+        final int y2 = Math.min(this.height, changedArea.y + changedArea.height);
+        processArea = this.processArea;
+        processArea.setBounds(x1, y1, Math.max(0, x2 - x1), Math.max(0, y2 - y1));
+      }
+
+      if (this.bitDepth < 8 && processArea != this.wholeArea) {
+        // packed pixels are changed by whole bytes
+        final int pixelsPerByte = 8 / this.bitDepth;
+        final int x1 = processArea.x / pixelsPerByte * pixelsPerByte;
+        final int x2 = Math.min(this.width, (processArea.x + processArea.width + pixelsPerByte - 1) / pixelsPerByte * pixelsPerByte);
+        processArea.setBounds(x1, processArea.y, Math.max(0, x2 - x1), processArea.height);
+      }
+
+      if (processArea.isEmpty()) {
+        if (this.accumulatedFrameNanos >= 0L) {
+          this.accumulatedFrameNanos += delay.toNanos();
+        }
+        return;
+      }
+
       if (this.imageDataBufferLast == null) {
-        final int bufferSize = (this.width * this.height * 3) + this.height;
+        final int bufferSize = (this.rowBytes + 1) * this.height;
         this.imageDataBufferLast = new byte[bufferSize];
         this.imageDataBufferTemp = new byte[bufferSize];
+        this.frameDiff = this.bitDepth < 8
+            ? new FrameDiff(this.rowBytes, this.height, 1)
+            : new FrameDiff(this.width, this.height, this.bytesPerPixel);
       }
 
-      this.imageDataBufferTemp = this.filter.isMonochrome() ? toMonochrome(image, this.imageDataBufferTemp, this.filter)
-              : toRgb(image, this.imageDataBufferTemp, this.colorStatistics, this.filter);
+      final Raster raster = image.getRaster();
+      final DataBuffer dataBuffer = raster.getDataBuffer();
+      final int[] pixels;
+      final int pixelsOffset;
+      final int pixelsStride;
+      if ((image.getType() == BufferedImage.TYPE_INT_RGB || image.getType() == BufferedImage.TYPE_INT_ARGB)
+          && dataBuffer instanceof DataBufferInt
+          && raster.getSampleModel() instanceof SinglePixelPackedSampleModel) {
+        // read pixels directly from the image buffer without copying
+        pixels = ((DataBufferInt) dataBuffer).getData();
+        pixelsStride = ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+        pixelsOffset = dataBuffer.getOffset() - raster.getSampleModelTranslateY() * pixelsStride - raster.getSampleModelTranslateX();
+      } else {
+        if (this.rgbFallbackBuffer == null) {
+          this.rgbFallbackBuffer = new int[this.width * this.height];
+        }
+        pixels = image.getRGB(0, 0, this.width, this.height, this.rgbFallbackBuffer, 0, this.width);
+        pixelsOffset = 0;
+        pixelsStride = this.width;
+      }
 
-      if (this.accumulatedFrameDuration == null) {
+      this.convertFrame(pixels, pixelsOffset, pixelsStride, processArea, this.imageDataBufferTemp);
+
+      if (this.accumulatedFrameNanos < 0L) {
         System.arraycopy(this.imageDataBufferTemp, 0, this.imageDataBufferLast, 0, this.imageDataBufferTemp.length);
-        this.lastFoundDifference = new ImagePortion(0, 0, this.width, this.height, this.imageDataBufferLast);
-        this.accumulatedFrameDuration = delay;
+        this.lastFoundDifference.add(this.makeWholeFramePortion(this.imageDataBufferLast));
+        this.accumulatedFrameNanos = delay.toNanos();
       } else {
-        final ImagePortion foundDifference = this.filter.isMonochrome() ?
-                extractChangedImagePortionMonochrome(this.imageDataBufferLast, this.imageDataBufferTemp, new ImagePortion(0, 0, this.width, this.height, null))
-                : extractChangedImagePortionRgb(this.imageDataBufferLast, this.imageDataBufferTemp, new ImagePortion(0, 0, this.width, this.height, null));
+        final Rectangle diffArea;
+        if (this.bitDepth < 8) {
+          final int pixelsPerByte = 8 / this.bitDepth;
+          diffArea = this.diffArea;
+          diffArea.setBounds(processArea.x / pixelsPerByte, processArea.y,
+              (processArea.x + processArea.width + pixelsPerByte - 1) / pixelsPerByte - processArea.x / pixelsPerByte,
+              processArea.height);
+        } else {
+          diffArea = processArea;
+        }
+        this.frameDiff.compare(this.imageDataBufferLast, this.imageDataBufferTemp, diffArea);
 
-        if (foundDifference == null) {
-          this.accumulatedFrameDuration = this.accumulatedFrameDuration.plus(delay);
+        if (!this.extractChangedImagePortions(this.imageDataBufferLast, this.imageDataBufferTemp, this.foundDifference)) {
+          this.accumulatedFrameNanos += delay.toNanos();
         } else {
           if (forceWholeFrame) {
             System.arraycopy(this.imageDataBufferTemp, 0, this.imageDataBufferLast, 0, this.imageDataBufferTemp.length);
-            this.lastFoundDifference = new ImagePortion(0, 0, this.width, this.height, this.imageDataBufferLast);
+            this.releasePortionBuffers(this.lastFoundDifference);
+            this.lastFoundDifference.add(this.makeWholeFramePortion(this.imageDataBufferLast));
           }
-          this.saveSingleFrame(this.lastFoundDifference, this.accumulatedFrameDuration);
+          this.saveFrame(this.lastFoundDifference, this.accumulatedFrameNanos);
 
           System.arraycopy(this.imageDataBufferTemp, 0, this.imageDataBufferLast, 0, this.imageDataBufferTemp.length);
-          if (foundDifference.data == this.imageDataBufferTemp) {
-            foundDifference.data = this.imageDataBufferLast;
+          for (int i = 0; i < this.foundDifference.size(); i++) {
+            final ImagePortion portion = this.foundDifference.get(i);
+            if (portion.data == this.imageDataBufferTemp) {
+              portion.data = this.imageDataBufferLast;
+            }
           }
 
-          this.lastFoundDifference = foundDifference;
-          this.accumulatedFrameDuration = delay;
+          // saved portions are free now and the list is reused for next changes
+          this.releasePortionBuffers(this.lastFoundDifference);
+          final List<ImagePortion> savedPortions = this.lastFoundDifference;
+          this.lastFoundDifference = this.foundDifference;
+          this.foundDifference = savedPortions;
+          this.accumulatedFrameNanos = delay.toNanos();
         }
       }
     }
   }
 
+  public CompressionProfile getCompressionProfile() {
+    return this.compressionProfile;
+  }
+
+  public int getCompressionLevel() {
+    return this.compressionLevel;
+  }
+
+  /**
+   * Change compression level for next frames, the level is limited by the compression profile.
+   *
+   * @param level required level
+   * @return true if the level has been changed
+   */
+  public boolean setCompressionLevel(final int level) {
+    final int newLevel = Math.max(this.compressionProfile.getMinLevel(), Math.min(this.compressionProfile.getMaxLevel(), level));
+    final boolean changed = newLevel != this.compressionLevel;
+    this.compressionLevel = newLevel;
+    return changed;
+  }
+
+  public synchronized void extendLastFrame(final Duration delay) {
+    if (this.state == State.STARTED && this.accumulatedFrameNanos >= 0L) {
+      this.accumulatedFrameNanos += delay.toNanos();
+    }
+  }
+
   public State getState() {
     return this.state;
   }
 
-  private void saveSingleFrame(final ImagePortion portion, final Duration frameDelay) throws IOException {
+  private void saveFrame(final List<ImagePortion> portions, final long frameDelayNanos) throws IOException {
+    // all sub-frames except the last one are shown immediately
+    for (int i = 0; i < portions.size(); i++) {
+      this.saveSingleFrame(portions.get(i), i == portions.size() - 1 ? frameDelayNanos : 0L);
+    }
+  }
+
+  private void saveSingleFrame(final ImagePortion portion, final long frameDelayNanos) throws IOException {
     this.frameCounter++;
 
-    final short[] delayFractions = getTimeFraction(frameDelay);
+    final long delayMilliseconds = frameDelayNanos / 1_000_000L;
     // fcTL
     this.putInt(26);
     this.putText("fcTL");
@@ -369,39 +562,71 @@ public final class APngWriter {
     this.putInt(portion.height);
     this.putInt(portion.x);               // x position
     this.putInt(portion.y);               // y position
-    this.putShort(delayFractions[0]);     // fps num
-    this.putShort(delayFractions[1]);     // fps den
+    this.putShort((short) delayMilliseconds);             // fps num
+    this.putShort(delayMilliseconds == 0L ? 0 : 1000);    // fps den
     this.put(0);           //dispose 1:clear, 0: do nothing, 2: revert
     this.put(0);               //blend   1:blend, 0: overwrite
     this.putInt(this.calcCrcForBufferedChunk());
     this.flushAndClearBuffer();
 
-    byte[] compressedData = compress(portion.data);
+    final int compressedLength;
+    if (this.filterStrategy == FilterStrategy.NONE) {
+      compressedLength = this.compress(portion.data, portion.length);
+    } else {
+      this.filteredDataBuffer = ScanlineFilter.apply(this.filterStrategy, portion.data, portion.lineBytes / this.bytesPerPixel,
+          portion.height, this.bytesPerPixel, this.filteredDataBuffer);
+      compressedLength = this.compress(this.filteredDataBuffer, portion.length);
+    }
 
     if (this.frameCounter == 1) {
-      this.putInt(compressedData.length);
+      this.putInt(compressedLength);
       this.putText("IDAT");
     } else {
-      this.putInt(compressedData.length + 4);
+      this.putInt(compressedLength + 4);
       this.putText("fdAT");
       this.putInt(this.sequenceCounter++);
     }
 
-    this.put(compressedData);
+    this.put(this.compressedData, compressedLength);
     this.putInt(this.calcCrcForBufferedChunk());
     this.flushAndClearBuffer();
   }
 
-  private static byte[] compress(final byte[] data) throws IOException {
-    final Deflater deflater = new Deflater(9);
-    ByteArrayOutputStream outBuffer = new ByteArrayOutputStream(data.length / 2);
-    DeflaterOutputStream
-        deflatesStream = new DeflaterOutputStream(outBuffer, deflater, 0x2000, false);
-    deflatesStream.write(data);
-    deflatesStream.finish();
-    deflatesStream.flush();
-    deflatesStream.close();
-    return outBuffer.toByteArray();
+  private int compress(final byte[] data, final int length) throws IOException {
+    final int level = this.compressionProfile.getDeflaterLevel(this.compressionLevel);
+    final int strategy = this.compressionProfile.getDeflaterStrategy(this.compressionLevel);
+    if (ParallelDeflater.isApplicable(length)) {
+      if (this.parallelDeflater == null) {
+        this.parallelDeflater = new ParallelDeflater();
+      }
+      final int compressedLength = this.parallelDeflater.compress(data, length, level, strategy);
+      this.compressedData = this.parallelDeflater.getBuffer();
+      return compressedLength;
+    }
+
+    if (this.deflater == null) {
+      this.deflater = new Deflater(level);
+    } else {
+      this.deflater.reset();
+      this.deflater.setLevel(level);
+    }
+    this.deflater.setStrategy(strategy);
+    this.deflater.setInput(data, 0, length);
+    this.deflater.finish();
+
+    final int bufferStep = this.compressionProfile.getBufferSize();
+    if (this.compressedDataBuffer == null) {
+      this.compressedDataBuffer = new byte[Math.max(bufferStep, length / 2)];
+    }
+    int position = 0;
+    while (!this.deflater.finished()) {
+      if (position == this.compressedDataBuffer.length) {
+        this.compressedDataBuffer = Arrays.copyOf(this.compressedDataBuffer, position + Math.max(bufferStep, position / 2));
+      }
+      position += this.deflater.deflate(this.compressedDataBuffer, position, this.compressedDataBuffer.length - position);
+    }
+    this.compressedData = this.compressedDataBuffer;
+    return position;
   }
 
   public synchronized void start(final String productName, final int width, final int height)
@@ -413,12 +638,15 @@ public final class APngWriter {
 
     this.width = width;
     this.height = height;
+    this.wholeArea = new Rectangle(0, 0, width, height);
+    this.rowBytes = this.bitDepth < 8 ? (width * this.bitDepth + 7) / 8 : width * this.bytesPerPixel;
 
     // signature
     this.put(new byte[]{(byte) 0x89, 0x50, 0x4E, 0x47, 0x0D, 0x0A, 0x1A, 0x0A});
     this.flushAndClearBuffer();
 
     final Optional<int[]> palette = this.filter.getPalette();
+    this.pngPalette = palette.map(this::makePngPalette).orElse(null);
 
     // header
     this.putInt(13);
@@ -426,7 +654,7 @@ public final class APngWriter {
     this.putInt(width);
     this.putInt(height);
 
-    this.put(8); // bit depth
+    this.put(this.bitDepth); // bit depth
 
     if (palette.isPresent()) {
       this.put(3);
@@ -440,9 +668,8 @@ public final class APngWriter {
     this.putInt(this.calcCrcForBufferedChunk());
     this.flushAndClearBuffer();
 
-    if (palette.isPresent()) {
-      this.writePtleChunk(
-          palette.orElseThrow(() -> new IllegalStateException("Palette must be provided")));
+    if (this.pngPalette != null) {
+      this.writePtleChunk(this.pngPalette);
     }
     this.writeAcTLChunk(0, 0);
     if (productName != null) {
@@ -450,6 +677,25 @@ public final class APngWriter {
     }
   }
 
+  /**
+   * Make palette for bit depth, filters with bit depth less than 8 produce only levels distributed
+   * through the whole byte range, so that palette items for the levels are selected.
+   *
+   * @param filterPalette palette provided by filter
+   * @return palette to be written into PLTE chunk
+   */
+  private int[] makePngPalette(final int[] filterPalette) {
+    if (this.bitDepth == 8) {
+      return filterPalette;
+    }
+    final int levels = 1 << this.bitDepth;
+    final int[] result = new int[levels];
+    for (int i = 0; i < levels; i++) {
+      result[i] = filterPalette[i * (filterPalette.length - 1) / (levels - 1)];
+    }
+    return result;
+  }
+
   private void writeIEND() throws IOException {
     this.putInt(0);
     this.putText("IEND");
@@ -458,7 +704,11 @@ public final class APngWriter {
   }
 
   private void flushAndClearBuffer() throws IOException {
-    this.fileChannel.write(ByteBuffer.wrap(this.chunkBuffer, 0, this.nextChunkBufferPosition));
+    if (this.chunkByteBuffer == null || this.chunkByteBuffer.array() != this.chunkBuffer) {
+      this.chunkByteBuffer = ByteBuffer.wrap(this.chunkBuffer);
+    }
+    this.chunkByteBuffer.clear().limit(this.nextChunkBufferPosition);
+    this.fileChannel.write(this.chunkByteBuffer);
     this.resetPosition();
   }
 
@@ -515,14 +765,22 @@ public final class APngWriter {
   }
 
   private void put(final byte[] array) {
-    for (final byte b : array) {
-      this.put(b);
+    this.put(array, array.length);
+  }
+
+  private void put(final byte[] array, final int length) {
+    if (this.chunkBuffer == null) {
+      this.chunkBuffer = new byte[Math.max(this.compressionProfile.getBufferSize(), length)];
+    } else if (this.chunkBuffer.length - this.nextChunkBufferPosition < length) {
+      this.chunkBuffer = Arrays.copyOf(this.chunkBuffer, Math.max(this.chunkBuffer.length * 2, this.nextChunkBufferPosition + length));
     }
+    System.arraycopy(array, 0, this.chunkBuffer, this.nextChunkBufferPosition, length);
+    this.nextChunkBufferPosition += length;
   }
 
   private void put(final int value) {
     if (this.chunkBuffer == null) {
-      this.chunkBuffer = new byte[64 * 1024];
+      this.chunkBuffer = new byte[this.compressionProfile.getBufferSize()];
     } else if (this.nextChunkBufferPosition == this.chunkBuffer.length) {
       final byte[] newBuffer = new byte[this.chunkBuffer.length * 2];
       System.arraycopy(this.chunkBuffer, 0, newBuffer, 0, this.chunkBuffer.length);
@@ -532,9 +790,9 @@ public final class APngWriter {
   }
 
   private int calcCrcForBufferedChunk() {
-    CRC32 crc = new CRC32();
-    crc.update(this.chunkBuffer, 4, this.nextChunkBufferPosition - 4);
-    return (int) crc.getValue();
+    this.crc.reset();
+    this.crc.update(this.chunkBuffer, 4, this.nextChunkBufferPosition - 4);
+    return (int) this.crc.getValue();
   }
 
   public enum State {
@@ -543,6 +801,87 @@ public final class APngWriter {
     CLOSED
   }
 
+  /**
+   * Profile of frame data compression. Compression level can be changed in profile range during recording, the
+   * initial level is the max one. Level {@link APngWriter#HUFFMAN_ONLY_LEVEL} is the lowest step of realtime profile, data is
+   * coded by Huffman codes without search of matches.
+   */
+  public enum CompressionProfile {
+    REALTIME(HUFFMAN_ONLY_LEVEL, 3, Deflater.FILTERED, 32 * 1024),
+    BALANCED(3, 6, Deflater.DEFAULT_STRATEGY, 64 * 1024),
+    ARCHIVAL(6, 9, Deflater.DEFAULT_STRATEGY, 64 * 1024);
+
+    private final int minLevel;
+    private final int maxLevel;
+    private final int strategy;
+    private final int bufferSize;
+
+    CompressionProfile(final int minLevel, final int maxLevel, final int strategy, final int bufferSize) {
+      this.minLevel = minLevel;
+      this.maxLevel = maxLevel;
+      this.strategy = strategy;
+      this.bufferSize = bufferSize;
+    }
+
+    public int getMinLevel() {
+      return this.minLevel;
+    }
+
+    public int getMaxLevel() {
+      return this.maxLevel;
+    }
+
+    public int getStrategy() {
+      return this.strategy;
+    }
+
+    /**
+     * Get deflater level for compression level of profile.
+     *
+     * @param level compression level in profile range
+     * @return level to be set into deflater
+     */
+    public int getDeflaterLevel(final int level) {
+      return level == HUFFMAN_ONLY_LEVEL ? Deflater.BEST_SPEED : level;
+    }
+
+    /**
+     * Get deflater strategy for compression level of profile.
+     *
+     * @param level compression level in profile range
+     * @return strategy to be set into deflater
+     */
+    public int getDeflaterStrategy(final int level) {
+      return level == HUFFMAN_ONLY_LEVEL ? Deflater.HUFFMAN_ONLY : this.strategy;
+    }
+
+    public int getBufferSize() {
+      return this.bufferSize;
+    }
+
+    @Override
+    public String toString() {
+      return this.name().replace('_', ' ');
+    }
+  }
+
+  /**
+   * Strategy to select PNG filter for saved scanlines.
+   */
+  public enum FilterStrategy {
+    NONE,
+    SUB,
+    UP,
+    AVERAGE,
+    PAETH,
+    ADAPTIVE;
+
+    @Override
+    public String toString() {
+      return this.name().replace('_', ' ');
+    }
+  }
+
   public final static class ColorComponentStatistics {
     private final int[] statisticsR = new int[256];
     private final int[] statisticsG = new int[256];
@@ -578,6 +917,24 @@ public final class APngWriter {
       if (this.statisticsB[b] < Integer.MAX_VALUE) this.statisticsB[b]++;
     }
 
+    private static void merge(final int[] target, final int[] source) {
+      for (int i = 0; i < target.length; i++) {
+        target[i] = (int) Math.min(Integer.MAX_VALUE, (long) target[i] + source[i]);
+      }
+    }
+
+    private void merge(final ColorComponentStatistics shard) {
+      merge(this.statisticsR, shard.statisticsR);
+      merge(this.statisticsG, shard.statisticsG);
+      merge(this.statisticsB, shard.statisticsB);
+    }
+
+    private void clear() {
+      Arrays.fill(this.statisticsR, 0);
+      Arrays.fill(this.statisticsG, 0);
+      Arrays.fill(this.statisticsB, 0);
+    }
+
     public int[] makeAutoPalette() {
       final byte[] rgb = new byte[256 * 3];
 
@@ -648,13 +1005,18 @@ public final class APngWriter {
     int height;
     byte[] data;
 
-    @SuppressWarnings("SameParameterValue")
-    ImagePortion(final int x, final int y, final int width, final int height, final byte[] data) {
+    int lineBytes;
+    int length;
+
+    ImagePortion set(final int x, final int y, final int width, final int height, final byte[] data, final int lineBytes) {
       this.x = x;
       this.y = y;
       this.width = width;
       this.height = height;
       this.data = data;
+      this.lineBytes = lineBytes;
+      this.length = (lineBytes + 1) * height;
+      return this;
     }
   }
 
@@ -665,14 +1027,18 @@ public final class APngWriter {
     public final int width;
     public final int height;
     public final long size;
+    public final CompressionProfile compressionProfile;
+    public final int compressionLevel;
 
-    private Statistics(final ColorComponentStatistics colorStatistics, final int bufferSize, final int frames, final int width, final int height, final long size) {
+    private Statistics(final ColorComponentStatistics colorStatistics, final int bufferSize, final int frames, final int width, final int height, final long size, final CompressionProfile compressionProfile, final int compressionLevel) {
       this.colorStatistics = colorStatistics;
       this.bufferSize = bufferSize;
       this.frames = frames;
       this.width = width;
       this.height = height;
       this.size = size;
+      this.compressionProfile = compressionProfile;
+      this.compressionLevel = compressionLevel;
     }
   }
 
@@ -0,0 +1,351 @@
+package com.igormaznitsa.japagoge;
+
+import com.igormaznitsa.japagoge.utils.PixelKernels;
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finder of changed parts between two PNG scanline buffers (each line starts with filter type byte).
+ * Buffers are compared by pixel kernels, for every line only leftmost and rightmost changes are searched
+ * and tiles between them are checked until the first change, so the result contains exact bounds of changes
+ * and bitmap of changed tiles. Big areas are compared by bands of tile rows in parallel.
+ * Frames with pixels packed into bits are compared as images of bytes, so that found areas are byte aligned.
+ */
+final class FrameDiff {
+
+  static final int TILE_SIZE = 32;
+
+  /**
+   * Approximate number of bytes added into file by every sub-frame (fcTL, fdAT and zlib stream headers).
+   */
+  static final int SUB_FRAME_OVERHEAD = 256;
+
+  private final PixelKernels kernels = PixelKernels.getInstance();
+  private final int width;
+  private final int height;
+  private final int bytesPerPixel;
+  private final int scanLineBytes;
+  private final int tileColumns;
+  private final int tileRows;
+  private final int tileRowWords;
+  private final long[] dirtyTiles;
+  private final boolean[] visitedTiles;
+  private final int[] tileStack;
+  private final Rectangle searchArea = new Rectangle();
+  private final Rectangle tileArea = new Rectangle();
+  private final List<Rectangle> changedAreas = new ArrayList<>();
+  private final List<Rectangle> freeAreas = new ArrayList<>();
+
+  private int minX;
+  private int minY;
+  private int maxX;
+  private int maxY;
+  private int[] bandExtents = new int[4];
+  private int[] bands;
+
+  FrameDiff(final int width, final int height, final int bytesPerPixel) {
+    this.width = width;
+    this.height = height;
+    this.bytesPerPixel = bytesPerPixel;
+    this.scanLineBytes = width * bytesPerPixel + 1;
+    this.tileColumns = (width + TILE_SIZE - 1) / TILE_SIZE;
+    this.tileRows = (height + TILE_SIZE - 1) / TILE_SIZE;
+    // every tile row has own words to be marked by band without synchronization
+    this.tileRowWords = (this.tileColumns + 63) >>> 6;
+    this.dirtyTiles = new long[this.tileRowWords * this.tileRows];
+    this.visitedTiles = new boolean[this.tileColumns * this.tileRows];
+    this.tileStack = new int[this.visitedTiles.length];
+    this.reset();
+  }
+
+  private void reset() {
+    this.minX = Integer.MAX_VALUE;
+    this.minY = Integer.MAX_VALUE;
+    this.maxX = Integer.MIN_VALUE;
+    this.maxY = Integer.MIN_VALUE;
+    Arrays.fill(this.dirtyTiles, 0L);
+  }
+
+  /**
+   * Compare two scanline buffers inside area.
+   *
+   * @param oldData    previous frame data
+   * @param newData    new frame data
+   * @param searchArea area to be checked, in pixels
+   * @return true if any change found
+   * @throws IOException if parallel comparison has been interrupted or failed
+   */
+  boolean compare(final byte[] oldData, final byte[] newData, final Rectangle searchArea) throws IOException {
+    this.reset();
+    this.searchArea.setBounds(searchArea);
+
+    final int[] bands = ParallelWork.splitRows(searchArea.y, searchArea.y + searchArea.height, searchArea.width, TILE_SIZE, this.bands);
+    this.bands = bands;
+    final int bandCount = bands.length - 1;
+    if (this.bandExtents.length < bandCount * 4) {
+      this.bandExtents = new int[bandCount * 4];
+    }
+    if (bandCount == 1) {
+      this.compareRows(oldData, newData, searchArea, bands[0], bands[1], 0);
+    } else {
+      ParallelWork.forEachBand(bandCount, band -> this.compareRows(oldData, newData, searchArea, bands[band], bands[band + 1], band));
+    }
+
+    for (int band = 0; band < bandCount; band++) {
+      final int offset = band * 4;
+      this.minX = Math.min(this.minX, this.bandExtents[offset]);
+      this.minY = Math.min(this.minY, this.bandExtents[offset + 1]);
+      this.maxX = Math.max(this.maxX, this.bandExtents[offset + 2]);
+      this.maxY = Math.max(this.maxY, this.bandExtents[offset + 3]);
+    }
+    return this.minX != Integer.MAX_VALUE;
+  }
+
+  private void compareRows(final byte[] oldData, final byte[] newData, final Rectangle searchArea, final int fromY, final int toY, final int band) {
+    final int tileBytes = TILE_SIZE * this.bytesPerPixel;
+
+    int bandMinX = Integer.MAX_VALUE;
+    int bandMinY = Integer.MAX_VALUE;
+    int bandMaxX = Integer.MIN_VALUE;
+    int bandMaxY = Integer.MIN_VALUE;
+
+    for (int y = fromY; y < toY; y++) {
+      final int pixelStart = y * this.scanLineBytes + 1;
+      final int from = pixelStart + searchArea.x * this.bytesPerPixel;
+      final int to = pixelStart + (searchArea.x + searchArea.width) * this.bytesPerPixel;
+
+      final int first = this.kernels.findFirstDifference(oldData, newData, from, to);
+      if (first < 0) {
+        continue;
+      }
+      final int last = this.kernels.findLastDifference(oldData, newData, first, to);
+
+      final int firstPixel = (first - pixelStart) / this.bytesPerPixel;
+      final int lastPixel = (last - pixelStart) / this.bytesPerPixel;
+
+      bandMinX = Math.min(bandMinX, firstPixel);
+      bandMaxX = Math.max(bandMaxX, lastPixel);
+      bandMinY = Math.min(bandMinY, y);
+      bandMaxY = Math.max(bandMaxY, y);
+
+      final int tileY = y / TILE_SIZE;
+      final int firstTile = firstPixel / TILE_SIZE;
+      final int lastTile = lastPixel / TILE_SIZE;
+      this.markTile(firstTile, tileY);
+      this.markTile(lastTile, tileY);
+      for (int tile = firstTile + 1; tile < lastTile; tile++) {
+        if (!this.isTileDirty(tile, tileY)) {
+          final int tileStart = pixelStart + tile * tileBytes;
+          if (this.kernels.findFirstDifference(oldData, newData, tileStart, tileStart + tileBytes) >= 0) {
+            this.markTile(tile, tileY);
+          }
+        }
+      }
+    }
+
+    final int offset = band * 4;
+    this.bandExtents[offset] = bandMinX;
+    this.bandExtents[offset + 1] = bandMinY;
+    this.bandExtents[offset + 2] = bandMaxX;
+    this.bandExtents[offset + 3] = bandMaxY;
+  }
+
+  private void markTile(final int tileX, final int tileY) {
+    this.dirtyTiles[tileY * this.tileRowWords + (tileX >>> 6)] |= 1L << tileX;
+  }
+
+  /**
+   * Get bounds of found changes.
+   *
+   * @return bounds in pixels, null if no changes
+   */
+  Rectangle getBounds() {
+    return this.getBounds(new Rectangle());
+  }
+
+  /**
+   * Get bounds of found changes into provided rectangle.
+   *
+   * @param result rectangle to be filled by bounds
+   * @return the result rectangle, null if no changes
+   */
+  Rectangle getBounds(final Rectangle result) {
+    if (this.minX == Integer.MAX_VALUE) {
+      return null;
+    }
+    result.setBounds(this.minX, this.minY, this.maxX - this.minX + 1, this.maxY - this.minY + 1);
+    return result;
+  }
+
+  /**
+   * Find exact bounds of changes inside area.
+   *
+   * @param oldData previous frame data
+   * @param newData new frame data
+   * @param area    area to be checked, in pixels
+   * @return bounds in pixels, null if no changes
+   */
+  Rectangle findBounds(final byte[] oldData, final byte[] newData, final Rectangle area) {
+    return this.findBounds(oldData, newData, area, new Rectangle());
+  }
+
+  private Rectangle findBounds(final byte[] oldData, final byte[] newData, final Rectangle area, final Rectangle result) {
+    int foundMinX = Integer.MAX_VALUE;
+    int foundMinY = Integer.MAX_VALUE;
+    int foundMaxX = Integer.MIN_VALUE;
+    int foundMaxY = Integer.MIN_VALUE;
+    for (int y = area.y; y < area.y + area.height; y++) {
+      final int pixelStart = y * this.scanLineBytes + 1;
+      final int from = pixelStart + area.x * this.bytesPerPixel;
+      final int to = pixelStart + (area.x + area.width) * this.bytesPerPixel;
+      final int first = this.kernels.findFirstDifference(oldData, newData, from, to);
+      if (first >= 0) {
+        final int last = this.kernels.findLastDifference(oldData, newData, first, to);
+        foundMinX = Math.min(foundMinX, (first - pixelStart) / this.bytesPerPixel);
+        foundMaxX = Math.max(foundMaxX, (last - pixelStart) / this.bytesPerPixel);
+        foundMinY = Math.min(foundMinY, y);
+        foundMaxY = Math.max(foundMaxY, y);
+      }
+    }
+    if (foundMinX == Integer.MAX_VALUE) {
+      return null;
+    }
+    result.setBounds(foundMinX, foundMinY, foundMaxX - foundMinX + 1, foundMaxY - foundMinY + 1);
+    return result;
+  }
+
+  private int calcRawSize(final Rectangle area) {
+    return area.height * (area.width * this.bytesPerPixel + 1);
+  }
+
+  private int calcUnionRawSize(final Rectangle first, final Rectangle second) {
+    final int width = Math.max(first.x + first.width, second.x + second.width) - Math.min(first.x, second.x);
+    final int height = Math.max(first.y + first.height, second.y + second.height) - Math.min(first.y, second.y);
+    return height * (width * this.bytesPerPixel + 1);
+  }
+
+  private Rectangle takeArea() {
+    return this.freeAreas.isEmpty() ? new Rectangle() : this.freeAreas.remove(this.freeAreas.size() - 1);
+  }
+
+  /**
+   * Split found changes into separated areas. Connected dirty tiles make areas limited by search area, then areas
+   * are merged while merge adds less bytes than sub-frame overhead or number of areas is greater than limit.
+   * Must be called after {@link #compare(byte[], byte[], Rectangle)}.
+   *
+   * @param oldData  previous frame data
+   * @param newData  new frame data
+   * @param maxAreas max number of result areas
+   * @return list of changed areas in pixels, empty if no changes, the list and its areas are reused by next call
+   */
+  List<Rectangle> findChangedAreas(final byte[] oldData, final byte[] newData, final int maxAreas) {
+    final List<Rectangle> result = this.changedAreas;
+    for (int i = 0; i < result.size(); i++) {
+      this.freeAreas.add(result.get(i));
+    }
+    result.clear();
+    if (this.minX == Integer.MAX_VALUE) {
+      return result;
+    }
+
+    final boolean[] visited = this.visitedTiles;
+    final int[] stack = this.tileStack;
+    Arrays.fill(visited, false);
+
+    for (int tile = 0; tile < visited.length; tile++) {
+      if (visited[tile] || !this.isTileDirty(tile % this.tileColumns, tile / this.tileColumns)) {
+        continue;
+      }
+      int tileMinX = Integer.MAX_VALUE;
+      int tileMinY = Integer.MAX_VALUE;
+      int tileMaxX = Integer.MIN_VALUE;
+      int tileMaxY = Integer.MIN_VALUE;
+
+      int stackSize = 0;
+      stack[stackSize++] = tile;
+      visited[tile] = true;
+      while (stackSize > 0) {
+        final int current = stack[--stackSize];
+        final int tx = current % this.tileColumns;
+        final int ty = current / this.tileColumns;
+        tileMinX = Math.min(tileMinX, tx);
+        tileMinY = Math.min(tileMinY, ty);
+        tileMaxX = Math.max(tileMaxX, tx);
+        tileMaxY = Math.max(tileMaxY, ty);
+        for (int ny = Math.max(0, ty - 1); ny <= Math.min(this.tileRows - 1, ty + 1); ny++) {
+          for (int nx = Math.max(0, tx - 1); nx <= Math.min(this.tileColumns - 1, tx + 1); nx++) {
+            final int neighbour = ny * this.tileColumns + nx;
+            if (!visited[neighbour] && this.isTileDirty(nx, ny)) {
+              visited[neighbour] = true;
+              stack[stackSize++] = neighbour;
+            }
+          }
+        }
+      }
+
+      final int areaX1 = Math.max(tileMinX * TILE_SIZE, this.searchArea.x);
+      final int areaY1 = Math.max(tileMinY * TILE_SIZE, this.searchArea.y);
+      final int areaX2 = Math.min((tileMaxX + 1) * TILE_SIZE, this.searchArea.x + this.searchArea.width);
+      final int areaY2 = Math.min((tileMaxY + 1) * TILE_SIZE, this.searchArea.y + this.searchArea.height);
+      this.tileArea.setBounds(areaX1, areaY1, Math.max(0, areaX2 - areaX1), Math.max(0, areaY2 - areaY1));
+      final Rectangle bounds = this.takeArea();
+      if (this.findBounds(oldData, newData, this.tileArea, bounds) == null) {
+        this.freeAreas.add(bounds);
+      } else {
+        result.add(bounds);
+      }
+    }
+
+    while (result.size() > 1) {
+      int bestFirst = -1;
+      int bestSecond = -1;
+      long bestCost = Long.MAX_VALUE;
+      for (int i = 0; i < result.size(); i++) {
+        final Rectangle first = result.get(i);
+        for (int j = i + 1; j < result.size(); j++) {
+          final Rectangle second = result.get(j);
+          final long cost = (long) this.calcUnionRawSize(first, second) - this.calcRawSize(first) - this.calcRawSize(second);
+          if (cost < bestCost) {
+            bestCost = cost;
+            bestFirst = i;
+            bestSecond = j;
+          }
+        }
+      }
+      if (bestCost > SUB_FRAME_OVERHEAD && result.size() <= maxAreas) {
+        break;
+      }
+      // both areas are not empty so that addition makes their union
+      result.get(bestFirst).add(result.get(bestSecond));
+      this.freeAreas.add(result.remove(bestSecond));
+    }
+    return result;
+  }
+
+  int getTileColumns() {
+    return this.tileColumns;
+  }
+
+  int getTileRows() {
+    return this.tileRows;
+  }
+
+  boolean isTileDirty(final int tileX, final int tileY) {
+    return (this.dirtyTiles[tileY * this.tileRowWords + (tileX >>> 6)] & (1L << tileX)) != 0L;
+  }
+
+  int getWidth() {
+    return this.width;
+  }
+
+  int getHeight() {
+    return this.height;
+  }
+
+  int getBytesPerPixel() {
+    return this.bytesPerPixel;
+  }
+}
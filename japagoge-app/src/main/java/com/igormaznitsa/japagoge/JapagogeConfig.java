@@ -35,6 +35,54 @@ public class JapagogeConfig {
     }
   }
 
+  public ScreenCapturer.BackpressurePolicy getBackpressurePolicy() {
+    try {
+      return ScreenCapturer.BackpressurePolicy.valueOf(this.preferences.get(Key.BACKPRESSURE_POLICY.name(), ScreenCapturer.BackpressurePolicy.BLOCK.name()).trim().toUpperCase(Locale.ENGLISH));
+    } catch (Exception ex) {
+      return ScreenCapturer.BackpressurePolicy.BLOCK;
+    }
+  }
+
+  public void setBackpressurePolicy(final ScreenCapturer.BackpressurePolicy policy) {
+    if (policy == null) {
+      this.preferences.remove(Key.BACKPRESSURE_POLICY.name());
+    } else {
+      this.preferences.put(Key.BACKPRESSURE_POLICY.name(), policy.name());
+    }
+  }
+
+  public APngWriter.FilterStrategy getPngFilterStrategy() {
+    try {
+      return APngWriter.FilterStrategy.valueOf(this.preferences.get(Key.PNG_FILTER_STRATEGY.name(), APngWriter.FilterStrategy.ADAPTIVE.name()).trim().toUpperCase(Locale.ENGLISH));
+    } catch (Exception ex) {
+      return APngWriter.FilterStrategy.ADAPTIVE;
+    }
+  }
+
+  public void setPngFilterStrategy(final APngWriter.FilterStrategy strategy) {
+    if (strategy == null) {
+      this.preferences.remove(Key.PNG_FILTER_STRATEGY.name());
+    } else {
+      this.preferences.put(Key.PNG_FILTER_STRATEGY.name(), strategy.name());
+    }
+  }
+
+  public APngWriter.CompressionProfile getCompressionProfile() {
+    try {
+      return APngWriter.CompressionProfile.valueOf(this.preferences.get(Key.COMPRESSION_PROFILE.name(), APngWriter.CompressionProfile.ARCHIVAL.name()).trim().toUpperCase(Locale.ENGLISH));
+    } catch (Exception ex) {
+      return APngWriter.CompressionProfile.ARCHIVAL;
+    }
+  }
+
+  public void setCompressionProfile(final APngWriter.CompressionProfile profile) {
+    if (profile == null) {
+      this.preferences.remove(Key.COMPRESSION_PROFILE.name());
+    } else {
+      this.preferences.put(Key.COMPRESSION_PROFILE.name(), profile.name());
+    }
+  }
+
   public String getTempFolder() {
     return this.preferences.get(Key.TEMP_FOLDER.name(), "");
   }
@@ -95,6 +143,22 @@ public class JapagogeConfig {
     this.preferences.putBoolean(Key.FORCE_JAVA_ROBOT.name(), flag);
   }
 
+  public boolean isTrackScreenChanges() {
+    return this.preferences.getBoolean(Key.TRACK_SCREEN_CHANGES.name(), false);
+  }
+
+  public void setTrackScreenChanges(final boolean flag) {
+    this.preferences.putBoolean(Key.TRACK_SCREEN_CHANGES.name(), flag);
+  }
+
+  public boolean isSplitChangedAreas() {
+    return this.preferences.getBoolean(Key.SPLIT_CHANGED_AREAS.name(), true);
+  }
+
+  public void setSplitChangedAreas(final boolean flag) {
+    this.preferences.putBoolean(Key.SPLIT_CHANGED_AREAS.name(), flag);
+  }
+
   public boolean isAccurateRgb() {
     return this.preferences.getBoolean(Key.ACCURATE_RGB.name(), false);
   }
@@ -103,12 +167,50 @@ public class JapagogeConfig {
     this.preferences.putBoolean(Key.ACCURATE_RGB.name(), flag);
   }
 
-  public boolean isDithering() {
-    return this.preferences.getBoolean(Key.DITHERING.name(), false);
+  public APngToGifConvertingWorker.DitheringMode getDitheringMode() {
+    final String mode = this.preferences.get(Key.DITHERING_MODE.name(), null);
+    if (mode == null) {
+      // old versions have only flag of Floyd-Steinberg dithering
+      return this.preferences.getBoolean(Key.DITHERING.name(), false) ? APngToGifConvertingWorker.DitheringMode.FLOYD_STEINBERG : APngToGifConvertingWorker.DitheringMode.NONE;
+    }
+    try {
+      return APngToGifConvertingWorker.DitheringMode.valueOf(mode.trim().toUpperCase(Locale.ENGLISH));
+    } catch (Exception ex) {
+      return APngToGifConvertingWorker.DitheringMode.NONE;
+    }
+  }
+
+  public void setDitheringMode(final APngToGifConvertingWorker.DitheringMode mode) {
+    this.preferences.remove(Key.DITHERING.name());
+    if (mode == null) {
+      this.preferences.remove(Key.DITHERING_MODE.name());
+    } else {
+      this.preferences.put(Key.DITHERING_MODE.name(), mode.name());
+    }
   }
 
-  public void setDithering(final boolean flag) {
-    this.preferences.putBoolean(Key.DITHERING.name(), flag);
+  public boolean isCompactRgbIndexTable() {
+    return this.preferences.getBoolean(Key.COMPACT_RGB_INDEX_TABLE.name(), false);
+  }
+
+  public void setCompactRgbIndexTable(final boolean flag) {
+    this.preferences.putBoolean(Key.COMPACT_RGB_INDEX_TABLE.name(), flag);
+  }
+
+  public boolean isCheckChunkCrc() {
+    return this.preferences.getBoolean(Key.CHECK_CHUNK_CRC.name(), false);
+  }
+
+  public void setCheckChunkCrc(final boolean flag) {
+    this.preferences.putBoolean(Key.CHECK_CHUNK_CRC.name(), flag);
+  }
+
+  public boolean isIndexRgbWhileRecording() {
+    return this.preferences.getBoolean(Key.INDEX_RGB_WHILE_RECORDING.name(), false);
+  }
+
+  public void setIndexRgbWhileRecording(final boolean flag) {
+    this.preferences.putBoolean(Key.INDEX_RGB_WHILE_RECORDING.name(), flag);
   }
 
   public long getFrameDelay() {
@@ -169,28 +271,45 @@ public class JapagogeConfig {
     TEMP_FOLDER,
     FORCE_WHOLE_FRAME,
     FORCE_JAVA_ROBOT,
+    TRACK_SCREEN_CHANGES,
+    SPLIT_CHANGED_AREAS,
     SHOW_BOUNDS_INFO,
     CAPTURE_DELAY,
     FRAME_DELAY,
     LOOPS,
     ACCURATE_RGB,
     DITHERING,
+    DITHERING_MODE,
+    INDEX_RGB_WHILE_RECORDING,
+    COMPACT_RGB_INDEX_TABLE,
+    CHECK_CHUNK_CRC,
     POINTER,
     GIF_PALETTE_FOR_RGB,
     FOLDER_PATH,
-    FILTER
+    FILTER,
+    BACKPRESSURE_POLICY,
+    PNG_FILTER_STRATEGY,
+    COMPRESSION_PROFILE
   }
 
   public static class JapagogeConfigData {
     private String tenpFolder;
     private boolean pointer;
     private boolean forceJavaRobotGrabber;
+    private boolean trackScreenChanges;
+    private boolean splitChangedAreas;
     private boolean forceWholeFrame;
     private boolean showBoundsInfo;
-    private boolean dithering;
+    private APngToGifConvertingWorker.DitheringMode ditheringMode;
+    private boolean indexRgbWhileRecording;
+    private boolean compactRgbIndexTable;
+    private boolean checkChunkCrc;
     private boolean accurateRgb;
     private RgbPixelFilter filter;
     private Palette256 gifPaletteForRgb;
+    private ScreenCapturer.BackpressurePolicy backpressurePolicy;
+    private APngWriter.FilterStrategy pngFilterStrategy;
+    private APngWriter.CompressionProfile compressionProfile;
     private long frameDelay;
     private long captureDelay;
     private File targetFolder;
@@ -198,14 +317,22 @@ public class JapagogeConfig {
 
     public JapagogeConfigData() {
       this.forceJavaRobotGrabber = getInstance().isForceJavaRobotGrabber();
+      this.trackScreenChanges = getInstance().isTrackScreenChanges();
+      this.splitChangedAreas = getInstance().isSplitChangedAreas();
       this.tenpFolder = getInstance().getTempFolder();
       this.accurateRgb = getInstance().isAccurateRgb();
-      this.dithering = getInstance().isDithering();
+      this.ditheringMode = getInstance().getDitheringMode();
+      this.indexRgbWhileRecording = getInstance().isIndexRgbWhileRecording();
+      this.compactRgbIndexTable = getInstance().isCompactRgbIndexTable();
+      this.checkChunkCrc = getInstance().isCheckChunkCrc();
       this.gifPaletteForRgb = getInstance().getGifPaletteForRgb();
       this.pointer = getInstance().isPointer();
       this.showBoundsInfo = getInstance().isShowBoundsInfo();
       this.forceWholeFrame = getInstance().isForceWholeFrame();
       this.filter = getInstance().getFilter();
+      this.backpressurePolicy = getInstance().getBackpressurePolicy();
+      this.pngFilterStrategy = getInstance().getPngFilterStrategy();
+      this.compressionProfile = getInstance().getCompressionProfile();
       this.frameDelay = getInstance().getFrameDelay();
       this.captureDelay = getInstance().getCaptureDelay();
       this.targetFolder = getInstance().getTargetFolder();
@@ -244,6 +371,30 @@ public class JapagogeConfig {
       this.filter = filter == null ? RgbPixelFilter.RGB : filter;
     }
 
+    public ScreenCapturer.BackpressurePolicy getBackpressurePolicy() {
+      return this.backpressurePolicy;
+    }
+
+    public void setBackpressurePolicy(final ScreenCapturer.BackpressurePolicy policy) {
+      this.backpressurePolicy = policy == null ? ScreenCapturer.BackpressurePolicy.BLOCK : policy;
+    }
+
+    public APngWriter.FilterStrategy getPngFilterStrategy() {
+      return this.pngFilterStrategy;
+    }
+
+    public void setPngFilterStrategy(final APngWriter.FilterStrategy strategy) {
+      this.pngFilterStrategy = strategy == null ? APngWriter.FilterStrategy.ADAPTIVE : strategy;
+    }
+
+    public APngWriter.CompressionProfile getCompressionProfile() {
+      return this.compressionProfile;
+    }
+
+    public void setCompressionProfile(final APngWriter.CompressionProfile profile) {
+      this.compressionProfile = profile == null ? APngWriter.CompressionProfile.ARCHIVAL : profile;
+    }
+
     public Palette256 getGifPaletteForRgb() {
       return this.gifPaletteForRgb;
     }
@@ -260,6 +411,22 @@ public class JapagogeConfig {
       this.forceJavaRobotGrabber = value;
     }
 
+    public boolean isTrackScreenChanges() {
+      return this.trackScreenChanges;
+    }
+
+    public void setTrackScreenChanges(final boolean value) {
+      this.trackScreenChanges = value;
+    }
+
+    public boolean isSplitChangedAreas() {
+      return this.splitChangedAreas;
+    }
+
+    public void setSplitChangedAreas(final boolean value) {
+      this.splitChangedAreas = value;
+    }
+
     public boolean isPointer() {
       return this.pointer;
     }
@@ -276,12 +443,36 @@ public class JapagogeConfig {
       this.accurateRgb = flag;
     }
 
-    public boolean isDithering() {
-      return this.dithering;
+    public APngToGifConvertingWorker.DitheringMode getDitheringMode() {
+      return this.ditheringMode;
+    }
+
+    public void setDitheringMode(final APngToGifConvertingWorker.DitheringMode mode) {
+      this.ditheringMode = mode == null ? APngToGifConvertingWorker.DitheringMode.NONE : mode;
+    }
+
+    public boolean isIndexRgbWhileRecording() {
+      return this.indexRgbWhileRecording;
+    }
+
+    public boolean isCompactRgbIndexTable() {
+      return this.compactRgbIndexTable;
+    }
+
+    public void setCompactRgbIndexTable(final boolean flag) {
+      this.compactRgbIndexTable = flag;
+    }
+
+    public boolean isCheckChunkCrc() {
+      return this.checkChunkCrc;
+    }
+
+    public void setCheckChunkCrc(final boolean flag) {
+      this.checkChunkCrc = flag;
     }
 
-    public void setDithering(final boolean flag) {
-      this.dithering = flag;
+    public void setIndexRgbWhileRecording(final boolean flag) {
+      this.indexRgbWhileRecording = flag;
     }
 
     public long getFrameDelay() {
@@ -318,14 +509,22 @@ public class JapagogeConfig {
 
     public void save() {
       getInstance().setForceJavaRobotGrabber(this.forceJavaRobotGrabber);
+      getInstance().setTrackScreenChanges(this.trackScreenChanges);
+      getInstance().setSplitChangedAreas(this.splitChangedAreas);
       getInstance().setTempFolder(this.tenpFolder);
       getInstance().setGifPaletteForRgb(this.gifPaletteForRgb);
       getInstance().setPointer(this.pointer);
       getInstance().setForceWholeFrame(this.forceWholeFrame);
       getInstance().setShowBoundsInfo(this.showBoundsInfo);
       getInstance().setAccurateRgb(this.accurateRgb);
-      getInstance().setDithering(this.dithering);
+      getInstance().setDitheringMode(this.ditheringMode);
+      getInstance().setIndexRgbWhileRecording(this.indexRgbWhileRecording);
+      getInstance().setCompactRgbIndexTable(this.compactRgbIndexTable);
+      getInstance().setCheckChunkCrc(this.checkChunkCrc);
       getInstance().setFilter(this.filter);
+      getInstance().setBackpressurePolicy(this.backpressurePolicy);
+      getInstance().setPngFilterStrategy(this.pngFilterStrategy);
+      getInstance().setCompressionProfile(this.compressionProfile);
       getInstance().setLoops(this.loops);
       getInstance().setTargetFolder(this.targetFolder);
       getInstance().setFrameDelay(this.frameDelay);
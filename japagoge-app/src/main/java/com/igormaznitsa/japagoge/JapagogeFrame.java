@@ -9,6 +9,7 @@ import com.igormaznitsa.japagoge.mouse.MouseInfoProviderFactory;
 import com.igormaznitsa.japagoge.utils.ClipboardUtils;
 import com.igormaznitsa.japagoge.utils.Palette256;
 import com.igormaznitsa.japagoge.utils.PaletteUtils;
+import com.igormaznitsa.japagoge.utils.RgbIndexTableCache;
 import com.igormaznitsa.japagoge.utils.SystemUtils;
 import java.awt.AWTException;
 import java.awt.Color;
@@ -42,6 +43,7 @@ import java.time.Duration;
 import java.util.Date;
 import java.util.Locale;
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -289,6 +291,41 @@ public class JapagogeFrame extends JFrame {
     this.statisticWindow.setVisible(this.showCapturingAreaMetrics);
 
     this.setState(State.SELECT_POSITION);
+
+    prewarmRgbIndexTable();
+  }
+
+  /**
+   * Calculate RGB index table for selected GIF palette in background if it is not cached yet, so that the first
+   * conversion doesn't wait for it. Compact tables are not cached so that nothing is prepared for them.
+   */
+  private static void prewarmRgbIndexTable() {
+    if (JapagogeConfig.getInstance().isCompactRgbIndexTable()) {
+      return;
+    }
+    final Palette256 palette = JapagogeConfig.getInstance().getGifPaletteForRgb();
+    final boolean accurateRgb = JapagogeConfig.getInstance().isAccurateRgb();
+    palette.getPalette().ifPresent(rgb -> {
+      final byte[] rgbPalette = PaletteUtils.splitRgb(rgb);
+      final RgbIndexTableCache cache = RgbIndexTableCache.forTempFolder(JapagogeConfig.getInstance().getTempFolder());
+      if (cache.isCached(rgbPalette, accurateRgb)) {
+        return;
+      }
+      final Thread thread = new Thread(() -> {
+        LOGGER.info("Prewarming RGB index table for palette " + palette + ", accurate RGB is " + accurateRgb);
+        // single worker to not load all cores during start
+        final ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+          cache.findOrMake(rgbPalette, accurateRgb,
+              () -> pool.submit(() -> PaletteUtils.makeRgbIndexTable(rgbPalette, accurateRgb, () -> false)).join());
+        } finally {
+          pool.shutdown();
+        }
+      }, "rgb-index-table-prewarm");
+      thread.setDaemon(true);
+      thread.setPriority(Thread.MIN_PRIORITY);
+      thread.start();
+    });
   }
 
   private static Image loadIcon(final String resourceName, final boolean bigRes) {
@@ -406,7 +443,7 @@ public class JapagogeFrame extends JFrame {
                         tempFile,
                         selectedFile,
                         JapagogeConfig.getInstance().isAccurateRgb(),
-                        JapagogeConfig.getInstance().isDithering(),
+                        JapagogeConfig.getInstance().getDitheringMode(),
                         currentCapturer.makeGlobalRgb256Palette(),
                         true,
                         null);
@@ -528,7 +565,16 @@ public class JapagogeFrame extends JFrame {
           JapagogeConfig.getInstance().getFilter(),
           JapagogeConfig.getInstance().isForceWholeFrame(),
           forceJavaRobot,
+          JapagogeConfig.getInstance().isTrackScreenChanges(),
+          JapagogeConfig.getInstance().isSplitChangedAreas(),
           JapagogeConfig.getInstance().getGifPaletteForRgb(),
+          JapagogeConfig.getInstance().isIndexRgbWhileRecording() && JapagogeConfig.getInstance().getDitheringMode() == APngToGifConvertingWorker.DitheringMode.NONE,
+          JapagogeConfig.getInstance().isAccurateRgb(),
+          RgbIndexTableCache.forTempFolder(JapagogeConfig.getInstance().getTempFolder()),
+          JapagogeConfig.getInstance().isCompactRgbIndexTable(),
+          JapagogeConfig.getInstance().getBackpressurePolicy(),
+          JapagogeConfig.getInstance().getPngFilterStrategy(),
+          JapagogeConfig.getInstance().getCompressionProfile(),
           Duration.ofMillis(JapagogeConfig.getInstance().getCaptureDelay()),
           Duration.ofMillis(JapagogeConfig.getInstance().getFrameDelay())
       );
@@ -699,10 +745,10 @@ public class JapagogeFrame extends JFrame {
 
               this.doVisualConversionPngToGif(sourceFile, targetFile,
                   JapagogeConfig.getInstance().isAccurateRgb(),
-                  JapagogeConfig.getInstance().isDithering(),
+                  JapagogeConfig.getInstance().getDitheringMode(),
                   palette.getPalette().orElseGet(PaletteUtils::makeGrayscaleRgb256),
                   false,
-                  JapagogeConfig.getInstance().getFilter().get()
+                  JapagogeConfig.getInstance().getFilter().makeInstance()
               );
             }
           }
@@ -726,7 +772,7 @@ public class JapagogeFrame extends JFrame {
       final File pngFile,
       final File gifFile,
       final boolean accurateRgb,
-      final boolean dithering,
+      final APngToGifConvertingWorker.DitheringMode ditheringMode,
       final int[] globalRgb256palette,
       final boolean placeLinkToClipboard,
       final ColorFilter forceColorFilter
@@ -736,9 +782,12 @@ public class JapagogeFrame extends JFrame {
         pngFile,
         gifFile,
         accurateRgb,
-        dithering,
+        ditheringMode,
         globalRgb256palette,
-        forceColorFilter
+        forceColorFilter,
+        RgbIndexTableCache.forTempFolder(JapagogeConfig.getInstance().getTempFolder()),
+        JapagogeConfig.getInstance().isCompactRgbIndexTable(),
+        JapagogeConfig.getInstance().isCheckChunkCrc()
     );
     converter.execute();
     try {
@@ -0,0 +1,189 @@
+package com.igormaznitsa.japagoge;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.zip.Adler32;
+import java.util.zip.Deflater;
+
+/**
+ * Compressor which splits data into blocks and deflates them in parallel, every block uses 32 kb tail
+ * of previous block as preset dictionary and ends with sync flush, so that concatenated blocks make single
+ * valid zlib stream (the same approach as in pigz). Result stream is collected in buffer of the deflater which is
+ * reused by next compression.
+ */
+final class ParallelDeflater {
+
+  static final int BLOCK_SIZE = 128 * 1024;
+  static final int MIN_PARALLEL_DATA_SIZE = 4 * BLOCK_SIZE;
+
+  private static final int DICTIONARY_SIZE = 32 * 1024;
+  private static final int ADLER_BASE = 65521;
+
+  private byte[] buffer = new byte[0];
+
+  ParallelDeflater() {
+  }
+
+  static boolean isApplicable(final int dataLength) {
+    return dataLength >= MIN_PARALLEL_DATA_SIZE && ParallelWork.isParallel();
+  }
+
+  private static long combineAdler32(final long adler1, final long adler2, final long length2) {
+    final long remainder = length2 % ADLER_BASE;
+    long sum1 = adler1 & 0xFFFF;
+    long sum2 = (remainder * sum1) % ADLER_BASE;
+    sum1 += (adler2 & 0xFFFF) + ADLER_BASE - 1;
+    sum2 += ((adler1 >>> 16) & 0xFFFF) + ((adler2 >>> 16) & 0xFFFF) + ADLER_BASE - remainder;
+    if (sum1 >= ADLER_BASE) sum1 -= ADLER_BASE;
+    if (sum1 >= ADLER_BASE) sum1 -= ADLER_BASE;
+    if (sum2 >= (ADLER_BASE << 1)) sum2 -= (ADLER_BASE << 1);
+    if (sum2 >= ADLER_BASE) sum2 -= ADLER_BASE;
+    return sum1 | (sum2 << 16);
+  }
+
+  private static int makeZlibHeader(final int level) {
+    final int compressionInfo = 0x78;
+    final int compressionLevel;
+    if (level >= 0 && level < 2) {
+      compressionLevel = 0;
+    } else if (level >= 2 && level < 6) {
+      compressionLevel = 1;
+    } else if (level == 6 || level < 0) {
+      compressionLevel = 2;
+    } else {
+      compressionLevel = 3;
+    }
+    int flags = compressionLevel << 6;
+    flags += 31 - ((compressionInfo << 8) + flags) % 31;
+    return (compressionInfo << 8) | flags;
+  }
+
+  private static BlockResult compressBlock(final byte[] data, final int offset, final int length, final int level, final int strategy, final boolean last) {
+    final Deflater deflater = new Deflater(level, true);
+    try {
+      deflater.setStrategy(strategy);
+      if (offset > 0) {
+        final int dictionaryLength = Math.min(DICTIONARY_SIZE, offset);
+        deflater.setDictionary(data, offset - dictionaryLength, dictionaryLength);
+      }
+      deflater.setInput(data, offset, length);
+
+      byte[] buffer = new byte[Math.max(64, length + (length >> 3) + 64)];
+      int position = 0;
+      if (last) {
+        deflater.finish();
+        while (!deflater.finished()) {
+          if (position == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+          }
+          position += deflater.deflate(buffer, position, buffer.length - position);
+        }
+      } else {
+        while (true) {
+          if (position == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+          }
+          final int written = deflater.deflate(buffer, position, buffer.length - position, Deflater.SYNC_FLUSH);
+          position += written;
+          if (position < buffer.length) {
+            break;
+          }
+        }
+      }
+
+      final Adler32 adler32 = new Adler32();
+      adler32.update(data, offset, length);
+      return new BlockResult(buffer, position, adler32.getValue(), length);
+    } finally {
+      deflater.end();
+    }
+  }
+
+  /**
+   * Compress data into zlib stream.
+   *
+   * @param data     data to be compressed
+   * @param length   number of bytes from start of data to be compressed
+   * @param level    compression level
+   * @param strategy deflater strategy
+   * @return length of zlib stream placed from start of {@link #getBuffer()}
+   * @throws IOException if compression has been interrupted or failed
+   */
+  int compress(final byte[] data, final int length, final int level, final int strategy) throws IOException {
+    final List<Callable<BlockResult>> tasks = new ArrayList<>();
+    int offset = 0;
+    do {
+      final int blockOffset = offset;
+      final int blockLength = Math.min(BLOCK_SIZE, length - offset);
+      final boolean last = blockOffset + blockLength >= length;
+      tasks.add(() -> compressBlock(data, blockOffset, blockLength, level, strategy, last));
+      offset += blockLength;
+    } while (offset < length);
+
+    final List<BlockResult> blocks = new ArrayList<>(tasks.size());
+    // zlib header and adler32 of data
+    int streamLength = 6;
+    try {
+      for (final Future<BlockResult> future : ParallelWork.POOL.invokeAll(tasks)) {
+        final BlockResult block = future.get();
+        blocks.add(block);
+        streamLength += block.length;
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Compression has been interrupted", ex);
+    } catch (ExecutionException ex) {
+      throw new IOException("Error during block compression", ex.getCause());
+    }
+
+    if (this.buffer.length < streamLength) {
+      this.buffer = new byte[streamLength + (streamLength >> 3)];
+    }
+    final byte[] result = this.buffer;
+    final int header = makeZlibHeader(level);
+    result[0] = (byte) (header >>> 8);
+    result[1] = (byte) header;
+    int position = 2;
+
+    long adler32 = 1L;
+    for (final BlockResult block : blocks) {
+      System.arraycopy(block.data, 0, result, position, block.length);
+      position += block.length;
+      adler32 = combineAdler32(adler32, block.adler32, block.inputLength);
+    }
+
+    result[position++] = (byte) (adler32 >>> 24);
+    result[position++] = (byte) (adler32 >>> 16);
+    result[position++] = (byte) (adler32 >>> 8);
+    result[position++] = (byte) adler32;
+    return position;
+  }
+
+  /**
+   * Get buffer which contains zlib stream made by last compression.
+   *
+   * @return buffer of the deflater
+   */
+  byte[] getBuffer() {
+    return this.buffer;
+  }
+
+  private static final class BlockResult {
+    final byte[] data;
+    final int length;
+    final long adler32;
+    final int inputLength;
+
+    BlockResult(final byte[] data, final int length, final long adler32, final int inputLength) {
+      this.data = data;
+      this.length = length;
+      this.adler32 = adler32;
+      this.inputLength = inputLength;
+    }
+  }
+}
@@ -0,0 +1,100 @@
+package com.igormaznitsa.japagoge;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+
+/**
+ * Shared pool for parallel processing of frames, frames are split into horizontal bands of rows.
+ */
+final class ParallelWork {
+
+  static final int MIN_PARALLEL_PIXELS = 512 * 1024;
+
+  static final ForkJoinPool POOL =
+      new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors()));
+
+  private ParallelWork() {
+  }
+
+  static boolean isParallel() {
+    return POOL.getParallelism() > 1;
+  }
+
+  /**
+   * Split rows into bands, internal band bounds are aligned by row number.
+   *
+   * @param fromRow   first row, inclusive
+   * @param toRow     last row, exclusive
+   * @param rowPixels number of pixels in row
+   * @param alignment alignment of band bounds
+   * @return bounds of bands, band i contains rows from bounds[i] to bounds[i+1], single band if parallel processing
+   * is not reasonable
+   */
+  static int[] splitRows(final int fromRow, final int toRow, final int rowPixels, final int alignment) {
+    return splitRows(fromRow, toRow, rowPixels, alignment, null);
+  }
+
+  /**
+   * Split rows into bands, internal band bounds are aligned by row number.
+   *
+   * @param fromRow   first row, inclusive
+   * @param toRow     last row, exclusive
+   * @param rowPixels number of pixels in row
+   * @param alignment alignment of band bounds
+   * @param reusable  array of previous split, it is filled and returned if its length is the same, can be null
+   * @return bounds of bands, band i contains rows from bounds[i] to bounds[i+1], single band if parallel processing
+   * is not reasonable
+   */
+  static int[] splitRows(final int fromRow, final int toRow, final int rowPixels, final int alignment, final int[] reusable) {
+    final long pixels = (long) (toRow - fromRow) * rowPixels;
+    final int firstBlock = fromRow / alignment;
+    final int blocks = toRow <= fromRow ? 1 : (toRow - 1) / alignment - firstBlock + 1;
+    final int bands = pixels < MIN_PARALLEL_PIXELS || !isParallel() ? 1 : Math.min(blocks, POOL.getParallelism());
+
+    final int[] result = reusable != null && reusable.length == bands + 1 ? reusable : new int[bands + 1];
+    result[0] = fromRow;
+    for (int i = 1; i < bands; i++) {
+      result[i] = (firstBlock + (int) ((long) blocks * i / bands)) * alignment;
+    }
+    result[bands] = toRow;
+    return result;
+  }
+
+  /**
+   * Process bands in the pool and wait for completion.
+   *
+   * @param bands  number of bands
+   * @param action action to process band by its index
+   * @throws IOException if processing has been interrupted or failed
+   */
+  static void forEachBand(final int bands, final IntConsumer action) throws IOException {
+    if (bands == 1) {
+      action.accept(0);
+      return;
+    }
+    final List<Callable<Void>> tasks = new ArrayList<>(bands);
+    for (int i = 0; i < bands; i++) {
+      final int band = i;
+      tasks.add(() -> {
+        action.accept(band);
+        return null;
+      });
+    }
+    try {
+      for (final Future<Void> future : POOL.invokeAll(tasks)) {
+        future.get();
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Frame processing has been interrupted", ex);
+    } catch (ExecutionException ex) {
+      throw new IOException("Error during frame band processing", ex.getCause());
+    }
+  }
+}
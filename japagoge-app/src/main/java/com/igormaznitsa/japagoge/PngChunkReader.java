@@ -0,0 +1,215 @@
+package com.igormaznitsa.japagoge;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Reader of PNG chunks through memory mapped file, chunk data is provided as read only slice of mapped window without
+ * copying. The file is mapped by windows so that files bigger than 2 GB are supported, a window is remapped if a
+ * chunk doesn't fit it. Replaced and last windows are unmapped immediately if JVM allows it, otherwise they are
+ * released by GC, because a mapped file is locked on Windows until it is unmapped. So that chunk data is valid only
+ * until the next call of {@link #next()} or {@link #close()}.
+ */
+final class PngChunkReader implements Closeable {
+
+  static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+  private static final int[] PNG_SIGNATURE = new int[] {0x89, 0x50, 0x4E, 0x47, 0x0D, 0x0A, 0x1A, 0x0A};
+  private static final int MAX_CHUNK_DATA_LENGTH = Integer.MAX_VALUE - 12;
+
+  private static final Logger LOGGER = Logger.getLogger("PngChunkReader");
+
+  /**
+   * Unsafe#invokeCleaner(ByteBuffer) is provided since Java 9 by jdk.unsupported module, it unmaps buffer without
+   * waiting for GC.
+   */
+  private static final MethodHandle INVOKE_CLEANER = findInvokeCleaner();
+
+  private final FileChannel channel;
+  private final long size;
+  private final int windowSize;
+  private final CRC32 crc;
+  private MappedByteBuffer window;
+  private long windowStart;
+  private long position;
+
+  /**
+   * Constructor.
+   *
+   * @param file       source PNG file
+   * @param checkCrc   true if CRC of every chunk should be checked
+   * @param windowSize size of mapped window in bytes, a window can be bigger if a chunk doesn't fit
+   * @throws IOException if the file can't be opened
+   */
+  PngChunkReader(final File file, final boolean checkCrc, final int windowSize) throws IOException {
+    if (windowSize < 12) {
+      throw new IllegalArgumentException("Too small window: " + windowSize);
+    }
+    this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    this.size = this.channel.size();
+    this.windowSize = windowSize;
+    this.crc = checkCrc ? new CRC32() : null;
+  }
+
+  private static MethodHandle findInvokeCleaner() {
+    try {
+      final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+      theUnsafe.setAccessible(true);
+      return MethodHandles.publicLookup()
+          .findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+          .bindTo(theUnsafe.get(null));
+    } catch (Exception ex) {
+      LOGGER.fine("Mapped buffers can't be unmapped explicitly, they are released by GC: " + ex);
+      return null;
+    }
+  }
+
+  private static void unmap(final MappedByteBuffer buffer) {
+    if (INVOKE_CLEANER != null) {
+      try {
+        INVOKE_CLEANER.invokeExact((ByteBuffer) buffer);
+      } catch (Throwable ex) {
+        LOGGER.log(Level.WARNING, "Can't unmap buffer, it is released by GC", ex);
+      }
+    }
+  }
+
+  /**
+   * Read and check PNG signature, must be called before the first chunk.
+   *
+   * @throws IOException if the file doesn't start with PNG signature
+   */
+  void readSignature() throws IOException {
+    final ByteBuffer buffer = this.map(this.position, PNG_SIGNATURE.length);
+    for (int i = 0; i < PNG_SIGNATURE.length; i++) {
+      if ((buffer.get(buffer.position() + i) & 0xFF) != PNG_SIGNATURE[i]) {
+        throw new IllegalArgumentException("Can't find " + PNG_SIGNATURE[i] + " at position " + (this.position + i + 1));
+      }
+    }
+    this.position += PNG_SIGNATURE.length;
+  }
+
+  /**
+   * Read next chunk.
+   *
+   * @return next chunk, its data is slice of mapped file which is valid until the next call
+   * @throws IOException if the file is truncated, chunk is too big or its CRC is wrong
+   */
+  PngChunk next() throws IOException {
+    final long chunkPosition = this.position;
+    final ByteBuffer header = this.map(chunkPosition, 8);
+    final int headerOffset = header.position();
+    final int dataLength = header.getInt(headerOffset);
+    if (dataLength < 0 || dataLength > MAX_CHUNK_DATA_LENGTH) {
+      throw new IOException("Wrong chunk length " + (dataLength & 0xFFFFFFFFL) + " at position " + chunkPosition);
+    }
+    final String name = new String(new char[] {
+        (char) (header.get(headerOffset + 4) & 0xFF),
+        (char) (header.get(headerOffset + 5) & 0xFF),
+        (char) (header.get(headerOffset + 6) & 0xFF),
+        (char) (header.get(headerOffset + 7) & 0xFF)
+    });
+
+    // the window is remapped to contain whole chunk
+    final ByteBuffer chunk = this.map(chunkPosition, dataLength + 12);
+    final int typeOffset = chunk.position() + 4;
+    final int dataOffset = typeOffset + 4;
+
+    if (this.crc != null) {
+      final ByteBuffer crcArea = chunk.duplicate();
+      crcArea.position(typeOffset).limit(dataOffset + dataLength);
+      this.crc.reset();
+      this.crc.update(crcArea);
+      final int expectedCrc = chunk.getInt(dataOffset + dataLength);
+      if ((int) this.crc.getValue() != expectedCrc) {
+        throw new IOException("Wrong CRC of chunk " + name + " at position " + chunkPosition);
+      }
+    }
+
+    final ByteBuffer data = chunk.duplicate();
+    data.position(dataOffset).limit(dataOffset + dataLength);
+    this.position = chunkPosition + dataLength + 12L;
+    return new PngChunk(name, data.slice());
+  }
+
+  /**
+   * Get position of the next chunk in the file.
+   *
+   * @return number of consumed bytes
+   */
+  long getPosition() {
+    return this.position;
+  }
+
+  long getSize() {
+    return this.size;
+  }
+
+  private ByteBuffer map(final long offset, final int length) throws IOException {
+    if (this.size - offset < length) {
+      throw new EOFException("Unexpected end of file at position " + offset + ", expected " + length + " bytes");
+    }
+    if (this.window == null || offset < this.windowStart || offset + length > this.windowStart + this.window.capacity()) {
+      final long mappedLength = Math.min(this.size - offset, Math.max(this.windowSize, length));
+      this.releaseWindow();
+      this.window = this.channel.map(FileChannel.MapMode.READ_ONLY, offset, mappedLength);
+      this.windowStart = offset;
+    }
+    final ByteBuffer result = this.window.duplicate();
+    result.position((int) (offset - this.windowStart));
+    return result;
+  }
+
+  private void releaseWindow() {
+    final MappedByteBuffer released = this.window;
+    this.window = null;
+    if (released != null) {
+      unmap(released);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      this.releaseWindow();
+    } finally {
+      this.channel.close();
+    }
+  }
+
+  static final class PngChunk {
+    final String name;
+    /**
+     * Read only big endian view of chunk data, absolute getters should be used if the buffer is shared.
+     */
+    final ByteBuffer data;
+
+    PngChunk(final String name, final ByteBuffer data) {
+      this.name = name;
+      this.data = data;
+    }
+
+    int getLength() {
+      return this.data.remaining();
+    }
+
+    @Override
+    public String toString() {
+      return "PngChunk(name=" + this.name + ",data=" + this.data.remaining() + ')';
+    }
+  }
+}
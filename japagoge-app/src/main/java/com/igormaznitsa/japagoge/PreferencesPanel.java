@@ -34,10 +34,18 @@ public class PreferencesPanel extends JPanel {
   private final JCheckBox checkBoxShowBoundsInfo;
   private final JCheckBox checkBoxForceWholeFrame;
   private final JCheckBox checkBoxForceJavaRonotGrabber;
+  private final JCheckBox checkBoxTrackScreenChanges;
+  private final JCheckBox checkBoxSplitChangedAreas;
   private final JCheckBox checkBoxAccurateRgb;
-  private final JCheckBox checkBoxDithering;
+  private final JComboBox<APngToGifConvertingWorker.DitheringMode> comboBoxDitheringMode;
+  private final JCheckBox checkBoxIndexRgbWhileRecording;
+  private final JCheckBox checkBoxCompactRgbIndexTable;
+  private final JCheckBox checkBoxCheckChunkCrc;
   private final JComboBox<RgbPixelFilter> comboBoxFilter;
   private final JComboBox<Palette256> comboBoxPaletteForGifRgb;
+  private final JComboBox<ScreenCapturer.BackpressurePolicy> comboBoxBackpressurePolicy;
+  private final JComboBox<APngWriter.FilterStrategy> comboBoxPngFilterStrategy;
+  private final JComboBox<APngWriter.CompressionProfile> comboBoxCompressionProfile;
   private final JSpinner spinnerFrameDelay;
   private final JSpinner spinnerCaptureDelay;
   private final JSpinner spinnerLoops;
@@ -55,8 +63,15 @@ public class PreferencesPanel extends JPanel {
     this.checkBoxAccurateRgb = new JCheckBox(null, null, data.isAccurateRgb());
     this.checkBoxAccurateRgb.setToolTipText("Find better colors in GIF palette for RGB, slow");
 
-    this.checkBoxDithering = new JCheckBox(null, null, data.isDithering());
-    this.checkBoxDithering.setToolTipText("Use dithering in result GIF, increasing result size");
+    this.comboBoxDitheringMode = new JComboBox<>(APngToGifConvertingWorker.DitheringMode.values());
+    this.comboBoxDitheringMode.setToolTipText("Dithering in result GIF, increasing result size. Ordered dithering keeps not changed areas the same in all frames");
+    this.comboBoxDitheringMode.setSelectedItem(data.getDitheringMode());
+    this.checkBoxIndexRgbWhileRecording = new JCheckBox(null, null, data.isIndexRgbWhileRecording());
+    this.checkBoxIndexRgbWhileRecording.setToolTipText("Record RGB as indexed APNG with selected GIF palette, ignored for AUTO palette and dithering");
+    this.checkBoxCompactRgbIndexTable = new JCheckBox(null, null, data.isCompactRgbIndexTable());
+    this.checkBoxCompactRgbIndexTable.setToolTipText("Calculate RGB to palette index table partly and on demand, less memory and faster start but the table is not cached");
+    this.checkBoxCheckChunkCrc = new JCheckBox(null, null, data.isCheckChunkCrc());
+    this.checkBoxCheckChunkCrc.setToolTipText("Check CRC of every APNG chunk during conversion into GIF, conversion is stopped on corrupted chunk");
 
     this.checkBoxShowBoundsInfo = new JCheckBox(null, null, data.isShowBoundsInfo());
     this.checkBoxShowBoundsInfo.setToolTipText("Show coordinates of capturing area");
@@ -68,17 +83,35 @@ public class PreferencesPanel extends JPanel {
     this.checkBoxForceJavaRonotGrabber = new JCheckBox(null, null, data.isForceJavaRobotGrabber());
     this.checkBoxForceJavaRonotGrabber.setToolTipText("Force use of Java robot screen grabber");
 
+    this.checkBoxTrackScreenChanges = new JCheckBox(null, null, data.isTrackScreenChanges());
+    this.checkBoxTrackScreenChanges.setToolTipText("Grab only changed parts of screen, X11 with XDamage extension only");
+
+    this.checkBoxSplitChangedAreas = new JCheckBox(null, null, data.isSplitChangedAreas());
+    this.checkBoxSplitChangedAreas.setToolTipText("Save separated changed areas as zero-delay sub-frames, some APNG viewers can show them with small delay");
+
     this.comboBoxFilter = new JComboBox<>(RgbPixelFilter.values());
     this.comboBoxFilter.setToolTipText("Select color filter for recording");
     this.comboBoxFilter.setSelectedItem(data.getFilter());
     this.comboBoxFilter.addActionListener(e ->
         this.onFilterChange(
-            ((RgbPixelFilter) requireNonNull(this.comboBoxFilter.getSelectedItem())).get()));
+            ((RgbPixelFilter) requireNonNull(this.comboBoxFilter.getSelectedItem())).makeInstance()));
 
     this.comboBoxPaletteForGifRgb = new JComboBox<>(Palette256.values());
     this.comboBoxPaletteForGifRgb.setToolTipText("Pre-defined palette for GIF conversion");
     this.comboBoxPaletteForGifRgb.setSelectedItem(data.getGifPaletteForRgb());
 
+    this.comboBoxBackpressurePolicy = new JComboBox<>(ScreenCapturer.BackpressurePolicy.values());
+    this.comboBoxBackpressurePolicy.setToolTipText("What to do with new frames if encoder can't keep up with capturing");
+    this.comboBoxBackpressurePolicy.setSelectedItem(data.getBackpressurePolicy());
+
+    this.comboBoxPngFilterStrategy = new JComboBox<>(APngWriter.FilterStrategy.values());
+    this.comboBoxPngFilterStrategy.setToolTipText("PNG scanline filter, ADAPTIVE gives better compression, UP is faster and good for static screens");
+    this.comboBoxPngFilterStrategy.setSelectedItem(data.getPngFilterStrategy());
+
+    this.comboBoxCompressionProfile = new JComboBox<>(APngWriter.CompressionProfile.values());
+    this.comboBoxCompressionProfile.setToolTipText("Compression of recorded frames, level is lowered automatically if encoder can't keep up with capturing");
+    this.comboBoxCompressionProfile.setSelectedItem(data.getCompressionProfile());
+
     this.spinnerCaptureDelay = new JSpinner(new SpinnerNumberModel(data.getCaptureDelay(), 20, Short.MAX_VALUE, 1));
     this.spinnerCaptureDelay.setToolTipText("Delay for capturing, milliseconds");
 
@@ -102,6 +135,15 @@ public class PreferencesPanel extends JPanel {
     this.add(new JLabel("Frame delay (ms): "), gblLeft);
     this.add(this.spinnerFrameDelay, gblRight);
 
+    this.add(new JLabel("Frame queue overflow: "), gblLeft);
+    this.add(this.comboBoxBackpressurePolicy, gblRight);
+
+    this.add(new JLabel("PNG scanline filter: "), gblLeft);
+    this.add(this.comboBoxPngFilterStrategy, gblRight);
+
+    this.add(new JLabel("APNG compression: "), gblLeft);
+    this.add(this.comboBoxCompressionProfile, gblRight);
+
     this.add(new JLabel("Loops (0 infinity): "), gblLeft);
     this.add(this.spinnerLoops, gblRight);
 
@@ -121,14 +163,29 @@ public class PreferencesPanel extends JPanel {
     this.add(this.checkBoxAccurateRgb, gblRight);
 
     this.add(new JLabel("Dithering GIF: "), gblLeft);
-    this.add(this.checkBoxDithering, gblRight);
+    this.add(this.comboBoxDitheringMode, gblRight);
+
+    this.add(new JLabel("Index RGB by palette while recording: "), gblLeft);
+    this.add(this.checkBoxIndexRgbWhileRecording, gblRight);
+
+    this.add(new JLabel("Compact RGB index table: "), gblLeft);
+    this.add(this.checkBoxCompactRgbIndexTable, gblRight);
+
+    this.add(new JLabel("Check CRC of APNG chunks: "), gblLeft);
+    this.add(this.checkBoxCheckChunkCrc, gblRight);
 
     this.add(new JLabel("Force whole frame: "), gblLeft);
     this.add(this.checkBoxForceWholeFrame, gblRight);
 
+    this.add(new JLabel("Split changed areas: "), gblLeft);
+    this.add(this.checkBoxSplitChangedAreas, gblRight);
+
     this.add(new JLabel("Force Java robot grabber: "), gblLeft);
     this.add(this.checkBoxForceJavaRonotGrabber, gblRight);
 
+    this.add(new JLabel("Track screen changes: "), gblLeft);
+    this.add(this.checkBoxTrackScreenChanges, gblRight);
+
     gblLeft.gridwidth = 2;
     gblLeft.anchor = GridBagConstraints.CENTER;
 
@@ -169,10 +226,18 @@ public class PreferencesPanel extends JPanel {
     this.data.setShowBoundsInfo(this.checkBoxShowBoundsInfo.isSelected());
     this.data.setForceWholeFrame(this.checkBoxForceWholeFrame.isSelected());
     this.data.setForceJavaRobotGrabber(this.checkBoxForceJavaRonotGrabber.isSelected());
+    this.data.setTrackScreenChanges(this.checkBoxTrackScreenChanges.isSelected());
+    this.data.setSplitChangedAreas(this.checkBoxSplitChangedAreas.isSelected());
     this.data.setAccurateRgb(this.checkBoxAccurateRgb.isSelected());
-    this.data.setDithering(this.checkBoxDithering.isSelected());
+    this.data.setDitheringMode((APngToGifConvertingWorker.DitheringMode) this.comboBoxDitheringMode.getSelectedItem());
+    this.data.setIndexRgbWhileRecording(this.checkBoxIndexRgbWhileRecording.isSelected());
+    this.data.setCompactRgbIndexTable(this.checkBoxCompactRgbIndexTable.isSelected());
+    this.data.setCheckChunkCrc(this.checkBoxCheckChunkCrc.isSelected());
     this.data.setFilter((RgbPixelFilter) this.comboBoxFilter.getSelectedItem());
     this.data.setGifPaletteForRgb((Palette256) this.comboBoxPaletteForGifRgb.getSelectedItem());
+    this.data.setBackpressurePolicy((ScreenCapturer.BackpressurePolicy) this.comboBoxBackpressurePolicy.getSelectedItem());
+    this.data.setPngFilterStrategy((APngWriter.FilterStrategy) this.comboBoxPngFilterStrategy.getSelectedItem());
+    this.data.setCompressionProfile((APngWriter.CompressionProfile) this.comboBoxCompressionProfile.getSelectedItem());
     this.data.setLoops(((Number) this.spinnerLoops.getValue()).intValue());
     this.data.setFrameDelay(((Number) this.spinnerFrameDelay.getValue()).intValue());
     this.data.setCaptureDelay(((Number) this.spinnerCaptureDelay.getValue()).intValue());
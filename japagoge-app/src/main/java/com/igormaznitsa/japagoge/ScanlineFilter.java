@@ -0,0 +1,157 @@
+package com.igormaznitsa.japagoge;
+
+import com.igormaznitsa.japagoge.utils.PixelKernels;
+
+/**
+ * Encoder of PNG scanline filters, source data must contain scanlines prefixed by filter type byte (which is ignored).
+ * Adaptive mode selects filter for every scanline by minimum sum of absolute differences heuristic
+ * recommended by PNG specification.
+ *
+ * @see <a href="https://www.w3.org/TR/2003/REC-PNG-20031110/#12Filter-selection">Filter selection</a>
+ */
+final class ScanlineFilter {
+
+  private static final int FILTER_NONE = 0;
+  private static final int FILTER_SUB = 1;
+  private static final int FILTER_UP = 2;
+  private static final int FILTER_AVERAGE = 3;
+  private static final int FILTER_PAETH = 4;
+
+  private ScanlineFilter() {
+  }
+
+  private static int findBestFilter(final byte[] data, final int lineOffset, final int priorOffset, final int lineBytes, final int bpp) {
+    long sumNone = 0L;
+    long sumSub = 0L;
+    long sumUp = 0L;
+    long sumAverage = 0L;
+    long sumPaeth = 0L;
+
+    for (int i = 0; i < lineBytes; i++) {
+      final int x = data[lineOffset + i] & 0xFF;
+      final int a = i < bpp ? 0 : data[lineOffset + i - bpp] & 0xFF;
+      final int b = priorOffset < 0 ? 0 : data[priorOffset + i] & 0xFF;
+      final int c = priorOffset < 0 || i < bpp ? 0 : data[priorOffset + i - bpp] & 0xFF;
+
+      sumNone += Math.abs((byte) x);
+      sumSub += Math.abs((byte) (x - a));
+      sumUp += Math.abs((byte) (x - b));
+      sumAverage += Math.abs((byte) (x - ((a + b) >> 1)));
+      sumPaeth += Math.abs((byte) (x - PixelKernels.paethPredictor(a, b, c)));
+    }
+
+    int result = FILTER_NONE;
+    long min = sumNone;
+    if (sumSub < min) {
+      min = sumSub;
+      result = FILTER_SUB;
+    }
+    if (sumUp < min) {
+      min = sumUp;
+      result = FILTER_UP;
+    }
+    if (sumAverage < min) {
+      min = sumAverage;
+      result = FILTER_AVERAGE;
+    }
+    if (sumPaeth < min) {
+      result = FILTER_PAETH;
+    }
+    return result;
+  }
+
+  private static void filterLine(final int filterType, final byte[] data, final int lineOffset, final int priorOffset, final int lineBytes, final int bpp, final byte[] target, final int targetOffset) {
+    target[targetOffset] = (byte) filterType;
+    final int out = targetOffset + 1;
+    switch (filterType) {
+      case FILTER_NONE: {
+        System.arraycopy(data, lineOffset, target, out, lineBytes);
+      }
+      break;
+      case FILTER_SUB: {
+        System.arraycopy(data, lineOffset, target, out, Math.min(bpp, lineBytes));
+        for (int i = bpp; i < lineBytes; i++) {
+          target[out + i] = (byte) (data[lineOffset + i] - data[lineOffset + i - bpp]);
+        }
+      }
+      break;
+      case FILTER_UP: {
+        if (priorOffset < 0) {
+          System.arraycopy(data, lineOffset, target, out, lineBytes);
+        } else {
+          for (int i = 0; i < lineBytes; i++) {
+            target[out + i] = (byte) (data[lineOffset + i] - data[priorOffset + i]);
+          }
+        }
+      }
+      break;
+      case FILTER_AVERAGE: {
+        for (int i = 0; i < lineBytes; i++) {
+          final int a = i < bpp ? 0 : data[lineOffset + i - bpp] & 0xFF;
+          final int b = priorOffset < 0 ? 0 : data[priorOffset + i] & 0xFF;
+          target[out + i] = (byte) (data[lineOffset + i] - ((a + b) >> 1));
+        }
+      }
+      break;
+      case FILTER_PAETH: {
+        for (int i = 0; i < lineBytes; i++) {
+          final int a = i < bpp ? 0 : data[lineOffset + i - bpp] & 0xFF;
+          final int b = priorOffset < 0 ? 0 : data[priorOffset + i] & 0xFF;
+          final int c = priorOffset < 0 || i < bpp ? 0 : data[priorOffset + i - bpp] & 0xFF;
+          target[out + i] = (byte) (data[lineOffset + i] - PixelKernels.paethPredictor(a, b, c));
+        }
+      }
+      break;
+      default:
+        throw new IllegalArgumentException("Unexpected filter: " + filterType);
+    }
+  }
+
+  /**
+   * Encode scanlines by filter strategy.
+   *
+   * @param strategy filter strategy
+   * @param data     source scanlines
+   * @param width    width in pixels
+   * @param height   number of scanlines
+   * @param bpp      bytes per pixel
+   * @param buffer   buffer to be reused for result, can be null
+   * @return buffer contains filtered scanlines, it can be new one if provided buffer is too small
+   */
+  static byte[] apply(final APngWriter.FilterStrategy strategy, final byte[] data, final int width, final int height, final int bpp, final byte[] buffer) {
+    final int lineBytes = width * bpp;
+    final int scanLineBytes = lineBytes + 1;
+    final int requiredSize = scanLineBytes * height;
+    final byte[] result = buffer == null || buffer.length < requiredSize ? new byte[requiredSize] : buffer;
+
+    for (int y = 0; y < height; y++) {
+      final int lineOffset = y * scanLineBytes + 1;
+      final int priorOffset = y == 0 ? -1 : lineOffset - scanLineBytes;
+      final int filterType;
+      switch (strategy) {
+        case NONE:
+          filterType = FILTER_NONE;
+          break;
+        case SUB:
+          filterType = FILTER_SUB;
+          break;
+        case UP:
+          filterType = FILTER_UP;
+          break;
+        case AVERAGE:
+          filterType = FILTER_AVERAGE;
+          break;
+        case PAETH:
+          filterType = FILTER_PAETH;
+          break;
+        case ADAPTIVE:
+          filterType = findBestFilter(data, lineOffset, priorOffset, lineBytes, bpp);
+          break;
+        default:
+          throw new IllegalArgumentException("Unexpected strategy: " + strategy);
+      }
+      filterLine(filterType, data, lineOffset, priorOffset, lineBytes, bpp, result, y * scanLineBytes);
+    }
+    return result;
+  }
+}
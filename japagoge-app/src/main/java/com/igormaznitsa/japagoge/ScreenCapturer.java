@@ -1,11 +1,15 @@
 package com.igormaznitsa.japagoge;
 
+import com.igormaznitsa.japagoge.filters.ColorFilter;
+import com.igormaznitsa.japagoge.filters.PaletteIndexFilter;
 import com.igormaznitsa.japagoge.filters.RgbPixelFilter;
 import com.igormaznitsa.japagoge.grabbers.ScreenAreaGrabber;
 import com.igormaznitsa.japagoge.grabbers.ScreenAreaGrabberFactory;
 import com.igormaznitsa.japagoge.mouse.MouseInfoProvider;
+import com.igormaznitsa.japagoge.mouse.MousePointerIcon;
 import com.igormaznitsa.japagoge.utils.Palette256;
 import com.igormaznitsa.japagoge.utils.PaletteUtils;
+import com.igormaznitsa.japagoge.utils.RgbIndexTableCache;
 import java.awt.AWTException;
 import java.awt.Dimension;
 import java.awt.Graphics2D;
@@ -13,6 +17,7 @@ import java.awt.GraphicsDevice;
 import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -21,6 +26,10 @@ import java.time.Duration;
 import java.util.Objects;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -30,6 +39,16 @@ public final class ScreenCapturer {
   private static final Logger LOGGER = Logger.getLogger("ScreenCapturer");
 
   private static final Timer internalTimer = new Timer("capture-timer", true);
+
+  private static final long MAX_QUEUE_MEMORY = 256L * 1024L * 1024L;
+  private static final int MIN_QUEUE_FRAMES = 2;
+  private static final int MAX_QUEUE_FRAMES = 16;
+  private static final long QUEUE_POLL_MS = 100L;
+  private static final int LEVEL_DECREASE_FRAMES = 2;
+  private static final int LEVEL_INCREASE_FRAMES = 32;
+
+  private static final CapturedFrame END_OF_CAPTURE = new CapturedFrame(null, -1L, -1L, -1L, null);
+
   private final ScreenAreaGrabber screenAreaGrabber;
   private final Rectangle screenArea;
   private final File targetFile;
@@ -38,10 +57,40 @@ public final class ScreenCapturer {
   private final RgbPixelFilter filter;
   private final AtomicReference<TimerTask> timerTask = new AtomicReference<>();
   private final AtomicReference<APngWriter> apngWriter = new AtomicReference<>();
+  private final AtomicReference<Thread> encoderThread = new AtomicReference<>();
   private final MouseInfoProvider mouseInfoProvider;
   private final Palette256 palette;
+  private final boolean indexRgbByPalette;
+  private final boolean accurateRgb;
+  private final RgbIndexTableCache rgbIndexTableCache;
+  private final boolean compactRgbIndexTable;
   private final boolean forceWholeFrame;
+  private final boolean trackScreenChanges;
+  private final boolean splitChangedAreas;
+  private final BackpressurePolicy backpressurePolicy;
+  private final APngWriter.FilterStrategy pngFilterStrategy;
+  private final APngWriter.CompressionProfile compressionProfile;
+  private final BlockingQueue<CapturedFrame> frameQueue;
+  private final BlockingQueue<BufferedImage> imagePool;
+  private final AtomicLong capturedFrames = new AtomicLong();
+  private final AtomicLong droppedFrames = new AtomicLong();
+  private final AtomicLong lateFrames = new AtomicLong();
+  private final AtomicLong unchangedFrames = new AtomicLong();
+  private final AtomicLong encodedFrames = new AtomicLong();
+  private final AtomicLong encodeTimeNanos = new AtomicLong();
+  private final AtomicLong maxEncodeTimeNanos = new AtomicLong();
+  private final AtomicLong maxFrameLag = new AtomicLong();
+  private int framesBehind;
+  private int framesWithHeadroom;
+  private int minUsedCompressionLevel = Integer.MAX_VALUE;
   private volatile boolean stopped;
+  private volatile long captureTickCounter;
+  private long frameSequenceCounter;
+  private boolean changeTrackingActive;
+  private int[] screenBuffer;
+  private Rectangle lastPointerArea;
+  private MousePointerIcon lastPointerIcon;
+  private long lastKnownDroppedFrames;
   private APngWriter.Statistics pngStatistics;
 
   public ScreenCapturer(
@@ -52,12 +101,27 @@ public final class ScreenCapturer {
       final RgbPixelFilter filter,
       final boolean forceWholeFrame,
       final boolean forceJavaRobotGrabber,
+      final boolean trackScreenChanges,
+      final boolean splitChangedAreas,
       final Palette256 palette,
+      final boolean indexRgbByPalette,
+      final boolean accurateRgb,
+      final RgbIndexTableCache rgbIndexTableCache,
+      final boolean compactRgbIndexTable,
+      final BackpressurePolicy backpressurePolicy,
+      final APngWriter.FilterStrategy pngFilterStrategy,
+      final APngWriter.CompressionProfile compressionProfile,
       final Duration delayBetweenCaptures,
       final Duration delayBetweenFrames
   ) throws AWTException {
     this.forceWholeFrame = forceWholeFrame;
+    this.trackScreenChanges = trackScreenChanges;
+    this.splitChangedAreas = splitChangedAreas;
     this.palette = palette;
+    this.indexRgbByPalette = indexRgbByPalette;
+    this.accurateRgb = accurateRgb;
+    this.rgbIndexTableCache = rgbIndexTableCache;
+    this.compactRgbIndexTable = compactRgbIndexTable;
     this.screenAreaGrabber = forceJavaRobotGrabber ? ScreenAreaGrabberFactory.getInstance()
         .makeJavaRobotGrabber(device) :
         ScreenAreaGrabberFactory.getInstance().findAppropriateGrabber(device);
@@ -65,8 +129,31 @@ public final class ScreenCapturer {
     this.mouseInfoProvider = mouseInfoProvider;
     this.screenArea = Objects.requireNonNull(screenArea);
     this.targetFile = targetFile;
+    this.backpressurePolicy = Objects.requireNonNull(backpressurePolicy);
+    this.pngFilterStrategy = Objects.requireNonNull(pngFilterStrategy);
+    this.compressionProfile = Objects.requireNonNull(compressionProfile);
     this.delayBetweenCaptures = delayBetweenCaptures;
     this.delayBetweenFrames = Objects.requireNonNull(delayBetweenFrames);
+    final int queueCapacity = calcQueueCapacity(screenArea);
+    this.frameQueue = new ArrayBlockingQueue<>(queueCapacity);
+    // queued frames plus one in capturing and one in encoding
+    this.imagePool = new ArrayBlockingQueue<>(queueCapacity + 2);
+  }
+
+  private static int calcQueueCapacity(final Rectangle area) {
+    final long frameBytes = Math.max(1L, (long) area.width * (long) area.height * 4L);
+    return (int) Math.max(MIN_QUEUE_FRAMES, Math.min(MAX_QUEUE_FRAMES, MAX_QUEUE_MEMORY / frameBytes));
+  }
+
+  private BufferedImage acquireImage() {
+    final BufferedImage pooled = this.imagePool.poll();
+    return pooled == null ? new BufferedImage(this.screenArea.width, this.screenArea.height, BufferedImage.TYPE_INT_RGB) : pooled;
+  }
+
+  private void releaseImage(final BufferedImage image) {
+    if (image != null) {
+      this.imagePool.offer(image);
+    }
   }
 
   public RgbPixelFilter getFilter() {
@@ -83,13 +170,29 @@ public final class ScreenCapturer {
     return this.error;
   }
 
+  public long getCapturedFrames() {
+    return this.capturedFrames.get();
+  }
+
+  public long getDroppedFrames() {
+    return this.droppedFrames.get();
+  }
+
+  public long getLateFrames() {
+    return this.lateFrames.get();
+  }
+
+  public long getUnchangedFrames() {
+    return this.unchangedFrames.get();
+  }
+
   public void start() {
     this.error = false;
     final TimerTask newTimerTask = new TimerTask() {
       @Override
       public void run() {
         if (!stopped) {
-          if (!doCapture()) {
+          if (!doCapture(this.scheduledExecutionTime())) {
             stopCapturingTask();
             error = true;
           }
@@ -105,55 +208,286 @@ public final class ScreenCapturer {
         LOGGER.log(Level.SEVERE, "Can't gen file channel", ex);
         throw new Error(ex);
       }
-      APngWriter newWriter = new APngWriter(fileChannel, this.filter);
+      APngWriter newWriter = new APngWriter(fileChannel, this.makeWriterFilter(), this.splitChangedAreas, this.pngFilterStrategy, this.compressionProfile);
 
       if (!this.apngWriter.compareAndSet(null, newWriter)) {
         throw new Error("Unexpected state");
       }
 
-      LOGGER.info("Staring capture task, delay " + this.delayBetweenCaptures.toMillis() + " ms");
+      final Thread newEncoderThread = new Thread(() -> this.encodeFrames(newWriter), "capture-encoder");
+      newEncoderThread.setDaemon(true);
+      if (!this.encoderThread.compareAndSet(null, newEncoderThread)) {
+        throw new Error("Unexpected state");
+      }
+      newEncoderThread.start();
+
+      this.changeTrackingActive = this.trackScreenChanges && this.screenAreaGrabber.startChangeTracking();
+      if (this.trackScreenChanges && !this.changeTrackingActive) {
+        LOGGER.warning("Screen change tracking is not supported by grabber");
+      }
+
+      LOGGER.info("Staring capture task, delay " + this.delayBetweenCaptures.toMillis() + " ms, queue " + this.frameQueue.remainingCapacity() + " frames, policy " + this.backpressurePolicy);
       internalTimer.scheduleAtFixedRate(newTimerTask, 50L, this.delayBetweenCaptures.toMillis());
     }
   }
 
-  private boolean doCapture() {
+  private boolean doCapture(final long scheduledTime) {
+    BufferedImage image = null;
     try {
-      final BufferedImage image = this.screenAreaGrabber.grabAsRgb(this.screenArea);
-
-      if (this.mouseInfoProvider != null) {
-        Point mouseLocation = this.mouseInfoProvider.getMousePointerLocation();
-        com.igormaznitsa.japagoge.mouse.MousePointerIcon mousePointer =
-            this.mouseInfoProvider.getMousePointerIcon();
-        Rectangle pointerRectangle = new Rectangle(mousePointer.toHot(mouseLocation),
-            new Dimension(mousePointer.getWidth(), mousePointer.getHeight()));
-        if (this.screenArea.intersects(pointerRectangle)) {
-          Graphics2D gfx = image.createGraphics();
+      final long tick = this.captureTickCounter++;
+      final long captureTime = System.currentTimeMillis();
+      if (captureTime - scheduledTime > this.delayBetweenCaptures.toMillis()) {
+        this.lateFrames.incrementAndGet();
+      }
+
+      final Rectangle changedArea;
+      if (this.changeTrackingActive) {
+        if (this.screenBuffer == null) {
+          this.screenBuffer = new int[this.screenArea.width * this.screenArea.height];
+        }
+        final Rectangle changedScreen = this.screenAreaGrabber.grabChangedAsRgb(this.screenArea,
+            this.screenBuffer, 0, this.screenArea.width);
+
+        MousePointerIcon pointerIcon = null;
+        Rectangle pointerArea = null;
+        if (this.mouseInfoProvider != null) {
+          final Point mouseLocation = this.mouseInfoProvider.getMousePointerLocation();
+          final MousePointerIcon mousePointer = this.mouseInfoProvider.getMousePointerIcon();
+          final Rectangle pointerRectangle = new Rectangle(mousePointer.toHot(mouseLocation),
+              new Dimension(mousePointer.getWidth(), mousePointer.getHeight()));
+          if (this.screenArea.intersects(pointerRectangle)) {
+            pointerIcon = mousePointer;
+            pointerArea = new Rectangle(pointerRectangle.x - this.screenArea.x,
+                pointerRectangle.y - this.screenArea.y, pointerRectangle.width,
+                pointerRectangle.height);
+          }
+        }
+
+        // dropped frame can contain changes which must be delivered to encoder
+        final long knownDroppedFrames = this.droppedFrames.get();
+        final boolean forceFrame = knownDroppedFrames != this.lastKnownDroppedFrames;
+        this.lastKnownDroppedFrames = knownDroppedFrames;
+
+        if (!forceFrame
+            && changedScreen.isEmpty()
+            && pointerIcon == this.lastPointerIcon
+            && Objects.equals(pointerArea, this.lastPointerArea)) {
+          this.unchangedFrames.incrementAndGet();
+          return true;
+        }
+
+        final Rectangle dirtyArea = new Rectangle(changedScreen);
+        addArea(dirtyArea, pointerArea);
+        addArea(dirtyArea, this.lastPointerArea);
+        changedArea = forceFrame ? null
+            : dirtyArea.intersection(new Rectangle(0, 0, this.screenArea.width, this.screenArea.height));
+
+        image = this.acquireImage();
+        final int[] imageData = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        System.arraycopy(this.screenBuffer, 0, imageData, 0, this.screenBuffer.length);
+        if (pointerIcon != null) {
+          final Graphics2D gfx = image.createGraphics();
           try {
-            gfx.drawImage(mousePointer.getImage(), mouseLocation.x - this.screenArea.x,
-                mouseLocation.y - this.screenArea.y, null);
+            gfx.drawImage(pointerIcon.getImage(), pointerArea.x, pointerArea.y, null);
           } finally {
             gfx.dispose();
           }
         }
-      }
+        this.lastPointerIcon = pointerIcon;
+        this.lastPointerArea = pointerArea;
+      } else {
+        image = this.acquireImage();
+        final int[] imageData = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        this.screenAreaGrabber.grabAsRgb(this.screenArea, imageData, 0, this.screenArea.width);
 
-      final APngWriter writer = this.apngWriter.get();
-      if (writer != null) {
-        if (writer.getState() == APngWriter.State.CREATED) {
-          writer.start("JAPAGOGE", image.getWidth(null), image.getHeight(null));
+        if (this.mouseInfoProvider != null) {
+          Point mouseLocation = this.mouseInfoProvider.getMousePointerLocation();
+          MousePointerIcon mousePointer = this.mouseInfoProvider.getMousePointerIcon();
+          Rectangle pointerRectangle = new Rectangle(mousePointer.toHot(mouseLocation),
+              new Dimension(mousePointer.getWidth(), mousePointer.getHeight()));
+          if (this.screenArea.intersects(pointerRectangle)) {
+            Graphics2D gfx = image.createGraphics();
+            try {
+              gfx.drawImage(mousePointer.getImage(), mouseLocation.x - this.screenArea.x,
+                  mouseLocation.y - this.screenArea.y, null);
+            } finally {
+              gfx.dispose();
+            }
+          }
         }
-        writer.addFrame(image, this.forceWholeFrame, this.delayBetweenFrames);
+        changedArea = null;
       }
+
+      this.capturedFrames.incrementAndGet();
+      final BufferedImage capturedImage = image;
+      image = null;
+      this.enqueueFrame(new CapturedFrame(capturedImage, tick, captureTime, this.frameSequenceCounter++, changedArea));
       return true;
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      LOGGER.log(Level.SEVERE, "Capture has been interrupted", ex);
+      return false;
     } catch (Exception ex) {
       LOGGER.log(Level.SEVERE, "Error during capturing", ex);
       return false;
+    } finally {
+      this.releaseImage(image);
+    }
+  }
+
+  private static void addArea(final Rectangle target, final Rectangle area) {
+    if (area != null) {
+      if (target.isEmpty()) {
+        target.setBounds(area);
+      } else {
+        target.add(area);
+      }
+    }
+  }
+
+  /**
+   * Put captured frame into queue. Non-blocking policies work under lock of the queue so that they never meet end of
+   * capture marker, blocking offer waits without the lock to not stall stop of encoder, a frame offered after end
+   * of capture marker is removed with queue clearing.
+   */
+  private void enqueueFrame(final CapturedFrame frame) throws InterruptedException {
+    if (this.backpressurePolicy == BackpressurePolicy.BLOCK) {
+      if (this.stopped) {
+        this.releaseImage(frame.image);
+        return;
+      }
+      while (!this.frameQueue.offer(frame, QUEUE_POLL_MS, TimeUnit.MILLISECONDS)) {
+        if (this.stopped) {
+          this.droppedFrames.incrementAndGet();
+          this.releaseImage(frame.image);
+          return;
+        }
+      }
+      return;
+    }
+
+    synchronized (this.frameQueue) {
+      if (this.stopped) {
+        this.releaseImage(frame.image);
+        return;
+      }
+      switch (this.backpressurePolicy) {
+        case DROP_OLDEST: {
+          while (!this.frameQueue.offer(frame)) {
+            final CapturedFrame dropped = this.frameQueue.poll();
+            if (dropped != null) {
+              this.droppedFrames.incrementAndGet();
+              this.releaseImage(dropped.image);
+            }
+          }
+        }
+        break;
+        case DROP_NEWEST: {
+          if (!this.frameQueue.offer(frame)) {
+            this.droppedFrames.incrementAndGet();
+            this.releaseImage(frame.image);
+          }
+        }
+        break;
+        default:
+          throw new Error("Unexpected policy: " + this.backpressurePolicy);
+      }
     }
   }
 
+  private void encodeFrames(final APngWriter writer) {
+    long lastTick = -1L;
+    long lastSequence = -1L;
+    try {
+      while (true) {
+        final CapturedFrame frame = this.frameQueue.take();
+        if (frame == END_OF_CAPTURE) {
+          break;
+        }
+        if (writer.getState() == APngWriter.State.CREATED) {
+          writer.start("JAPAGOGE", frame.image.getWidth(null), frame.image.getHeight(null));
+        }
+        if (lastTick >= 0L && frame.tick - lastTick > 1L) {
+          writer.extendLastFrame(this.delayBetweenFrames.multipliedBy(frame.tick - lastTick - 1L));
+        }
+        // changed area is valid only if encoder got all frames produced before
+        final Rectangle changedArea = frame.sequence == lastSequence + 1L ? frame.changedArea : null;
+        final long encodeStart = System.nanoTime();
+        try {
+          writer.addFrame(frame.image, changedArea, this.forceWholeFrame, this.delayBetweenFrames);
+        } finally {
+          this.releaseImage(frame.image);
+        }
+        final long encodeTime = System.nanoTime() - encodeStart;
+        this.encodedFrames.incrementAndGet();
+        this.encodeTimeNanos.addAndGet(encodeTime);
+        this.maxEncodeTimeNanos.accumulateAndGet(encodeTime, Math::max);
+        this.maxFrameLag.accumulateAndGet(System.currentTimeMillis() - frame.timestamp, Math::max);
+        this.adaptCompressionLevel(writer, encodeTime);
+        lastTick = frame.tick;
+        lastSequence = frame.sequence;
+      }
+      final long lastCaptureTick = this.captureTickCounter - 1L;
+      if (lastTick >= 0L && lastCaptureTick > lastTick) {
+        writer.extendLastFrame(this.delayBetweenFrames.multipliedBy(lastCaptureTick - lastTick));
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      LOGGER.warning("Encoder thread has been interrupted");
+    } catch (Exception ex) {
+      LOGGER.log(Level.SEVERE, "Error during frame encoding", ex);
+      this.stopCapturingTask();
+      this.error = true;
+    }
+  }
+
+  private void adaptCompressionLevel(final APngWriter writer, final long encodeTime) {
+    final long captureDelay = this.delayBetweenCaptures.toNanos();
+    final int queued = this.frameQueue.size();
+    if (queued > this.frameQueue.remainingCapacity() || encodeTime > captureDelay) {
+      // encoder falls behind capture
+      this.framesWithHeadroom = 0;
+      if (++this.framesBehind >= LEVEL_DECREASE_FRAMES) {
+        this.framesBehind = 0;
+        if (writer.setCompressionLevel(writer.getCompressionLevel() - 1)) {
+          LOGGER.info("Compression level decreased to " + writer.getCompressionLevel() + ", queued " + queued + " frames, encode " + TimeUnit.NANOSECONDS.toMillis(encodeTime) + " ms");
+        }
+      }
+    } else if (queued == 0 && encodeTime < captureDelay / 2) {
+      this.framesBehind = 0;
+      if (++this.framesWithHeadroom >= LEVEL_INCREASE_FRAMES) {
+        this.framesWithHeadroom = 0;
+        if (writer.setCompressionLevel(writer.getCompressionLevel() + 1)) {
+          LOGGER.info("Compression level increased to " + writer.getCompressionLevel());
+        }
+      }
+    } else {
+      this.framesBehind = 0;
+      this.framesWithHeadroom = 0;
+    }
+    this.minUsedCompressionLevel = Math.min(this.minUsedCompressionLevel, writer.getCompressionLevel());
+  }
+
+  /**
+   * Make color filter instance for new writer, RGB frames are recorded as indexed ones if fixed palette is selected
+   * and indexing during recording is allowed.
+   *
+   * @return filter instance for writer
+   */
+  private ColorFilter makeWriterFilter() {
+    if (this.indexRgbByPalette && this.filter == RgbPixelFilter.RGB) {
+      final int[] rgbPalette = this.palette.getPalette().orElse(null);
+      if (rgbPalette != null) {
+        LOGGER.info("Recording RGB indexed by palette " + this.palette + ", accurate RGB is " + this.accurateRgb);
+        return new PaletteIndexFilter(rgbPalette, this.accurateRgb, this.rgbIndexTableCache, this.compactRgbIndexTable);
+      }
+    }
+    return this.filter.makeInstance();
+  }
+
   public synchronized int[] makeGlobalRgb256Palette() {
     LOGGER.info("Make global RGB palette: " + this.palette);
-    return this.filter.get().getPalette()
+    return this.filter.makeInstance().getPalette()
             .orElseGet(() -> {
                       if (this.pngStatistics == null) {
                         LOGGER.severe("PMG statistics in NULL, making grayscale palette");
@@ -179,9 +513,30 @@ public final class ScreenCapturer {
     }
   }
 
+  private void stopEncoder() {
+    final Thread thread = this.encoderThread.getAndSet(null);
+    if (thread != null) {
+      try {
+        synchronized (this.frameQueue) {
+          while (thread.isAlive() && !this.frameQueue.offer(END_OF_CAPTURE, QUEUE_POLL_MS, TimeUnit.MILLISECONDS)) {
+            // wait for free place in queue
+          }
+        }
+        thread.join();
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        thread.interrupt();
+      } finally {
+        this.frameQueue.clear();
+        this.imagePool.clear();
+      }
+    }
+  }
+
   public void stop(final int loops) {
     try {
       this.stopCapturingTask();
+      this.stopEncoder();
       APngWriter apngWriter = this.apngWriter.getAndSet(null);
       if (apngWriter != null) {
         try {
@@ -200,6 +555,22 @@ public final class ScreenCapturer {
                     statistics.size
             ));
           }
+          LOGGER.info(String.format("Captured %d frames, dropped %d frames, late %d frames, unchanged %d frames",
+              this.capturedFrames.get(),
+              this.droppedFrames.get(),
+              this.lateFrames.get(),
+              this.unchangedFrames.get()
+          ));
+          final long encoded = this.encodedFrames.get();
+          LOGGER.info(String.format("Encoded %d frames, average encode %d ms, max encode %d ms, max frame lag %d ms, compression %s level %d (min used %d)",
+              encoded,
+              encoded == 0L ? 0L : TimeUnit.NANOSECONDS.toMillis(this.encodeTimeNanos.get() / encoded),
+              TimeUnit.NANOSECONDS.toMillis(this.maxEncodeTimeNanos.get()),
+              this.maxFrameLag.get(),
+              this.compressionProfile,
+              apngWriter.getCompressionLevel(),
+              encoded == 0L ? apngWriter.getCompressionLevel() : this.minUsedCompressionLevel
+          ));
         } catch (Exception ex) {
           LOGGER.log(Level.SEVERE, "Error during close writer", ex);
         }
@@ -216,4 +587,31 @@ public final class ScreenCapturer {
   public boolean hasStatistics() {
     return this.pngStatistics != null;
   }
+
+  public enum BackpressurePolicy {
+    DROP_OLDEST,
+    DROP_NEWEST,
+    BLOCK;
+
+    @Override
+    public String toString() {
+      return this.name().replace('_', ' ');
+    }
+  }
+
+  private static final class CapturedFrame {
+    final BufferedImage image;
+    final long tick;
+    final long timestamp;
+    final long sequence;
+    final Rectangle changedArea;
+
+    CapturedFrame(final BufferedImage image, final long tick, final long timestamp, final long sequence, final Rectangle changedArea) {
+      this.image = image;
+      this.tick = tick;
+      this.timestamp = timestamp;
+      this.sequence = sequence;
+      this.changedArea = changedArea;
+    }
+  }
 }
@@ -15,6 +15,35 @@ public class BlackWhiteFilter implements ColorFilter {
     this.palette = PaletteUtils.makeBlackWhiteRgb256();
   }
 
+  private BlackWhiteFilter(final BlackWhiteFilter base) {
+    this.palette = base.palette;
+    this.minY = base.minY;
+    this.maxY = base.maxY;
+    this.avgY = base.avgY;
+  }
+
+  @Override
+  public ColorFilter makeShard() {
+    return new BlackWhiteFilter(this);
+  }
+
+  @Override
+  public ColorFilter updateShard(final ColorFilter shard) {
+    final BlackWhiteFilter filterShard = (BlackWhiteFilter) shard;
+    filterShard.minY = this.minY;
+    filterShard.maxY = this.maxY;
+    filterShard.avgY = this.avgY;
+    return filterShard;
+  }
+
+  @Override
+  public void mergeShard(final ColorFilter shard) {
+    final BlackWhiteFilter filterShard = (BlackWhiteFilter) shard;
+    this.minY = Math.min(this.minY, filterShard.minY);
+    this.maxY = Math.max(this.maxY, filterShard.maxY);
+    this.avgY = (this.maxY - this.minY) / 2;
+  }
+
   @Override
   public boolean isMonochrome() {
     return true;
@@ -37,6 +66,11 @@ public class BlackWhiteFilter implements ColorFilter {
     return 2;
   }
 
+  @Override
+  public int getBitDepth() {
+    return 1;
+  }
+
   @Override
   public boolean isPassImageUpdate(int pass) {
     return pass > 0;
@@ -53,11 +87,7 @@ public class BlackWhiteFilter implements ColorFilter {
 
   @Override
   public int filterRgb(final int rgb, final int pass) {
-    final int r = (rgb >> 16) & 0xFF;
-    final int g = (rgb >> 8) & 0xFF;
-    final int b = rgb & 0xFF;
-
-    final int y = PaletteUtils.toY(r, g, b);
+    final int y = PaletteUtils.toY(rgb);
 
     if (pass == 0) {
       if (y < this.minY) {
@@ -72,4 +102,32 @@ public class BlackWhiteFilter implements ColorFilter {
       return y < this.avgY ? 0 : 0xFF;
     }
   }
+
+  @Override
+  public void filterRowMonochrome(final int[] src, final int srcOffset, final int length, final byte[] dst, final int dstOffset, final int pass) {
+    if (pass == 0) {
+      if (length > 0) {
+        int min = this.minY;
+        int max = this.maxY;
+        for (int i = srcOffset; i < srcOffset + length; i++) {
+          final int y = PaletteUtils.toY(src[i]);
+          if (y < min) {
+            min = y;
+          }
+          if (y > max) {
+            max = y;
+          }
+        }
+        this.minY = min;
+        this.maxY = max;
+        this.avgY = (max - min) / 2;
+      }
+    } else {
+      final int threshold = this.avgY;
+      int dstPos = dstOffset;
+      for (int i = srcOffset; i < srcOffset + length; i++) {
+        dst[dstPos++] = PaletteUtils.toY(src[i]) < threshold ? 0 : (byte) 0xFF;
+      }
+    }
+  }
 }
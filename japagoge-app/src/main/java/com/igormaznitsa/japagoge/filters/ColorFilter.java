@@ -24,6 +24,91 @@ public interface ColorFilter {
     return this.filterRgb(rgb, 0);
   }
 
+  /**
+   * Make shard of the filter to process part of frame in parallel, the shard gets copy of current filter state.
+   * Stateless filter can return itself.
+   *
+   * @return filter shard
+   */
+  default ColorFilter makeShard() {
+    return this;
+  }
+
+  /**
+   * Copy current filter state into shard made by the filter before, so that shards can be reused between passes.
+   * Stateless filter can return the shard as is.
+   *
+   * @param shard shard made by the filter
+   * @return the shard with current filter state
+   */
+  default ColorFilter updateShard(final ColorFilter shard) {
+    return shard;
+  }
+
+  /**
+   * Merge state collected by shard during pass.
+   *
+   * @param shard shard made by the filter
+   */
+  default void mergeShard(final ColorFilter shard) {
+  }
+
+  /**
+   * Filter row of pixels into RGB bytes, three bytes per pixel in R,G,B order. Nothing is written into
+   * destination if the pass doesn't update image.
+   *
+   * @param src       source RGB pixels
+   * @param srcOffset offset of first pixel in source
+   * @param length    number of pixels
+   * @param dst       destination buffer
+   * @param dstOffset offset of first byte in destination
+   * @param pass      filter pass
+   */
+  default void filterRowRgb(final int[] src, final int srcOffset, final int length, final byte[] dst, final int dstOffset, final int pass) {
+    final boolean imageUpdate = this.isPassImageUpdate(pass);
+    int dstPos = dstOffset;
+    for (int i = srcOffset; i < srcOffset + length; i++) {
+      final int rgb = this.filterRgb(src[i], pass);
+      if (imageUpdate) {
+        dst[dstPos++] = (byte) (rgb >> 16);
+        dst[dstPos++] = (byte) (rgb >> 8);
+        dst[dstPos++] = (byte) rgb;
+      }
+    }
+  }
+
+  /**
+   * Filter row of pixels into single byte per pixel, the byte is the lowest byte of filtered color.
+   * Nothing is written into destination if the pass doesn't update image.
+   *
+   * @param src       source RGB pixels
+   * @param srcOffset offset of first pixel in source
+   * @param length    number of pixels
+   * @param dst       destination buffer
+   * @param dstOffset offset of first byte in destination
+   * @param pass      filter pass
+   */
+  default void filterRowMonochrome(final int[] src, final int srcOffset, final int length, final byte[] dst, final int dstOffset, final int pass) {
+    final boolean imageUpdate = this.isPassImageUpdate(pass);
+    int dstPos = dstOffset;
+    for (int i = srcOffset; i < srcOffset + length; i++) {
+      final int rgb = this.filterRgb(src[i], pass);
+      if (imageUpdate) {
+        dst[dstPos++] = (byte) rgb;
+      }
+    }
+  }
+
+  /**
+   * Bit depth of monochrome filter output. Filter with bit depth less than 8 must produce only levels
+   * i * 255 / (2^depth - 1), they are packed into pixels of the bit depth.
+   *
+   * @return bit depth, can be 1, 2, 4 or 8
+   */
+  default int getBitDepth() {
+    return 8;
+  }
+
   default boolean isWholeFrameRequired() {
     return false;
   }
@@ -24,12 +24,26 @@ public class GrayscaleFilter implements ColorFilter {
 
   @Override
   public int filterRgb(final int rgb, final int pass) {
-    final int r = (rgb >> 16) & 0xFF;
-    final int g = (rgb >> 8) & 0xFF;
-    final int b = rgb & 0xFF;
+    final int y = PaletteUtils.toY(rgb);
+    return (y << 16) | (y << 8) | y;
+  }
 
-    final int y = PaletteUtils.toY(r, g, b);
+  @Override
+  public void filterRowRgb(final int[] src, final int srcOffset, final int length, final byte[] dst, final int dstOffset, final int pass) {
+    int dstPos = dstOffset;
+    for (int i = srcOffset; i < srcOffset + length; i++) {
+      final byte y = (byte) PaletteUtils.toY(src[i]);
+      dst[dstPos++] = y;
+      dst[dstPos++] = y;
+      dst[dstPos++] = y;
+    }
+  }
 
-    return (y << 16) | (y << 8) | y;
+  @Override
+  public void filterRowMonochrome(final int[] src, final int srcOffset, final int length, final byte[] dst, final int dstOffset, final int pass) {
+    int dstPos = dstOffset;
+    for (int i = srcOffset; i < srcOffset + length; i++) {
+      dst[dstPos++] = (byte) PaletteUtils.toY(src[i]);
+    }
   }
 }
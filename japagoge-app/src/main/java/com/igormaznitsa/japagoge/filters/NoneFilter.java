@@ -1,5 +1,6 @@
 package com.igormaznitsa.japagoge.filters;
 
+import com.igormaznitsa.japagoge.utils.PixelKernels;
 import java.util.Optional;
 
 public final class NoneFilter implements ColorFilter {
@@ -17,4 +18,9 @@ public final class NoneFilter implements ColorFilter {
   public int filterRgb(int rgb, int pass) {
     return rgb;
   }
+
+  @Override
+  public void filterRowRgb(final int[] src, final int srcOffset, final int length, final byte[] dst, final int dstOffset, final int pass) {
+    PixelKernels.getInstance().packRgb(src, srcOffset, length, dst, dstOffset);
+  }
 }
@@ -0,0 +1,94 @@
+package com.igormaznitsa.japagoge.filters;
+
+import com.igormaznitsa.japagoge.utils.CompactRgbIndexTable;
+import com.igormaznitsa.japagoge.utils.PaletteUtils;
+import com.igormaznitsa.japagoge.utils.RgbIndexTable;
+import com.igormaznitsa.japagoge.utils.RgbIndexTableCache;
+import java.util.Optional;
+
+/**
+ * Filter replaces RGB colors by indexes of the closest colors in fixed palette, the lowest byte of filtered
+ * value is palette index. RGB to index table is calculated during the first frame processing, so that
+ * the calculation is made in the encoder thread instead of the capture thread.
+ */
+public final class PaletteIndexFilter implements ColorFilter {
+
+  private final int[] rgbPalette;
+  private final boolean accurateRgb;
+  private final RgbIndexTableCache rgbIndexTableCache;
+  private final boolean compactTable;
+  private volatile RgbIndexTable rgbIndexTable;
+
+  public PaletteIndexFilter(final int[] rgbPalette, final boolean accurateRgb) {
+    this(rgbPalette, accurateRgb, null, false);
+  }
+
+  /**
+   * Create filter.
+   *
+   * @param rgbPalette         palette, up to 256 colors
+   * @param accurateRgb        use luminance and hue in color distance
+   * @param rgbIndexTableCache cache of full tables, can be null
+   * @param compactTable       use compact table calculated on demand instead of full table, cache is not used
+   */
+  public PaletteIndexFilter(final int[] rgbPalette, final boolean accurateRgb, final RgbIndexTableCache rgbIndexTableCache, final boolean compactTable) {
+    if (rgbPalette.length == 0 || rgbPalette.length > 256) {
+      throw new IllegalArgumentException("Palette must contain 1..256 colors: " + rgbPalette.length);
+    }
+    this.rgbPalette = rgbPalette.clone();
+    this.accurateRgb = accurateRgb;
+    this.rgbIndexTableCache = rgbIndexTableCache;
+    this.compactTable = compactTable;
+  }
+
+  private RgbIndexTable getRgbIndexTable() {
+    RgbIndexTable result = this.rgbIndexTable;
+    if (result == null) {
+      synchronized (this) {
+        result = this.rgbIndexTable;
+        if (result == null) {
+          final byte[] splitPalette = PaletteUtils.splitRgb(this.rgbPalette);
+          if (this.compactTable) {
+            result = CompactRgbIndexTable.make(splitPalette, this.accurateRgb, () -> false);
+          } else if (this.rgbIndexTableCache == null) {
+            result = RgbIndexTable.of(PaletteUtils.makeRgbIndexTable(splitPalette, this.accurateRgb, () -> false));
+          } else {
+            result = RgbIndexTable.of(this.rgbIndexTableCache.findOrMake(splitPalette, this.accurateRgb,
+                () -> PaletteUtils.makeRgbIndexTable(splitPalette, this.accurateRgb, () -> false)));
+          }
+          this.rgbIndexTable = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public boolean isMonochrome() {
+    return true;
+  }
+
+  @Override
+  public Optional<int[]> getPalette() {
+    return Optional.of(this.rgbPalette.clone());
+  }
+
+  @Override
+  public int filterRgb(final int rgb, final int pass) {
+    return this.getRgbIndexTable().findIndex(rgb);
+  }
+
+  @Override
+  public int filterRgbPalette(final int index, final int rgb) {
+    return rgb;
+  }
+
+  @Override
+  public void filterRowMonochrome(final int[] src, final int srcOffset, final int length, final byte[] dst, final int dstOffset, final int pass) {
+    final RgbIndexTable table = this.getRgbIndexTable();
+    int dstPos = dstOffset;
+    for (int i = srcOffset; i < srcOffset + length; i++) {
+      dst[dstPos++] = (byte) table.findIndex(src[i]);
+    }
+  }
+}
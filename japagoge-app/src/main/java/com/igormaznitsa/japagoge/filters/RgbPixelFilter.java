@@ -1,20 +1,34 @@
 package com.igormaznitsa.japagoge.filters;
 
+import java.util.function.Supplier;
+
 public enum RgbPixelFilter {
-  RGB(new NoneFilter()),
-  GRAYSCALE(new GrayscaleFilter()),
-  AMBER(new AmberFilter()),
-  GREEN(new GreenFilter()),
-  BLACK_WHITE(new BlackWhiteFilter()),
-  OLD_PHONE_BW_LCD(new OldPhoneBwLcdFilter());
+  RGB(NoneFilter::new, false),
+  GRAYSCALE(GrayscaleFilter::new, false),
+  AMBER(AmberFilter::new, false),
+  GREEN(GreenFilter::new, false),
+  BLACK_WHITE(BlackWhiteFilter::new, true),
+  OLD_PHONE_BW_LCD(OldPhoneBwLcdFilter::new, true);
+
+  private final Supplier<ColorFilter> factory;
+  private final ColorFilter sharedFilter;
 
-  private final ColorFilter filter;
+  RgbPixelFilter(final Supplier<ColorFilter> factory, final boolean stateful) {
+    this.factory = factory;
+    this.sharedFilter = stateful ? null : factory.get();
+  }
 
-  RgbPixelFilter(final ColorFilter filter) {
-    this.filter = filter;
+  /**
+   * Get filter instance for recording or conversion session. Filters which keep state between pixels
+   * are created for every call, stateless filters are shared.
+   *
+   * @return filter instance to be used by single session
+   */
+  public ColorFilter makeInstance() {
+    return this.sharedFilter == null ? this.factory.get() : this.sharedFilter;
   }
 
-  public ColorFilter get() {
-    return this.filter;
+  public boolean isStateful() {
+    return this.sharedFilter == null;
   }
 }
@@ -14,6 +14,7 @@ public final class AGifWriter {
   private final int logicalImageWidth;
   private final int logicalImageHeight;
   private final AtomicInteger frameCounter = new AtomicInteger();
+  private final GifLzwEncoder encoder = new GifLzwEncoder();
   private final int repeat;
   private final int backgroundColorIndex;
 
@@ -61,6 +62,42 @@ public final class AGifWriter {
           final Duration delay,
           final int transparentColorIndex,
           final byte[] pixelIndexes
+  ) throws IOException {
+    this.writeFrameHeader(disposalMode, x, y, width, height, delay, transparentColorIndex);
+    this.encoder.encode(width, height, pixelIndexes);
+    this.encoder.writeTo(this.outputStream);
+  }
+
+  /**
+   * Write frame which image data has been encoded before, it allows to compress frames in parallel and write them
+   * later. Every frame in work should have own encoder.
+   *
+   * @param encodedImage encoder contains LZW compressed image data of frame in GIF format
+   * @throws IOException if any error during writing
+   * @see GifLzwEncoder#encode(int, int, byte[])
+   */
+  public void addEncodedFrame(
+          final DisposalMode disposalMode,
+          final int x,
+          final int y,
+          final int width,
+          final int height,
+          final Duration delay,
+          final int transparentColorIndex,
+          final GifLzwEncoder encodedImage
+  ) throws IOException {
+    this.writeFrameHeader(disposalMode, x, y, width, height, delay, transparentColorIndex);
+    encodedImage.writeTo(this.outputStream);
+  }
+
+  private void writeFrameHeader(
+          final DisposalMode disposalMode,
+          final int x,
+          final int y,
+          final int width,
+          final int height,
+          final Duration delay,
+          final int transparentColorIndex
   ) throws IOException {
     this.assertNotEnded();
     final int frame = this.frameCounter.getAndIncrement();
@@ -80,8 +117,6 @@ public final class AGifWriter {
       writeGraphicCtrlExt(delay, disposalMode.getMode(), transparentColorIndex);
     }
     writeImageDesc(x, y, width, height);
-    new GifLzwCompressor(this.outputStream, width, height, pixelIndexes)
-            .encode();
   }
 
   private void writeLogicalScreenDescriptor(
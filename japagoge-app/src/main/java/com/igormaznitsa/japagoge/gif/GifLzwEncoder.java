@@ -0,0 +1,200 @@
+package com.igormaznitsa.japagoge.gif;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * LZW encoder of GIF image data. Dictionary is open addressing hash table with power of two size and linear probing,
+ * every entry packs prefix code, pixel and code into one integer. Encoded data including code size byte, data
+ * sub-blocks and block terminator is collected in growable byte array which is kept between images.
+ * Output is the same as output of classic Jef Poskanzer's encoder, sub-blocks contain 254 bytes.
+ * Instance can be reused for several images but must be used by single thread.
+ */
+public final class GifLzwEncoder {
+
+  private static final int INITIAL_CODE_SIZE = 8;
+  private static final int MAX_BITS = 12;
+  private static final int MAX_CODES = 1 << MAX_BITS;
+  private static final int BLOCK_SIZE = 254;
+
+  /**
+   * Size of hash table, it keeps load factor below 0.5 for all 4096 codes.
+   */
+  private static final int HASH_BITS = 13;
+  private static final int HASH_MASK = (1 << HASH_BITS) - 1;
+  private static final int CODE_MASK = MAX_CODES - 1;
+
+  /**
+   * Entry is (prefix << 20) | (pixel << 12) | code, zero is empty entry because codes of entries are not less than
+   * first free code.
+   */
+  private final int[] hashTable = new int[1 << HASH_BITS];
+
+  private byte[] data;
+  private int length;
+  private int blockStart;
+
+  private int clearCode;
+  private int eofCode;
+  private int initBits;
+  private int codeBits;
+  private int maxCode;
+  private int freeCode;
+  private boolean clearFlag;
+  private int accumulator;
+  private int accumulatorBits;
+
+  public GifLzwEncoder() {
+    this(1024);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param initialCapacity initial capacity of encoded data buffer in bytes
+   */
+  public GifLzwEncoder(final int initialCapacity) {
+    this.data = new byte[Math.max(16, initialCapacity)];
+  }
+
+  private static int hash(final int key) {
+    return (key * 0x9E3779B1) >>> (32 - HASH_BITS);
+  }
+
+  /**
+   * Encode image, previously encoded data is replaced.
+   *
+   * @param width        width of image
+   * @param height       height of image
+   * @param pixelIndexes palette indexes of image pixels, row by row from start of array
+   */
+  public void encode(final int width, final int height, final byte[] pixelIndexes) {
+    final int pixels = width * height;
+
+    this.length = 0;
+    this.ensureCapacity(2);
+    this.data[this.length++] = (byte) INITIAL_CODE_SIZE;
+    this.blockStart = this.length++;
+
+    this.initBits = INITIAL_CODE_SIZE + 1;
+    this.clearCode = 1 << INITIAL_CODE_SIZE;
+    this.eofCode = this.clearCode + 1;
+    this.freeCode = this.clearCode + 2;
+    this.codeBits = this.initBits;
+    this.maxCode = (1 << this.codeBits) - 1;
+    this.clearFlag = false;
+    this.accumulator = 0;
+    this.accumulatorBits = 0;
+
+    final int[] table = this.hashTable;
+    Arrays.fill(table, 0);
+
+    this.output(this.clearCode);
+
+    // -1 is written for empty image as in classic encoder
+    int prefix = pixels == 0 ? -1 : pixelIndexes[0] & 0xFF;
+    for (int i = 1; i < pixels; i++) {
+      final int pixel = pixelIndexes[i] & 0xFF;
+      final int key = (prefix << 8) | pixel;
+      int index = hash(key);
+      int entry;
+      while ((entry = table[index]) != 0) {
+        if (entry >>> MAX_BITS == key) {
+          break;
+        }
+        index = (index + 1) & HASH_MASK;
+      }
+      if (entry != 0) {
+        prefix = entry & CODE_MASK;
+        continue;
+      }
+      this.output(prefix);
+      prefix = pixel;
+      if (this.freeCode < MAX_CODES) {
+        table[index] = (key << MAX_BITS) | this.freeCode++;
+      } else {
+        Arrays.fill(table, 0);
+        this.freeCode = this.clearCode + 2;
+        this.clearFlag = true;
+        this.output(this.clearCode);
+      }
+    }
+    this.output(prefix);
+    this.output(this.eofCode);
+
+    // the last empty block is not written
+    if (this.length - this.blockStart > 1) {
+      this.data[this.blockStart] = (byte) (this.length - this.blockStart - 1);
+    } else {
+      this.length--;
+    }
+    this.ensureCapacity(1);
+    this.data[this.length++] = 0;
+  }
+
+  private void output(final int code) {
+    // max 3 bytes of code and 2 headers of blocks
+    this.ensureCapacity(5);
+
+    this.accumulator &= (1 << this.accumulatorBits) - 1;
+    this.accumulator |= code << this.accumulatorBits;
+    this.accumulatorBits += this.codeBits;
+
+    while (this.accumulatorBits >= 8) {
+      this.writeByte(this.accumulator);
+      this.accumulator >>= 8;
+      this.accumulatorBits -= 8;
+    }
+
+    if (this.clearFlag) {
+      this.codeBits = this.initBits;
+      this.maxCode = (1 << this.codeBits) - 1;
+      this.clearFlag = false;
+    } else if (this.freeCode > this.maxCode) {
+      this.codeBits++;
+      this.maxCode = this.codeBits == MAX_BITS ? MAX_CODES : (1 << this.codeBits) - 1;
+    }
+
+    if (code == this.eofCode) {
+      while (this.accumulatorBits > 0) {
+        this.writeByte(this.accumulator);
+        this.accumulator >>= 8;
+        this.accumulatorBits -= 8;
+      }
+    }
+  }
+
+  private void writeByte(final int value) {
+    this.data[this.length++] = (byte) value;
+    if (this.length - this.blockStart > BLOCK_SIZE) {
+      this.data[this.blockStart] = (byte) BLOCK_SIZE;
+      this.blockStart = this.length++;
+    }
+  }
+
+  private void ensureCapacity(final int bytes) {
+    if (this.length + bytes > this.data.length) {
+      this.data = Arrays.copyOf(this.data, Math.max(this.length + bytes, this.data.length * 2));
+    }
+  }
+
+  /**
+   * Get length of encoded data.
+   *
+   * @return number of bytes of encoded image data
+   */
+  public int getLength() {
+    return this.length;
+  }
+
+  /**
+   * Write encoded data.
+   *
+   * @param outputStream target stream
+   * @throws IOException if any error during writing
+   */
+  public void writeTo(final OutputStream outputStream) throws IOException {
+    outputStream.write(this.data, 0, this.length);
+  }
+}
@@ -4,6 +4,8 @@ import com.igormaznitsa.japagoge.utils.SystemUtils;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
 
 class RobotScreenAreaGrabber implements ScreenAreaGrabber {
 
@@ -23,6 +25,36 @@ class RobotScreenAreaGrabber implements ScreenAreaGrabber {
     return SystemUtils.ensureBufferedImage(image, BufferedImage.TYPE_INT_RGB);
   }
 
+  @Override
+  public void grabAsRgb(final Rectangle area, final int[] target, final int offset, final int scanlineStride) {
+    final Image image = this.robot.createMultiResolutionScreenCapture(area).getResolutionVariant(area.width, area.height);
+    final BufferedImage bufferedImage;
+    if (image instanceof BufferedImage
+        && image.getWidth(null) == area.width
+        && image.getHeight(null) == area.height) {
+      bufferedImage = (BufferedImage) image;
+    } else {
+      bufferedImage = SystemUtils.ensureBufferedImage(image, BufferedImage.TYPE_INT_RGB);
+    }
+
+    if (bufferedImage.getType() == BufferedImage.TYPE_INT_RGB
+        && bufferedImage.getRaster().getDataBuffer() instanceof DataBufferInt
+        && bufferedImage.getSampleModel() instanceof SinglePixelPackedSampleModel
+        && bufferedImage.getRaster().getParent() == null) {
+      final DataBufferInt dataBuffer = (DataBufferInt) bufferedImage.getRaster().getDataBuffer();
+      final SinglePixelPackedSampleModel sampleModel =
+          (SinglePixelPackedSampleModel) bufferedImage.getSampleModel();
+      final int[] data = dataBuffer.getData();
+      final int sourceStride = sampleModel.getScanlineStride();
+      final int sourceOffset = dataBuffer.getOffset();
+      for (int y = 0; y < area.height; y++) {
+        System.arraycopy(data, sourceOffset + y * sourceStride, target, offset + y * scanlineStride, area.width);
+      }
+    } else {
+      bufferedImage.getRGB(0, 0, area.width, area.height, target, offset, scanlineStride);
+    }
+  }
+
   @Override
   public void close() {
   }
@@ -5,4 +5,41 @@ import java.awt.image.BufferedImage;
 
 public interface ScreenAreaGrabber extends AutoCloseable {
   BufferedImage grabAsRgb(Rectangle area);
+
+  /**
+   * Grab screen area into caller-owned buffer as packed 0xRRGGBB pixels.
+   *
+   * @param area           screen area to be grabbed
+   * @param target         buffer to be filled, must have enough space for the area
+   * @param offset         offset of the first pixel in the buffer
+   * @param scanlineStride number of buffer items between starts of two neighbour lines
+   */
+  default void grabAsRgb(final Rectangle area, final int[] target, final int offset, final int scanlineStride) {
+    final BufferedImage image = this.grabAsRgb(area);
+    image.getRGB(0, 0, area.width, area.height, target, offset, scanlineStride);
+  }
+
+  /**
+   * Start tracking of screen changes, if successful then {@link #grabChangedAsRgb(Rectangle, int[], int, int)} grabs only changed parts.
+   *
+   * @return true if the grabber tracks changes, false if change tracking is not supported
+   */
+  default boolean startChangeTracking() {
+    return false;
+  }
+
+  /**
+   * Grab changed parts of screen area into persistent caller-owned buffer which keeps result of previous call for the same area.
+   * If change tracking is not started then the whole area is grabbed.
+   *
+   * @param area           screen area to be grabbed
+   * @param target         buffer to be updated, must have enough space for the area
+   * @param offset         offset of the first pixel in the buffer
+   * @param scanlineStride number of buffer items between starts of two neighbour lines
+   * @return bounds of updated part relative to the area, empty rectangle if nothing changed
+   */
+  default Rectangle grabChangedAsRgb(final Rectangle area, final int[] target, final int offset, final int scanlineStride) {
+    this.grabAsRgb(area, target, offset, scanlineStride);
+    return new Rectangle(0, 0, area.width, area.height);
+  }
 }
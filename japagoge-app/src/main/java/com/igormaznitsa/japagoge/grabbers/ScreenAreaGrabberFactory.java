@@ -47,7 +47,11 @@ public final class ScreenAreaGrabberFactory {
       } else {
         LOGGER.info("Detected potential X11 system");
         result =
-            tryMakeGrabber("com.igormaznitsa.japagoge.grabbers.X11ScreenAreaGrabber", device);
+            tryMakeGrabber("com.igormaznitsa.japagoge.grabbers.X11ShmScreenAreaGrabber", device);
+        if (result == null) {
+          result =
+              tryMakeGrabber("com.igormaznitsa.japagoge.grabbers.X11ScreenAreaGrabber", device);
+        }
       }
     }
     return result == null ? new RobotScreenAreaGrabber(device) : result;
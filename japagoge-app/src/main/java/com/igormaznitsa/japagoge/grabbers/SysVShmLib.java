@@ -0,0 +1,24 @@
+package com.igormaznitsa.japagoge.grabbers;
+
+import com.sun.jna.Library;
+import com.sun.jna.Native;
+import com.sun.jna.NativeLong;
+import com.sun.jna.Pointer;
+
+@SuppressWarnings("unused")
+interface SysVShmLib extends Library {
+
+  SysVShmLib INSTANCE = Native.load("c", SysVShmLib.class);
+
+  int IPC_PRIVATE = 0;
+  int IPC_CREAT = 01000;
+  int IPC_RMID = 0;
+
+  int shmget(int key, NativeLong size, int shmflg);
+
+  Pointer shmat(int shmid, Pointer shmaddr, int shmflg);
+
+  int shmdt(Pointer shmaddr);
+
+  int shmctl(int shmid, int cmd, Pointer buf);
+}
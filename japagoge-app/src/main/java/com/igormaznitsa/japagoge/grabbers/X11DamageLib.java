@@ -0,0 +1,26 @@
+package com.igormaznitsa.japagoge.grabbers;
+
+import com.sun.jna.Library;
+import com.sun.jna.Native;
+import com.sun.jna.NativeLong;
+import com.sun.jna.Pointer;
+import com.sun.jna.ptr.IntByReference;
+
+@SuppressWarnings("unused")
+interface X11DamageLib extends Library {
+
+  X11DamageLib INSTANCE = Native.load("Xdamage", X11DamageLib.class);
+
+  int XDamageReportRawRectangles = 0;
+  int XDamageReportDeltaRectangles = 1;
+  int XDamageReportBoundingBox = 2;
+  int XDamageReportNonEmpty = 3;
+
+  int XDamageQueryExtension(Pointer display, IntByReference eventBase, IntByReference errorBase);
+
+  NativeLong XDamageCreate(Pointer display, NativeLong drawable, int level);
+
+  void XDamageDestroy(Pointer display, NativeLong damage);
+
+  void XDamageSubtract(Pointer display, NativeLong damage, NativeLong repair, NativeLong parts);
+}
@@ -0,0 +1,117 @@
+package com.igormaznitsa.japagoge.grabbers;
+
+import com.sun.jna.NativeLong;
+import com.sun.jna.Pointer;
+import com.sun.jna.ptr.IntByReference;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Tracker of screen changes based on XDamage extension. Damage is accumulated by X server
+ * between calls and moved into XFixes region during fetch.
+ */
+final class X11DamageTracker implements AutoCloseable {
+
+  private static final Logger LOGGER = Logger.getLogger(X11DamageTracker.class.getName());
+
+  private static final NativeLong NONE = new NativeLong(0L);
+
+  private final X11GrabLib x11Grab;
+  private final X11DamageLib damageLib;
+  private final X11FixesLib fixesLib;
+  private final Pointer display;
+  private final NativeLong damage;
+  private final NativeLong region;
+  private final IntByReference rectangleCounter = new IntByReference();
+
+  private X11DamageTracker(
+      final X11GrabLib x11Grab,
+      final X11DamageLib damageLib,
+      final X11FixesLib fixesLib,
+      final Pointer display,
+      final NativeLong damage,
+      final NativeLong region
+  ) {
+    this.x11Grab = x11Grab;
+    this.damageLib = damageLib;
+    this.fixesLib = fixesLib;
+    this.display = display;
+    this.damage = damage;
+    this.region = region;
+  }
+
+  static X11DamageTracker tryMake(final X11GrabLib x11Grab, final Pointer display, final int window) {
+    final X11DamageLib damageLib;
+    final X11FixesLib fixesLib;
+    try {
+      damageLib = X11DamageLib.INSTANCE;
+      fixesLib = X11FixesLib.INSTANCE;
+    } catch (LinkageError ex) {
+      LOGGER.log(Level.WARNING, "Can't load XDamage libraries", ex);
+      return null;
+    }
+
+    final IntByReference eventBase = new IntByReference();
+    final IntByReference errorBase = new IntByReference();
+    if (damageLib.XDamageQueryExtension(display, eventBase, errorBase) == 0) {
+      LOGGER.info("XDamage extension is not detected");
+      return null;
+    }
+    if (fixesLib.XFixesQueryExtension(display, eventBase, errorBase) == 0) {
+      LOGGER.info("XFixes extension is not detected");
+      return null;
+    }
+
+    final NativeLong region = fixesLib.XFixesCreateRegion(display, Pointer.NULL, 0);
+    final NativeLong damage = damageLib.XDamageCreate(display, new NativeLong(window & 0xFFFFFFFFL),
+        X11DamageLib.XDamageReportNonEmpty);
+    x11Grab.XSync(display, 1);
+    LOGGER.info("XDamage tracking is started");
+    return new X11DamageTracker(x11Grab, damageLib, fixesLib, display, damage, region);
+  }
+
+  /**
+   * Get screen rectangles damaged since previous call, accumulated damage is cleared.
+   *
+   * @return list of damaged rectangles in screen coordinates, can be empty
+   */
+  List<Rectangle> fetchDamage() {
+    this.damageLib.XDamageSubtract(this.display, this.damage, NONE, this.region);
+    final Pointer rectangles =
+        this.fixesLib.XFixesFetchRegion(this.display, this.region, this.rectangleCounter);
+    // drop collected DamageNotify events, they are not needed
+    this.x11Grab.XSync(this.display, 1);
+
+    if (rectangles == null) {
+      return Collections.emptyList();
+    }
+    try {
+      final int number = this.rectangleCounter.getValue();
+      final List<Rectangle> result = new ArrayList<>(number);
+      for (int i = 0; i < number; i++) {
+        final long offset = (long) i * X11FixesLib.XRECTANGLE_SIZE;
+        final int x = rectangles.getShort(offset);
+        final int y = rectangles.getShort(offset + 2L);
+        final int width = rectangles.getShort(offset + 4L) & 0xFFFF;
+        final int height = rectangles.getShort(offset + 6L) & 0xFFFF;
+        if (width > 0 && height > 0) {
+          result.add(new Rectangle(x, y, width, height));
+        }
+      }
+      return result;
+    } finally {
+      this.x11Grab.XFree(rectangles);
+    }
+  }
+
+  @Override
+  public void close() {
+    this.damageLib.XDamageDestroy(this.display, this.damage);
+    this.fixesLib.XFixesDestroyRegion(this.display, this.region);
+    this.x11Grab.XSync(this.display, 1);
+  }
+}
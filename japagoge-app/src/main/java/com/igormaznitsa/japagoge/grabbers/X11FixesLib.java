@@ -0,0 +1,26 @@
+package com.igormaznitsa.japagoge.grabbers;
+
+import com.sun.jna.Library;
+import com.sun.jna.Native;
+import com.sun.jna.NativeLong;
+import com.sun.jna.Pointer;
+import com.sun.jna.ptr.IntByReference;
+
+@SuppressWarnings("unused")
+interface X11FixesLib extends Library {
+
+  X11FixesLib INSTANCE = Native.load("Xfixes", X11FixesLib.class);
+
+  /**
+   * Size of XRectangle structure: short x, short y, unsigned short width, unsigned short height.
+   */
+  int XRECTANGLE_SIZE = 8;
+
+  int XFixesQueryExtension(Pointer display, IntByReference eventBase, IntByReference errorBase);
+
+  NativeLong XFixesCreateRegion(Pointer display, Pointer rectangles, int numberOfRectangles);
+
+  void XFixesDestroyRegion(Pointer display, NativeLong region);
+
+  Pointer XFixesFetchRegion(Pointer display, NativeLong region, IntByReference numberOfRectangles);
+}
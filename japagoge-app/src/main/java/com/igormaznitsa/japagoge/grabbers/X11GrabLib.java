@@ -19,6 +19,14 @@ interface X11GrabLib extends Library {
 
   int XDefaultColormap(Pointer display, int screen_number);
 
+  Pointer XDefaultVisual(Pointer display, int screen_number);
+
+  int XDefaultDepth(Pointer display, int screen_number);
+
+  int XSync(Pointer display, int discard);
+
+  int XDestroyImage(Pointer xImage);
+
   Pointer XGetImage(Pointer display, int drawable, int x, int y, int width, int height, NativeLong plane_mask, int format);
 
   NativeLong XGetPixel(Pointer xImage, int x, int y);
@@ -7,6 +7,8 @@ import java.awt.GraphicsDevice;
 import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -15,16 +17,20 @@ class X11ScreenAreaGrabber implements ScreenAreaGrabber {
 
   private static final Logger LOGGER = Logger.getLogger(X11ScreenAreaGrabber.class.getName());
 
-  private static final int ZPixmap = 2;
-  private final NativeLong allPlanes;
-  private final X11GrabLib x11Grab;
-  private final Pointer display;
-  private final int window;
-  private final int screen;
+  static final int ZPixmap = 2;
+  private static final int MAX_DAMAGE_PARTS = 32;
+  final NativeLong allPlanes;
+  final X11GrabLib x11Grab;
+  final Pointer display;
+  final int window;
+  final int screen;
   private final int colorMap;
   private final X11GrabLib.XColor.ByReference colorPoint;
 
-  private final AtomicBoolean closed = new AtomicBoolean();
+  final AtomicBoolean closed = new AtomicBoolean();
+
+  private X11DamageTracker damageTracker;
+  private Rectangle trackedArea;
 
   X11ScreenAreaGrabber(final GraphicsDevice device) {
     this.x11Grab = X11GrabLib.INSTANCE;
@@ -55,10 +61,91 @@ class X11ScreenAreaGrabber implements ScreenAreaGrabber {
   }
 
   @Override
-  public synchronized BufferedImage grabAsRgb(final Rectangle area) {
+  public BufferedImage grabAsRgb(final Rectangle area) {
+    final BufferedImage result =
+        new BufferedImage(area.width, area.height, BufferedImage.TYPE_INT_RGB);
+    final int[] rgbArray = ((DataBufferInt) result.getRaster().getDataBuffer()).getData();
+    this.grabAsRgb(area, rgbArray, 0, area.width);
+    return result;
+  }
+
+  @Override
+  public synchronized void grabAsRgb(final Rectangle area, final int[] target, final int offset, final int scanlineStride) {
     if (this.closed.get()) {
       throw new IllegalStateException("Already closed");
     }
+    this.grabThroughXGetImage(area, target, offset, scanlineStride);
+  }
+
+  @Override
+  public synchronized boolean startChangeTracking() {
+    if (this.closed.get()) {
+      throw new IllegalStateException("Already closed");
+    }
+    if (this.damageTracker == null) {
+      this.damageTracker = X11DamageTracker.tryMake(this.x11Grab, this.display, this.window);
+      this.trackedArea = null;
+    }
+    return this.damageTracker != null;
+  }
+
+  @Override
+  public synchronized Rectangle grabChangedAsRgb(final Rectangle area, final int[] target, final int offset, final int scanlineStride) {
+    if (this.closed.get()) {
+      throw new IllegalStateException("Already closed");
+    }
+    if (this.damageTracker == null) {
+      return ScreenAreaGrabber.super.grabChangedAsRgb(area, target, offset, scanlineStride);
+    }
+
+    final List<Rectangle> damage = this.damageTracker.fetchDamage();
+
+    if (!area.equals(this.trackedArea)) {
+      this.trackedArea = new Rectangle(area);
+      this.grabAsRgb(area, target, offset, scanlineStride);
+      return new Rectangle(0, 0, area.width, area.height);
+    }
+
+    final List<Rectangle> parts = new ArrayList<>(damage.size());
+    Rectangle bounds = null;
+    for (final Rectangle damaged : damage) {
+      final Rectangle part = damaged.intersection(area);
+      if (!part.isEmpty()) {
+        part.translate(-area.x, -area.y);
+        parts.add(part);
+        if (bounds == null) {
+          bounds = new Rectangle(part);
+        } else {
+          bounds.add(part);
+        }
+      }
+    }
+
+    if (bounds == null) {
+      return new Rectangle();
+    }
+
+    if ((long) bounds.width * bounds.height * 2L > (long) area.width * area.height) {
+      this.grabAsRgb(area, target, offset, scanlineStride);
+    } else if (parts.size() > MAX_DAMAGE_PARTS) {
+      this.grabPart(area, bounds, target, offset, scanlineStride);
+    } else {
+      for (final Rectangle part : parts) {
+        this.grabPart(area, part, target, offset, scanlineStride);
+      }
+    }
+    return bounds;
+  }
+
+  private void grabPart(final Rectangle area, final Rectangle part, final int[] target, final int offset, final int scanlineStride) {
+    this.grabThroughXGetImage(
+        new Rectangle(area.x + part.x, area.y + part.y, part.width, part.height),
+        target,
+        offset + part.y * scanlineStride + part.x,
+        scanlineStride);
+  }
+
+  void grabThroughXGetImage(final Rectangle area, final int[] target, final int offset, final int scanlineStride) {
     final Pointer pImage =
         this.x11Grab.XGetImage(
             this.display,
@@ -75,18 +162,52 @@ class X11ScreenAreaGrabber implements ScreenAreaGrabber {
     } else {
       final XImage image = new XImage(pImage);
       try {
-        final BufferedImage result =
-            new BufferedImage(area.width, area.height, BufferedImage.TYPE_INT_RGB);
-        final int[] imageRgb = this.extractRgbData(pImage, image);
-        final int[] rgbArray = ((DataBufferInt) result.getRaster().getDataBuffer()).getData();
-        System.arraycopy(imageRgb, 0, rgbArray, 0, imageRgb.length);
-        return result;
+        if (isDirectRgbFormat(image)) {
+          readRgbLines(image.data, image.bytes_per_line, image.byte_order == XImage.MSBFIRST,
+              area.width, area.height, target, offset, scanlineStride);
+        } else {
+          final int[] imageRgb = this.extractRgbData(pImage, image);
+          for (int y = 0; y < area.height; y++) {
+            System.arraycopy(imageRgb, y * area.width, target, offset + y * scanlineStride, area.width);
+          }
+        }
       } finally {
         this.x11Grab.XFree(pImage);
       }
     }
   }
 
+  static boolean isDirectRgbFormat(final XImage image) {
+    return image.xoffset == 0 && image.depth >= 24 && image.bits_per_pixel == 32;
+  }
+
+  static void readRgbLines(
+      final Pointer data,
+      final int bytesPerLine,
+      final boolean invertedByteOrder,
+      final int width,
+      final int height,
+      final int[] target,
+      final int offset,
+      final int scanlineStride
+  ) {
+    if (bytesPerLine == width * 4 && scanlineStride == width) {
+      data.read(0L, target, offset, width * height);
+    } else {
+      for (int y = 0; y < height; y++) {
+        data.read((long) y * bytesPerLine, target, offset + y * scanlineStride, width);
+      }
+    }
+    if (invertedByteOrder) {
+      for (int y = 0; y < height; y++) {
+        final int lineStart = offset + y * scanlineStride;
+        for (int i = lineStart; i < lineStart + width; i++) {
+          target[i] = Integer.reverseBytes(target[i]);
+        }
+      }
+    }
+  }
+
   private int[] extractRgbData(final Pointer pImage, final XImage xImage) {
     final int[] result;
     final boolean invertedByteOrder = xImage.byte_order == XImage.MSBFIRST;
@@ -133,7 +254,16 @@ class X11ScreenAreaGrabber implements ScreenAreaGrabber {
 
   @Override
   public synchronized void close() {
-    if (this.closed.compareAndExchange(false, true)) {
+    if (this.closed.compareAndSet(false, true)) {
+      if (this.damageTracker != null) {
+        try {
+          this.damageTracker.close();
+        } catch (Exception ex) {
+          LOGGER.log(Level.SEVERE, "Error during close of damage tracker", ex);
+        } finally {
+          this.damageTracker = null;
+        }
+      }
       this.x11Grab.XCloseDisplay(this.display);
     }
   }
@@ -0,0 +1,31 @@
+package com.igormaznitsa.japagoge.grabbers;
+
+import com.sun.jna.Library;
+import com.sun.jna.Native;
+import com.sun.jna.NativeLong;
+import com.sun.jna.Pointer;
+import com.sun.jna.Structure;
+
+@SuppressWarnings("unused")
+interface X11ShmLib extends Library {
+
+  X11ShmLib INSTANCE = Native.load("Xext", X11ShmLib.class);
+
+  int XShmQueryExtension(Pointer display);
+
+  Pointer XShmCreateImage(Pointer display, Pointer visual, int depth, int format, Pointer data, XShmSegmentInfo shmInfo, int width, int height);
+
+  int XShmAttach(Pointer display, XShmSegmentInfo shmInfo);
+
+  int XShmDetach(Pointer display, XShmSegmentInfo shmInfo);
+
+  int XShmGetImage(Pointer display, int drawable, Pointer image, int x, int y, NativeLong plane_mask);
+
+  @Structure.FieldOrder({"shmseg", "shmid", "shmaddr", "readOnly"})
+  class XShmSegmentInfo extends Structure {
+    public NativeLong shmseg;
+    public int shmid;
+    public Pointer shmaddr;
+    public int readOnly;
+  }
+}
@@ -0,0 +1,245 @@
+package com.igormaznitsa.japagoge.grabbers;
+
+import com.sun.jna.NativeLong;
+import com.sun.jna.Pointer;
+import com.sun.jna.platform.unix.X11;
+import java.awt.GraphicsDevice;
+import java.awt.Rectangle;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * X11 grabber which uses MIT-SHM extension to get screen area into shared memory image.
+ * Shared image is allocated once for capture area size and reused between frames,
+ * if the extension is not provided then grabbing through XGetImage is used.
+ * Errors of shared memory attach and the first grab come asynchronously (for instance remote display or other IPC
+ * namespace), so that they are trapped by temporary X11 error handler and grabbing falls back to XGetImage.
+ */
+class X11ShmScreenAreaGrabber extends X11ScreenAreaGrabber {
+
+  private static final Logger LOGGER = Logger.getLogger(X11ShmScreenAreaGrabber.class.getName());
+
+  /**
+   * Xlib error handler is global for process, so that errors are trapped under the lock.
+   */
+  private static final Object ERROR_TRAP_LOCK = new Object();
+  private static final AtomicInteger TRAPPED_ERROR = new AtomicInteger();
+  private static volatile Pointer trappedDisplay;
+  /**
+   * Handler is kept in static field to prevent collection of its native callback.
+   */
+  private static final X11.XErrorHandler ERROR_TRAP = (display, errorEvent) -> {
+    if (display != null && display.getPointer().equals(trappedDisplay)) {
+      TRAPPED_ERROR.compareAndSet(0, errorEvent.error_code & 0xFF);
+    } else {
+      LOGGER.warning("X11 error " + (errorEvent.error_code & 0xFF) + " of other display during MIT-SHM check");
+    }
+    return 0;
+  };
+
+  private final X11ShmLib shmLib;
+  private final SysVShmLib sysVShm;
+  private boolean shmEnabled;
+
+  private X11ShmLib.XShmSegmentInfo segmentInfo;
+  private Pointer shmImagePointer;
+  private XImage shmImage;
+  private boolean shmAttached;
+  private boolean shmImageChecked;
+
+  X11ShmScreenAreaGrabber(final GraphicsDevice device) {
+    super(device);
+    X11ShmLib foundShmLib = null;
+    SysVShmLib foundSysVShm = null;
+    try {
+      foundShmLib = X11ShmLib.INSTANCE;
+      foundSysVShm = SysVShmLib.INSTANCE;
+      this.shmEnabled = foundShmLib.XShmQueryExtension(this.display) != 0;
+    } catch (LinkageError ex) {
+      LOGGER.log(Level.WARNING, "Can't load MIT-SHM libraries", ex);
+      this.shmEnabled = false;
+    }
+    this.shmLib = foundShmLib;
+    this.sysVShm = foundSysVShm;
+    LOGGER.info("MIT-SHM extension is " + (this.shmEnabled ? "detected" : "not detected"));
+  }
+
+  private void disableShm(final String reason) {
+    LOGGER.warning("Disable MIT-SHM grabbing: " + reason);
+    this.releaseShmImage();
+    this.shmEnabled = false;
+  }
+
+  /**
+   * Make requests with temporary X11 error handler, requests are synchronized with server to get their errors.
+   *
+   * @param requests X11 requests
+   * @return code of the first X11 error of requests, 0 if there is no error
+   */
+  private int trapErrors(final Runnable requests) {
+    synchronized (ERROR_TRAP_LOCK) {
+      // errors of previous requests go to the current handler
+      this.x11Grab.XSync(this.display, 0);
+      TRAPPED_ERROR.set(0);
+      trappedDisplay = this.display;
+      final X11.XErrorHandler previous = X11.INSTANCE.XSetErrorHandler(ERROR_TRAP);
+      try {
+        requests.run();
+        this.x11Grab.XSync(this.display, 0);
+      } finally {
+        X11.INSTANCE.XSetErrorHandler(previous);
+        trappedDisplay = null;
+      }
+      return TRAPPED_ERROR.get();
+    }
+  }
+
+  private boolean ensureShmImage(final int width, final int height) {
+    if (this.shmImage != null) {
+      if (this.shmImage.width == width && this.shmImage.height == height) {
+        return true;
+      }
+      this.releaseShmImage();
+    }
+
+    final X11ShmLib.XShmSegmentInfo info = new X11ShmLib.XShmSegmentInfo();
+    final Pointer imagePointer = this.shmLib.XShmCreateImage(
+        this.display,
+        this.x11Grab.XDefaultVisual(this.display, this.screen),
+        this.x11Grab.XDefaultDepth(this.display, this.screen),
+        ZPixmap,
+        Pointer.NULL,
+        info,
+        width,
+        height
+    );
+    if (imagePointer == null) {
+      this.disableShm("XShmCreateImage returns NULL");
+      return false;
+    }
+    final XImage image = new XImage(imagePointer);
+
+    info.shmid = this.sysVShm.shmget(SysVShmLib.IPC_PRIVATE,
+        new NativeLong((long) image.bytes_per_line * image.height), SysVShmLib.IPC_CREAT | 0600);
+    if (info.shmid < 0) {
+      this.x11Grab.XDestroyImage(imagePointer);
+      this.disableShm("shmget error");
+      return false;
+    }
+
+    info.shmaddr = this.sysVShm.shmat(info.shmid, Pointer.NULL, 0);
+    if (info.shmaddr == null || Pointer.nativeValue(info.shmaddr) == -1L) {
+      this.sysVShm.shmctl(info.shmid, SysVShmLib.IPC_RMID, Pointer.NULL);
+      this.x11Grab.XDestroyImage(imagePointer);
+      this.disableShm("shmat error");
+      return false;
+    }
+    info.readOnly = 0;
+    info.write();
+
+    image.data = info.shmaddr;
+    image.writeField("data");
+
+    final int[] attachStatus = new int[1];
+    final int attachError = this.trapErrors(() -> attachStatus[0] = this.shmLib.XShmAttach(this.display, info));
+    // segment will be removed automatically after detach of all clients
+    this.sysVShm.shmctl(info.shmid, SysVShmLib.IPC_RMID, Pointer.NULL);
+
+    this.segmentInfo = info;
+    this.shmImagePointer = imagePointer;
+    this.shmImage = image;
+    this.shmAttached = attachStatus[0] != 0 && attachError == 0;
+    this.shmImageChecked = false;
+
+    if (!this.shmAttached) {
+      this.disableShm("XShmAttach error" + (attachError == 0 ? "" : ", X11 error " + attachError));
+      return false;
+    }
+
+    LOGGER.info("Allocated shared image " + width + 'x' + height + ", " + image.bits_per_pixel + " bpp, " + image.bytes_per_line + " bytes per line");
+    return true;
+  }
+
+  private void releaseShmImage() {
+    if (this.segmentInfo != null) {
+      final X11ShmLib.XShmSegmentInfo info = this.segmentInfo;
+      this.segmentInfo = null;
+      try {
+        if (this.shmImagePointer != null) {
+          if (this.shmAttached) {
+            this.shmLib.XShmDetach(this.display, info);
+            this.x11Grab.XSync(this.display, 0);
+          }
+          this.shmImage.data = Pointer.NULL;
+          this.shmImage.writeField("data");
+          this.x11Grab.XDestroyImage(this.shmImagePointer);
+        }
+      } finally {
+        this.sysVShm.shmdt(info.shmaddr);
+        this.shmImagePointer = null;
+        this.shmImage = null;
+        this.shmAttached = false;
+        this.shmImageChecked = false;
+      }
+    }
+  }
+
+  /**
+   * Check that screen is grabbed through MIT-SHM.
+   *
+   * @return false if the extension is not provided or it has been disabled after error
+   */
+  synchronized boolean isShmActive() {
+    return this.shmEnabled;
+  }
+
+  @Override
+  public synchronized void grabAsRgb(final Rectangle area, final int[] target, final int offset, final int scanlineStride) {
+    if (this.closed.get()) {
+      throw new IllegalStateException("Already closed");
+    }
+
+    if (!this.shmEnabled || !this.ensureShmImage(area.width, area.height)) {
+      super.grabAsRgb(area, target, offset, scanlineStride);
+      return;
+    }
+
+    if (!isDirectRgbFormat(this.shmImage)) {
+      this.disableShm("unsupported pixel format " + this.shmImage.bits_per_pixel + " bpp");
+      super.grabAsRgb(area, target, offset, scanlineStride);
+      return;
+    }
+
+    final int[] grabStatus = new int[1];
+    int grabError = 0;
+    if (this.shmImageChecked) {
+      grabStatus[0] = this.shmLib.XShmGetImage(this.display, this.window, this.shmImagePointer, area.x, area.y, this.allPlanes);
+    } else {
+      // the first grab is checked for asynchronous errors, for instance BadAccess or BadMatch
+      grabError = this.trapErrors(() -> grabStatus[0] = this.shmLib.XShmGetImage(this.display, this.window, this.shmImagePointer, area.x, area.y, this.allPlanes));
+      this.shmImageChecked = grabStatus[0] != 0 && grabError == 0;
+    }
+    if (grabStatus[0] == 0 || grabError != 0) {
+      this.disableShm("XShmGetImage error" + (grabError == 0 ? "" : ", X11 error " + grabError));
+      super.grabAsRgb(area, target, offset, scanlineStride);
+      return;
+    }
+
+    readRgbLines(this.segmentInfo.shmaddr, this.shmImage.bytes_per_line,
+        this.shmImage.byte_order == XImage.MSBFIRST, area.width, area.height, target, offset,
+        scanlineStride);
+  }
+
+  @Override
+  public synchronized void close() {
+    if (!this.closed.get()) {
+      try {
+        this.releaseShmImage();
+      } catch (Exception ex) {
+        LOGGER.log(Level.SEVERE, "Error during release of shared image", ex);
+      }
+    }
+    super.close();
+  }
+}
@@ -0,0 +1,124 @@
+package com.igormaznitsa.japagoge.utils;
+
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+/**
+ * Compact RGB index table, colors are grouped into cells of 4x4x4 colors by 18 high bits. Cell is mapped directly if
+ * all its colors have the same palette index, other cells are calculated on the first request and memoized.
+ * Mapping is the same as in full table made by {@link PaletteUtils#makeRgbIndexTable}.
+ */
+public final class CompactRgbIndexTable implements RgbIndexTable {
+
+  private static final int CELL_BITS = 2;
+  private static final int CELL_SIZE = 1 << CELL_BITS;
+  private static final int CELL_MASK = CELL_SIZE - 1;
+  private static final int CELLS = 1 << (3 * (8 - CELL_BITS));
+  private static final short MIXED_CELL = -1;
+
+  private final PaletteKdTree tree;
+  private final short[] coarseTable;
+  private final AtomicReferenceArray<byte[]> mixedCells = new AtomicReferenceArray<>(CELLS);
+
+  private CompactRgbIndexTable(final PaletteKdTree tree, final short[] coarseTable) {
+    this.tree = tree;
+    this.coarseTable = coarseTable;
+  }
+
+  /**
+   * Make table, coarse table is calculated in parallel in the caller's fork join pool.
+   * Simple RGB distance makes convex areas of palette colors, so that cell belongs to one palette color if all its
+   * corners belong to the color. Areas of accurate RGB distance are not convex so that all cells are calculated on demand.
+   *
+   * @param rgbPalette  palette as R,G,B bytes
+   * @param accurateRgb use luminance and hue in color distance
+   * @param cancelled   checked during calculation, calculation is stopped if it returns true
+   * @return made table
+   * @throws CancellationException if calculation has been cancelled
+   */
+  public static CompactRgbIndexTable make(final byte[] rgbPalette, final boolean accurateRgb, final BooleanSupplier cancelled) {
+    final PaletteKdTree tree = new PaletteKdTree(rgbPalette, accurateRgb, false);
+    final short[] coarseTable = new short[CELLS];
+    if (accurateRgb) {
+      Arrays.fill(coarseTable, MIXED_CELL);
+    } else {
+      final int cellsPerAxis = 256 / CELL_SIZE;
+      IntStream.range(0, cellsPerAxis).parallel().forEach(cellR -> {
+        if (cancelled.getAsBoolean()) {
+          throw new CancellationException("RGB index table calculation has been cancelled");
+        }
+        for (int cellG = 0; cellG < cellsPerAxis; cellG++) {
+          for (int cellB = 0; cellB < cellsPerAxis; cellB++) {
+            final int r = cellR << CELL_BITS;
+            final int g = cellG << CELL_BITS;
+            final int b = cellB << CELL_BITS;
+            final int index = tree.findClosest(r, g, b);
+            boolean same = true;
+            for (int corner = 1; corner < 8 && same; corner++) {
+              same = index == tree.findClosest(
+                  r + ((corner & 4) == 0 ? 0 : CELL_MASK),
+                  g + ((corner & 2) == 0 ? 0 : CELL_MASK),
+                  b + ((corner & 1) == 0 ? 0 : CELL_MASK));
+            }
+            coarseTable[(cellR << (2 * (8 - CELL_BITS))) | (cellG << (8 - CELL_BITS)) | cellB] = same ? (short) index : MIXED_CELL;
+          }
+        }
+      });
+    }
+    return new CompactRgbIndexTable(tree, coarseTable);
+  }
+
+  private static int toCell(final int rgb) {
+    return ((rgb >> (16 + CELL_BITS) & 0x3F) << 12) | ((rgb >> (8 + CELL_BITS) & 0x3F) << 6) | (rgb >> CELL_BITS & 0x3F);
+  }
+
+  /**
+   * Get number of cells which are not mapped directly.
+   *
+   * @return number of mixed cells
+   */
+  public int getMixedCells() {
+    int result = 0;
+    for (final short index : this.coarseTable) {
+      if (index == MIXED_CELL) {
+        result++;
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public int findIndex(final int rgb) {
+    final int cell = toCell(rgb);
+    final short index = this.coarseTable[cell];
+    if (index != MIXED_CELL) {
+      return index;
+    }
+    byte[] cellIndexes = this.mixedCells.get(cell);
+    if (cellIndexes == null) {
+      // concurrent calculation of the same cell gives the same result so that any of them can be kept
+      cellIndexes = this.makeCell(rgb & ~((CELL_MASK << 16) | (CELL_MASK << 8) | CELL_MASK));
+      this.mixedCells.lazySet(cell, cellIndexes);
+    }
+    return cellIndexes[((rgb >> 16 & CELL_MASK) << (2 * CELL_BITS)) | ((rgb >> 8 & CELL_MASK) << CELL_BITS) | (rgb & CELL_MASK)] & 0xFF;
+  }
+
+  private byte[] makeCell(final int cellRgb) {
+    final int r = (cellRgb >> 16) & 0xFF;
+    final int g = (cellRgb >> 8) & 0xFF;
+    final int b = cellRgb & 0xFF;
+    final byte[] result = new byte[CELL_SIZE * CELL_SIZE * CELL_SIZE];
+    int offset = 0;
+    for (int dr = 0; dr < CELL_SIZE; dr++) {
+      for (int dg = 0; dg < CELL_SIZE; dg++) {
+        for (int db = 0; db < CELL_SIZE; db++) {
+          result[offset++] = (byte) this.tree.findClosest(r + dr, g + dg, b + db);
+        }
+      }
+    }
+    return result;
+  }
+}
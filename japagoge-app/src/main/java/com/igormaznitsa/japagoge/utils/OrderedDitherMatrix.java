@@ -0,0 +1,163 @@
+package com.igormaznitsa.japagoge.utils;
+
+import java.util.Random;
+
+/**
+ * Threshold matrix for ordered dithering, the matrix is tiled over image and gives offset added to all color
+ * components of pixel. Offset depends only on pixel position so that the same pixels get the same result in all frames.
+ */
+public final class OrderedDitherMatrix {
+
+  /**
+   * Range of offsets, it is about distance between neighbor colors in 256 color palette.
+   */
+  private static final int SPREAD = 32;
+
+  private final int bits;
+  private final int mask;
+  private final int[] offsets;
+
+  private OrderedDitherMatrix(final int size, final int[] ranks) {
+    this.bits = Integer.numberOfTrailingZeros(size);
+    this.mask = size - 1;
+    this.offsets = new int[ranks.length];
+    for (int i = 0; i < ranks.length; i++) {
+      this.offsets[i] = Math.round(((ranks[i] + 0.5f) / ranks.length - 0.5f) * SPREAD);
+    }
+  }
+
+  private static void assertSize(final int size) {
+    if (size < 2 || Integer.bitCount(size) != 1) {
+      throw new IllegalArgumentException("Size must be power of two: " + size);
+    }
+  }
+
+  /**
+   * Make Bayer matrix.
+   *
+   * @param size size of matrix side, power of two
+   * @return made matrix
+   */
+  public static OrderedDitherMatrix bayer(final int size) {
+    assertSize(size);
+    int[] ranks = {0};
+    for (int n = 1; n < size; n <<= 1) {
+      final int side = n << 1;
+      final int[] next = new int[side * side];
+      for (int y = 0; y < side; y++) {
+        for (int x = 0; x < side; x++) {
+          final int quadrant = (y / n) * 2 + x / n;
+          final int quadrantRank = quadrant == 0 ? 0 : quadrant == 1 ? 2 : quadrant == 2 ? 3 : 1;
+          next[y * side + x] = 4 * ranks[(y % n) * n + x % n] + quadrantRank;
+        }
+      }
+      ranks = next;
+    }
+    return new OrderedDitherMatrix(size, ranks);
+  }
+
+  /**
+   * Make blue noise matrix by void-and-cluster method, the result is the same for the same size.
+   *
+   * @param size size of matrix side, power of two
+   * @return made matrix
+   */
+  public static OrderedDitherMatrix blueNoise(final int size) {
+    assertSize(size);
+    final int cells = size * size;
+
+    // gaussian energy filter on torus
+    final float[] kernel = new float[cells];
+    final float sigma = 1.5f;
+    for (int y = 0; y < size; y++) {
+      for (int x = 0; x < size; x++) {
+        final int dx = Math.min(x, size - x);
+        final int dy = Math.min(y, size - y);
+        kernel[y * size + x] = (float) Math.exp(-(dx * dx + dy * dy) / (2.0f * sigma * sigma));
+      }
+    }
+
+    final boolean[] pattern = new boolean[cells];
+    final float[] energy = new float[cells];
+    final Random random = new Random(size);
+    int ones = 0;
+    while (ones < cells / 10) {
+      final int cell = random.nextInt(cells);
+      if (!pattern[cell]) {
+        updateEnergy(size, kernel, energy, cell, 1.0f);
+        pattern[cell] = true;
+        ones++;
+      }
+    }
+
+    // move points from tightest clusters into largest voids until pattern is uniform, limited for safety
+    for (int i = 0; i < cells; i++) {
+      final int cluster = findExtreme(pattern, energy, true);
+      pattern[cluster] = false;
+      updateEnergy(size, kernel, energy, cluster, -1.0f);
+      final int voidCell = findExtreme(pattern, energy, false);
+      pattern[voidCell] = true;
+      updateEnergy(size, kernel, energy, voidCell, 1.0f);
+      if (voidCell == cluster) {
+        break;
+      }
+    }
+
+    final int[] ranks = new int[cells];
+
+    final boolean[] workPattern = pattern.clone();
+    final float[] workEnergy = energy.clone();
+    for (int rank = ones - 1; rank >= 0; rank--) {
+      final int cluster = findExtreme(workPattern, workEnergy, true);
+      workPattern[cluster] = false;
+      updateEnergy(size, kernel, workEnergy, cluster, -1.0f);
+      ranks[cluster] = rank;
+    }
+
+    for (int rank = ones; rank < cells; rank++) {
+      final int voidCell = findExtreme(pattern, energy, false);
+      pattern[voidCell] = true;
+      updateEnergy(size, kernel, energy, voidCell, 1.0f);
+      ranks[voidCell] = rank;
+    }
+    return new OrderedDitherMatrix(size, ranks);
+  }
+
+  private static void updateEnergy(final int size, final float[] kernel, final float[] energy, final int cell, final float sign) {
+    final int cellX = cell % size;
+    final int cellY = cell / size;
+    for (int y = 0; y < size; y++) {
+      final int kernelRow = ((y - cellY + size) % size) * size;
+      for (int x = 0; x < size; x++) {
+        energy[y * size + x] += sign * kernel[kernelRow + (x - cellX + size) % size];
+      }
+    }
+  }
+
+  private static int findExtreme(final boolean[] pattern, final float[] energy, final boolean maxAmongOnes) {
+    int result = -1;
+    for (int i = 0; i < pattern.length; i++) {
+      if (pattern[i] == maxAmongOnes
+          && (result < 0 || (maxAmongOnes ? energy[i] > energy[result] : energy[i] < energy[result]))) {
+        result = i;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Add offset of position to all components of color.
+   *
+   * @param rgb color as 0xRRGGBB
+   * @param x   pixel x
+   * @param y   pixel y
+   * @return dithered color as 0xRRGGBB
+   */
+  public int dither(final int rgb, final int x, final int y) {
+    final int offset = this.offsets[((y & this.mask) << this.bits) | (x & this.mask)];
+    final int r = Math.max(0, Math.min(0xFF, ((rgb >> 16) & 0xFF) + offset));
+    final int g = Math.max(0, Math.min(0xFF, ((rgb >> 8) & 0xFF) + offset));
+    final int b = Math.max(0, Math.min(0xFF, (rgb & 0xFF) + offset));
+    return (r << 16) | (g << 8) | b;
+  }
+}
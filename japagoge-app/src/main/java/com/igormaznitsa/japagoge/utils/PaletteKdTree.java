@@ -0,0 +1,227 @@
+package com.igormaznitsa.japagoge.utils;
+
+import java.util.Arrays;
+
+/**
+ * K-d tree to search the closest palette color, it gives the same result as brute-force scan of palette with the
+ * same color distance. Luminance and hue of palette colors are calculated once during build.
+ * Search is thread safe, but cached search should be used by single thread.
+ */
+public final class PaletteKdTree {
+
+  private static final int CACHE_BITS = 12;
+  private static final int CACHE_MASK = (1 << CACHE_BITS) - 1;
+  private static final int CACHE_VALID = 0x80000000;
+
+  private final boolean accurateRgb;
+  private final boolean lastOnTie;
+  /**
+   * Palette indexes of tree nodes, nodes are stored as implicit balanced tree, root of range is in its middle.
+   */
+  private final int[] nodeIndex;
+  private final int[][] nodeRgb;
+  private final int[] nodeY;
+  private final float[] nodeHue;
+  private final byte[] nodeAxis;
+  /**
+   * Direct mapped cache of recent queries. Slot is defined by xor of high and low 12 bits of color, so that only
+   * high 12 bits are stored together with found index.
+   */
+  private final int[] cache = new int[1 << CACHE_BITS];
+  /**
+   * Search state reused by cached search, so that search doesn't allocate anything.
+   */
+  private final Search cachedSearch = new Search();
+
+  /**
+   * Build tree.
+   *
+   * @param rgbPalette  palette as R,G,B bytes
+   * @param accurateRgb use luminance and hue in color distance, like {@link PaletteUtils#calcAccurateRgbDistance}
+   * @param lastOnTie   if true then the last palette index is selected among colors with the same distance, the first one otherwise
+   */
+  public PaletteKdTree(final byte[] rgbPalette, final boolean accurateRgb, final boolean lastOnTie) {
+    this.accurateRgb = accurateRgb;
+    this.lastOnTie = lastOnTie;
+
+    // equal colors have equal distance so that only one of them, the one selected on tie, is kept
+    final int items = rgbPalette.length / 3;
+    final int[] uniqueIndex = new int[items];
+    final int[] uniqueRgb = new int[items];
+    int uniqueCount = 0;
+    for (int i = 0; i < items; i++) {
+      final int index = lastOnTie ? items - 1 - i : i;
+      final int rgb = ((rgbPalette[index * 3] & 0xFF) << 16) | ((rgbPalette[index * 3 + 1] & 0xFF) << 8) | (rgbPalette[index * 3 + 2] & 0xFF);
+      boolean found = false;
+      for (int j = 0; j < uniqueCount && !found; j++) {
+        found = uniqueRgb[j] == rgb;
+      }
+      if (!found) {
+        uniqueIndex[uniqueCount] = index;
+        uniqueRgb[uniqueCount++] = rgb;
+      }
+    }
+
+    this.nodeIndex = Arrays.copyOf(uniqueIndex, uniqueCount);
+    this.nodeRgb = new int[uniqueCount][];
+    this.nodeY = new int[uniqueCount];
+    this.nodeHue = new float[uniqueCount];
+    this.nodeAxis = new byte[uniqueCount];
+
+    final int[][] rgb = new int[uniqueCount][];
+    for (int i = 0; i < uniqueCount; i++) {
+      final int color = uniqueRgb[i];
+      rgb[i] = new int[] {(color >> 16) & 0xFF, (color >> 8) & 0xFF, color & 0xFF, uniqueIndex[i]};
+    }
+    this.build(rgb, 0, uniqueCount);
+  }
+
+  private void build(final int[][] rgb, final int from, final int to) {
+    if (from >= to) {
+      return;
+    }
+    int axis = 0;
+    int maxSpread = -1;
+    for (int a = 0; a < 3; a++) {
+      int min = Integer.MAX_VALUE;
+      int max = Integer.MIN_VALUE;
+      for (int i = from; i < to; i++) {
+        min = Math.min(min, rgb[i][a]);
+        max = Math.max(max, rgb[i][a]);
+      }
+      if (max - min > maxSpread) {
+        maxSpread = max - min;
+        axis = a;
+      }
+    }
+    final int sortAxis = axis;
+    Arrays.sort(rgb, from, to, (a, b) -> Integer.compare(a[sortAxis], b[sortAxis]));
+
+    final int middle = (from + to) >>> 1;
+    final int[] node = rgb[middle];
+    this.nodeRgb[middle] = new int[] {node[0], node[1], node[2]};
+    this.nodeIndex[middle] = node[3];
+    this.nodeY[middle] = PaletteUtils.toY(node[0], node[1], node[2]);
+    this.nodeHue[middle] = PaletteUtils.toHue(node[0], node[1], node[2]);
+    this.nodeAxis[middle] = (byte) axis;
+
+    this.build(rgb, from, middle);
+    this.build(rgb, middle + 1, to);
+  }
+
+  /**
+   * Find the closest palette color.
+   *
+   * @param r red component
+   * @param g green component
+   * @param b blue component
+   * @return palette index, 0 for empty palette
+   */
+  public int findClosest(final int r, final int g, final int b) {
+    final Search search = new Search();
+    search.start(r, g, b);
+    search.find(0, this.nodeIndex.length);
+    return search.foundIndex;
+  }
+
+  /**
+   * Find the closest palette color through cache of recent queries, must be called by single thread.
+   *
+   * @param rgb color as 0xRRGGBB
+   * @return palette index, 0 for empty palette
+   */
+  public int findClosestCached(final int rgb) {
+    final int color = rgb & 0xFFFFFF;
+    final int high = color >>> CACHE_BITS;
+    final int slot = (color ^ high) & CACHE_MASK;
+    final int entry = this.cache[slot];
+    if (entry != 0 && ((entry >>> 8) & CACHE_MASK) == high) {
+      return entry & 0xFF;
+    }
+    this.cachedSearch.start(color >> 16, (color >> 8) & 0xFF, color & 0xFF);
+    this.cachedSearch.find(0, this.nodeIndex.length);
+    final int result = this.cachedSearch.foundIndex;
+    this.cache[slot] = CACHE_VALID | (high << 8) | result;
+    return result;
+  }
+
+  private final class Search {
+    private int r;
+    private int g;
+    private int b;
+    private int y;
+    private float h;
+    private float distance;
+    private int foundIndex;
+    private boolean found;
+
+    private void start(final int r, final int g, final int b) {
+      this.r = r;
+      this.g = g;
+      this.b = b;
+      if (accurateRgb) {
+        this.y = PaletteUtils.toY(r, g, b);
+        this.h = PaletteUtils.toHue(r, g, b);
+      } else {
+        this.y = 0;
+        this.h = 0;
+      }
+      this.distance = Float.MAX_VALUE;
+      this.foundIndex = 0;
+      this.found = false;
+    }
+
+    private void find(final int from, final int to) {
+      if (from >= to) {
+        return;
+      }
+      final int middle = (from + to) >>> 1;
+      final int[] node = nodeRgb[middle];
+
+      final int dr = this.r - node[0];
+      final int dg = this.g - node[1];
+      final int db = this.b - node[2];
+      final float newDistance;
+      if (accurateRgb) {
+        // the same expression as PaletteUtils.calcAccurateRgbDistance to get the same rounding
+        final int dy = this.y - nodeY[middle];
+        final float dh = this.h - nodeHue[middle];
+        newDistance = dr * dr + dg * dg + db * db + dy * dy + dh * dh;
+      } else {
+        newDistance = dr * dr + dg * dg + db * db;
+      }
+      final int index = nodeIndex[middle];
+      if (!this.found || newDistance < this.distance
+          || (newDistance == this.distance && (lastOnTie ? index > this.foundIndex : index < this.foundIndex))) {
+        this.found = true;
+        this.distance = newDistance;
+        this.foundIndex = index;
+      }
+
+      final int axisDelta;
+      switch (nodeAxis[middle]) {
+        case 0:
+          axisDelta = dr;
+          break;
+        case 1:
+          axisDelta = dg;
+          break;
+        default:
+          axisDelta = db;
+          break;
+      }
+      // square of axis delta is not greater than the distance, colors at the same distance are checked for tie
+      if (axisDelta < 0) {
+        this.find(from, middle);
+        if (axisDelta * axisDelta <= this.distance) {
+          this.find(middle + 1, to);
+        }
+      } else {
+        this.find(middle + 1, to);
+        if (axisDelta * axisDelta <= this.distance) {
+          this.find(from, middle);
+        }
+      }
+    }
+  }
+}
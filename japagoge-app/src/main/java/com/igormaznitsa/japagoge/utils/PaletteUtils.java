@@ -1,10 +1,27 @@
 package com.igormaznitsa.japagoge.utils;
 
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
 import java.util.stream.IntStream;
 
 @SuppressWarnings("unused")
 public final class PaletteUtils {
 
+  /**
+   * Products of color components and luminance weights, the sum of products is the same as direct calculation.
+   */
+  private static final float[] Y_R = new float[256];
+  private static final float[] Y_G = new float[256];
+  private static final float[] Y_B = new float[256];
+
+  static {
+    for (int i = 0; i < 256; i++) {
+      Y_R[i] = i * 0.299f;
+      Y_G[i] = i * 0.587f;
+      Y_B[i] = i * 0.114f;
+    }
+  }
+
   private PaletteUtils() {
   }
 
@@ -20,6 +37,33 @@ public final class PaletteUtils {
     return result;
   }
 
+  /**
+   * Make table to find index of the closest palette color for any 24 bit RGB color, the table is indexed by RGB value.
+   * The table is calculated in parallel in the caller's fork join pool.
+   *
+   * @param rgbPalette  palette as R,G,B bytes
+   * @param accurateRgb use luminance and hue in color distance
+   * @param cancelled   checked during calculation, calculation is stopped if it returns true
+   * @return table of 16777216 palette indexes
+   * @throws CancellationException if calculation has been cancelled
+   */
+  public static byte[] makeRgbIndexTable(final byte[] rgbPalette, final boolean accurateRgb, final BooleanSupplier cancelled) {
+    final PaletteKdTree tree = new PaletteKdTree(rgbPalette, accurateRgb, false);
+    final byte[] result = new byte[256 * 256 * 256];
+
+    // every task fills own block of 64K colors with the same red component
+    IntStream.range(0, 256).parallel().forEach(r -> {
+      if (cancelled.getAsBoolean()) {
+        throw new CancellationException("RGB index table calculation has been cancelled");
+      }
+      final int base = r << 16;
+      for (int gb = 0; gb < 0x10000; gb++) {
+        result[base | gb] = (byte) tree.findClosest(r, gb >> 8, gb & 0xFF);
+      }
+    });
+    return result;
+  }
+
   public static int[] makeGrayscaleRgb256() {
     return IntStream.range(0, 256).map(y -> (y << 16) | (y << 8) | y).toArray();
   }
@@ -110,7 +154,17 @@ public final class PaletteUtils {
   }
 
   public static int toY(final int r, final int g, final int b) {
-    return Math.min(255, Math.round(r * 0.299f + g * 0.587f + b * 0.114f));
+    return Math.min(255, Math.round(Y_R[r] + Y_G[g] + Y_B[b]));
+  }
+
+  /**
+   * Calculate luminance of packed RGB color.
+   *
+   * @param rgb packed RGB color, alpha is ignored
+   * @return luminance, the same as {@link #toY(int, int, int)} returns for the components
+   */
+  public static int toY(final int rgb) {
+    return Math.min(255, Math.round(Y_R[(rgb >> 16) & 0xFF] + Y_G[(rgb >> 8) & 0xFF] + Y_B[rgb & 0xFF]));
   }
 
   public static float toU(final int r, final int g, final int b) {
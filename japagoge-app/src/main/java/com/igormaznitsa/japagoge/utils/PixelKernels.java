@@ -0,0 +1,214 @@
+package com.igormaznitsa.japagoge.utils;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Hot loops of PNG unfiltering, frame comparison and RGB packing. This is scalar implementation compatible with
+ * Java 9, multi-release JAR contains vectorized implementation for Java 17+ which is selected if module
+ * jdk.incubator.vector is resolved, for instance JVM is started with --add-modules=jdk.incubator.vector.
+ * Vectorized implementation can be disabled by system property japagoge.vector.disable=true.
+ * Kernels are stateless and thread safe.
+ */
+public class PixelKernels {
+
+  public static final String PROPERTY_DISABLE_VECTOR = "japagoge.vector.disable";
+
+  private static final VarHandle LONG_VIEW =
+      MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+  private static final PixelKernels INSTANCE = PixelKernelsLoader.load();
+
+  PixelKernels() {
+  }
+
+  public static PixelKernels getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Paeth predictor without branches, it gives the same result as predictor from PNG specification.
+   *
+   * @param a left byte
+   * @param b upper byte
+   * @param c upper left byte
+   * @return predicted byte
+   * @see <a href="https://www.w3.org/TR/2003/REC-PNG-20031110/#9Filter-type-4-Paeth">Paeth filter</a>
+   */
+  public static int paethPredictor(final int a, final int b, final int c) {
+    final int pa = Math.abs(b - c);
+    final int pb = Math.abs(a - c);
+    final int pc = Math.abs(a + b - c - c);
+    // sign of difference is -1 if the first distance is less
+    final int notA = ((pb - pa) | (pc - pa)) >> 31;
+    final int notB = (pc - pb) >> 31;
+    final int bc = b ^ ((b ^ c) & notB);
+    return a ^ ((a ^ bc) & notA);
+  }
+
+  public String getName() {
+    return "scalar";
+  }
+
+  /**
+   * Restore SUB filtered line, filtered bytes are moved to restored position before restoring.
+   *
+   * @param raster         raster contains both filtered and restored lines
+   * @param filteredOffset offset of filtered line bytes, not less than restored offset
+   * @param restoredOffset offset of restored line
+   * @param length         number of bytes in line
+   * @param bpp            bytes per pixel, at least 1
+   */
+  public void unfilterSub(final byte[] raster, final int filteredOffset, final int restoredOffset, final int length, final int bpp) {
+    System.arraycopy(raster, filteredOffset, raster, restoredOffset, length);
+    for (int i = restoredOffset + bpp; i < restoredOffset + length; i++) {
+      raster[i] = (byte) (raster[i] + raster[i - bpp]);
+    }
+  }
+
+  /**
+   * Restore UP filtered line.
+   *
+   * @param raster         raster contains both filtered and restored lines
+   * @param filteredOffset offset of filtered line bytes, greater than restored offset
+   * @param restoredOffset offset of restored line
+   * @param priorOffset    offset of restored prior line
+   * @param length         number of bytes in line
+   */
+  public void unfilterUp(final byte[] raster, final int filteredOffset, final int restoredOffset, final int priorOffset, final int length) {
+    for (int i = 0; i < length; i++) {
+      raster[restoredOffset + i] = (byte) (raster[filteredOffset + i] + raster[priorOffset + i]);
+    }
+  }
+
+  /**
+   * Restore AVERAGE filtered line.
+   *
+   * @param raster         raster contains both filtered and restored lines
+   * @param filteredOffset offset of filtered line bytes, greater than restored offset
+   * @param restoredOffset offset of restored line
+   * @param priorOffset    offset of restored prior line, negative for the first line
+   * @param length         number of bytes in line
+   * @param bpp            bytes per pixel, at least 1
+   */
+  public void unfilterAverage(final byte[] raster, final int filteredOffset, final int restoredOffset, final int priorOffset, final int length, final int bpp) {
+    final int head = Math.min(bpp, length);
+    if (priorOffset < 0) {
+      System.arraycopy(raster, filteredOffset, raster, restoredOffset, head);
+      for (int i = head; i < length; i++) {
+        raster[restoredOffset + i] = (byte) (raster[filteredOffset + i] + ((raster[restoredOffset + i - bpp] & 0xFF) >> 1));
+      }
+    } else {
+      for (int i = 0; i < head; i++) {
+        raster[restoredOffset + i] = (byte) (raster[filteredOffset + i] + ((raster[priorOffset + i] & 0xFF) >> 1));
+      }
+      for (int i = head; i < length; i++) {
+        final int a = raster[restoredOffset + i - bpp] & 0xFF;
+        final int b = raster[priorOffset + i] & 0xFF;
+        raster[restoredOffset + i] = (byte) (raster[filteredOffset + i] + ((a + b) >> 1));
+      }
+    }
+  }
+
+  /**
+   * Restore PAETH filtered line.
+   *
+   * @param raster         raster contains both filtered and restored lines
+   * @param filteredOffset offset of filtered line bytes, greater than restored offset
+   * @param restoredOffset offset of restored line
+   * @param priorOffset    offset of restored prior line, negative for the first line
+   * @param length         number of bytes in line
+   * @param bpp            bytes per pixel, at least 1
+   */
+  public void unfilterPaeth(final byte[] raster, final int filteredOffset, final int restoredOffset, final int priorOffset, final int length, final int bpp) {
+    if (priorOffset < 0) {
+      // predictor is always the left byte for the first line
+      this.unfilterSub(raster, filteredOffset, restoredOffset, length, bpp);
+      return;
+    }
+    final int head = Math.min(bpp, length);
+    for (int i = 0; i < head; i++) {
+      raster[restoredOffset + i] = (byte) (raster[filteredOffset + i] + raster[priorOffset + i]);
+    }
+    for (int i = head; i < length; i++) {
+      final int a = raster[restoredOffset + i - bpp] & 0xFF;
+      final int b = raster[priorOffset + i] & 0xFF;
+      final int c = raster[priorOffset + i - bpp] & 0xFF;
+      raster[restoredOffset + i] = (byte) (raster[filteredOffset + i] + paethPredictor(a, b, c));
+    }
+  }
+
+  /**
+   * Find the first different byte of two arrays.
+   *
+   * @param a    the first array
+   * @param b    the second array
+   * @param from start offset, inclusive
+   * @param to   end offset, exclusive
+   * @return offset of the first different byte, -1 if there is no difference
+   */
+  public int findFirstDifference(final byte[] a, final byte[] b, final int from, final int to) {
+    int index = from;
+    while (index + Long.BYTES <= to) {
+      final long difference = (long) LONG_VIEW.get(a, index) ^ (long) LONG_VIEW.get(b, index);
+      if (difference != 0L) {
+        return index + (Long.numberOfTrailingZeros(difference) >>> 3);
+      }
+      index += Long.BYTES;
+    }
+    while (index < to) {
+      if (a[index] != b[index]) {
+        return index;
+      }
+      index++;
+    }
+    return -1;
+  }
+
+  /**
+   * Find the last different byte of two arrays.
+   *
+   * @param a    the first array
+   * @param b    the second array
+   * @param from start offset, inclusive
+   * @param to   end offset, exclusive
+   * @return offset of the last different byte, -1 if there is no difference
+   */
+  public int findLastDifference(final byte[] a, final byte[] b, final int from, final int to) {
+    int index = to;
+    while (index - Long.BYTES >= from) {
+      final long difference = (long) LONG_VIEW.get(a, index - Long.BYTES) ^ (long) LONG_VIEW.get(b, index - Long.BYTES);
+      if (difference != 0L) {
+        return index - Long.BYTES + ((63 - Long.numberOfLeadingZeros(difference)) >>> 3);
+      }
+      index -= Long.BYTES;
+    }
+    while (index > from) {
+      index--;
+      if (a[index] != b[index]) {
+        return index;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Pack pixels into RGB bytes, three bytes per pixel in R,G,B order, the highest byte of pixel is ignored.
+   *
+   * @param src       source pixels
+   * @param srcOffset offset of first pixel in source
+   * @param length    number of pixels
+   * @param dst       destination buffer
+   * @param dstOffset offset of first byte in destination
+   */
+  public void packRgb(final int[] src, final int srcOffset, final int length, final byte[] dst, final int dstOffset) {
+    int dstPos = dstOffset;
+    for (int i = srcOffset; i < srcOffset + length; i++) {
+      final int rgb = src[i];
+      dst[dstPos++] = (byte) (rgb >> 16);
+      dst[dstPos++] = (byte) (rgb >> 8);
+      dst[dstPos++] = (byte) rgb;
+    }
+  }
+}
@@ -0,0 +1,14 @@
+package com.igormaznitsa.japagoge.utils;
+
+/**
+ * Loader of pixel kernels, it is replaced by Java 17 version in multi-release JAR.
+ */
+final class PixelKernelsLoader {
+
+  private PixelKernelsLoader() {
+  }
+
+  static PixelKernels load() {
+    return new PixelKernels();
+  }
+}
@@ -1,146 +1,148 @@
 package com.igormaznitsa.japagoge.utils;
 
 public enum PngMode {
-  MODE_GRAYSCALE_1(1, 1, 1, (samples, rgb, palette, rgbOffset) -> {
-    final byte level = (samples & 1L) == 0L ? 0 : (byte) 0xFF;
-    rgb[rgbOffset++] = level;
-    rgb[rgbOffset++] = level;
-    rgb[rgbOffset] = level;
-    return 0xFF;
-  }),
+  MODE_GRAYSCALE_1(1, 1, 1, (raster, offset, width, palette, dst, dstOffset) -> decodeGrayscaleBits(raster, offset, width, dst, dstOffset, 1)),
 
-  MODE_GRAYSCALE_2(1, 1, 2, (samples, rgb, palette, rgbOffset) -> {
-    final byte level = (byte) (Math.min(0xFF, (0x100 / 4) * (samples & 3L) * 85));
-    rgb[rgbOffset++] = level;
-    rgb[rgbOffset++] = level;
-    rgb[rgbOffset] = level;
-    return 0xFF;
-  }),
+  MODE_GRAYSCALE_2(1, 1, 2, (raster, offset, width, palette, dst, dstOffset) -> decodeGrayscaleBits(raster, offset, width, dst, dstOffset, 2)),
 
-  MODE_GRAYSCALE_4(1, 1, 4, (samples, rgb, palette, rgbOffset) -> {
-    final byte level = (byte) (Math.min(0xFF, (0x100 / 16) * (samples & 0x0FL) * 85));
-    rgb[rgbOffset++] = level;
-    rgb[rgbOffset++] = level;
-    rgb[rgbOffset] = level;
-    return 0xFF;
-  }),
+  MODE_GRAYSCALE_4(1, 1, 4, (raster, offset, width, palette, dst, dstOffset) -> decodeGrayscaleBits(raster, offset, width, dst, dstOffset, 4)),
 
-  MODE_GRAYSCALE_8(1, 1, 8, (samples, rgb, palette, rgbOffset) -> {
-    final byte level = (byte) (samples & 0xFFL);
-    rgb[rgbOffset++] = level;
-    rgb[rgbOffset++] = level;
-    rgb[rgbOffset] = level;
-    return 0xFF;
+  MODE_GRAYSCALE_8(1, 1, 8, (raster, offset, width, palette, dst, dstOffset) -> {
+    for (int x = 0; x < width; x++) {
+      dst[dstOffset + x] = (raster[offset + x] & 0xFF) * 0x010101;
+    }
+    return -1L;
   }),
 
-  MODE_GRAYSCALE_16(2, 1, 16, (samples, rgb, palette, rgbOffset) -> {
-    final byte level = (byte) ((samples >> 8) & 0xFFL);
-    rgb[rgbOffset++] = level;
-    rgb[rgbOffset++] = level;
-    rgb[rgbOffset] = level;
-    return 0xFF;
+  MODE_GRAYSCALE_16(2, 1, 16, (raster, offset, width, palette, dst, dstOffset) -> {
+    for (int x = 0; x < width; x++) {
+      dst[dstOffset + x] = (raster[offset + x * 2] & 0xFF) * 0x010101;
+    }
+    return -1L;
   }),
 
-  MODE_RGB_8(3, 3, 8, (samples, rgb, palette, rgbOffset) -> {
-    rgb[rgbOffset++] = (byte) (samples >> 16);
-    rgb[rgbOffset++] = (byte) (samples >> 8);
-    rgb[rgbOffset] = (byte) samples;
-    return 0xFF;
+  MODE_RGB_8(3, 3, 8, (raster, offset, width, palette, dst, dstOffset) -> {
+    int position = offset;
+    for (int x = 0; x < width; x++) {
+      dst[dstOffset + x] = ((raster[position] & 0xFF) << 16) | ((raster[position + 1] & 0xFF) << 8) | (raster[position + 2] & 0xFF);
+      position += 3;
+    }
+    return -1L;
   }),
 
-  MODE_RGB_16(6, 3, 16, (samples, rgb, palette, rgbOffset) -> {
-    rgb[rgbOffset++] = (byte) (samples >> 40);
-    rgb[rgbOffset++] = (byte) (samples >> 24);
-    rgb[rgbOffset] = (byte) (samples >> 8);
-    return 0xFF;
+  MODE_RGB_16(6, 3, 16, (raster, offset, width, palette, dst, dstOffset) -> {
+    int position = offset;
+    for (int x = 0; x < width; x++) {
+      dst[dstOffset + x] = ((raster[position] & 0xFF) << 16) | ((raster[position + 2] & 0xFF) << 8) | (raster[position + 4] & 0xFF);
+      position += 6;
+    }
+    return -1L;
   }),
 
-  MODE_INDEX_1(1, 1, 1, (samples, rgb, palette, rgbOffset) -> {
-    int paletteIndex = ((int) samples & 1) * 3;
-    rgb[rgbOffset++] = palette[paletteIndex++];
-    rgb[rgbOffset++] = palette[paletteIndex++];
-    rgb[rgbOffset] = palette[paletteIndex];
-    return -1;
-  }),
+  MODE_INDEX_1(1, 1, 1, (raster, offset, width, palette, dst, dstOffset) -> decodeIndexBits(raster, offset, width, palette, dst, dstOffset, 1)),
 
-  MODE_INDEX_2(1, 1, 2, (samples, rgb, palette, rgbOffset) -> {
-    int paletteIndex = ((int) samples & 0x03) * 3;
-    rgb[rgbOffset++] = palette[paletteIndex++];
-    rgb[rgbOffset++] = palette[paletteIndex++];
-    rgb[rgbOffset] = palette[paletteIndex];
-    return -1;
-  }),
+  MODE_INDEX_2(1, 1, 2, (raster, offset, width, palette, dst, dstOffset) -> decodeIndexBits(raster, offset, width, palette, dst, dstOffset, 2)),
 
-  MODE_INDEX_4(1, 1, 4, (samples, rgb, palette, rgbOffset) -> {
-    int paletteIndex = ((int) samples & 0x0F) * 3;
-    rgb[rgbOffset++] = palette[paletteIndex++];
-    rgb[rgbOffset++] = palette[paletteIndex++];
-    rgb[rgbOffset] = palette[paletteIndex];
-    return -1;
-  }),
+  MODE_INDEX_4(1, 1, 4, (raster, offset, width, palette, dst, dstOffset) -> decodeIndexBits(raster, offset, width, palette, dst, dstOffset, 4)),
 
-  MODE_INDEX_8(1, 1, 8, (samples, rgb, palette, rgbOffset) -> {
-    int paletteIndex = ((int) samples & 0xFF) * 3;
-    rgb[rgbOffset++] = palette[paletteIndex++];
-    rgb[rgbOffset++] = palette[paletteIndex++];
-    rgb[rgbOffset] = palette[paletteIndex];
-    return -1;
-  }),
+  MODE_INDEX_8(1, 1, 8, (raster, offset, width, palette, dst, dstOffset) -> decodeIndexBits(raster, offset, width, palette, dst, dstOffset, 8)),
 
-  MODE_GRAYSCALE_ALPHA_8(2, 2, 8, (samples, rgb, palette, rgbOffset) -> {
-    int level = (int) (samples >> 8) & 0xFF;
-    int alpha = (int) samples & 0xFF;
-    final byte l = (byte) Math.round(level * (alpha / 255.0f));
-    rgb[rgbOffset++] = l;
-    rgb[rgbOffset++] = l;
-    rgb[rgbOffset] = l;
-    return alpha;
-  }),
+  MODE_GRAYSCALE_ALPHA_8(2, 2, 8, (raster, offset, width, palette, dst, dstOffset) -> decodeGrayscaleAlpha(raster, offset, width, dst, dstOffset, 2)),
 
-  MODE_GRAYSCALE_ALPHA_16(3, 2, 16, (samples, rgb, palette, rgbOffset) -> {
-    int level = (int) (samples >> 24) & 0xFF;
-    int alpha = (int) (samples >> 8) & 0xFF;
-    final byte l = (byte) Math.round(level * (alpha / 255.0f));
-    rgb[rgbOffset++] = l;
-    rgb[rgbOffset++] = l;
-    rgb[rgbOffset] = l;
-    return alpha;
-  }),
+  MODE_GRAYSCALE_ALPHA_16(3, 2, 16, (raster, offset, width, palette, dst, dstOffset) -> decodeGrayscaleAlpha(raster, offset, width, dst, dstOffset, 4)),
 
-  MODE_RGB_ALPHA_8(4, 4, 8, (samples, rgb, palette, rgbOffset) -> {
-    final int a = (int) samples & 0xFF;
-    final int r = (int) (samples >> 24) & 0xFF;
-    final int g = (int) (samples >> 16) & 0xFF;
-    final int b = (int) (samples >> 8) & 0xFF;
-    final float alpha = a / 255.0f;
-    rgb[rgbOffset++] = (byte) Math.round(r * alpha);
-    rgb[rgbOffset++] = (byte) Math.round(g * alpha);
-    rgb[rgbOffset] = (byte) Math.round(b * alpha);
-    return a;
-  }),
+  MODE_RGB_ALPHA_8(4, 4, 8, (raster, offset, width, palette, dst, dstOffset) -> decodeRgbAlpha(raster, offset, width, dst, dstOffset, 4)),
+
+  MODE_RGB_ALPHA_16(7, 4, 16, (raster, offset, width, palette, dst, dstOffset) -> decodeRgbAlpha(raster, offset, width, dst, dstOffset, 8));
 
-  MODE_RGB_ALPHA_16(7, 4, 16, (samples, rgb, palette, rgbOffset) -> {
-    final int a = (int) (samples >> 8) & 0xFF;
-    final int r = (int) (samples >> 56) & 0xFF;
-    final int g = (int) (samples >> 40) & 0xFF;
-    final int b = (int) (samples >> 24) & 0xFF;
-    final float alpha = a / 255.0f;
-    rgb[rgbOffset++] = (byte) Math.round(r * alpha);
-    rgb[rgbOffset++] = (byte) Math.round(g * alpha);
-    rgb[rgbOffset] = (byte) Math.round(b * alpha);
-    return a;
-  });
+  /**
+   * Premultiplied color components, index is (alpha << 8) | component.
+   */
+  private static final byte[] PREMULTIPLIED = makePremultipliedTable();
 
   private final int samples;
   private final int bytesPerPixel;
   private final int bitsPerSample;
-  private final SamplesToRgb samplesToRgbProcessor;
+  private final RowDecoder rowDecoder;
 
-  PngMode(final int bytesPerPixel, final int samples, final int bitsPerPixel, final SamplesToRgb samplesToRgb) {
+  PngMode(final int bytesPerPixel, final int samples, final int bitsPerPixel, final RowDecoder rowDecoder) {
     this.bytesPerPixel = bytesPerPixel;
     this.samples = samples;
     this.bitsPerSample = bitsPerPixel;
-    this.samplesToRgbProcessor = samplesToRgb;
+    this.rowDecoder = rowDecoder;
+  }
+
+  private static byte[] makePremultipliedTable() {
+    final byte[] result = new byte[256 * 256];
+    for (int a = 0; a < 256; a++) {
+      final float alpha = a / 255.0f;
+      for (int c = 0; c < 256; c++) {
+        result[(a << 8) | c] = (byte) Math.round(c * alpha);
+      }
+    }
+    return result;
+  }
+
+  private static long decodeGrayscaleBits(final byte[] raster, final int offset, final int width, final int[] dst, final int dstOffset, final int bitDepth) {
+    final int mask = (1 << bitDepth) - 1;
+    final int levelScale = 0xFF / mask;
+    for (int x = 0; x < width; x++) {
+      final int bitPosition = x * bitDepth;
+      final int sample = (raster[offset + (bitPosition >> 3)] >> (8 - bitDepth - (bitPosition & 7))) & mask;
+      dst[dstOffset + x] = sample * levelScale * 0x010101;
+    }
+    return -1L;
+  }
+
+  private static long decodeIndexBits(final byte[] raster, final int offset, final int width, final byte[] palette, final int[] dst, final int dstOffset, final int bitDepth) {
+    final int mask = (1 << bitDepth) - 1;
+    for (int x = 0; x < width; x++) {
+      final int bitPosition = x * bitDepth;
+      final int paletteOffset = ((raster[offset + (bitPosition >> 3)] >> (8 - bitDepth - (bitPosition & 7))) & mask) * 3;
+      dst[dstOffset + x] = ((palette[paletteOffset] & 0xFF) << 16) | ((palette[paletteOffset + 1] & 0xFF) << 8) | (palette[paletteOffset + 2] & 0xFF);
+    }
+    return -1L;
+  }
+
+  private static long decodeGrayscaleAlpha(final byte[] raster, final int offset, final int width, final int[] dst, final int dstOffset, final int pixelBytes) {
+    // only high bytes of 16 bit samples are used
+    final int alphaOffset = pixelBytes >> 1;
+    long result = -1L;
+    int minAlpha = 0xFF;
+    int position = offset;
+    for (int x = 0; x < width; x++) {
+      final int alpha = raster[position + alphaOffset] & 0xFF;
+      final int level = PREMULTIPLIED[(alpha << 8) | (raster[position] & 0xFF)] & 0xFF;
+      dst[dstOffset + x] = level * 0x010101;
+      if (alpha < minAlpha) {
+        minAlpha = alpha;
+        result = ((long) alpha << 32) | x;
+      }
+      position += pixelBytes;
+    }
+    return result;
+  }
+
+  private static long decodeRgbAlpha(final byte[] raster, final int offset, final int width, final int[] dst, final int dstOffset, final int pixelBytes) {
+    // only high bytes of 16 bit samples are used
+    final int sampleStep = pixelBytes >> 2;
+    long result = -1L;
+    int minAlpha = 0xFF;
+    int position = offset;
+    for (int x = 0; x < width; x++) {
+      final int alpha = raster[position + sampleStep * 3] & 0xFF;
+      final int alphaBase = alpha << 8;
+      final int r = PREMULTIPLIED[alphaBase | (raster[position] & 0xFF)] & 0xFF;
+      final int g = PREMULTIPLIED[alphaBase | (raster[position + sampleStep] & 0xFF)] & 0xFF;
+      final int b = PREMULTIPLIED[alphaBase | (raster[position + sampleStep * 2] & 0xFF)] & 0xFF;
+      dst[dstOffset + x] = (r << 16) | (g << 8) | b;
+      if (alpha < minAlpha) {
+        minAlpha = alpha;
+        result = ((long) alpha << 32) | x;
+      }
+      position += pixelBytes;
+    }
+    return result;
   }
 
   public static PngMode find(final int colorType, final int bitDepth) {
@@ -215,8 +217,20 @@ public enum PngMode {
     return this.bytesPerPixel;
   }
 
-  public int applySamplesAndGetAlpha(final long samples, final byte[] rgb, final byte[] optionalRgbPalette, final int rgbOffset) {
-    return this.samplesToRgbProcessor.apply(samples, rgb, optionalRgbPalette, rgbOffset);
+  /**
+   * Decode row of unfiltered raster into RGB pixels, color components are premultiplied by alpha.
+   *
+   * @param raster             unfiltered raster
+   * @param offset             offset of row start in raster
+   * @param width              number of pixels in row
+   * @param optionalRgbPalette palette for indexed modes, can be null for other ones
+   * @param dst                destination for pixels as 0xRRGGBB
+   * @param dstOffset          offset in destination
+   * @return -1 if there is no pixel with alpha less than 255 in row, otherwise (alpha &lt;&lt; 32) | x of the first
+   * pixel with the lowest alpha
+   */
+  public long decodeRow(final byte[] raster, final int offset, final int width, final byte[] optionalRgbPalette, final int[] dst, final int dstOffset) {
+    return this.rowDecoder.decode(raster, offset, width, optionalRgbPalette, dst, dstOffset);
   }
 
   public int getSamples() {
@@ -245,7 +259,7 @@ public enum PngMode {
   }
 
   @FunctionalInterface
-  private interface SamplesToRgb {
-    int apply(long samples, byte[] rgb, byte[] optionalRgbPalette, int rgbOffset);
+  private interface RowDecoder {
+    long decode(byte[] raster, int offset, int width, byte[] optionalRgbPalette, int[] dst, int dstOffset);
   }
 }
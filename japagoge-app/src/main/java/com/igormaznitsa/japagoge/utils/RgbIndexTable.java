@@ -0,0 +1,29 @@
+package com.igormaznitsa.japagoge.utils;
+
+/**
+ * Table to find index of the closest palette color for 24 bit RGB color.
+ */
+@FunctionalInterface
+public interface RgbIndexTable {
+
+  /**
+   * Wrap full table of 16777216 palette indexes.
+   *
+   * @param table table indexed by RGB value
+   * @return table for the array
+   */
+  static RgbIndexTable of(final byte[] table) {
+    if (table.length != 256 * 256 * 256) {
+      throw new IllegalArgumentException("Unexpected table size: " + table.length);
+    }
+    return rgb -> table[rgb & 0xFFFFFF] & 0xFF;
+  }
+
+  /**
+   * Find palette index for color, the method is thread safe.
+   *
+   * @param rgb color as 0xRRGGBB, upper byte is ignored
+   * @return palette index
+   */
+  int findIndex(int rgb);
+}
@@ -0,0 +1,162 @@
+package com.igormaznitsa.japagoge.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Disk cache of RGB to palette index tables, tables are stored in files named by hash of palette and distance mode.
+ * Files are read fully into memory and closed, they are not kept open or mapped so that they can be replaced or removed
+ * on any OS. The least recently used files are removed if there are too many of them.
+ */
+public final class RgbIndexTableCache {
+
+  public static final int DEFAULT_MAX_TABLES = 8;
+
+  private static final Logger LOGGER = Logger.getLogger("RgbIndexTableCache");
+
+  private static final String FILE_PREFIX = ".japagoge-rgbidx-";
+  private static final String FILE_EXTENSION = ".tbl";
+  /**
+   * Must be changed if calculation of table is changed.
+   */
+  private static final int FORMAT_VERSION = 1;
+  private static final int TABLE_SIZE = 256 * 256 * 256;
+
+  private final File folder;
+  private final int maxTables;
+
+  public RgbIndexTableCache(final File folder, final int maxTables) {
+    if (maxTables < 1) {
+      throw new IllegalArgumentException("Max tables must be positive: " + maxTables);
+    }
+    this.folder = folder;
+    this.maxTables = maxTables;
+  }
+
+  /**
+   * Make cache in temp folder, default system temp folder is used if path is blank.
+   *
+   * @param tempFolderPath path to temp folder, can be null or blank
+   * @return cache for the folder
+   */
+  public static RgbIndexTableCache forTempFolder(final String tempFolderPath) {
+    final File tempFolder = tempFolderPath == null || tempFolderPath.trim().isEmpty() ? new File(System.getProperty("java.io.tmpdir")) : new File(tempFolderPath);
+    return new RgbIndexTableCache(tempFolder, DEFAULT_MAX_TABLES);
+  }
+
+  private static String makeKey(final byte[] rgbPalette, final boolean accurateRgb) {
+    try {
+      final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      digest.update((byte) FORMAT_VERSION);
+      digest.update((byte) (accurateRgb ? 1 : 0));
+      digest.update(rgbPalette);
+      final StringBuilder result = new StringBuilder();
+      for (final byte b : digest.digest()) {
+        result.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+      }
+      return result.toString();
+    } catch (NoSuchAlgorithmException ex) {
+      throw new Error("Can't find SHA-256", ex);
+    }
+  }
+
+  public File getFolder() {
+    return this.folder;
+  }
+
+  private File makeFile(final byte[] rgbPalette, final boolean accurateRgb) {
+    return new File(this.folder, FILE_PREFIX + makeKey(rgbPalette, accurateRgb) + FILE_EXTENSION);
+  }
+
+  /**
+   * Check that table is in cache.
+   *
+   * @param rgbPalette  palette as R,G,B bytes
+   * @param accurateRgb distance mode of the table
+   * @return true if table is cached
+   */
+  public boolean isCached(final byte[] rgbPalette, final boolean accurateRgb) {
+    final File file = this.makeFile(rgbPalette, accurateRgb);
+    return file.isFile() && file.length() == TABLE_SIZE;
+  }
+
+  /**
+   * Find table in cache or make and save it.
+   *
+   * @param rgbPalette  palette as R,G,B bytes
+   * @param accurateRgb distance mode of the table
+   * @param maker       makes table if it is not cached, can return null if making has been interrupted
+   * @return found or made table, null if maker returned null
+   */
+  public byte[] findOrMake(final byte[] rgbPalette, final boolean accurateRgb, final Supplier<byte[]> maker) {
+    final File file = this.makeFile(rgbPalette, accurateRgb);
+    final byte[] cached = this.load(file);
+    if (cached != null) {
+      LOGGER.info("Loaded cached RGB index table: " + file);
+      return cached;
+    }
+    final byte[] result = maker.get();
+    if (result != null && result.length == TABLE_SIZE) {
+      this.save(file, result);
+      this.removeLeastRecentlyUsed();
+    }
+    return result;
+  }
+
+  private byte[] load(final File file) {
+    if (!file.isFile() || file.length() != TABLE_SIZE) {
+      return null;
+    }
+    try {
+      final byte[] result = Files.readAllBytes(file.toPath());
+      if (result.length != TABLE_SIZE) {
+        LOGGER.warning("Unexpected size of cached RGB index table: " + file);
+        return null;
+      }
+      if (!file.setLastModified(System.currentTimeMillis())) {
+        LOGGER.fine("Can't update last modified time: " + file);
+      }
+      return result;
+    } catch (IOException ex) {
+      LOGGER.log(Level.WARNING, "Can't read cached RGB index table: " + file, ex);
+      return null;
+    }
+  }
+
+  private void save(final File file, final byte[] table) {
+    try {
+      final File tempFile = File.createTempFile(FILE_PREFIX, ".tmp", this.folder);
+      try {
+        Files.write(tempFile.toPath(), table);
+        Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        LOGGER.info("Saved RGB index table into cache: " + file);
+      } finally {
+        Files.deleteIfExists(tempFile.toPath());
+      }
+    } catch (IOException ex) {
+      LOGGER.log(Level.WARNING, "Can't save RGB index table into cache: " + file, ex);
+    }
+  }
+
+  private void removeLeastRecentlyUsed() {
+    final File[] files = this.folder.listFiles((dir, name) -> name.startsWith(FILE_PREFIX) && name.endsWith(FILE_EXTENSION));
+    if (files == null || files.length <= this.maxTables) {
+      return;
+    }
+    Arrays.sort(files, Comparator.comparingLong(File::lastModified).reversed());
+    for (int i = this.maxTables; i < files.length; i++) {
+      if (files[i].delete()) {
+        LOGGER.info("Removed cached RGB index table: " + files[i]);
+      }
+    }
+  }
+}
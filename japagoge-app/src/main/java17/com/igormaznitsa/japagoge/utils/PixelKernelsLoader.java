@@ -0,0 +1,34 @@
+package com.igormaznitsa.japagoge.utils;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Loader of pixel kernels for Java 17+, vectorized kernels are used if module jdk.incubator.vector is resolved.
+ */
+final class PixelKernelsLoader {
+
+  private static final Logger LOGGER = Logger.getLogger("PixelKernels");
+
+  private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+  private PixelKernelsLoader() {
+  }
+
+  static PixelKernels load() {
+    if (Boolean.getBoolean(PixelKernels.PROPERTY_DISABLE_VECTOR)) {
+      LOGGER.info("Vector pixel kernels are disabled by property");
+    } else if (ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent()) {
+      try {
+        final PixelKernels result = new VectorPixelKernels();
+        LOGGER.info("Pixel kernels: " + result.getName());
+        return result;
+      } catch (LinkageError | RuntimeException ex) {
+        LOGGER.log(Level.WARNING, "Can't init vector pixel kernels", ex);
+      }
+    } else {
+      LOGGER.fine("Module " + VECTOR_MODULE + " is not resolved, scalar pixel kernels are used");
+    }
+    return new PixelKernels();
+  }
+}
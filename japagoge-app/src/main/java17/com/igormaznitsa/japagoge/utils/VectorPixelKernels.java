@@ -0,0 +1,147 @@
+package com.igormaznitsa.japagoge.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Pixel kernels vectorized by Vector API, bytes not fitting whole vector are processed by scalar code.
+ * AVERAGE and PAETH filters depend on just restored left byte so that they are kept scalar.
+ */
+final class VectorPixelKernels extends PixelKernels {
+
+  private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_PREFERRED;
+  private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+
+  /**
+   * Max bytes per pixel in PNG modes.
+   */
+  private static final int MAX_BPP = 8;
+
+  /**
+   * Shuffles to repeat the last pixel of vector over all lanes, index is bytes per pixel.
+   */
+  private final List<VectorShuffle<Byte>> lastPixelShuffles;
+  /**
+   * Shuffle to place R,G,B bytes of little endian integers one by one.
+   */
+  private final VectorShuffle<Byte> rgbShuffle;
+  private final int rgbPixelsPerVector;
+
+  VectorPixelKernels() {
+    super();
+    if (BYTES.vectorShape() != INTS.vectorShape() || BYTES.length() < MAX_BPP * 2) {
+      throw new IllegalStateException("Unsupported vector shape: " + BYTES);
+    }
+    final int lanes = BYTES.length();
+    final List<VectorShuffle<Byte>> shuffles = new ArrayList<>(MAX_BPP + 1);
+    shuffles.add(null);
+    for (int bpp = 1; bpp <= MAX_BPP; bpp++) {
+      final int pixelBytes = bpp;
+      shuffles.add(VectorShuffle.fromOp(BYTES, lane -> lanes - pixelBytes + lane % pixelBytes));
+    }
+    this.lastPixelShuffles = Collections.unmodifiableList(shuffles);
+    this.rgbPixelsPerVector = INTS.length();
+    final int rgbBytes = this.rgbPixelsPerVector * 3;
+    this.rgbShuffle = VectorShuffle.fromOp(BYTES, lane -> lane < rgbBytes ? (lane / 3) * 4 + 2 - lane % 3 : 0);
+  }
+
+  @Override
+  public String getName() {
+    return "vector " + BYTES.vectorBitSize() + " bits";
+  }
+
+  @Override
+  public void unfilterSub(final byte[] raster, final int filteredOffset, final int restoredOffset, final int length, final int bpp) {
+    if (bpp > MAX_BPP) {
+      super.unfilterSub(raster, filteredOffset, restoredOffset, length, bpp);
+      return;
+    }
+    System.arraycopy(raster, filteredOffset, raster, restoredOffset, length);
+
+    // left byte sums are calculated as prefix sums with step of pixel inside vector,
+    // the last restored pixel of previous vector is added to all pixels
+    final int lanes = BYTES.length();
+    final VectorShuffle<Byte> lastPixel = this.lastPixelShuffles.get(bpp);
+    ByteVector carry = ByteVector.zero(BYTES);
+    int i = 0;
+    final int bound = BYTES.loopBound(length);
+    for (; i < bound; i += lanes) {
+      ByteVector vector = ByteVector.fromArray(BYTES, raster, restoredOffset + i);
+      for (int shift = bpp; shift < lanes; shift <<= 1) {
+        vector = vector.add(vector.unslice(shift));
+      }
+      vector = vector.add(carry);
+      vector.intoArray(raster, restoredOffset + i);
+      carry = vector.rearrange(lastPixel);
+    }
+    for (i = Math.max(i, bpp); i < length; i++) {
+      raster[restoredOffset + i] = (byte) (raster[restoredOffset + i] + raster[restoredOffset + i - bpp]);
+    }
+  }
+
+  @Override
+  public void unfilterUp(final byte[] raster, final int filteredOffset, final int restoredOffset, final int priorOffset, final int length) {
+    int i = 0;
+    final int bound = BYTES.loopBound(length);
+    for (; i < bound; i += BYTES.length()) {
+      ByteVector.fromArray(BYTES, raster, filteredOffset + i)
+          .add(ByteVector.fromArray(BYTES, raster, priorOffset + i))
+          .intoArray(raster, restoredOffset + i);
+    }
+    for (; i < length; i++) {
+      raster[restoredOffset + i] = (byte) (raster[filteredOffset + i] + raster[priorOffset + i]);
+    }
+  }
+
+  @Override
+  public int findFirstDifference(final byte[] a, final byte[] b, final int from, final int to) {
+    final int lanes = BYTES.length();
+    int index = from;
+    for (; index + lanes <= to; index += lanes) {
+      final VectorMask<Byte> difference = ByteVector.fromArray(BYTES, a, index)
+          .compare(VectorOperators.NE, ByteVector.fromArray(BYTES, b, index));
+      if (difference.anyTrue()) {
+        return index + difference.firstTrue();
+      }
+    }
+    return super.findFirstDifference(a, b, index, to);
+  }
+
+  @Override
+  public int findLastDifference(final byte[] a, final byte[] b, final int from, final int to) {
+    final int lanes = BYTES.length();
+    int index = to;
+    for (; index - lanes >= from; index -= lanes) {
+      final VectorMask<Byte> difference = ByteVector.fromArray(BYTES, a, index - lanes)
+          .compare(VectorOperators.NE, ByteVector.fromArray(BYTES, b, index - lanes));
+      if (difference.anyTrue()) {
+        return index - lanes + difference.lastTrue();
+      }
+    }
+    return super.findLastDifference(a, b, from, index);
+  }
+
+  @Override
+  public void packRgb(final int[] src, final int srcOffset, final int length, final byte[] dst, final int dstOffset) {
+    // whole vector is written but only its first part contains pixels, so that the rest must fit the row
+    final int lanes = BYTES.length();
+    final int dstEnd = dstOffset + length * 3;
+    int i = 0;
+    int dstPos = dstOffset;
+    for (; i + this.rgbPixelsPerVector <= length && dstPos + lanes <= dstEnd; i += this.rgbPixelsPerVector) {
+      IntVector.fromArray(INTS, src, srcOffset + i)
+          .reinterpretAsBytes()
+          .rearrange(this.rgbShuffle)
+          .intoArray(dst, dstPos);
+      dstPos += this.rgbPixelsPerVector * 3;
+    }
+    super.packRgb(src, srcOffset + i, length - i, dst, dstPos);
+  }
+}
@@ -0,0 +1,141 @@
+package com.igormaznitsa.japagoge;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.igormaznitsa.japagoge.filters.RgbPixelFilter;
+import com.igormaznitsa.japagoge.utils.Palette256;
+import com.igormaznitsa.japagoge.utils.RgbIndexTableCache;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Check that conversion of APNG to GIF doesn't allocate frame sized arrays for every frame. Allocation of all threads
+ * is measured by {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)} for two multi-frame 1440p
+ * APNGs with different number of frames, so that allocation of conversion start is excluded by difference.
+ */
+class APngToGifConvertingWorkerTest {
+
+  private static final Logger LOGGER = Logger.getLogger("APngToGifConvertingWorkerTest");
+
+  private static final int WIDTH = 2560;
+  private static final int HEIGHT = 1440;
+  private static final int FEW_FRAMES = 4;
+  private static final int MANY_FRAMES = 12;
+
+  @TempDir
+  static File tempFolder;
+
+  private static File fewFramesApng;
+  private static File manyFramesApng;
+
+  @BeforeAll
+  static void makeApngs() throws IOException {
+    fewFramesApng = makeApng(new File(tempFolder, "few.png"), FEW_FRAMES);
+    manyFramesApng = makeApng(new File(tempFolder, "many.png"), MANY_FRAMES);
+  }
+
+  /**
+   * Make APNG of whole frames, every frame has gradient background, noise area and moving rectangle.
+   */
+  private static File makeApng(final File file, final int frames) throws IOException {
+    final BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+    final int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    final Random random = new Random(0x1440);
+    try (final FileOutputStream outputStream = new FileOutputStream(file)) {
+      final APngWriter writer = new APngWriter(outputStream.getChannel(), RgbPixelFilter.RGB);
+      writer.start("test", WIDTH, HEIGHT);
+      for (int frame = 0; frame < frames; frame++) {
+        for (int y = 0; y < HEIGHT; y++) {
+          for (int x = 0; x < WIDTH; x++) {
+            final int rgb;
+            if (x < 256 && y < 256) {
+              rgb = random.nextInt(0x1000000);
+            } else if (Math.abs(x - frame * 100 - 500) < 200 && Math.abs(y - frame * 50 - 300) < 150) {
+              rgb = 0xFF0000 + frame * 0x1010;
+            } else {
+              rgb = ((x * 255 / WIDTH) << 16) | ((y * 255 / HEIGHT) << 8) | ((x + y + frame) & 0xFF);
+            }
+            pixels[y * WIDTH + x] = rgb;
+          }
+        }
+        writer.addFrame(image, true, Duration.ofMillis(100));
+      }
+      writer.close(0);
+    }
+    return file;
+  }
+
+  private static Map<Long, Long> allocatedBytes() {
+    final com.sun.management.ThreadMXBean threadMxBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    final Map<Long, Long> result = new HashMap<>();
+    for (final long id : threadMxBean.getAllThreadIds()) {
+      final long allocated = threadMxBean.getThreadAllocatedBytes(id);
+      if (allocated > 0) {
+        result.put(id, allocated);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Convert APNG and get number of bytes allocated by all threads, threads of conversion pool are alive until dispose.
+   */
+  private static long convert(final File apng, final APngToGifConvertingWorker.DitheringMode ditheringMode) throws Exception {
+    final File gif = new File(tempFolder, "result.gif");
+    final APngToGifConvertingWorker worker = new APngToGifConvertingWorker(apng, gif, false, ditheringMode,
+        Palette256.UNIVERSAL.getPalette().orElseThrow(IllegalStateException::new), null,
+        new RgbIndexTableCache(tempFolder, 4), false, true);
+    try {
+      final Map<Long, Long> before = allocatedBytes();
+      worker.execute();
+      worker.get();
+      final Map<Long, Long> after = allocatedBytes();
+      long result = 0L;
+      for (final Map.Entry<Long, Long> entry : after.entrySet()) {
+        result += entry.getValue() - before.getOrDefault(entry.getKey(), 0L);
+      }
+      assertTrue(gif.length() > 0, "GIF must be written");
+      return result;
+    } finally {
+      worker.dispose();
+    }
+  }
+
+  @ParameterizedTest
+  @EnumSource(value = APngToGifConvertingWorker.DitheringMode.class, names = {"NONE", "FLOYD_STEINBERG"})
+  void testAllocationPerFrame(final APngToGifConvertingWorker.DitheringMode ditheringMode) throws Exception {
+    final Logger logger = Logger.getLogger("APNGtoGIF");
+    final Level level = logger.getLevel();
+    logger.setLevel(Level.WARNING);
+    try {
+      // the first conversion warms up code and makes cached RGB index table
+      convert(fewFramesApng, ditheringMode);
+
+      final long fewFramesBytes = convert(fewFramesApng, ditheringMode);
+      final long manyFramesBytes = convert(manyFramesApng, ditheringMode);
+      final long bytesPerFrame = (manyFramesBytes - fewFramesBytes) / (MANY_FRAMES - FEW_FRAMES);
+
+      // frame sized arrays are at least one byte per pixel
+      final long maxBytesPerFrame = (long) WIDTH * HEIGHT / 16;
+      LOGGER.info(ditheringMode + ": " + FEW_FRAMES + " frames " + fewFramesBytes / 1024 + " KB, " + MANY_FRAMES
+          + " frames " + manyFramesBytes / 1024 + " KB, " + bytesPerFrame / 1024 + " KB per frame");
+      assertTrue(bytesPerFrame < maxBytesPerFrame, "Too many bytes allocated per frame: " + bytesPerFrame);
+    } finally {
+      logger.setLevel(level);
+    }
+  }
+}
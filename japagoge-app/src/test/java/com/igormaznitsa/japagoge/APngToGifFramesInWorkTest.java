@@ -0,0 +1,113 @@
+package com.igormaznitsa.japagoge;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.igormaznitsa.japagoge.filters.RgbPixelFilter;
+import com.igormaznitsa.japagoge.utils.Palette256;
+import com.igormaznitsa.japagoge.utils.RgbIndexTableCache;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Check that GIF made by conversion doesn't depend on number of frames in work, APNG is converted with one frame in
+ * work and with many frames in work and results are compared byte for byte. APNG contains whole frames and sub-frames
+ * of split changed areas, so that composing of sub-frames with zero delay is checked too.
+ */
+class APngToGifFramesInWorkTest {
+
+  private static final int WIDTH = 320;
+  private static final int HEIGHT = 240;
+  private static final int FRAMES = 16;
+  private static final int MANY_FRAMES_IN_WORK = 8;
+  private static final RgbPixelFilter[] FILTERS = {null, RgbPixelFilter.GRAYSCALE, RgbPixelFilter.BLACK_WHITE};
+  private static final Logger CONVERTER_LOGGER = Logger.getLogger("APNGtoGIF");
+
+  @TempDir
+  static File tempFolder;
+
+  private static File apng;
+  private static Level savedLevel;
+
+  @BeforeAll
+  static void makeApng() throws IOException {
+    savedLevel = CONVERTER_LOGGER.getLevel();
+    CONVERTER_LOGGER.setLevel(Level.WARNING);
+
+    apng = new File(tempFolder, "source.png");
+    final BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+    final int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    final Random random = new Random(0x20);
+    try (final FileOutputStream outputStream = new FileOutputStream(apng)) {
+      final APngWriter writer = new APngWriter(outputStream.getChannel(), RgbPixelFilter.RGB, true);
+      writer.start("test", WIDTH, HEIGHT);
+      for (int frame = 0; frame < FRAMES; frame++) {
+        for (int y = 0; y < HEIGHT; y++) {
+          for (int x = 0; x < WIDTH; x++) {
+            final int rgb;
+            if (frame % 5 == 0) {
+              // whole frame changed
+              rgb = ((x + frame * 7) & 0xFF) << 16 | ((y * 255 / HEIGHT) << 8) | random.nextInt(64);
+            } else if (x < 40 && y < 30) {
+              // noise in left top corner
+              rgb = random.nextInt(0x1000000);
+            } else if (x >= WIDTH - 40 && y >= HEIGHT - 30 && frame % 2 == 0) {
+              // blinking right bottom corner, far from the other changed areas
+              rgb = frame * 0x0F0F0F;
+            } else {
+              continue;
+            }
+            pixels[y * WIDTH + x] = rgb;
+          }
+        }
+        writer.addFrame(image, false, Duration.ofMillis(40 + frame * 10));
+      }
+      writer.close(0);
+    }
+  }
+
+  @AfterAll
+  static void restoreLogLevel() {
+    CONVERTER_LOGGER.setLevel(savedLevel);
+  }
+
+  private static byte[] convert(final APngToGifConvertingWorker.DitheringMode ditheringMode, final RgbPixelFilter filter, final int maxFramesInWork) throws Exception {
+    final File gif = new File(tempFolder, "result.gif");
+    final APngToGifConvertingWorker worker = new APngToGifConvertingWorker(apng, gif, false, ditheringMode,
+        Palette256.UNIVERSAL.getPalette().orElseThrow(IllegalStateException::new), filter == null ? null : filter.makeInstance(),
+        new RgbIndexTableCache(tempFolder, 4), false, true);
+    try {
+      worker.setMaxFramesInWork(maxFramesInWork);
+      worker.execute();
+      worker.get();
+    } finally {
+      worker.dispose();
+    }
+    final byte[] result = Files.readAllBytes(gif.toPath());
+    assertTrue(result.length > 0, "GIF must be written");
+    return result;
+  }
+
+  @ParameterizedTest
+  @EnumSource(APngToGifConvertingWorker.DitheringMode.class)
+  void testSameGifForOneAndManyFramesInWork(final APngToGifConvertingWorker.DitheringMode ditheringMode) throws Exception {
+    for (final RgbPixelFilter filter : FILTERS) {
+      final byte[] oneFrameInWork = convert(ditheringMode, filter, 1);
+      final byte[] manyFramesInWork = convert(ditheringMode, filter, MANY_FRAMES_IN_WORK);
+      assertArrayEquals(oneFrameInWork, manyFramesInWork, ditheringMode + ", filter " + filter);
+    }
+  }
+}
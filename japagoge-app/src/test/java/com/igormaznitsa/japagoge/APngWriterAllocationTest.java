@@ -0,0 +1,103 @@
+package com.igormaznitsa.japagoge;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.igormaznitsa.japagoge.filters.RgbPixelFilter;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.logging.Logger;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Check that {@link APngWriter#addFrame(BufferedImage, boolean, Duration)} doesn't allocate memory for every frame
+ * when buffers of the writer are made. Allocation of the writing thread is measured by
+ * {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)} for different number of frames added into
+ * started writer, so that allocation of measurement is excluded by difference.
+ */
+class APngWriterAllocationTest {
+
+  private static final Logger LOGGER = Logger.getLogger("APngWriterAllocationTest");
+
+  private static final int WIDTH = 640;
+  private static final int HEIGHT = 480;
+  private static final int IMAGES = 4;
+  private static final int WARMUP_FRAMES = 200;
+  private static final int FEW_FRAMES = 100;
+  private static final int MANY_FRAMES = 400;
+  private static final int WHOLE_FRAME_PERIOD = 16;
+  private static final long MAX_BYTES_PER_FRAME = 64L;
+  private static final Duration DELAY = Duration.ofMillis(100);
+
+  @TempDir
+  static File tempFolder;
+
+  /**
+   * Make images with gradient background and two boxes moved between images, light box is on dark part of background
+   * and dark box is on light one, so that they are kept by black-white filter. Images are added in cycle, so that
+   * frames have two separated changed areas, the last image repeats previous one to make frame without changes.
+   */
+  private static BufferedImage[] makeImages() {
+    final BufferedImage[] result = new BufferedImage[IMAGES];
+    for (int i = 0; i < IMAGES - 1; i++) {
+      result[i] = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+      final int[] pixels = ((DataBufferInt) result[i].getRaster().getDataBuffer()).getData();
+      for (int y = 0; y < HEIGHT; y++) {
+        for (int x = 0; x < WIDTH; x++) {
+          final int rgb;
+          if (Math.abs(x - 60 - i * 20) < 30 && Math.abs(y - 60) < 30) {
+            rgb = 0xFFFFFF;
+          } else if (Math.abs(x - 500) < 40 && Math.abs(y - 300 - i * 25) < 40) {
+            rgb = 0x000000;
+          } else {
+            rgb = ((x * 255 / WIDTH) << 16) | ((y * 255 / HEIGHT) << 8) | 0x80;
+          }
+          pixels[y * WIDTH + x] = rgb;
+        }
+      }
+    }
+    result[IMAGES - 1] = result[IMAGES - 2];
+    return result;
+  }
+
+  private static long addFrames(final APngWriter writer, final BufferedImage[] images, final int frames) throws IOException {
+    final com.sun.management.ThreadMXBean threadMxBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    final long threadId = Thread.currentThread().getId();
+    final long before = threadMxBean.getThreadAllocatedBytes(threadId);
+    for (int i = 0; i < frames; i++) {
+      writer.addFrame(images[i % IMAGES], i % WHOLE_FRAME_PERIOD == 0, DELAY);
+    }
+    return threadMxBean.getThreadAllocatedBytes(threadId) - before;
+  }
+
+  @ParameterizedTest
+  @EnumSource(value = RgbPixelFilter.class, names = {"RGB", "BLACK_WHITE"})
+  void testNoAllocationPerFrame(final RgbPixelFilter filter) throws IOException {
+    final BufferedImage[] images = makeImages();
+    for (final boolean splitChangedAreas : new boolean[] {false, true}) {
+      final File file = new File(tempFolder, filter.name() + '-' + splitChangedAreas + ".png");
+      try (final FileOutputStream outputStream = new FileOutputStream(file)) {
+        final APngWriter writer = new APngWriter(outputStream.getChannel(), filter, splitChangedAreas);
+        writer.start("test", WIDTH, HEIGHT);
+        // the first frames make buffers of the writer
+        addFrames(writer, images, WARMUP_FRAMES);
+
+        final long fewFramesBytes = addFrames(writer, images, FEW_FRAMES);
+        final long manyFramesBytes = addFrames(writer, images, MANY_FRAMES);
+        final long bytesPerFrame = (manyFramesBytes - fewFramesBytes) / (MANY_FRAMES - FEW_FRAMES);
+        writer.close(0);
+
+        LOGGER.info(filter + ", split " + splitChangedAreas + ": " + FEW_FRAMES + " frames " + fewFramesBytes + " bytes, "
+            + MANY_FRAMES + " frames " + manyFramesBytes + " bytes, " + bytesPerFrame + " bytes per frame");
+        assertTrue(bytesPerFrame < MAX_BYTES_PER_FRAME,
+            filter + ", split " + splitChangedAreas + ": too many bytes allocated per frame: " + bytesPerFrame);
+      }
+    }
+  }
+}
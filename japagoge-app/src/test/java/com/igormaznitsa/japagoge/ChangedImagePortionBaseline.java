@@ -0,0 +1,166 @@
+package com.igormaznitsa.japagoge;
+
+import java.awt.Rectangle;
+
+/**
+ * Reference search of changed image portion replaced by {@link FrameDiff}, PNG scanline buffers are compared byte by
+ * byte and bounds of changed bytes are converted into pixels. It is kept to measure the frame diff engine.
+ */
+final class ChangedImagePortionBaseline {
+
+  private ChangedImagePortionBaseline() {
+  }
+
+  static ImagePortion extractChangedImagePortionRgb(final byte[] oldPngData, final byte[] newPngData, final Rectangle searchArea, final ImagePortion imageRect) {
+    int startByteX = Integer.MAX_VALUE;
+    int startByteY = Integer.MAX_VALUE;
+    int endByteX = Integer.MIN_VALUE;
+    int endByteY = Integer.MIN_VALUE;
+
+    final int scanLineWidth = imageRect.width * 3 + 1;
+
+    for (int y = searchArea.y; y < searchArea.y + searchArea.height; y++) {
+      final int lineStart = y * scanLineWidth;
+      final int searchEnd = lineStart + 1 + (searchArea.x + searchArea.width) * 3;
+      for (int i = lineStart + 1 + searchArea.x * 3; i < searchEnd; i++) {
+        if (oldPngData[i] != newPngData[i]) {
+          final int px = i - lineStart;
+          startByteX = Math.min(startByteX, px);
+          startByteY = Math.min(startByteY, y);
+          endByteX = Math.max(endByteX, px);
+          endByteY = Math.max(endByteY, y);
+        }
+      }
+    }
+
+    if (startByteX == Integer.MAX_VALUE) return null;
+
+    if (startByteX == 0 && startByteY == 0 && endByteX == scanLineWidth - 1 && endByteY == imageRect.height - 1) {
+      imageRect.data = newPngData;
+    } else {
+      final int pixelX = (startByteX - 1) / 3;
+      final int pixelWidth = ((endByteX - 1) - (startByteX - 1)) / 3 + 1;
+      final int pixelHeight = (endByteY - startByteY) + 1;
+
+      final int portionLineWidth = pixelWidth * 3 + 1;
+      final int fragmentDataLength = portionLineWidth * pixelHeight;
+
+      if (fragmentDataLength > (newPngData.length * 3) / 4) {
+        imageRect.data = newPngData;
+      } else {
+        final byte[] portionArray = new byte[fragmentDataLength];
+
+        if (startByteX == 0) {
+          int srcOffset = startByteY * scanLineWidth;
+          int dstOffset = 0;
+          for (int i = 0; i < pixelHeight; i++) {
+            System.arraycopy(newPngData, srcOffset, portionArray, dstOffset, portionLineWidth);
+            srcOffset += scanLineWidth;
+            dstOffset += portionLineWidth;
+          }
+        } else {
+          int srcOffset = startByteY * scanLineWidth + (pixelX * 3) + 1;
+          int dstOffset = 1;
+          final int copyLineLength = pixelWidth * 3;
+          for (int i = 0; i < pixelHeight; i++) {
+            System.arraycopy(newPngData, srcOffset, portionArray, dstOffset, copyLineLength);
+            srcOffset += scanLineWidth;
+            dstOffset += portionLineWidth;
+          }
+        }
+
+        imageRect.x = pixelX;
+        imageRect.y = startByteY;
+        imageRect.width = pixelWidth;
+        imageRect.height = pixelHeight;
+        imageRect.data = portionArray;
+      }
+    }
+
+    return imageRect;
+  }
+
+  static ImagePortion extractChangedImagePortionMonochrome(final byte[] oldPngData, final byte[] newPngData, final Rectangle searchArea, final ImagePortion imageRect) {
+    int startByteX = Integer.MAX_VALUE;
+    int startByteY = Integer.MAX_VALUE;
+    int endByteX = Integer.MIN_VALUE;
+    int endByteY = Integer.MIN_VALUE;
+
+    final int scanLineWidth = imageRect.width + 1;
+
+    for (int y = searchArea.y; y < searchArea.y + searchArea.height; y++) {
+      final int lineStart = y * scanLineWidth;
+      final int searchEnd = lineStart + 1 + searchArea.x + searchArea.width;
+      for (int i = lineStart + 1 + searchArea.x; i < searchEnd; i++) {
+        if (oldPngData[i] != newPngData[i]) {
+          final int px = i - lineStart;
+          startByteX = Math.min(startByteX, px);
+          startByteY = Math.min(startByteY, y);
+          endByteX = Math.max(endByteX, px);
+          endByteY = Math.max(endByteY, y);
+        }
+      }
+    }
+
+    if (startByteX == Integer.MAX_VALUE) return null;
+
+    if (startByteX == 0 && startByteY == 0 && endByteX == scanLineWidth - 1 && endByteY == imageRect.height - 1) {
+      imageRect.data = newPngData;
+    } else {
+      final int pixelX = (startByteX - 1);
+      final int pixelWidth = ((endByteX - 1) - (startByteX - 1)) + 1;
+      final int pixelHeight = (endByteY - startByteY) + 1;
+
+      final int portionLineWidth = pixelWidth + 1;
+      final int fragmentDataLength = portionLineWidth * pixelHeight;
+
+      if (fragmentDataLength > (newPngData.length * 3) / 4) {
+        imageRect.data = newPngData;
+      } else {
+        final byte[] portionArray = new byte[fragmentDataLength];
+
+        if (startByteX == 0) {
+          int srcOffset = startByteY * scanLineWidth;
+          int dstOffset = 0;
+          for (int i = 0; i < pixelHeight; i++) {
+            System.arraycopy(newPngData, srcOffset, portionArray, dstOffset, portionLineWidth);
+            srcOffset += scanLineWidth;
+            dstOffset += portionLineWidth;
+          }
+        } else {
+          int srcOffset = startByteY * scanLineWidth + pixelX + 1;
+          int dstOffset = 1;
+          for (int i = 0; i < pixelHeight; i++) {
+            System.arraycopy(newPngData, srcOffset, portionArray, dstOffset, pixelWidth);
+            srcOffset += scanLineWidth;
+            dstOffset += portionLineWidth;
+          }
+        }
+
+        imageRect.x = pixelX;
+        imageRect.y = startByteY;
+        imageRect.width = pixelWidth;
+        imageRect.height = pixelHeight;
+        imageRect.data = portionArray;
+      }
+    }
+
+    return imageRect;
+  }
+
+  static final class ImagePortion {
+    int x;
+    int y;
+    int width;
+    int height;
+    byte[] data;
+
+    ImagePortion(final int x, final int y, final int width, final int height, final byte[] data) {
+      this.x = x;
+      this.y = y;
+      this.width = width;
+      this.height = height;
+      this.data = data;
+    }
+  }
+}
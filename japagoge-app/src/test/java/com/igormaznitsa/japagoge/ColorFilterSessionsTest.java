@@ -0,0 +1,170 @@
+package com.igormaznitsa.japagoge;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.igormaznitsa.japagoge.filters.BlackWhiteFilter;
+import com.igormaznitsa.japagoge.filters.ColorFilter;
+import com.igormaznitsa.japagoge.filters.RgbPixelFilter;
+import com.igormaznitsa.japagoge.utils.Palette256;
+import com.igormaznitsa.japagoge.utils.RgbIndexTableCache;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Stress test of recording and conversion sessions with black-white filter made at the same time, every session has
+ * own filter instance, so that results must be the same as results of sessions made one by one.
+ */
+class ColorFilterSessionsTest {
+
+  private static final int WIDTH = 320;
+  private static final int HEIGHT = 240;
+  private static final int FRAMES = 8;
+  private static final int THREADS = 4;
+  private static final int ROUNDS = 3;
+  private static final Logger CONVERTER_LOGGER = Logger.getLogger("APNGtoGIF");
+
+  @TempDir
+  static File tempFolder;
+
+  private static File sourceApng;
+  private static RgbIndexTableCache indexTableCache;
+  private static Level savedLevel;
+  private final AtomicInteger fileCounter = new AtomicInteger();
+
+  /**
+   * Draw frame with gradient and moving dark and light boxes, luminance range is changed from frame to frame so that
+   * threshold of black-white filter depends on the frame.
+   */
+  private static void drawFrame(final int[] pixels, final int frame) {
+    final int range = 0x40 + frame * 0x18;
+    for (int y = 0; y < HEIGHT; y++) {
+      for (int x = 0; x < WIDTH; x++) {
+        final int level;
+        if (Math.abs(x - 40 - frame * 30) < 20 && Math.abs(y - 120) < 40) {
+          level = 0;
+        } else if (Math.abs(x - 280 + frame * 20) < 15 && Math.abs(y - 60 - frame * 10) < 15) {
+          level = range;
+        } else {
+          level = (x + y) * range / (WIDTH + HEIGHT);
+        }
+        pixels[y * WIDTH + x] = (level << 16) | ((level * 3 / 4) << 8) | (0xFF - level);
+      }
+    }
+  }
+
+  private static void writeApng(final File file, final ColorFilter filter) throws IOException {
+    final BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+    final int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    try (final FileOutputStream outputStream = new FileOutputStream(file)) {
+      final APngWriter writer = new APngWriter(outputStream.getChannel(), filter, false, APngWriter.FilterStrategy.NONE, APngWriter.CompressionProfile.ARCHIVAL);
+      writer.start("test", WIDTH, HEIGHT);
+      for (int frame = 0; frame < FRAMES; frame++) {
+        drawFrame(pixels, frame);
+        writer.addFrame(image, false, Duration.ofMillis(100));
+      }
+      writer.close(0);
+    }
+  }
+
+  @BeforeAll
+  static void makeSource() throws IOException {
+    savedLevel = CONVERTER_LOGGER.getLevel();
+    CONVERTER_LOGGER.setLevel(Level.WARNING);
+    indexTableCache = new RgbIndexTableCache(tempFolder, 4);
+    sourceApng = new File(tempFolder, "source.png");
+    writeApng(sourceApng, RgbPixelFilter.RGB.makeInstance());
+  }
+
+  @AfterAll
+  static void restoreLogLevel() {
+    CONVERTER_LOGGER.setLevel(savedLevel);
+  }
+
+  private File makeFile(final String extension) {
+    return new File(tempFolder, "result" + this.fileCounter.incrementAndGet() + extension);
+  }
+
+  private byte[] record() throws IOException {
+    final File file = this.makeFile(".png");
+    writeApng(file, new BlackWhiteFilter());
+    return Files.readAllBytes(file.toPath());
+  }
+
+  private byte[] convert() throws Exception {
+    final File file = this.makeFile(".gif");
+    final APngToGifConvertingWorker worker = new APngToGifConvertingWorker(sourceApng, file, false,
+        APngToGifConvertingWorker.DitheringMode.NONE, Palette256.UNIVERSAL.getPalette().orElseThrow(IllegalStateException::new),
+        new BlackWhiteFilter(), indexTableCache, false, true);
+    try {
+      worker.execute();
+      worker.get();
+    } finally {
+      worker.dispose();
+    }
+    return Files.readAllBytes(file.toPath());
+  }
+
+  @Test
+  void testStatefulFilterInstancesNotShared() {
+    for (final RgbPixelFilter filter : RgbPixelFilter.values()) {
+      if (filter.isStateful()) {
+        assertNotSame(filter.makeInstance(), filter.makeInstance(), filter.name());
+      }
+    }
+  }
+
+  @Test
+  void testConcurrentRecordingAndConversion() throws Exception {
+    // sequential sessions make expected results and cached index table
+    final byte[] expectedApng = this.record();
+    final byte[] expectedGif = this.convert();
+    assertTrue(expectedApng.length > 0 && expectedGif.length > 0);
+
+    final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      for (int round = 0; round < ROUNDS; round++) {
+        final CyclicBarrier barrier = new CyclicBarrier(THREADS);
+        final List<Future<byte[]>> recordings = new ArrayList<>();
+        final List<Future<byte[]>> conversions = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+          final boolean recording = i % 2 == 0;
+          final Callable<byte[]> session = () -> {
+            barrier.await(1, TimeUnit.MINUTES);
+            return recording ? this.record() : this.convert();
+          };
+          (recording ? recordings : conversions).add(executor.submit(session));
+        }
+        for (final Future<byte[]> future : recordings) {
+          assertArrayEquals(expectedApng, future.get(5, TimeUnit.MINUTES), "recording, round " + round);
+        }
+        for (final Future<byte[]> future : conversions) {
+          assertArrayEquals(expectedGif, future.get(5, TimeUnit.MINUTES), "conversion, round " + round);
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,126 @@
+package com.igormaznitsa.japagoge;
+
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark of search of changes in 1080p RGB frame by {@link FrameDiff} against replaced byte by byte search,
+ * it is not started by tests and can be started through {@link #main(String[])} from IDE or by
+ * {@code org.openjdk.jmh.Main FrameDiffBenchmark} with test classpath.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrameDiffBenchmark {
+
+  private static final int WIDTH = 1920;
+  private static final int HEIGHT = 1080;
+  private static final int BYTES_PER_PIXEL = 3;
+  private static final int SCANLINE_BYTES = WIDTH * BYTES_PER_PIXEL + 1;
+
+  /**
+   * Kind of change: blinking text cursor, text scrolled by one line and full screen video.
+   */
+  @Param({"CURSOR_BLINK", "SCROLLING_TEXT", "FULL_SCREEN_VIDEO"})
+  public String change;
+
+  private final Rectangle wholeArea = new Rectangle(0, 0, WIDTH, HEIGHT);
+  private byte[] oldData;
+  private byte[] newData;
+  private FrameDiff frameDiff;
+
+  public static void main(final String... args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(FrameDiffBenchmark.class.getSimpleName()).build()).run();
+  }
+
+  private static void setPixel(final byte[] data, final int x, final int y, final int rgb) {
+    final int offset = y * SCANLINE_BYTES + 1 + x * BYTES_PER_PIXEL;
+    data[offset] = (byte) (rgb >> 16);
+    data[offset + 1] = (byte) (rgb >> 8);
+    data[offset + 2] = (byte) rgb;
+  }
+
+  /**
+   * Draw lines of text-like random glyphs on white background.
+   *
+   * @param firstLine index of the first text line, it allows to draw scrolled text
+   */
+  private static byte[] makeText(final int firstLine) {
+    final byte[] result = new byte[SCANLINE_BYTES * HEIGHT];
+    final int lineHeight = 16;
+    for (int y = 0; y < HEIGHT; y++) {
+      final int line = y / lineHeight + firstLine;
+      final int glyphRow = y % lineHeight;
+      for (int x = 0; x < WIDTH; x++) {
+        final int glyph = x / 8;
+        final boolean ink = glyphRow > 2 && glyphRow < 14 && x % 8 < 6 && glyph % 11 != 10
+            && ((line * 31 + glyph * 17 + glyphRow * 7 + x * 3) * 0x9E3779B1 >>> 29) < 3;
+        setPixel(result, x, y, ink ? 0x202020 : 0xFFFFFF);
+      }
+    }
+    return result;
+  }
+
+  @Setup
+  public void setup() {
+    final Random random = new Random(1080);
+    switch (this.change) {
+      case "CURSOR_BLINK": {
+        this.oldData = makeText(0);
+        this.newData = this.oldData.clone();
+        for (int y = 500; y < 516; y++) {
+          for (int x = 800; x < 802; x++) {
+            setPixel(this.newData, x, y, 0x000000);
+          }
+        }
+      }
+      break;
+      case "SCROLLING_TEXT": {
+        this.oldData = makeText(0);
+        this.newData = makeText(1);
+      }
+      break;
+      case "FULL_SCREEN_VIDEO": {
+        this.oldData = new byte[SCANLINE_BYTES * HEIGHT];
+        this.newData = new byte[SCANLINE_BYTES * HEIGHT];
+        random.nextBytes(this.oldData);
+        random.nextBytes(this.newData);
+      }
+      break;
+      default:
+        throw new IllegalArgumentException("Unexpected change: " + this.change);
+    }
+    this.frameDiff = new FrameDiff(WIDTH, HEIGHT, BYTES_PER_PIXEL);
+  }
+
+  @Benchmark
+  public Rectangle frameDiff() throws IOException {
+    this.frameDiff.compare(this.oldData, this.newData, this.wholeArea);
+    return this.frameDiff.getBounds();
+  }
+
+  @Benchmark
+  public ChangedImagePortionBaseline.ImagePortion byteLoop() {
+    return ChangedImagePortionBaseline.extractChangedImagePortionRgb(this.oldData, this.newData, this.wholeArea,
+        new ChangedImagePortionBaseline.ImagePortion(0, 0, WIDTH, HEIGHT, null));
+  }
+}
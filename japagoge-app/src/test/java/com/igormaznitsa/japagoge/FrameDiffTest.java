@@ -0,0 +1,180 @@
+package com.igormaznitsa.japagoge;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Check that bounds and bitmap of dirty tiles found by {@link FrameDiff} are the same as found by brute force
+ * comparison of every pixel, frames have sizes not aligned by tile and changes are made in random bytes of pixels.
+ */
+class FrameDiffTest {
+
+  private static final int[][] SIZES = {{1, 1}, {7, 3}, {31, 33}, {32, 32}, {65, 40}, {100, 77}, {333, 129}};
+  private static final int ROUNDS = 20;
+
+  private static byte[] makeFrame(final Random random, final int width, final int height, final int bytesPerPixel) {
+    final byte[] result = new byte[(width * bytesPerPixel + 1) * height];
+    random.nextBytes(result);
+    return result;
+  }
+
+  private static boolean isPixelChanged(final byte[] oldData, final byte[] newData, final int x, final int y, final int width, final int bytesPerPixel) {
+    final int offset = y * (width * bytesPerPixel + 1) + 1 + x * bytesPerPixel;
+    for (int i = 0; i < bytesPerPixel; i++) {
+      if (oldData[offset + i] != newData[offset + i]) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Change random bytes of new frame, changes are made as single bytes, short runs and filled rectangles.
+   */
+  private static void makeChanges(final Random random, final byte[] frame, final int width, final int height, final int bytesPerPixel) {
+    final int scanLineBytes = width * bytesPerPixel + 1;
+    final int changes = random.nextInt(6);
+    for (int i = 0; i < changes; i++) {
+      final int x = random.nextInt(width);
+      final int y = random.nextInt(height);
+      switch (random.nextInt(3)) {
+        case 0: {
+          frame[y * scanLineBytes + 1 + x * bytesPerPixel + random.nextInt(bytesPerPixel)] ^= (byte) (1 + random.nextInt(255));
+        }
+        break;
+        case 1: {
+          final int from = y * scanLineBytes + 1 + x * bytesPerPixel;
+          final int to = Math.min((y + 1) * scanLineBytes, from + 1 + random.nextInt(3 * bytesPerPixel * 40));
+          for (int p = from; p < to; p++) {
+            frame[p]++;
+          }
+        }
+        break;
+        default: {
+          final int areaWidth = 1 + random.nextInt(width - x);
+          final int areaHeight = 1 + random.nextInt(height - y);
+          for (int ay = y; ay < y + areaHeight; ay++) {
+            for (int ax = x; ax < x + areaWidth; ax++) {
+              frame[ay * scanLineBytes + 1 + ax * bytesPerPixel + random.nextInt(bytesPerPixel)] ^= 0x55;
+            }
+          }
+        }
+        break;
+      }
+    }
+  }
+
+  private static Rectangle makeSearchArea(final Random random, final int width, final int height) {
+    if (random.nextBoolean()) {
+      return new Rectangle(0, 0, width, height);
+    }
+    final int x = random.nextInt(width);
+    final int y = random.nextInt(height);
+    return new Rectangle(x, y, 1 + random.nextInt(width - x), 1 + random.nextInt(height - y));
+  }
+
+  private static void assertSameAsBruteForce(final FrameDiff frameDiff, final byte[] oldData, final byte[] newData, final Rectangle searchArea, final String message) throws IOException {
+    final int width = frameDiff.getWidth();
+    final int bytesPerPixel = frameDiff.getBytesPerPixel();
+
+    final boolean[] dirtyTiles = new boolean[frameDiff.getTileColumns() * frameDiff.getTileRows()];
+    int minX = Integer.MAX_VALUE;
+    int minY = Integer.MAX_VALUE;
+    int maxX = Integer.MIN_VALUE;
+    int maxY = Integer.MIN_VALUE;
+    for (int y = searchArea.y; y < searchArea.y + searchArea.height; y++) {
+      for (int x = searchArea.x; x < searchArea.x + searchArea.width; x++) {
+        if (isPixelChanged(oldData, newData, x, y, width, bytesPerPixel)) {
+          minX = Math.min(minX, x);
+          minY = Math.min(minY, y);
+          maxX = Math.max(maxX, x);
+          maxY = Math.max(maxY, y);
+          dirtyTiles[(y / FrameDiff.TILE_SIZE) * frameDiff.getTileColumns() + x / FrameDiff.TILE_SIZE] = true;
+        }
+      }
+    }
+    final Rectangle expectedBounds = minX == Integer.MAX_VALUE ? null : new Rectangle(minX, minY, maxX - minX + 1, maxY - minY + 1);
+
+    assertEquals(expectedBounds != null, frameDiff.compare(oldData, newData, searchArea), message);
+    assertEquals(expectedBounds, frameDiff.getBounds(), message);
+    assertEquals(expectedBounds, frameDiff.findBounds(oldData, newData, searchArea), message);
+    for (int tileY = 0; tileY < frameDiff.getTileRows(); tileY++) {
+      for (int tileX = 0; tileX < frameDiff.getTileColumns(); tileX++) {
+        assertEquals(dirtyTiles[tileY * frameDiff.getTileColumns() + tileX], frameDiff.isTileDirty(tileX, tileY),
+            message + ", tile " + tileX + "x" + tileY);
+      }
+    }
+
+    // every changed pixel must be inside one of split areas and split areas must be inside bounds
+    final List<Rectangle> areas = frameDiff.findChangedAreas(oldData, newData, 8);
+    assertEquals(expectedBounds == null, areas.isEmpty(), message);
+    assertTrue(areas.size() <= 8, message);
+    for (final Rectangle area : areas) {
+      assertTrue(expectedBounds.contains(area), message + ", area " + area);
+    }
+    for (int y = searchArea.y; y < searchArea.y + searchArea.height; y++) {
+      for (int x = searchArea.x; x < searchArea.x + searchArea.width; x++) {
+        if (isPixelChanged(oldData, newData, x, y, width, bytesPerPixel)) {
+          boolean found = false;
+          for (final Rectangle area : areas) {
+            found |= area.contains(x, y);
+          }
+          assertTrue(found, message + ", pixel " + x + "x" + y + " is not in areas " + areas);
+        }
+      }
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {1, 3, 4})
+  void testSameAsBruteForce(final int bytesPerPixel) throws IOException {
+    final Random random = new Random(bytesPerPixel * 1000L + 5L);
+    for (final int[] size : SIZES) {
+      final int width = size[0];
+      final int height = size[1];
+      final FrameDiff frameDiff = new FrameDiff(width, height, bytesPerPixel);
+      for (int round = 0; round < ROUNDS; round++) {
+        final byte[] oldData = makeFrame(random, width, height, bytesPerPixel);
+        final byte[] newData = oldData.clone();
+        makeChanges(random, newData, width, height, bytesPerPixel);
+        final Rectangle searchArea = makeSearchArea(random, width, height);
+        assertSameAsBruteForce(frameDiff, oldData, newData, searchArea,
+            width + "x" + height + "x" + bytesPerPixel + ", round " + round + ", search area " + searchArea);
+      }
+    }
+  }
+
+  @Test
+  void testBigFrameSameAsBruteForce() throws IOException {
+    // big frame is compared by bands if there are several processors
+    final int width = 1920;
+    final int height = 1080;
+    final Random random = new Random(1080);
+    final FrameDiff frameDiff = new FrameDiff(width, height, 3);
+    final byte[] oldData = makeFrame(random, width, height, 3);
+    for (int round = 0; round < 4; round++) {
+      final byte[] newData = oldData.clone();
+      makeChanges(random, newData, width, height, 3);
+      assertSameAsBruteForce(frameDiff, oldData, newData, new Rectangle(0, 0, width, height), "round " + round);
+    }
+  }
+
+  @Test
+  void testNoChanges() throws IOException {
+    final FrameDiff frameDiff = new FrameDiff(100, 50, 3);
+    final byte[] data = makeFrame(new Random(1), 100, 50, 3);
+    assertFalse(frameDiff.compare(data, data.clone(), new Rectangle(0, 0, 100, 50)));
+    assertNull(frameDiff.getBounds());
+    assertTrue(frameDiff.findChangedAreas(data, data, 8).isEmpty());
+  }
+}
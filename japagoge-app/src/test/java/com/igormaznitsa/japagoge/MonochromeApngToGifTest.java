@@ -0,0 +1,199 @@
+package com.igormaznitsa.japagoge;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.igormaznitsa.japagoge.filters.RgbPixelFilter;
+import com.igormaznitsa.japagoge.utils.RgbIndexTableCache;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Check that one bit APNG written for black-white filters is converted into GIF with the same levels, APNG is
+ * recorded by {@link APngWriter}, converted with palette of filter and frames of GIF are composed and compared with
+ * levels of source frames. Widths of frames are not multiple of 8 so that the last byte of packed row is not full.
+ */
+class MonochromeApngToGifTest {
+
+  private static final int[] WIDTHS = {61, 203};
+  private static final int HEIGHT = 37;
+  private static final int FRAMES = 6;
+  private static final int OFFSET_IHDR_BIT_DEPTH = 24;
+  private static final int BLACK = 0x000000;
+  private static final int WHITE = 0xFFFFFF;
+  private static final Logger CONVERTER_LOGGER = Logger.getLogger("APNGtoGIF");
+
+  @TempDir
+  static File tempFolder;
+
+  private static Level savedLevel;
+
+  @BeforeAll
+  static void setLogLevel() {
+    savedLevel = CONVERTER_LOGGER.getLevel();
+    CONVERTER_LOGGER.setLevel(Level.WARNING);
+  }
+
+  @AfterAll
+  static void restoreLogLevel() {
+    CONVERTER_LOGGER.setLevel(savedLevel);
+  }
+
+  /**
+   * Make source frames of black and white pixels, the first one is random and every next one changes small boxes, one
+   * of them is moved along right border where the last byte of packed row is not full. Every frame contains both
+   * levels, so that threshold of filter keeps them.
+   */
+  private static List<int[]> makeFrames(final int width) {
+    final Random random = new Random(width);
+    final List<int[]> result = new ArrayList<>();
+    int[] pixels = new int[width * HEIGHT];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = random.nextBoolean() ? WHITE : BLACK;
+    }
+    result.add(pixels);
+    for (int frame = 1; frame < FRAMES; frame++) {
+      pixels = pixels.clone();
+      final int[] boxes = {
+          random.nextInt(width - 9), random.nextInt(HEIGHT - 7),
+          width - 1 - random.nextInt(5), frame * 5
+      };
+      for (int box = 0; box < boxes.length; box += 2) {
+        for (int y = boxes[box + 1]; y < Math.min(HEIGHT, boxes[box + 1] + 7); y++) {
+          for (int x = boxes[box]; x < Math.min(width, boxes[box] + 9); x++) {
+            pixels[y * width + x] = (x + y + frame) % 3 == 0 ? WHITE : BLACK;
+          }
+        }
+      }
+      result.add(pixels);
+    }
+    return result;
+  }
+
+  /**
+   * Get colors expected in GIF, source levels are shown by palette of filter.
+   */
+  private static int[] makeExpectedRgb(final int[] palette, final int[] pixels) {
+    final int[] result = new int[pixels.length];
+    for (int i = 0; i < pixels.length; i++) {
+      result[i] = palette[pixels[i] & 0xFF];
+    }
+    return result;
+  }
+
+  private static File record(final RgbPixelFilter filter, final int width, final List<int[]> frames) throws IOException {
+    final File file = new File(tempFolder, filter.name() + '-' + width + ".png");
+    final BufferedImage image = new BufferedImage(width, HEIGHT, BufferedImage.TYPE_INT_RGB);
+    final int[] imagePixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    try (final FileOutputStream outputStream = new FileOutputStream(file)) {
+      final APngWriter writer = new APngWriter(outputStream.getChannel(), filter, true);
+      writer.start("test", width, HEIGHT);
+      for (final int[] frame : frames) {
+        System.arraycopy(frame, 0, imagePixels, 0, frame.length);
+        writer.addFrame(image, false, Duration.ofMillis(100));
+      }
+      writer.close(0);
+    }
+    return file;
+  }
+
+  private static File convert(final File apng, final int[] palette) throws Exception {
+    final File gif = new File(tempFolder, apng.getName() + ".gif");
+    final APngToGifConvertingWorker worker = new APngToGifConvertingWorker(apng, gif, false,
+        APngToGifConvertingWorker.DitheringMode.NONE, palette, null, new RgbIndexTableCache(tempFolder, 4), false, true);
+    try {
+      worker.execute();
+      worker.get();
+    } finally {
+      worker.dispose();
+    }
+    return gif;
+  }
+
+  /**
+   * Decode GIF frames, every frame is drawn over previous one with respect of transparent pixels.
+   */
+  private static List<int[]> decodeGif(final File gif, final int width) throws IOException {
+    final List<int[]> result = new ArrayList<>();
+    final ImageReader reader = ImageIO.getImageReadersByFormatName("gif").next();
+    try (final ImageInputStream inputStream = ImageIO.createImageInputStream(gif)) {
+      reader.setInput(inputStream);
+      final int[] canvas = new int[width * HEIGHT];
+      final int images = reader.getNumImages(true);
+      for (int i = 0; i < images; i++) {
+        final BufferedImage image = reader.read(i);
+        final IIOMetadataNode root = (IIOMetadataNode) reader.getImageMetadata(i).getAsTree("javax_imageio_gif_image_1.0");
+        final IIOMetadataNode descriptor = (IIOMetadataNode) root.getElementsByTagName("ImageDescriptor").item(0);
+        final IIOMetadataNode control = (IIOMetadataNode) root.getElementsByTagName("GraphicControlExtension").item(0);
+        final String disposal = control.getAttribute("disposalMethod");
+        assertTrue("none".equals(disposal) || "doNotDispose".equals(disposal), "Unexpected disposal: " + disposal);
+
+        final int left = Integer.parseInt(descriptor.getAttribute("imageLeftPosition"));
+        final int top = Integer.parseInt(descriptor.getAttribute("imageTopPosition"));
+        for (int y = 0; y < image.getHeight(); y++) {
+          for (int x = 0; x < image.getWidth(); x++) {
+            final int argb = image.getRGB(x, y);
+            if ((argb >>> 24) != 0) {
+              canvas[(top + y) * width + left + x] = argb & 0xFFFFFF;
+            }
+          }
+        }
+        result.add(canvas.clone());
+      }
+    } finally {
+      reader.dispose();
+    }
+    return result;
+  }
+
+  private static int readBitDepth(final File png) throws IOException {
+    try (final RandomAccessFile file = new RandomAccessFile(png, "r")) {
+      file.seek(OFFSET_IHDR_BIT_DEPTH);
+      return file.read();
+    }
+  }
+
+  @ParameterizedTest
+  @EnumSource(value = RgbPixelFilter.class, names = {"BLACK_WHITE", "OLD_PHONE_BW_LCD"})
+  void testOneBitApngConvertedIntoSameLevels(final RgbPixelFilter filter) throws Exception {
+    for (final int width : WIDTHS) {
+      final List<int[]> frames = makeFrames(width);
+      final File apng = record(filter, width, frames);
+      assertEquals(1, readBitDepth(apng), "APNG must be one bit");
+
+      final int[] palette = filter.makeInstance().getPalette().orElseThrow(IllegalStateException::new);
+      final List<int[]> decoded = decodeGif(convert(apng, palette), width);
+      assertEquals(FRAMES, decoded.size(), filter + ", width " + width);
+
+      for (int frame = 0; frame < FRAMES; frame++) {
+        final int[] expected = makeExpectedRgb(palette, frames.get(frame));
+        final int[] actual = decoded.get(frame);
+        for (int i = 0; i < expected.length; i++) {
+          if (expected[i] != actual[i]) {
+            assertEquals(Integer.toHexString(expected[i]), Integer.toHexString(actual[i]),
+                filter + ", width " + width + ", frame " + frame + ", pixel " + (i % width) + "x" + (i / width));
+          }
+        }
+      }
+    }
+  }
+}
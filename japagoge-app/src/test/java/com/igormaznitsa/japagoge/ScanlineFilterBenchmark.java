@@ -0,0 +1,126 @@
+package com.igormaznitsa.japagoge;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.zip.Deflater;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark of encoding 720p RGB frame by every {@link APngWriter.FilterStrategy}, time includes filtering and
+ * deflating of scanlines and compression ratio of the frame is logged at the end of trial. It is not started by tests
+ * and can be started through {@link #main(String[])} from IDE or by {@code org.openjdk.jmh.Main ScanlineFilterBenchmark}
+ * with test classpath.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScanlineFilterBenchmark {
+
+  private static final Logger LOGGER = Logger.getLogger("ScanlineFilterBenchmark");
+
+  private static final int WIDTH = 1280;
+  private static final int HEIGHT = 720;
+  private static final int BPP = 3;
+
+  @Param({"NONE", "SUB", "UP", "AVERAGE", "PAETH", "ADAPTIVE"})
+  public APngWriter.FilterStrategy strategy;
+
+  /**
+   * Kind of frame: desktop with flat areas and text, photo-like smooth gradients with noise.
+   */
+  @Param({"DESKTOP", "PHOTO"})
+  public String frame;
+
+  private byte[] scanlines;
+  private byte[] filtered;
+  private byte[] compressed;
+  private Deflater deflater;
+  private int compressedLength;
+
+  public static void main(final String... args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(ScanlineFilterBenchmark.class.getSimpleName()).build()).run();
+  }
+
+  @Setup
+  public void setup() {
+    final Random random = new Random(720);
+    final int scanLineBytes = WIDTH * BPP + 1;
+    this.scanlines = new byte[scanLineBytes * HEIGHT];
+    for (int y = 0; y < HEIGHT; y++) {
+      for (int x = 0; x < WIDTH; x++) {
+        final int rgb;
+        switch (this.frame) {
+          case "DESKTOP": {
+            if (y < 30) {
+              rgb = 0x3050A0;
+            } else if (x < 200) {
+              rgb = (y / 24) % 2 == 0 ? 0xE0E0E0 : 0xD0D0D0;
+            } else {
+              final boolean ink = y % 16 > 3 && y % 16 < 13 && x % 8 < 6 && random.nextInt(3) == 0;
+              rgb = ink ? 0x202020 : 0xFFFFFF;
+            }
+          }
+          break;
+          case "PHOTO": {
+            final int noise = random.nextInt(9) - 4;
+            rgb = (Math.max(0, Math.min(255, x * 255 / WIDTH + noise)) << 16)
+                | (Math.max(0, Math.min(255, y * 255 / HEIGHT + noise)) << 8)
+                | Math.max(0, Math.min(255, (x + y) * 255 / (WIDTH + HEIGHT) + noise));
+          }
+          break;
+          default:
+            throw new IllegalArgumentException("Unexpected frame: " + this.frame);
+        }
+        final int offset = y * scanLineBytes + 1 + x * BPP;
+        this.scanlines[offset] = (byte) (rgb >> 16);
+        this.scanlines[offset + 1] = (byte) (rgb >> 8);
+        this.scanlines[offset + 2] = (byte) rgb;
+      }
+    }
+    this.filtered = new byte[this.scanlines.length];
+    this.compressed = new byte[this.scanlines.length + this.scanlines.length / 100 + 1024];
+    this.deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+  }
+
+  @TearDown
+  public void tearDown() {
+    this.deflater.end();
+    LOGGER.info(String.format(Locale.ENGLISH, "%s %s: %d bytes compressed into %d bytes, ratio %.2f",
+        this.strategy, this.frame, this.scanlines.length, this.compressedLength,
+        (double) this.scanlines.length / this.compressedLength));
+  }
+
+  @Benchmark
+  public int encode() {
+    final byte[] data = this.strategy == APngWriter.FilterStrategy.NONE ? this.scanlines
+        : ScanlineFilter.apply(this.strategy, this.scanlines, WIDTH, HEIGHT, BPP, this.filtered);
+    this.deflater.reset();
+    this.deflater.setInput(data, 0, data.length);
+    this.deflater.finish();
+    int length = 0;
+    while (!this.deflater.finished()) {
+      length += this.deflater.deflate(this.compressed, length, this.compressed.length - length);
+    }
+    this.compressedLength = length;
+    return length;
+  }
+}
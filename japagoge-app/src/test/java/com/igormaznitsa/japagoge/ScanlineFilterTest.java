@@ -0,0 +1,90 @@
+package com.igormaznitsa.japagoge;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.igormaznitsa.japagoge.utils.PngMode;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Check that scanlines filtered by every {@link APngWriter.FilterStrategy} are restored by unfiltering of the
+ * converter into source rows, for RGB, gray and packed one bit rasters with different widths.
+ */
+class ScanlineFilterTest {
+
+  private static final int[] WIDTHS = {1, 2, 3, 5, 8, 13, 64, 101};
+  private static final int HEIGHT = 24;
+  private static final PngMode[] MODES = {PngMode.MODE_RGB_8, PngMode.MODE_GRAYSCALE_8, PngMode.MODE_GRAYSCALE_1};
+
+  /**
+   * Make scanlines prefixed by filter type byte, rows contain noise, runs, gradients and copies of upper rows,
+   * so that adaptive strategy selects different filters.
+   */
+  private static byte[] makeScanlines(final Random random, final int lineBytes, final int bpp) {
+    final int scanLineBytes = lineBytes + 1;
+    final byte[] result = new byte[scanLineBytes * HEIGHT];
+    for (int y = 0; y < HEIGHT; y++) {
+      final int offset = y * scanLineBytes + 1;
+      result[offset - 1] = (byte) random.nextInt(256);
+      for (int i = 0; i < lineBytes; i++) {
+        final byte value;
+        switch (y % 4) {
+          case 0:
+            value = (byte) random.nextInt(256);
+            break;
+          case 1:
+            value = (byte) (i / bpp * 3 + y);
+            break;
+          case 2:
+            value = y == 0 ? 0 : (byte) (result[offset - scanLineBytes + i] + (random.nextInt(8) == 0 ? 1 : 0));
+            break;
+          default:
+            value = (byte) (i < bpp || random.nextInt(10) == 0 ? random.nextInt(256) : result[offset + i - bpp]);
+            break;
+        }
+        result[offset + i] = value;
+      }
+    }
+    return result;
+  }
+
+  private static int getBytesPerPixel(final PngMode mode) {
+    return Math.max(1, mode.getBitsPerSample() * mode.getSamples() / 8);
+  }
+
+  @ParameterizedTest
+  @EnumSource(APngWriter.FilterStrategy.class)
+  void testUnfilteredByConverter(final APngWriter.FilterStrategy strategy) {
+    final Random random = new Random(strategy.ordinal() * 17L + 3L);
+    for (final PngMode mode : MODES) {
+      final int bpp = getBytesPerPixel(mode);
+      for (final int width : WIDTHS) {
+        final int lineBytes = mode.calcBytesPerScanline(width) - 1;
+        final byte[] scanlines = makeScanlines(random, lineBytes, bpp);
+
+        // packed pixels are filtered as one byte pixels
+        final byte[] filtered = ScanlineFilter.apply(strategy, scanlines, lineBytes / bpp, HEIGHT, bpp, null);
+        assertEquals(scanlines.length, filtered.length);
+
+        final String message = strategy + ", " + mode + ", width " + width;
+        if (strategy != APngWriter.FilterStrategy.ADAPTIVE) {
+          // fixed strategies are declared in order of PNG filter types
+          final int expectedType = strategy.ordinal();
+          for (int y = 0; y < HEIGHT; y++) {
+            assertEquals(expectedType, filtered[y * (lineBytes + 1)], message + ", row " + y);
+          }
+        }
+
+        final byte[] expected = new byte[lineBytes * HEIGHT];
+        for (int y = 0; y < HEIGHT; y++) {
+          System.arraycopy(scanlines, y * (lineBytes + 1) + 1, expected, y * lineBytes, lineBytes);
+        }
+        final byte[] restored = APngToGifConvertingWorker.removeFiltration(mode, width, HEIGHT, filtered);
+        assertArrayEquals(expected, Arrays.copyOf(restored, expected.length), message);
+      }
+    }
+  }
+}
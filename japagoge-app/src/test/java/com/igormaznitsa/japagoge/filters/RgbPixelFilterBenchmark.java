@@ -0,0 +1,102 @@
+package com.igormaznitsa.japagoge.filters;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark of filtering 1080p frame through all passes by row kernels and by per pixel calls for every
+ * {@link RgbPixelFilter}, it is not started by tests and can be started through {@link #main(String[])} from IDE or by
+ * {@code org.openjdk.jmh.Main RgbPixelFilterBenchmark} with test classpath.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RgbPixelFilterBenchmark {
+
+  private static final int WIDTH = 1920;
+  private static final int HEIGHT = 1080;
+
+  /**
+   * All filters are measured if no value provided.
+   */
+  @Param
+  public RgbPixelFilter filter;
+
+  private int[] pixels;
+  private byte[] rgb;
+  private byte[] monochrome;
+  private ColorFilter colorFilter;
+
+  public static void main(final String... args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(RgbPixelFilterBenchmark.class.getSimpleName()).build()).run();
+  }
+
+  @Setup
+  public void setup() {
+    final Random random = new Random(1080);
+    this.pixels = new int[WIDTH * HEIGHT];
+    for (int i = 0; i < this.pixels.length; i++) {
+      this.pixels[i] = i > 0 && random.nextInt(8) > 0 ? this.pixels[i - 1] : random.nextInt(0x1000000);
+    }
+    this.rgb = new byte[WIDTH * HEIGHT * 3];
+    this.monochrome = new byte[WIDTH * HEIGHT];
+    this.colorFilter = this.filter.makeInstance();
+  }
+
+  @Benchmark
+  public byte[] rowRgb() {
+    this.colorFilter.reset();
+    for (int pass = 0; pass < this.colorFilter.getPasses(); pass++) {
+      for (int y = 0; y < HEIGHT; y++) {
+        this.colorFilter.filterRowRgb(this.pixels, y * WIDTH, WIDTH, this.rgb, y * WIDTH * 3, pass);
+      }
+    }
+    return this.rgb;
+  }
+
+  @Benchmark
+  public byte[] rowMonochrome() {
+    this.colorFilter.reset();
+    for (int pass = 0; pass < this.colorFilter.getPasses(); pass++) {
+      for (int y = 0; y < HEIGHT; y++) {
+        this.colorFilter.filterRowMonochrome(this.pixels, y * WIDTH, WIDTH, this.monochrome, y * WIDTH, pass);
+      }
+    }
+    return this.monochrome;
+  }
+
+  @Benchmark
+  public byte[] perPixelRgb() {
+    this.colorFilter.reset();
+    for (int pass = 0; pass < this.colorFilter.getPasses(); pass++) {
+      final boolean imageUpdate = this.colorFilter.isPassImageUpdate(pass);
+      int position = 0;
+      for (final int pixel : this.pixels) {
+        final int filtered = this.colorFilter.filterRgb(pixel, pass);
+        if (imageUpdate) {
+          this.rgb[position++] = (byte) (filtered >> 16);
+          this.rgb[position++] = (byte) (filtered >> 8);
+          this.rgb[position++] = (byte) filtered;
+        }
+      }
+    }
+    return this.rgb;
+  }
+}
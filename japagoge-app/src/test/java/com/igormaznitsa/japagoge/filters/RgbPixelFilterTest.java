@@ -0,0 +1,116 @@
+package com.igormaznitsa.japagoge.filters;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.igormaznitsa.japagoge.utils.PaletteUtils;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Check that row kernels of every {@link RgbPixelFilter} give the same bytes as per pixel
+ * {@link ColorFilter#filterRgb(int, int)} through all passes of filter, and that luminance lookup tables give the same
+ * values as direct calculation.
+ */
+class RgbPixelFilterTest {
+
+  private static final int WIDTH = 97;
+  private static final int HEIGHT = 13;
+  private static final int OFFSET = 5;
+
+  private static int[] makePixels(final Random random) {
+    final int[] result = new int[WIDTH * HEIGHT + OFFSET];
+    for (int i = 0; i < result.length; i++) {
+      switch (i % 3) {
+        case 0:
+          result[i] = random.nextInt();
+          break;
+        case 1:
+          result[i] = random.nextBoolean() ? 0xFFFFFF : 0;
+          break;
+        default:
+          result[i] = random.nextInt(256) * 0x010101;
+          break;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Filter frame through all passes by per pixel calls and by row kernel, bytes written by passes updating image are
+   * collected.
+   */
+  private static void filterFrame(final RgbPixelFilter filter, final int[] pixels, final boolean monochrome, final byte[] expected, final byte[] filtered) {
+    final int bytesPerPixel = monochrome ? 1 : 3;
+    final ColorFilter pixelFilter = filter.makeInstance();
+    final ColorFilter rowFilter = filter.isStateful() ? filter.makeInstance() : pixelFilter;
+    pixelFilter.reset();
+    rowFilter.reset();
+    for (int pass = 0; pass < pixelFilter.getPasses(); pass++) {
+      final boolean imageUpdate = pixelFilter.isPassImageUpdate(pass);
+      int position = 0;
+      for (int y = 0; y < HEIGHT; y++) {
+        final int rowOffset = OFFSET + y * WIDTH;
+        for (int x = 0; x < WIDTH; x++) {
+          final int rgb = pixelFilter.filterRgb(pixels[rowOffset + x], pass);
+          if (imageUpdate) {
+            if (monochrome) {
+              expected[position++] = (byte) rgb;
+            } else {
+              expected[position++] = (byte) (rgb >> 16);
+              expected[position++] = (byte) (rgb >> 8);
+              expected[position++] = (byte) rgb;
+            }
+          }
+        }
+        if (monochrome) {
+          rowFilter.filterRowMonochrome(pixels, rowOffset, WIDTH, filtered, y * WIDTH * bytesPerPixel, pass);
+        } else {
+          rowFilter.filterRowRgb(pixels, rowOffset, WIDTH, filtered, y * WIDTH * bytesPerPixel, pass);
+        }
+      }
+    }
+  }
+
+  @ParameterizedTest
+  @EnumSource(RgbPixelFilter.class)
+  void testRowRgbSameAsFilterRgb(final RgbPixelFilter filter) {
+    final Random random = new Random(filter.ordinal() + 100L);
+    for (int frame = 0; frame < 4; frame++) {
+      final int[] pixels = makePixels(random);
+      final byte[] expected = new byte[WIDTH * HEIGHT * 3];
+      final byte[] filtered = new byte[WIDTH * HEIGHT * 3];
+      filterFrame(filter, pixels, false, expected, filtered);
+      assertArrayEquals(expected, filtered, filter + ", frame " + frame);
+    }
+  }
+
+  @ParameterizedTest
+  @EnumSource(RgbPixelFilter.class)
+  void testRowMonochromeSameAsFilterRgb(final RgbPixelFilter filter) {
+    final Random random = new Random(filter.ordinal() + 200L);
+    for (int frame = 0; frame < 4; frame++) {
+      final int[] pixels = makePixels(random);
+      final byte[] expected = new byte[WIDTH * HEIGHT];
+      final byte[] filtered = new byte[WIDTH * HEIGHT];
+      filterFrame(filter, pixels, true, expected, filtered);
+      assertArrayEquals(expected, filtered, filter + ", frame " + frame);
+    }
+  }
+
+  @Test
+  void testLuminanceTablesSameAsCalculation() {
+    for (int rgb = 0; rgb < 0x1000000; rgb++) {
+      final int r = rgb >> 16;
+      final int g = (rgb >> 8) & 0xFF;
+      final int b = rgb & 0xFF;
+      final int expected = Math.min(255, Math.round(r * 0.299f + g * 0.587f + b * 0.114f));
+      if (expected != PaletteUtils.toY(rgb) || expected != PaletteUtils.toY(r, g, b)) {
+        assertEquals(expected, PaletteUtils.toY(rgb), "RGB " + Integer.toHexString(rgb));
+        assertEquals(expected, PaletteUtils.toY(r, g, b), "RGB " + Integer.toHexString(rgb));
+      }
+    }
+  }
+}
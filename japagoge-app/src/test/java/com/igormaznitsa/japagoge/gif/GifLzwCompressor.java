@@ -4,6 +4,8 @@ import java.io.IOException;
 import java.io.OutputStream;
 
 // Adpapted from Jef Poskanzer's Java port
+// Instance can be reused for several images but must be used by single thread
+// Reference encoder replaced by GifLzwEncoder, it is kept to check that output is the same
 final class GifLzwCompressor {
 
   private static final int BITS = 12;
@@ -20,10 +22,10 @@ final class GifLzwCompressor {
   private final byte[] accumulator = new byte[256];
   private final int maxBits = BITS;
   private final int maxMaxCode = 1 << BITS;
-  private final int imageWidth, imageHeight;
-  private final byte[] pixArray;
   private final int initialCodeSize;
-  private final OutputStream outputStream;
+  private int imageWidth, imageHeight;
+  private byte[] pixArray;
+  private OutputStream outputStream;
   private int nBits;
   private int maxCode;
   private int freeEnt = 0;
@@ -37,11 +39,7 @@ final class GifLzwCompressor {
   private int remaining;
   private int curPixel;
 
-  public GifLzwCompressor(final OutputStream outputStream, final int imageWidth, final int imageHeight, final byte[] pixelIndexes) {
-    this.outputStream = outputStream;
-    this.imageWidth = imageWidth;
-    this.imageHeight = imageHeight;
-    this.pixArray = pixelIndexes;
+  public GifLzwCompressor() {
     this.initialCodeSize = 8;
   }
 
@@ -129,7 +127,22 @@ final class GifLzwCompressor {
     this.output(eofCode);
   }
 
-  public void encode() throws IOException {
+  public void encode(final OutputStream outputStream, final int imageWidth, final int imageHeight, final byte[] pixelIndexes) throws IOException {
+    this.outputStream = outputStream;
+    this.imageWidth = imageWidth;
+    this.imageHeight = imageHeight;
+    this.pixArray = pixelIndexes;
+    this.curAccum = 0;
+    this.curBits = 0;
+    try {
+      this.encode();
+    } finally {
+      this.outputStream = null;
+      this.pixArray = null;
+    }
+  }
+
+  private void encode() throws IOException {
     this.outputStream.write(this.initialCodeSize);
     this.remaining = this.imageWidth * this.imageHeight;
     this.curPixel = 0;
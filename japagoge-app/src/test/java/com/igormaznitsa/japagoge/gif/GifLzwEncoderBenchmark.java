@@ -0,0 +1,89 @@
+package com.igormaznitsa.japagoge.gif;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark of GifLzwEncoder against replaced GifLzwCompressor for 720p frames, it is not started by tests and
+ * can be started through {@link #main(String[])} from IDE or by {@code org.openjdk.jmh.Main GifLzwEncoderBenchmark}
+ * with test classpath.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GifLzwEncoderBenchmark {
+
+  private static final int WIDTH = 1280;
+  private static final int HEIGHT = 720;
+
+  /**
+   * Kind of frame: screen-like runs of colors, random noise and gradient with rare noise.
+   */
+  @Param({"RUNS", "NOISE", "GRADIENT"})
+  public String frame;
+
+  private byte[] pixels;
+  private GifLzwEncoder encoder;
+  private GifLzwCompressor compressor;
+  private ByteArrayOutputStream compressorOutput;
+
+  public static void main(final String... args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(GifLzwEncoderBenchmark.class.getSimpleName()).build()).run();
+  }
+
+  @Setup
+  public void setup() {
+    final Random random = new Random(5);
+    this.pixels = new byte[WIDTH * HEIGHT];
+    for (int i = 0; i < this.pixels.length; i++) {
+      switch (this.frame) {
+        case "RUNS":
+          this.pixels[i] = (byte) (i > 0 && random.nextInt(20) > 0 ? this.pixels[i - 1] : random.nextInt(256));
+          break;
+        case "NOISE":
+          this.pixels[i] = (byte) random.nextInt(256);
+          break;
+        case "GRADIENT":
+          this.pixels[i] = (byte) (((i % WIDTH) / 40 + (i / WIDTH) / 30) * 17 + (random.nextInt(50) == 0 ? 1 : 0));
+          break;
+        default:
+          throw new IllegalArgumentException("Unexpected frame: " + this.frame);
+      }
+    }
+    this.encoder = new GifLzwEncoder(this.pixels.length / 4);
+    this.compressor = new GifLzwCompressor();
+    this.compressorOutput = new ByteArrayOutputStream(this.pixels.length * 2);
+  }
+
+  @Benchmark
+  public int encoder() {
+    this.encoder.encode(WIDTH, HEIGHT, this.pixels);
+    return this.encoder.getLength();
+  }
+
+  @Benchmark
+  public int compressor() throws IOException {
+    this.compressorOutput.reset();
+    this.compressor.encode(this.compressorOutput, WIDTH, HEIGHT, this.pixels);
+    return this.compressorOutput.size();
+  }
+}
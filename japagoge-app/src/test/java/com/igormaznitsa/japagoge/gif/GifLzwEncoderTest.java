@@ -0,0 +1,148 @@
+package com.igormaznitsa.japagoge.gif;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * Check that GifLzwEncoder makes the same output as the replaced GifLzwCompressor and that the output is decoded
+ * by ImageIO.
+ */
+class GifLzwEncoderTest {
+
+  private static final int RANDOM = 0;
+  private static final int RUNS = 1;
+  private static final int GRADIENT = 2;
+  private static final int CONSTANT = 3;
+  private static final int NOISED_PATTERN = 4;
+
+  private static byte[] makePixels(final Random random, final int width, final int height, final int kind, final int colors) {
+    final byte[] result = new byte[width * height];
+    for (int i = 0; i < result.length; i++) {
+      switch (kind) {
+        case RANDOM:
+          result[i] = (byte) random.nextInt(colors);
+          break;
+        case RUNS:
+          result[i] = (byte) (i > 0 && random.nextInt(10) > 0 ? result[i - 1] : random.nextInt(colors));
+          break;
+        case GRADIENT:
+          result[i] = (byte) ((i % width) / 7 + (i / width) / 5);
+          break;
+        case CONSTANT:
+          result[i] = 0;
+          break;
+        case NOISED_PATTERN:
+          result[i] = (byte) (random.nextInt(100) < 3 ? random.nextInt(256) : i % 3);
+          break;
+        default:
+          throw new IllegalArgumentException("Unexpected kind: " + kind);
+      }
+    }
+    return result;
+  }
+
+  static Stream<Arguments> images() {
+    final List<Arguments> result = new ArrayList<>();
+    final int[][] sizes = new int[][] {
+        {0, 0}, {0, 17}, {1, 1}, {1, 2}, {3, 1}, {17, 13}, {255, 1}, {64, 64},
+        // random data fills 4096 codes and makes several clear codes
+        {320, 240}, {641, 479},
+        {1920, 64}
+    };
+    final Random random = new Random(0x6E1F);
+    for (final int[] size : sizes) {
+      for (int kind = RANDOM; kind <= NOISED_PATTERN; kind++) {
+        final int colors = kind == RANDOM || kind == RUNS ? 1 + random.nextInt(256) : 256;
+        result.add(Arguments.of(size[0] + "x" + size[1] + ", kind " + kind + ", colors " + colors,
+            size[0], size[1], makePixels(random, size[0], size[1], kind, colors)));
+      }
+      result.add(Arguments.of(size[0] + "x" + size[1] + ", random 256 colors",
+          size[0], size[1], makePixels(random, size[0], size[1], RANDOM, 256)));
+      result.add(Arguments.of(size[0] + "x" + size[1] + ", random 2 colors",
+          size[0], size[1], makePixels(random, size[0], size[1], RANDOM, 2)));
+    }
+    return result.stream();
+  }
+
+  private static byte[] encodeByCompressor(final int width, final int height, final byte[] pixels) throws IOException {
+    final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    new GifLzwCompressor().encode(buffer, width, height, pixels);
+    return buffer.toByteArray();
+  }
+
+  private static byte[] encodeByEncoder(final GifLzwEncoder encoder, final int width, final int height, final byte[] pixels) throws IOException {
+    encoder.encode(width, height, pixels);
+    final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    encoder.writeTo(buffer);
+    assertEquals(buffer.size(), encoder.getLength());
+    return buffer.toByteArray();
+  }
+
+  private static byte[] decodeByImageIo(final byte[] gif) throws IOException {
+    final BufferedImage image = ImageIO.read(new ByteArrayInputStream(gif));
+    assertNotNull(image, "ImageIO can't read GIF");
+    return ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+  }
+
+  private static byte[] makeGrayPalette() {
+    final byte[] result = new byte[256 * 3];
+    for (int i = 0; i < 256; i++) {
+      result[i * 3] = (byte) i;
+      result[i * 3 + 1] = (byte) i;
+      result[i * 3 + 2] = (byte) i;
+    }
+    return result;
+  }
+
+  @ParameterizedTest(name = "{0}")
+  @MethodSource("images")
+  void testSameOutputAsCompressor(final String name, final int width, final int height, final byte[] pixels) throws IOException {
+    final byte[] expected = encodeByCompressor(width, height, pixels);
+    assertArrayEquals(expected, encodeByEncoder(new GifLzwEncoder(16), width, height, pixels), "new encoder");
+    assertArrayEquals(expected, encodeByEncoder(new GifLzwEncoder(), width, height, pixels), "default encoder");
+  }
+
+  @Test
+  void testReusedEncoder() throws IOException {
+    final Random random = new Random(0x2EE5);
+    final GifLzwEncoder encoder = new GifLzwEncoder(16);
+    for (int i = 0; i < 300; i++) {
+      final int width = random.nextInt(i % 10 == 0 ? 700 : 80) + (i % 50 == 7 ? 0 : 1);
+      final int height = random.nextInt(i % 10 == 0 ? 500 : 80) + 1;
+      final byte[] pixels = makePixels(random, width, height, random.nextInt(NOISED_PATTERN + 1), 1 + random.nextInt(256));
+      assertArrayEquals(encodeByCompressor(width, height, pixels), encodeByEncoder(encoder, width, height, pixels),
+          "iteration " + i + ", " + width + 'x' + height);
+    }
+  }
+
+  @ParameterizedTest(name = "{0}")
+  @MethodSource("images")
+  void testImageIoRoundTrip(final String name, final int width, final int height, final byte[] pixels) throws IOException {
+    if (width == 0 || height == 0) {
+      // ImageIO doesn't read empty images
+      return;
+    }
+    final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    final AGifWriter writer = new AGifWriter(buffer, width, height, 0, makeGrayPalette(), 0);
+    writer.addFrame(AGifWriter.DisposalMode.DO_NOT_DISPOSE, 0, 0, width, height, Duration.ofMillis(100), -1, pixels);
+    writer.end();
+    assertArrayEquals(pixels, decodeByImageIo(buffer.toByteArray()));
+  }
+}
@@ -0,0 +1,78 @@
+package com.igormaznitsa.japagoge.grabbers;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.awt.GraphicsEnvironment;
+import java.awt.Rectangle;
+import java.util.Locale;
+import java.util.logging.Logger;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Throughput of MIT-SHM grabber against XGetImage grabber. It needs X11 display with screen 3840x2160 or bigger, for
+ * instance started as {@code xvfb-run -s "-screen 0 3840x2160x24" mvn test}, test is skipped without X11 display
+ * and areas which don't fit screen are skipped.
+ */
+class X11ShmScreenAreaGrabberTest {
+
+  private static final Logger LOGGER = Logger.getLogger("X11ShmScreenAreaGrabberTest");
+
+  private static final int WARMUP_FRAMES = 10;
+  private static final int MEASURED_FRAMES = 60;
+
+  @BeforeAll
+  static void assumeX11() {
+    assumeTrue(System.getProperty("os.name", "").toLowerCase(Locale.ENGLISH).contains("linux"), "Only for Linux");
+    assumeTrue(System.getenv("DISPLAY") != null, "X11 display is not defined");
+    assumeFalse(GraphicsEnvironment.isHeadless(), "Headless environment");
+  }
+
+  private static double measureFps(final ScreenAreaGrabber grabber, final Rectangle area, final int[] buffer) {
+    for (int i = 0; i < WARMUP_FRAMES; i++) {
+      grabber.grabAsRgb(area, buffer, 0, area.width);
+    }
+    final long start = System.nanoTime();
+    for (int i = 0; i < MEASURED_FRAMES; i++) {
+      grabber.grabAsRgb(area, buffer, 0, area.width);
+    }
+    return MEASURED_FRAMES / ((System.nanoTime() - start) / 1.0e9d);
+  }
+
+  private static void checkThroughput(final int width, final int height) throws Exception {
+    final Rectangle screen = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration().getBounds();
+    assumeTrue(screen.width >= width && screen.height >= height, "Screen " + screen.width + 'x' + screen.height + " is smaller than " + width + 'x' + height);
+
+    final Rectangle area = new Rectangle(0, 0, width, height);
+    final int[] plainBuffer = new int[width * height];
+    final int[] shmBuffer = new int[width * height];
+
+    try (final X11ScreenAreaGrabber plainGrabber = new X11ScreenAreaGrabber(null);
+         final X11ShmScreenAreaGrabber shmGrabber = new X11ShmScreenAreaGrabber(null)) {
+      final double plainFps = measureFps(plainGrabber, area, plainBuffer);
+      final double shmFps = measureFps(shmGrabber, area, shmBuffer);
+
+      plainGrabber.grabAsRgb(area, plainBuffer, 0, width);
+      shmGrabber.grabAsRgb(area, shmBuffer, 0, width);
+      // grabber falls back to XGetImage silently after MIT-SHM error
+      assertTrue(shmGrabber.isShmActive(), "MIT-SHM must be used");
+      assertArrayEquals(plainBuffer, shmBuffer, "Grabbed pixels must be the same");
+
+      LOGGER.info(String.format(Locale.ENGLISH, "%dx%d: XGetImage %.1f fps, MIT-SHM %.1f fps, gain %.2fx",
+          width, height, plainFps, shmFps, shmFps / plainFps));
+    }
+  }
+
+  @Test
+  void testThroughput1080p() throws Exception {
+    checkThroughput(1920, 1080);
+  }
+
+  @Test
+  void testThroughput4K() throws Exception {
+    checkThroughput(3840, 2160);
+  }
+}
@@ -0,0 +1,208 @@
+package com.igormaznitsa.japagoge.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * Check of k-d tree search and RGB index tables against brute-force search of {@link PaletteUtils#findClosestIndex}.
+ * Simple brute-force search selects the last index on tie, accurate one selects the first index on tie,
+ * RGB index tables select the first index on tie for both distances. Default check takes colors of every 101st
+ * cell of 4x4x4 colors, exhaustive check of all 16777216 colors for every palette is tagged as slow and it is started by
+ * {@code mvn test -Dtest.excluded.groups=}
+ */
+class PaletteKdTreeTest {
+
+  private static final int COLORS = 1 << 24;
+  private static final int CELL_COLORS = 64;
+  private static final int SAMPLE_STEP = 101;
+
+  static Stream<Arguments> palettes() {
+    final List<Arguments> result = new ArrayList<>();
+    for (final Palette256 palette : Palette256.values()) {
+      palette.getPalette().ifPresent(rgb -> result.add(Arguments.of(palette.name(), PaletteUtils.splitRgb(rgb))));
+    }
+    final Random random = new Random(0x1A2B3C4DL);
+    for (final int size : new int[] {1, 7, 256}) {
+      result.add(Arguments.of("random-" + size, makeRandomPalette(random, size, false)));
+    }
+    for (final int size : new int[] {2, 64}) {
+      result.add(Arguments.of("grid-" + size, makeRandomPalette(random, size, true)));
+    }
+    return result.stream();
+  }
+
+  /**
+   * Make palette with duplicated colors, grid palette contains only colors with components multiple of 32 so that
+   * many colors have the same distance to several palette colors.
+   */
+  private static byte[] makeRandomPalette(final Random random, final int size, final boolean grid) {
+    final byte[] result = new byte[size * 3];
+    for (int i = 0; i < size; i++) {
+      if (i > 0 && random.nextInt(4) == 0) {
+        System.arraycopy(result, random.nextInt(i) * 3, result, i * 3, 3);
+      } else {
+        for (int c = 0; c < 3; c++) {
+          result[i * 3 + c] = (byte) (grid ? random.nextInt(9) * 32 - (random.nextBoolean() ? 0 : 1) : random.nextInt(256));
+        }
+      }
+    }
+    return result;
+  }
+
+  private static byte[] reverse(final byte[] rgbPalette) {
+    final byte[] result = new byte[rgbPalette.length];
+    final int items = rgbPalette.length / 3;
+    for (int i = 0; i < items; i++) {
+      System.arraycopy(rgbPalette, i * 3, result, (items - 1 - i) * 3, 3);
+    }
+    return result;
+  }
+
+  /**
+   * Colors of every step-th cell of 4x4x4 colors, compact RGB index table calculates whole cell on request so that
+   * only cells of sampled colors are calculated.
+   */
+  private static IntStream colors(final int step) {
+    final int cells = COLORS / CELL_COLORS;
+    return IntStream.range(0, (cells + step - 1) / step).flatMap(i -> {
+      final int cell = i * step;
+      final int base = ((cell >> 12) << 18) | (((cell >> 6) & 0x3F) << 10) | ((cell & 0x3F) << 2);
+      return IntStream.range(0, CELL_COLORS).map(c -> base | ((c >> 4) << 16) | (((c >> 2) & 3) << 8) | (c & 3));
+    });
+  }
+
+  private static void assertColors(final String name, final int step, final byte[] expected, final IntUnaryOperator finder, final boolean parallel) {
+    final IntStream colors = colors(step);
+    (parallel ? colors.parallel() : colors).forEach(rgb -> {
+      final int found = finder.applyAsInt(rgb);
+      if (found != (expected[rgb] & 0xFF)) {
+        assertEquals(expected[rgb] & 0xFF, found, name + " for color " + Integer.toHexString(rgb));
+      }
+    });
+  }
+
+  /**
+   * Make finder which makes the same query twice to check both search and cache hit.
+   */
+  private static IntUnaryOperator cached(final PaletteKdTree tree) {
+    return rgb -> {
+      final int found = tree.findClosestCached(rgb);
+      return tree.findClosestCached(rgb) == found ? found : -1;
+    };
+  }
+
+  private static void checkPalette(final byte[] rgbPalette, final int step) {
+    final int items = rgbPalette.length / 3;
+    final int[] paletteY = new int[items];
+    final float[] paletteHue = new float[items];
+    for (int i = 0; i < items; i++) {
+      final int r = rgbPalette[i * 3] & 0xFF;
+      final int g = rgbPalette[i * 3 + 1] & 0xFF;
+      final int b = rgbPalette[i * 3 + 2] & 0xFF;
+      paletteY[i] = PaletteUtils.toY(r, g, b);
+      paletteHue[i] = PaletteUtils.toHue(r, g, b);
+    }
+
+    // brute-force search of PaletteUtils calculates luminance and hue of palette colors for every query and
+    // supports only one rule of tie for every distance, so that all expected indexes are found by the same search
+    // in one pass with precalculated values and the search is checked against PaletteUtils by sample
+    final byte[] expectedSimpleLast = new byte[COLORS];
+    final byte[] expectedSimpleFirst = new byte[COLORS];
+    final byte[] expectedAccurate = new byte[COLORS];
+    colors(step).parallel().forEach(rgb -> {
+      final int r = rgb >> 16;
+      final int g = (rgb >> 8) & 0xFF;
+      final int b = rgb & 0xFF;
+      final int y = PaletteUtils.toY(r, g, b);
+      final float h = PaletteUtils.toHue(r, g, b);
+      int simpleDistance = Integer.MAX_VALUE;
+      int simpleLast = 0;
+      int simpleFirst = 0;
+      float accurateDistance = Float.MAX_VALUE;
+      int accurate = 0;
+      for (int i = 0; i < items; i++) {
+        final int dr = r - (rgbPalette[i * 3] & 0xFF);
+        final int dg = g - (rgbPalette[i * 3 + 1] & 0xFF);
+        final int db = b - (rgbPalette[i * 3 + 2] & 0xFF);
+        final int distance = dr * dr + dg * dg + db * db;
+        if (distance < simpleDistance) {
+          simpleDistance = distance;
+          simpleFirst = i;
+          simpleLast = i;
+        } else if (distance == simpleDistance) {
+          simpleLast = i;
+        }
+        final int dy = y - paletteY[i];
+        final float dh = h - paletteHue[i];
+        final float newAccurateDistance = dr * dr + dg * dg + db * db + dy * dy + dh * dh;
+        if (newAccurateDistance < accurateDistance) {
+          accurateDistance = newAccurateDistance;
+          accurate = i;
+        }
+      }
+      expectedSimpleLast[rgb] = (byte) simpleLast;
+      expectedSimpleFirst[rgb] = (byte) simpleFirst;
+      expectedAccurate[rgb] = (byte) accurate;
+    });
+
+    // simple brute-force search selects the last index on tie, so that it selects the first index in reversed palette
+    final byte[] reversedPalette = reverse(rgbPalette);
+    colors(step * 61).forEach(rgb -> {
+      final int r = rgb >> 16;
+      final int g = (rgb >> 8) & 0xFF;
+      final int b = rgb & 0xFF;
+      final String color = " for color " + Integer.toHexString(rgb);
+      assertEquals(PaletteUtils.findClosestIndex(r, g, b, rgbPalette), expectedSimpleLast[rgb] & 0xFF, "simple brute-force" + color);
+      assertEquals(items - 1 - PaletteUtils.findClosestIndex(r, g, b, reversedPalette), expectedSimpleFirst[rgb] & 0xFF, "reversed simple brute-force" + color);
+      assertEquals(PaletteUtils.findClosestIndex(r, g, b, PaletteUtils.toY(r, g, b), PaletteUtils.toHue(r, g, b), rgbPalette),
+          expectedAccurate[rgb] & 0xFF, "accurate brute-force" + color);
+    });
+
+    final PaletteKdTree simpleLastTree = new PaletteKdTree(rgbPalette, false, true);
+    assertColors("simple findClosest, last on tie", step, expectedSimpleLast, rgb -> simpleLastTree.findClosest(rgb >> 16, (rgb >> 8) & 0xFF, rgb & 0xFF), true);
+    assertColors("simple findClosestCached, last on tie", step, expectedSimpleLast, cached(simpleLastTree), false);
+
+    final PaletteKdTree simpleFirstTree = new PaletteKdTree(rgbPalette, false, false);
+    assertColors("simple findClosest, first on tie", step, expectedSimpleFirst, rgb -> simpleFirstTree.findClosest(rgb >> 16, (rgb >> 8) & 0xFF, rgb & 0xFF), true);
+    assertColors("simple findClosestCached, first on tie", step, expectedSimpleFirst, cached(simpleFirstTree), false);
+
+    final PaletteKdTree accurateTree = new PaletteKdTree(rgbPalette, true, false);
+    assertColors("accurate findClosest", step, expectedAccurate, rgb -> accurateTree.findClosest(rgb >> 16, (rgb >> 8) & 0xFF, rgb & 0xFF), true);
+    assertColors("accurate findClosestCached", step, expectedAccurate, cached(accurateTree), false);
+
+    final CompactRgbIndexTable simpleTable = CompactRgbIndexTable.make(rgbPalette, false, () -> false);
+    assertColors("simple CompactRgbIndexTable", step, expectedSimpleFirst, simpleTable::findIndex, true);
+
+    final CompactRgbIndexTable accurateTable = CompactRgbIndexTable.make(rgbPalette, true, () -> false);
+    assertColors("accurate CompactRgbIndexTable", step, expectedAccurate, accurateTable::findIndex, true);
+
+    if (step == 1) {
+      // full table is calculated for all colors in any case
+      final byte[] table = PaletteUtils.makeRgbIndexTable(rgbPalette, false, () -> false);
+      assertColors("makeRgbIndexTable", step, expectedSimpleFirst, rgb -> table[rgb] & 0xFF, true);
+    }
+  }
+
+  @ParameterizedTest(name = "{0}")
+  @MethodSource("palettes")
+  void testSampledColors(final String name, final byte[] rgbPalette) {
+    checkPalette(rgbPalette, SAMPLE_STEP);
+  }
+
+  @Tag("slow")
+  @ParameterizedTest(name = "{0}")
+  @MethodSource("palettes")
+  void testAllColors(final String name, final byte[] rgbPalette) {
+    checkPalette(rgbPalette, 1);
+  }
+}
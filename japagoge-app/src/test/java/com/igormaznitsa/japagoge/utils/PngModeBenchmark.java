@@ -0,0 +1,81 @@
+package com.igormaznitsa.japagoge.utils;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark of decoding 720p frame by row decoder of every {@link PngMode} against replaced bit by bit decoding
+ * of samples, it is not started by tests and can be started through {@link #main(String[])} from IDE or by
+ * {@code org.openjdk.jmh.Main PngModeBenchmark} with test classpath.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PngModeBenchmark {
+
+  private static final int WIDTH = 1280;
+  private static final int HEIGHT = 720;
+
+  @Param({
+      "MODE_GRAYSCALE_1", "MODE_GRAYSCALE_2", "MODE_GRAYSCALE_4", "MODE_GRAYSCALE_8", "MODE_GRAYSCALE_16",
+      "MODE_RGB_8", "MODE_RGB_16",
+      "MODE_INDEX_1", "MODE_INDEX_2", "MODE_INDEX_4", "MODE_INDEX_8",
+      "MODE_GRAYSCALE_ALPHA_8", "MODE_GRAYSCALE_ALPHA_16", "MODE_RGB_ALPHA_8", "MODE_RGB_ALPHA_16"
+  })
+  public PngMode mode;
+
+  private byte[] raster;
+  private byte[] palette;
+  private int[] pixels;
+  private int bytesPerRow;
+
+  public static void main(final String... args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(PngModeBenchmark.class.getSimpleName()).build()).run();
+  }
+
+  @Setup
+  public void setup() {
+    final Random random = new Random(720);
+    this.bytesPerRow = this.mode.calcBytesPerScanline(WIDTH) - 1;
+    this.raster = new byte[this.bytesPerRow * HEIGHT];
+    random.nextBytes(this.raster);
+    this.palette = new byte[256 * 3];
+    random.nextBytes(this.palette);
+    this.pixels = new int[WIDTH * HEIGHT];
+  }
+
+  @Benchmark
+  public long rowDecoder() {
+    long result = 0L;
+    for (int y = 0; y < HEIGHT; y++) {
+      result += this.mode.decodeRow(this.raster, y * this.bytesPerRow, WIDTH, this.palette, this.pixels, y * WIDTH);
+    }
+    return result;
+  }
+
+  @Benchmark
+  public long samplesToRgb() {
+    long result = 0L;
+    for (int y = 0; y < HEIGHT; y++) {
+      result += SamplesToRgbBaseline.decodeRow(this.mode, this.raster, y * this.bytesPerRow, WIDTH, this.palette, this.pixels, y * WIDTH);
+    }
+    return result;
+  }
+}
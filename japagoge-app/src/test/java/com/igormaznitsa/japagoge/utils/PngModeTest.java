@@ -0,0 +1,78 @@
+package com.igormaznitsa.japagoge.utils;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Check that row decoders of every {@link PngMode} give the same pixels and the same transparent pixel as the
+ * replaced bit by bit decoding of samples, rows are checked for odd widths and with not zero offsets.
+ */
+class PngModeTest {
+
+  private static final int[] WIDTHS = {1, 2, 3, 4, 5, 7, 8, 9, 13, 15, 17, 31, 33, 63, 100, 257, 1281};
+  private static final int ROWS = 16;
+
+  /**
+   * Make unfiltered raster, alpha samples of some rows are opaque and some rows contain full range of alpha.
+   */
+  private static byte[] makeRaster(final Random random, final PngMode mode, final int bytesPerRow) {
+    final byte[] result = new byte[bytesPerRow * ROWS + 3];
+    random.nextBytes(result);
+    final boolean alphaMode = mode.getSamples() == 2 || mode.getSamples() == 4;
+    if (alphaMode) {
+      final int pixelBytes = mode.getSamples() * mode.getBitsPerSample() / 8;
+      final int alphaOffset = pixelBytes - mode.getBitsPerSample() / 8;
+      for (int row = 0; row < ROWS; row++) {
+        for (int pixel = 0; pixel < (bytesPerRow - 1) / pixelBytes; pixel++) {
+          final int alphaPosition = 3 + row * bytesPerRow + pixel * pixelBytes + alphaOffset;
+          switch (row % 4) {
+            case 0:
+              result[alphaPosition] = (byte) 0xFF;
+              break;
+            case 1:
+              result[alphaPosition] = random.nextBoolean() ? (byte) 0xFF : 0;
+              break;
+            case 2:
+              result[alphaPosition] = (byte) (0xF0 | random.nextInt(16));
+              break;
+            default:
+              break;
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  @ParameterizedTest
+  @EnumSource(PngMode.class)
+  void testRowDecoderSameAsSamplesToRgb(final PngMode mode) {
+    final Random random = new Random(mode.ordinal() * 31L + 7L);
+    final byte[] palette = new byte[256 * 3];
+    random.nextBytes(palette);
+
+    for (final int width : WIDTHS) {
+      // rows are started by filter type byte in raster
+      final int bytesPerRow = mode.calcBytesPerScanline(width);
+      final byte[] raster = makeRaster(random, mode, bytesPerRow);
+
+      final int[] expected = new int[width + 5];
+      final int[] decoded = new int[width + 5];
+      for (int row = 0; row < ROWS; row++) {
+        final int offset = 3 + row * bytesPerRow + 1;
+        final int dstOffset = row % 5;
+
+        final long expectedAlpha = SamplesToRgbBaseline.decodeRow(mode, raster, offset, width, palette, expected, dstOffset);
+        final long decodedAlpha = mode.decodeRow(raster, offset, width, palette, decoded, dstOffset);
+
+        final String message = mode + ", width " + width + ", row " + row;
+        assertArrayEquals(expected, decoded, message);
+        assertEquals(expectedAlpha, decodedAlpha, message);
+      }
+    }
+  }
+}
@@ -0,0 +1,129 @@
+package com.igormaznitsa.japagoge.utils;
+
+/**
+ * Reference decoder of PNG rows replaced by row decoders of {@link PngMode}, samples of every pixel are read bit by
+ * bit into accumulator and converted into RGB by function of mode. It is kept to check and measure row decoders.
+ */
+final class SamplesToRgbBaseline {
+
+  private SamplesToRgbBaseline() {
+  }
+
+  /**
+   * Decode row in the same way as {@link PngMode#decodeRow(byte[], int, int, byte[], int[], int)}.
+   *
+   * @return -1 if there is no pixel with alpha less than 255 in row, otherwise (alpha &lt;&lt; 32) | x of the first
+   * pixel with the lowest alpha
+   */
+  static long decodeRow(final PngMode mode, final byte[] raster, final int offset, final int width, final byte[] palette, final int[] dst, final int dstOffset) {
+    final int bitsItemLength = mode.getBitsPerSample() * mode.getSamples();
+    final byte[] rgb = new byte[3];
+    long result = -1L;
+    int lastAlpha = Integer.MAX_VALUE;
+
+    int srcOffset = offset;
+    long samplesAccumulator = 0L;
+    int restBitsNumber = bitsItemLength;
+    int bufferedBitsNumber = 0;
+    int bufferedByte = 0;
+    for (int x = 0; x < width; ) {
+      if (bufferedBitsNumber == 0) {
+        bufferedByte = raster[srcOffset++];
+        bufferedBitsNumber = 8;
+      }
+      int bitsToRead = Math.min(bufferedBitsNumber, restBitsNumber);
+
+      while (bitsToRead > 0) {
+        samplesAccumulator = (samplesAccumulator << 1) | ((bufferedByte & 0x80) == 0 ? 0 : 1);
+        bufferedByte <<= 1;
+        restBitsNumber--;
+        bitsToRead--;
+        bufferedBitsNumber--;
+      }
+
+      if (restBitsNumber == 0) {
+        final int alpha = applySamples(mode, samplesAccumulator, rgb, palette);
+        dst[dstOffset + x] = ((rgb[0] & 0xFF) << 16) | ((rgb[1] & 0xFF) << 8) | (rgb[2] & 0xFF);
+        if (alpha >= 0 && alpha < 255 && alpha < lastAlpha) {
+          lastAlpha = alpha;
+          result = ((long) alpha << 32) | x;
+        }
+        restBitsNumber = bitsItemLength;
+        samplesAccumulator = 0L;
+        x++;
+      }
+    }
+    return result;
+  }
+
+  private static int setLevel(final byte[] rgb, final byte level, final int alpha) {
+    rgb[0] = level;
+    rgb[1] = level;
+    rgb[2] = level;
+    return alpha;
+  }
+
+  private static int setPaletteColor(final byte[] rgb, final byte[] palette, final int index) {
+    rgb[0] = palette[index * 3];
+    rgb[1] = palette[index * 3 + 1];
+    rgb[2] = palette[index * 3 + 2];
+    return -1;
+  }
+
+  private static int setPremultiplied(final byte[] rgb, final int r, final int g, final int b, final int a) {
+    final float alpha = a / 255.0f;
+    rgb[0] = (byte) Math.round(r * alpha);
+    rgb[1] = (byte) Math.round(g * alpha);
+    rgb[2] = (byte) Math.round(b * alpha);
+    return a;
+  }
+
+  private static int applySamples(final PngMode mode, final long samples, final byte[] rgb, final byte[] palette) {
+    switch (mode) {
+      case MODE_GRAYSCALE_1:
+        return setLevel(rgb, (samples & 1L) == 0L ? 0 : (byte) 0xFF, 0xFF);
+      case MODE_GRAYSCALE_2:
+        return setLevel(rgb, (byte) ((samples & 3L) * 85), 0xFF);
+      case MODE_GRAYSCALE_4:
+        return setLevel(rgb, (byte) ((samples & 0x0FL) * 17), 0xFF);
+      case MODE_GRAYSCALE_8:
+        return setLevel(rgb, (byte) (samples & 0xFFL), 0xFF);
+      case MODE_GRAYSCALE_16:
+        return setLevel(rgb, (byte) ((samples >> 8) & 0xFFL), 0xFF);
+      case MODE_RGB_8:
+        rgb[0] = (byte) (samples >> 16);
+        rgb[1] = (byte) (samples >> 8);
+        rgb[2] = (byte) samples;
+        return 0xFF;
+      case MODE_RGB_16:
+        rgb[0] = (byte) (samples >> 40);
+        rgb[1] = (byte) (samples >> 24);
+        rgb[2] = (byte) (samples >> 8);
+        return 0xFF;
+      case MODE_INDEX_1:
+        return setPaletteColor(rgb, palette, (int) samples & 1);
+      case MODE_INDEX_2:
+        return setPaletteColor(rgb, palette, (int) samples & 0x03);
+      case MODE_INDEX_4:
+        return setPaletteColor(rgb, palette, (int) samples & 0x0F);
+      case MODE_INDEX_8:
+        return setPaletteColor(rgb, palette, (int) samples & 0xFF);
+      case MODE_GRAYSCALE_ALPHA_8: {
+        final int level = (int) (samples >> 8) & 0xFF;
+        final int alpha = (int) samples & 0xFF;
+        return setLevel(rgb, (byte) Math.round(level * (alpha / 255.0f)), alpha);
+      }
+      case MODE_GRAYSCALE_ALPHA_16: {
+        final int level = (int) (samples >> 24) & 0xFF;
+        final int alpha = (int) (samples >> 8) & 0xFF;
+        return setLevel(rgb, (byte) Math.round(level * (alpha / 255.0f)), alpha);
+      }
+      case MODE_RGB_ALPHA_8:
+        return setPremultiplied(rgb, (int) (samples >> 24) & 0xFF, (int) (samples >> 16) & 0xFF, (int) (samples >> 8) & 0xFF, (int) samples & 0xFF);
+      case MODE_RGB_ALPHA_16:
+        return setPremultiplied(rgb, (int) (samples >> 56) & 0xFF, (int) (samples >> 40) & 0xFF, (int) (samples >> 24) & 0xFF, (int) (samples >> 8) & 0xFF);
+      default:
+        throw new IllegalArgumentException("Unexpected mode: " + mode);
+    }
+  }
+}
@@ -16,6 +16,7 @@ const (
 	ERROR_ALREADY_EXISTS = 183
 	JDK_PATH             = "\\jre\\bin\\javaw.exe"
 	JAR_FILE             = "\\japagoge.jar"
+	ADD_MODULES          = "--add-modules=jdk.incubator.vector"
 	MUTEX                = "japagoge-app"
 )
 
@@ -58,7 +59,7 @@ func main() {
 	if err == nil {
 		base_folder := filepath.Dir(path)
 		cmd := exec.Command(base_folder+JDK_PATH,
-			"-jar", base_folder+JAR_FILE)
+			ADD_MODULES, "-jar", base_folder+JAR_FILE)
 		fmt.Printf("Application starting...\n")
 		err = cmd.Start()
 		if err != nil {